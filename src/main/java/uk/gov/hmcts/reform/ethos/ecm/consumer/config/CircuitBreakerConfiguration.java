@@ -0,0 +1,57 @@
+package uk.gov.hmcts.reform.ethos.ecm.consumer.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.CcdCallExecutor;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.CircuitBreaker;
+
+import java.time.Duration;
+
+@Configuration
+public class CircuitBreakerConfiguration {
+
+    // Not an actuator status, so an open breaker shows in the details without failing the health check
+    private static final String CIRCUIT_OPEN = "CIRCUIT_OPEN";
+
+    @Bean(name = "ccd-circuit-breaker")
+    public CircuitBreaker ccdCircuitBreaker(
+        MeterRegistry meterRegistry,
+        @Value("${circuit-breaker.ccd.failure-threshold}") int failureThreshold,
+        @Value("${circuit-breaker.ccd.open-seconds}") long openSeconds) {
+        return new CircuitBreaker("ccd", meterRegistry, failureThreshold, Duration.ofSeconds(openSeconds),
+                                  CcdCallExecutor::isTransient);
+    }
+
+    @Bean(name = "idam-circuit-breaker")
+    public CircuitBreaker idamCircuitBreaker(
+        MeterRegistry meterRegistry,
+        @Value("${circuit-breaker.idam.failure-threshold}") int failureThreshold,
+        @Value("${circuit-breaker.idam.open-seconds}") long openSeconds) {
+        return new CircuitBreaker("idam", meterRegistry, failureThreshold, Duration.ofSeconds(openSeconds),
+                                  CcdCallExecutor::isTransient);
+    }
+
+    @Bean
+    public HealthIndicator ccdCircuitBreakerHealthIndicator(
+        @Qualifier("ccd-circuit-breaker") CircuitBreaker circuitBreaker) {
+        return () -> health(circuitBreaker);
+    }
+
+    @Bean
+    public HealthIndicator idamCircuitBreakerHealthIndicator(
+        @Qualifier("idam-circuit-breaker") CircuitBreaker circuitBreaker) {
+        return () -> health(circuitBreaker);
+    }
+
+    private static Health health(CircuitBreaker circuitBreaker) {
+        CircuitBreaker.State state = circuitBreaker.getState();
+        return (state == CircuitBreaker.State.CLOSED ? Health.up() : Health.status(CIRCUIT_OPEN))
+            .withDetail("state", state.name())
+            .build();
+    }
+}
@@ -0,0 +1,48 @@
+package uk.gov.hmcts.reform.ethos.ecm.consumer.config;
+
+import org.apache.http.client.HttpClient;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.protocol.HttpContext;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+
+import java.net.URI;
+import java.util.Map;
+
+/**
+ * Request factory that applies the connect and read timeouts of the downstream service a request is sent to,
+ * matched on the request host and port.
+ */
+public class DownstreamHttpRequestFactory extends HttpComponentsClientHttpRequestFactory {
+
+    private final transient Map<String, RequestConfig> requestConfigByAuthority;
+    private final transient RequestConfig defaultRequestConfig;
+
+    public DownstreamHttpRequestFactory(HttpClient httpClient,
+                                        Map<String, RequestConfig> requestConfigByAuthority,
+                                        RequestConfig defaultRequestConfig) {
+        super(httpClient);
+        this.requestConfigByAuthority = requestConfigByAuthority;
+        this.defaultRequestConfig = defaultRequestConfig;
+    }
+
+    public RequestConfig requestConfigFor(URI uri) {
+        return requestConfigByAuthority.getOrDefault(authority(uri), defaultRequestConfig);
+    }
+
+    public static String authority(URI uri) {
+        int port = uri.getPort();
+        if (port <= 0) {
+            port = "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+        }
+        return uri.getHost().toLowerCase() + ":" + port;
+    }
+
+    @Override
+    protected HttpContext createHttpContext(HttpMethod httpMethod, URI uri) {
+        HttpClientContext context = HttpClientContext.create();
+        context.setRequestConfig(requestConfigFor(uri));
+        return context;
+    }
+}
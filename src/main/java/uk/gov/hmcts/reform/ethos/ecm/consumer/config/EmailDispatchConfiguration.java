@@ -0,0 +1,21 @@
+package uk.gov.hmcts.reform.ethos.ecm.consumer.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class EmailDispatchConfiguration {
+
+    @Bean(name = "email-dispatch-executor", destroyMethod = "shutdown")
+    public ExecutorService emailDispatchExecutor(@Value("${email.dispatch.threads}") int threads) {
+        var threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, r ->
+            new Thread(r, "email-dispatch-" + threadCount.incrementAndGet())
+        );
+    }
+}
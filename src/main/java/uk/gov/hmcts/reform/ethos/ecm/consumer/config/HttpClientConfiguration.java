@@ -1,36 +1,135 @@
 package uk.gov.hmcts.reform.ethos.ecm.consumer.config;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.http.HttpHost;
 import org.apache.http.client.config.RequestConfig;
+import org.apache.http.conn.routing.HttpRoute;
 import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
 import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
 @Configuration
 public class HttpClientConfiguration {
 
+    @Value("${ccd.data.store.api.url}")
+    private transient String ccdDataStoreApiBaseUrl;
+    @Value("${idam.api.url}")
+    private transient String idamApiUrl;
+    @Value("${idam.api.url.oidc}")
+    private transient String idamOidcUrl;
+
+    @Value("${http.client.max-total}")
+    private transient int maxTotal;
+    @Value("${http.client.default-max-per-route}")
+    private transient int defaultMaxPerRoute;
+    @Value("${http.client.ccd.max-per-route}")
+    private transient int ccdMaxPerRoute;
+    @Value("${http.client.idle-eviction-seconds}")
+    private transient long idleEvictionSeconds;
+    @Value("${http.client.keep-alive-seconds}")
+    private transient long keepAliveSeconds;
+    @Value("${http.client.connection-request-timeout-millis}")
+    private transient int connectionRequestTimeout;
+    @Value("${http.client.default.connect-timeout-millis}")
+    private transient int defaultConnectTimeout;
+    @Value("${http.client.default.read-timeout-millis}")
+    private transient int defaultReadTimeout;
+    @Value("${http.client.ccd.connect-timeout-millis}")
+    private transient int ccdConnectTimeout;
+    @Value("${http.client.ccd.read-timeout-millis}")
+    private transient int ccdReadTimeout;
+    @Value("${http.client.idam.connect-timeout-millis}")
+    private transient int idamConnectTimeout;
+    @Value("${http.client.idam.read-timeout-millis}")
+    private transient int idamReadTimeout;
+
     @Bean
-    public RestTemplate restTemplate() {
+    public RestTemplate restTemplate(CloseableHttpClient httpClient) {
+        Map<String, RequestConfig> requestConfigByAuthority = new HashMap<>();
+        RequestConfig idamConfig = requestConfig(idamConnectTimeout, idamReadTimeout);
+        requestConfigByAuthority.put(DownstreamHttpRequestFactory.authority(URI.create(idamApiUrl)), idamConfig);
+        requestConfigByAuthority.put(DownstreamHttpRequestFactory.authority(URI.create(idamOidcUrl)), idamConfig);
+        requestConfigByAuthority.put(DownstreamHttpRequestFactory.authority(URI.create(ccdDataStoreApiBaseUrl)),
+                                     requestConfig(ccdConnectTimeout, ccdReadTimeout));
+
         RestTemplate restTemplate = new RestTemplate();
-        restTemplate.setRequestFactory(new HttpComponentsClientHttpRequestFactory(getHttpClient()));
+        restTemplate.setRequestFactory(new DownstreamHttpRequestFactory(
+            httpClient, requestConfigByAuthority, requestConfig(defaultConnectTimeout, defaultReadTimeout)));
         return restTemplate;
     }
 
-    private CloseableHttpClient getHttpClient() {
-        int timeout = 10000;
-        RequestConfig config = RequestConfig.custom()
-            .setConnectTimeout(timeout)
-            .setConnectionRequestTimeout(timeout)
-            .setSocketTimeout(timeout)
-            .build();
-
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient httpClient(PoolingHttpClientConnectionManager connectionManager) {
         return HttpClientBuilder
             .create()
             .useSystemProperties()
-            .setDefaultRequestConfig(config)
+            .setConnectionManager(connectionManager)
+            .setKeepAliveStrategy((response, context) -> {
+                long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(
+                    response, context);
+                long maxKeepAlive = TimeUnit.SECONDS.toMillis(keepAliveSeconds);
+                return serverKeepAlive > 0 ? Math.min(serverKeepAlive, maxKeepAlive) : maxKeepAlive;
+            })
+            .evictExpiredConnections()
+            .evictIdleConnections(idleEvictionSeconds, TimeUnit.SECONDS)
+            .setDefaultRequestConfig(requestConfig(defaultConnectTimeout, defaultReadTimeout))
+            .build();
+    }
+
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager connectionManager(MeterRegistry meterRegistry) {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxTotal);
+        connectionManager.setDefaultMaxPerRoute(defaultMaxPerRoute);
+        // Connections idle for a while may have been dropped by a load balancer, check them before reuse
+        connectionManager.setValidateAfterInactivity(2000);
+
+        HttpRoute ccdRoute = route(URI.create(ccdDataStoreApiBaseUrl));
+        connectionManager.setMaxPerRoute(ccdRoute, ccdMaxPerRoute);
+
+        new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "ecm-consumer").bindTo(meterRegistry);
+        Gauge.builder("httpcomponents.httpclient.pool.route.leased", connectionManager,
+                      manager -> manager.getStats(ccdRoute).getLeased())
+            .tag("route", "ccd")
+            .register(meterRegistry);
+        Gauge.builder("httpcomponents.httpclient.pool.route.pending", connectionManager,
+                      manager -> manager.getStats(ccdRoute).getPending())
+            .tag("route", "ccd")
+            .register(meterRegistry);
+        Gauge.builder("httpcomponents.httpclient.pool.route.available", connectionManager,
+                      manager -> manager.getStats(ccdRoute).getAvailable())
+            .tag("route", "ccd")
+            .register(meterRegistry);
+
+        return connectionManager;
+    }
+
+    private RequestConfig requestConfig(int connectTimeout, int readTimeout) {
+        return RequestConfig.custom()
+            .setConnectTimeout(connectTimeout)
+            .setConnectionRequestTimeout(connectionRequestTimeout)
+            .setSocketTimeout(readTimeout)
             .build();
     }
 
+    private static HttpRoute route(URI uri) {
+        int port = uri.getPort();
+        if (port <= 0) {
+            port = "https".equalsIgnoreCase(uri.getScheme()) ? 443 : 80;
+        }
+        return new HttpRoute(new HttpHost(uri.getHost(), port, uri.getScheme()));
+    }
+
 }
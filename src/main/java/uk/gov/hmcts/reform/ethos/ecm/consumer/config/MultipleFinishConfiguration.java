@@ -0,0 +1,23 @@
+package uk.gov.hmcts.reform.ethos.ecm.consumer.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+@EnableScheduling
+public class MultipleFinishConfiguration {
+
+    @Bean(name = "multiple-finish-executor", destroyMethod = "shutdown")
+    public ExecutorService multipleFinishExecutor(@Value("${multiple-finish.threads}") int threads) {
+        var threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, r ->
+            new Thread(r, "multiple-finish-" + threadCount.incrementAndGet())
+        );
+    }
+}
@@ -1,11 +1,14 @@
 package uk.gov.hmcts.reform.ethos.ecm.consumer.config;
 
+import com.microsoft.azure.servicebus.ClientFactory;
+import com.microsoft.azure.servicebus.IMessageReceiver;
 import com.microsoft.azure.servicebus.IQueueClient;
 import com.microsoft.azure.servicebus.QueueClient;
 import com.microsoft.azure.servicebus.ReceiveMode;
 import com.microsoft.azure.servicebus.primitives.ConnectionStringBuilder;
 import com.microsoft.azure.servicebus.primitives.ServiceBusException;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -28,12 +31,36 @@ public class QueueClientConfiguration {
         return createQueueClient(connectionString, queueName);
     }
 
-    @Bean("update-case-listen-client")
-    public IQueueClient updateCaseListenClient(
+    @Bean(name = "create-updates-batch-receiver", destroyMethod = "close")
+    @ConditionalOnProperty(name = "queue.create-updates.receive.mode", havingValue = "batch")
+    public IMessageReceiver createUpdatesBatchReceiver(
+        @Value("${queue.create-updates.listen.connection-string}") String connectionString,
+        @Value("${queue.create-updates.queue-name}") String queueName
+    ) throws InterruptedException, ServiceBusException {
+        return createMessageReceiver(connectionString, queueName);
+    }
+
+    // Always a receiver, as only a receive loop can pause intake, see ServiceBusUpdateCaseReceiverConf
+    @Bean(name = "update-case-batch-receiver", destroyMethod = "close")
+    public IMessageReceiver updateCaseBatchReceiver(
         @Value("${queue.update-case.listen.connection-string}") String connectionString,
         @Value("${queue.update-case.queue-name}") String queueName
     ) throws InterruptedException, ServiceBusException {
-        return createQueueClient(connectionString, queueName);
+        return createMessageReceiver(connectionString, queueName);
+    }
+
+    private IMessageReceiver createMessageReceiver(
+        String connectionString,
+        String queueName
+    ) throws ServiceBusException, InterruptedException {
+        IMessageReceiver receiver = ClientFactory.createMessageReceiverFromConnectionStringBuilder(
+            new ConnectionStringBuilder(connectionString, queueName),
+            ReceiveMode.PEEKLOCK
+        );
+        // Prefetched messages wait in the client without their locks being renewed, so only the messages asked for by
+        // a receive are taken, see BatchMessageReceiver
+        receiver.setPrefetchCount(0);
+        return receiver;
     }
 
     private QueueClient createQueueClient(
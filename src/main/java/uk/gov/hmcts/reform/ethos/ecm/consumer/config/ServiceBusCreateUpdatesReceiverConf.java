@@ -1,23 +1,35 @@
 package uk.gov.hmcts.reform.ethos.ecm.consumer.config;
 
+import com.microsoft.azure.servicebus.IMessageReceiver;
 import com.microsoft.azure.servicebus.IQueueClient;
 import com.microsoft.azure.servicebus.MessageHandlerOptions;
 import com.microsoft.azure.servicebus.primitives.ServiceBusException;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.context.annotation.Configuration;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.servicebus.BatchMessageReceiver;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.servicebus.ConsumptionGate;
 import uk.gov.hmcts.reform.ethos.ecm.consumer.tasks.CreateUpdatesBusReceiverTask;
 import java.time.Duration;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 @AutoConfigureAfter(ServiceBusSenderConfiguration.class)
 @Configuration
 public class ServiceBusCreateUpdatesReceiverConf {
 
+    private static final Duration MAX_AUTO_RENEW_DURATION = Duration.ofMinutes(5);
+
     @PostConstruct()
     public void registerMessageHandlers() throws InterruptedException, ServiceBusException {
+        if (batchMessageReceiver != null) {
+            batchMessageReceiver.start();
+            return;
+        }
         createUpdatesListenClient.registerMessageHandler(
             createUpdatesBusReceiverTask,
             messageHandlerOptions,
@@ -25,23 +37,50 @@ public class ServiceBusCreateUpdatesReceiverConf {
         );
     }
 
+    @PreDestroy
+    public void stopBatchReceiver() {
+        if (batchMessageReceiver != null) {
+            batchMessageReceiver.stop();
+        }
+    }
+
     private static final ExecutorService createUpdatesListenExecutor =
         Executors.newSingleThreadExecutor(r ->
             new Thread(r, "create-updates-queue-listen")
         );
 
     private static final MessageHandlerOptions messageHandlerOptions =
-        new MessageHandlerOptions(1, false, Duration.ofMinutes(5));
+        new MessageHandlerOptions(1, false, MAX_AUTO_RENEW_DURATION);
 
     private final transient IQueueClient createUpdatesListenClient;
 
     private final transient CreateUpdatesBusReceiverTask createUpdatesBusReceiverTask;
 
+    private final transient BatchMessageReceiver batchMessageReceiver;
+
     public ServiceBusCreateUpdatesReceiverConf(
         @Qualifier("create-updates-listen-client") IQueueClient createUpdatesListenClient,
-        CreateUpdatesBusReceiverTask createUpdatesBusReceiverTask) {
+        @Qualifier("create-updates-batch-receiver") ObjectProvider<IMessageReceiver> batchReceiver,
+        CreateUpdatesBusReceiverTask createUpdatesBusReceiverTask,
+        @Value("${queue.create-updates.receive.batch-size}") int batchSize,
+        @Value("${queue.create-updates.receive.max-wait-seconds}") long maxWaitSeconds,
+        @Value("${queue.create-updates.receive.max-concurrent-messages}") int maxConcurrentMessages,
+        @Value("${queue.create-updates.receive.lock-renew-seconds}") long lockRenewSeconds) {
         this.createUpdatesListenClient = createUpdatesListenClient;
         this.createUpdatesBusReceiverTask = createUpdatesBusReceiverTask;
+
+        IMessageReceiver receiver = batchReceiver.getIfAvailable();
+        this.batchMessageReceiver = receiver == null ? null : new BatchMessageReceiver(
+            "create-updates-queue-receive",
+            receiver,
+            createUpdatesBusReceiverTask,
+            ConsumptionGate.OPEN,
+            batchSize,
+            Duration.ofSeconds(maxWaitSeconds),
+            maxConcurrentMessages,
+            Duration.ofSeconds(lockRenewSeconds),
+            MAX_AUTO_RENEW_DURATION
+        );
     }
 
 }
@@ -1,13 +1,19 @@
 package uk.gov.hmcts.reform.ethos.ecm.consumer.config;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microsoft.azure.servicebus.IMessageReceiver;
 import com.microsoft.azure.servicebus.IQueueClient;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import uk.gov.hmcts.ecm.common.servicebus.ServiceBusSender;
 import uk.gov.hmcts.reform.ethos.ecm.consumer.servicebus.MessageAutoCompletor;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.servicebus.MessageRescheduler;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.servicebus.ServiceBusBatchSender;
+
+import java.time.Duration;
 
 @AutoConfigureAfter(QueueClientConfiguration.class)
 @Configuration
@@ -21,19 +27,40 @@ public class ServiceBusSenderConfiguration {
 
     @Bean(name = "create-updates-completor")
     public MessageAutoCompletor createUpdatesCompletor(
-        @Qualifier("create-updates-listen-client") IQueueClient queueClient) {
-        return new MessageAutoCompletor(queueClient);
+        @Qualifier("create-updates-listen-client") IQueueClient queueClient,
+        @Qualifier("create-updates-batch-receiver") ObjectProvider<IMessageReceiver> batchReceiver) {
+        return createCompletor(queueClient, batchReceiver.getIfAvailable());
+    }
+
+    @Bean(name = "update-case-batch-sender")
+    public ServiceBusBatchSender updateCaseBatchSender(
+        @Qualifier("update-case-send-client") IQueueClient queueClient,
+        @Value("${queue.update-case.send.batch-size}") int batchSize,
+        @Value("${queue.update-case.send.batch-max-bytes}") long batchMaxBytes,
+        @Value("${queue.update-case.send.max-in-flight-batches}") int maxInFlightBatches) {
+        return new ServiceBusBatchSender(queueClient, objectMapper, batchSize, batchMaxBytes, maxInFlightBatches);
     }
 
-    @Bean(name = "update-case-send-helper")
-    public ServiceBusSender updateCaseSendHelper(
-        @Qualifier("update-case-send-client") IQueueClient queueClient) {
-        return new ServiceBusSender(queueClient, objectMapper);
+    @Bean(name = "update-case-rescheduler")
+    public MessageRescheduler updateCaseRescheduler(
+        @Qualifier("update-case-send-client") IQueueClient queueClient,
+        @Value("${queue.update-case.retry.initial-delay-millis}") long initialDelayMillis,
+        @Value("${queue.update-case.retry.max-delay-millis}") long maxDelayMillis,
+        @Value("${queue.update-case.lanes.multiples.defer-millis}") long deferMillis) {
+        return new MessageRescheduler(queueClient, Duration.ofMillis(initialDelayMillis),
+                                      Duration.ofMillis(maxDelayMillis), Duration.ofMillis(deferMillis));
     }
 
     @Bean(name = "update-case-completor")
     public MessageAutoCompletor updateCaseCompletor(
-        @Qualifier("update-case-listen-client") IQueueClient queueClient) {
-        return new MessageAutoCompletor(queueClient);
+        @Qualifier("update-case-batch-receiver") IMessageReceiver batchReceiver) {
+        return new MessageAutoCompletor(batchReceiver);
+    }
+
+    // Messages must be completed through the client that received them
+    private static MessageAutoCompletor createCompletor(IQueueClient queueClient, IMessageReceiver batchReceiver) {
+        return batchReceiver != null
+            ? new MessageAutoCompletor(batchReceiver)
+            : new MessageAutoCompletor(queueClient);
     }
 }
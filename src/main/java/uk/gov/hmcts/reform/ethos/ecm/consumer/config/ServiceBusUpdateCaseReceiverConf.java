@@ -1,48 +1,59 @@
 package uk.gov.hmcts.reform.ethos.ecm.consumer.config;
 
-import com.microsoft.azure.servicebus.IQueueClient;
-import com.microsoft.azure.servicebus.MessageHandlerOptions;
-import com.microsoft.azure.servicebus.primitives.ServiceBusException;
+import com.microsoft.azure.servicebus.IMessageReceiver;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.AutoConfigureAfter;
 import org.springframework.context.annotation.Configuration;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.servicebus.BatchMessageReceiver;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.servicebus.ConsumptionGate;
 import uk.gov.hmcts.reform.ethos.ecm.consumer.tasks.UpdateCaseBusReceiverTask;
 
 import java.time.Duration;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
+/**
+ * Receives update-case messages with a receive loop rather than the message pump, so that intake can be paused
+ * while the consumption gate is closed. The pump cannot be paused once its handler is registered.
+ */
 @AutoConfigureAfter(ServiceBusCreateUpdatesReceiverConf.class)
 @Configuration
 public class ServiceBusUpdateCaseReceiverConf {
 
+    private static final Duration MAX_AUTO_RENEW_DURATION = Duration.ofMinutes(5);
+
     @PostConstruct()
-    public void registerMessageHandlers() throws InterruptedException, ServiceBusException {
-        updateCaseListenClient.registerMessageHandler(
-            updateCaseBusReceiverTask,
-            messageHandlerOptions,
-            updateCaseListenExecutor
-        );
+    public void registerMessageHandlers() {
+        batchMessageReceiver.start();
     }
 
-    private static final ExecutorService updateCaseListenExecutor =
-        Executors.newSingleThreadExecutor(r ->
-            new Thread(r, "update-case-queue-listen")
-        );
-
-    private static final MessageHandlerOptions messageHandlerOptions =
-        new MessageHandlerOptions(1, false, Duration.ofMinutes(5));
-
-    private final transient IQueueClient updateCaseListenClient;
+    @PreDestroy
+    public void stopBatchReceiver() {
+        batchMessageReceiver.stop();
+    }
 
-    private final transient UpdateCaseBusReceiverTask updateCaseBusReceiverTask;
+    private final transient BatchMessageReceiver batchMessageReceiver;
 
     public ServiceBusUpdateCaseReceiverConf(
-        @Qualifier("update-case-listen-client") IQueueClient updateCaseListenClient,
-        UpdateCaseBusReceiverTask updateCaseBusReceiverTask) {
-        this.updateCaseListenClient = updateCaseListenClient;
-        this.updateCaseBusReceiverTask = updateCaseBusReceiverTask;
+        @Qualifier("update-case-batch-receiver") IMessageReceiver batchReceiver,
+        UpdateCaseBusReceiverTask updateCaseBusReceiverTask,
+        ConsumptionGate consumptionGate,
+        @Value("${queue.update-case.max-concurrent-calls}") int maxConcurrentCalls,
+        @Value("${queue.update-case.receive.batch-size}") int batchSize,
+        @Value("${queue.update-case.receive.max-wait-seconds}") long maxWaitSeconds,
+        @Value("${queue.update-case.receive.lock-renew-seconds}") long lockRenewSeconds) {
+        this.batchMessageReceiver = new BatchMessageReceiver(
+            "update-case-queue-receive",
+            batchReceiver,
+            updateCaseBusReceiverTask,
+            consumptionGate,
+            batchSize,
+            Duration.ofSeconds(maxWaitSeconds),
+            maxConcurrentCalls,
+            Duration.ofSeconds(lockRenewSeconds),
+            MAX_AUTO_RENEW_DURATION
+        );
     }
 
 }
@@ -0,0 +1,116 @@
+package uk.gov.hmcts.reform.ethos.ecm.consumer.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.servicebus.KeyedSerialExecutor;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.servicebus.UpdateCaseLane;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.servicebus.UpdateCaseLanes;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class UpdateCaseWorkerConfiguration {
+
+    @Bean(name = "update-case-worker-pool", destroyMethod = "shutdown")
+    public ExecutorService updateCaseWorkerPool(@Value("${queue.update-case.workers}") int workers) {
+        var threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(workers, r ->
+            new Thread(r, "update-case-worker-" + threadCount.incrementAndGet())
+        );
+    }
+
+    @Bean(name = "update-case-workers")
+    public KeyedSerialExecutor updateCaseWorkers(
+        @Qualifier("update-case-worker-pool") ExecutorService updateCaseWorkerPool) {
+        return new KeyedSerialExecutor(updateCaseWorkerPool);
+    }
+
+    @Bean(name = "update-case-single-lane-pool", destroyMethod = "shutdown")
+    public ExecutorService updateCaseSingleLanePool(@Value("${queue.update-case.lanes.single.workers}") int workers) {
+        var threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(workers, r ->
+            new Thread(r, "update-case-single-" + threadCount.incrementAndGet())
+        );
+    }
+
+    @Bean(name = "update-case-bulk-lane-pool", destroyMethod = "shutdown")
+    public ExecutorService updateCaseBulkLanePool(@Value("${queue.update-case.lanes.bulk.workers}") int workers) {
+        var threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(workers, r ->
+            new Thread(r, "update-case-bulk-" + threadCount.incrementAndGet())
+        );
+    }
+
+    @Bean(name = "update-case-lanes")
+    public UpdateCaseLanes updateCaseLanes(
+        @Qualifier("update-case-workers") KeyedSerialExecutor updateCaseWorkers,
+        @Qualifier("update-case-single-lane-pool") ExecutorService singleLanePool,
+        @Qualifier("update-case-bulk-lane-pool") ExecutorService bulkLanePool,
+        MeterRegistry meterRegistry,
+        @Value("${queue.update-case.lanes.single.max-in-flight}") int singleMaxInFlight,
+        @Value("${queue.update-case.lanes.bulk.max-in-flight}") int bulkMaxInFlight,
+        @Value("${queue.update-case.lanes.large.max-in-flight}") int largeMaxInFlight,
+        @Value("${queue.update-case.lanes.large.min-total-cases}") int largeMinTotalCases,
+        @Value("${queue.update-case.lanes.office-weights}") String officeWeights,
+        @Value("${queue.update-case.lanes.multiples.max-held}") int multiplesMaxHeld) {
+        Map<String, Integer> weights = parseOfficeWeights(officeWeights);
+        var lanes = new UpdateCaseLanes(
+            updateCaseWorkers,
+            new UpdateCaseLane("single", singleLanePool, singleMaxInFlight, weights, meterRegistry),
+            new UpdateCaseLane("bulk", bulkLanePool, bulkMaxInFlight, weights, meterRegistry),
+            // Very large multiples reuse the bulk pool and the bulk CCD I/O capacity. Only the lower in-flight
+            // limit of the lane throttles them
+            new UpdateCaseLane("large", bulkLanePool, largeMaxInFlight, weights, meterRegistry),
+            largeMinTotalCases,
+            // Below queue.update-case.max-concurrent-calls, so the receive slots left are kept for single cases
+            multiplesMaxHeld
+        );
+        Gauge.builder("update-case.lane.held-by-multiples", lanes, UpdateCaseLanes::getHeldByMultiples)
+            .description("Receive slots held by update-case messages of multiples")
+            .register(meterRegistry);
+        return lanes;
+    }
+
+    /**
+     * Parses office weights given as a comma separated list of caseTypeId:weight pairs.
+     */
+    static Map<String, Integer> parseOfficeWeights(String officeWeights) {
+        Map<String, Integer> weights = new HashMap<>();
+        for (String entry : officeWeights.split(",")) {
+            if (entry.isBlank()) {
+                continue;
+            }
+            String[] officeWeight = entry.split(":");
+            if (officeWeight.length != 2) {
+                throw new IllegalArgumentException("Invalid office weight " + entry);
+            }
+            weights.put(officeWeight[0].trim(), Integer.parseInt(officeWeight[1].trim()));
+        }
+        return weights;
+    }
+
+    @Bean(name = "ccd-io-executor", destroyMethod = "shutdown")
+    public ExecutorService ccdIoExecutor(@Value("${ccd.io.threads}") int threads) {
+        var threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, r ->
+            new Thread(r, "ccd-io-" + threadCount.incrementAndGet())
+        );
+    }
+
+    // Kept apart from the ccd-io pool, so single cases still get threads while multiples fill that pool
+    @Bean(name = "ccd-io-single-executor", destroyMethod = "shutdown")
+    public ExecutorService ccdIoSingleExecutor(@Value("${ccd.io.single-threads}") int threads) {
+        var threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, r ->
+            new Thread(r, "ccd-io-single-" + threadCount.incrementAndGet())
+        );
+    }
+}
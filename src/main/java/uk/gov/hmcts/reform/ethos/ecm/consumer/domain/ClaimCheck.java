@@ -0,0 +1,25 @@
+package uk.gov.hmcts.reform.ethos.ecm.consumer.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "claimcheck")
+public class ClaimCheck {
+
+    @Id
+    protected String claimcheckid;
+    protected String multipleref;
+    protected String payload;
+    protected LocalDateTime expiresat;
+
+}
@@ -0,0 +1,23 @@
+package uk.gov.hmcts.reform.ethos.ecm.consumer.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "fanoutcheckpoint")
+public class FanOutCheckpoint {
+
+    @Id
+    protected String createupdatesmsgid;
+    protected String multipleref;
+    protected Integer sentcases;
+
+}
@@ -0,0 +1,14 @@
+package uk.gov.hmcts.reform.ethos.ecm.consumer.domain;
+
+/**
+ * Errors of a multiple that have the same description, with a few of their case references.
+ */
+public interface MultipleErrorsGroup {
+
+    String getDescription();
+
+    Long getTotal();
+
+    String getSampleRefs();
+
+}
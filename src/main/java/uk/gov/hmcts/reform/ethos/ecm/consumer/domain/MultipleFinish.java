@@ -0,0 +1,27 @@
+package uk.gov.hmcts.reform.ethos.ecm.consumer.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "multiplefinish")
+public class MultipleFinish {
+
+    @Id
+    protected String multipleref;
+    protected String payload;
+    protected String fanoutid;
+    protected Integer step;
+    protected Integer attempts;
+    protected LocalDateTime nextattemptat;
+
+}
@@ -0,0 +1,29 @@
+package uk.gov.hmcts.reform.ethos.ecm.consumer.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+
+@Entity
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Table(name = "pendingemail")
+public class PendingEmail {
+
+    @Id
+    protected String referenceid;
+    protected String templateid;
+    protected String emailaddress;
+    protected String personalisation;
+    protected String description;
+    protected Integer attempts;
+    protected LocalDateTime nextattemptat;
+    protected LocalDateTime createdat;
+
+}
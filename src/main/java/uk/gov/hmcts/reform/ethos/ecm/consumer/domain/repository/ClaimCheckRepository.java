@@ -0,0 +1,23 @@
+package uk.gov.hmcts.reform.ethos.ecm.consumer.domain.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.domain.ClaimCheck;
+
+@Repository
+@Transactional
+public interface ClaimCheckRepository extends JpaRepository<ClaimCheck, String> {
+
+    @Modifying
+    @Query(value = "UPDATE claimCheck SET expiresAt = LEAST(expiresAt, now() + make_interval(mins => ?2)) "
+        + "WHERE claimCheckId = ?1", nativeQuery = true)
+    int persistentQExpireClaimCheck(String claimCheckId, int graceMinutes);
+
+    @Modifying
+    @Query(value = "DELETE FROM claimCheck WHERE expiresAt <= now()", nativeQuery = true)
+    int deleteExpired();
+
+}
@@ -0,0 +1,18 @@
+package uk.gov.hmcts.reform.ethos.ecm.consumer.domain.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.domain.FanOutCheckpoint;
+
+@Repository
+@Transactional
+public interface FanOutCheckpointRepository extends JpaRepository<FanOutCheckpoint, String> {
+
+    @Modifying
+    @Query("DELETE FROM FanOutCheckpoint f WHERE f.createupdatesmsgid = ?1")
+    void deleteByCreateUpdatesMsgId(String createUpdatesMsgId);
+
+}
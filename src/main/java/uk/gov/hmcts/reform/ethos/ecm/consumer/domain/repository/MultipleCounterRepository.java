@@ -1,6 +1,8 @@
 package uk.gov.hmcts.reform.ethos.ecm.consumer.domain.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.jpa.repository.query.Procedure;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
@@ -15,6 +17,37 @@ public interface MultipleCounterRepository extends JpaRepository<MultipleCounter
     @Procedure("fn_persistentQ_getNextMultipleCountVal")
     int persistentQGetNextMultipleCountVal(String multipleRef);
 
+    @Query(value = "SELECT fn_persistentQ_addMultipleCount(?1, ?2)", nativeQuery = true)
+    int persistentQAddMultipleCount(String multipleRef, int count);
+
+    @Query(value = "SELECT fn_persistentQ_addMultipleCountStripe(?1, ?2, ?3)", nativeQuery = true)
+    int persistentQAddMultipleCountStripe(String multipleRef, int stripe, int count);
+
+    @Query(value = "SELECT fn_persistentQ_claimStripedMultipleFinish(?1, ?2)", nativeQuery = true)
+    boolean persistentQClaimStripedMultipleFinish(String multipleRef, int totalCases);
+
+    @Query(value = "SELECT fn_persistentQ_markMultipleCaseCompleted(?1, ?2, ?3)", nativeQuery = true)
+    boolean persistentQMarkMultipleCaseCompleted(String multipleRef, String fanOutId, int caseIndex);
+
+    @Query(value = "SELECT fn_persistentQ_claimMultipleCompletionFinish(?1, ?2)", nativeQuery = true)
+    boolean persistentQClaimMultipleCompletionFinish(String multipleRef, int totalCases);
+
     List<MultipleCounter> findByMultipleref(String multipleRef);
 
+    @Modifying
+    @Query("DELETE FROM MultipleCounter c WHERE c.multipleref = ?1")
+    int deleteByMultipleRef(String multipleRef);
+
+    @Modifying
+    @Query(value = "DELETE FROM multipleCounterStripe WHERE multipleRef = ?1", nativeQuery = true)
+    int deleteStripesByMultipleRef(String multipleRef);
+
+    @Modifying
+    @Query(value = "DELETE FROM multipleCounterFinishClaim WHERE multipleRef = ?1", nativeQuery = true)
+    int deleteFinishClaimByMultipleRef(String multipleRef);
+
+    @Modifying
+    @Query(value = "DELETE FROM multipleCompletion WHERE multipleRef = ?1", nativeQuery = true)
+    int deleteCompletionByMultipleRef(String multipleRef);
+
 }
@@ -1,10 +1,14 @@
 package uk.gov.hmcts.reform.ethos.ecm.consumer.domain.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.jpa.repository.query.Procedure;
 import org.springframework.stereotype.Repository;
 import org.springframework.transaction.annotation.Transactional;
 import uk.gov.hmcts.reform.ethos.ecm.consumer.domain.MultipleErrors;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.domain.MultipleErrorsGroup;
 
 import java.util.List;
 
@@ -17,4 +21,16 @@ public interface MultipleErrorsRepository extends JpaRepository<MultipleErrors,
 
     List<MultipleErrors> findByMultipleref(String multipleRef);
 
+    List<MultipleErrors> findByMultiplerefAndIdGreaterThanOrderByIdAsc(String multipleRef, Long id, Pageable page);
+
+    @Query(value = "SELECT description AS \"description\", count(*) AS \"total\", "
+        + "array_to_string((array_agg(ethosCaseRef ORDER BY ethosCaseRef))[1:?2], ', ') AS \"sampleRefs\" "
+        + "FROM multipleErrors WHERE multipleRef = ?1 "
+        + "GROUP BY description ORDER BY count(*) DESC", nativeQuery = true)
+    List<MultipleErrorsGroup> groupByDescription(String multipleRef, int samples);
+
+    @Modifying
+    @Query("DELETE FROM MultipleErrors e WHERE e.multipleref = ?1")
+    int deleteByMultipleRef(String multipleRef);
+
 }
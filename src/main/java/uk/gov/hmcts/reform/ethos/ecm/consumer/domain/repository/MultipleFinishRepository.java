@@ -0,0 +1,38 @@
+package uk.gov.hmcts.reform.ethos.ecm.consumer.domain.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.domain.MultipleFinish;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+@Transactional
+public interface MultipleFinishRepository extends JpaRepository<MultipleFinish, String> {
+
+    @Modifying
+    @Query(value = "INSERT INTO multipleFinish (multipleRef, payload, fanOutId) VALUES (?1, ?2, ?3) "
+        + "ON CONFLICT (multipleRef) DO NOTHING", nativeQuery = true)
+    int persistentQScheduleMultipleFinish(String multipleRef, String payload, String fanOutId);
+
+    @Query(value = "SELECT * FROM fn_persistentQ_claimMultipleFinish(?1, ?2)", nativeQuery = true)
+    List<MultipleFinish> persistentQClaimMultipleFinish(int limit, int leaseSeconds);
+
+    @Modifying
+    @Query(value = "UPDATE multipleFinish SET step = ?2 WHERE multipleRef = ?1", nativeQuery = true)
+    void persistentQRecordMultipleFinishStep(String multipleRef, int step);
+
+    @Modifying
+    @Query(value = "UPDATE multipleFinish SET nextAttemptAt = now() + make_interval(secs => ?2) "
+        + "WHERE multipleRef IN (?1)", nativeQuery = true)
+    int persistentQRenewMultipleFinishLease(Collection<String> multipleRefs, int leaseSeconds);
+
+    @Modifying
+    @Query("DELETE FROM MultipleFinish f WHERE f.multipleref = ?1")
+    void deleteByMultipleRef(String multipleRef);
+
+}
@@ -0,0 +1,34 @@
+package uk.gov.hmcts.reform.ethos.ecm.consumer.domain.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.domain.PendingEmail;
+
+import java.util.List;
+
+@Repository
+@Transactional
+public interface PendingEmailRepository extends JpaRepository<PendingEmail, String> {
+
+    @Modifying
+    @Query(value = "INSERT INTO pendingEmail (referenceId, templateId, emailAddress, personalisation, description) "
+        + "VALUES (?1, ?2, ?3, ?4, ?5) ON CONFLICT (referenceId) DO NOTHING", nativeQuery = true)
+    int persistentQAddPendingEmail(String referenceId, String templateId, String emailAddress,
+                                    String personalisation, String description);
+
+    @Query(value = "SELECT * FROM fn_persistentQ_claimPendingEmail(?1, ?2)", nativeQuery = true)
+    List<PendingEmail> persistentQClaimPendingEmail(int limit, int leaseSeconds);
+
+    @Modifying
+    @Query(value = "UPDATE pendingEmail SET nextAttemptAt = now() + make_interval(secs => ?2) "
+        + "WHERE referenceId = ?1", nativeQuery = true)
+    void persistentQRetryPendingEmail(String referenceId, int delaySeconds);
+
+    @Modifying
+    @Query("DELETE FROM PendingEmail e WHERE e.referenceid = ?1")
+    void deleteByReferenceId(String referenceId);
+
+}
@@ -0,0 +1,33 @@
+package uk.gov.hmcts.reform.ethos.ecm.consumer.model.servicebus;
+
+import java.util.Map;
+
+/**
+ * Position of an update-case message in the fan-out of its create-updates message, carried in the message
+ * properties. A multiple may be fanned out by several create-updates messages, so the index is only unique
+ * together with the ID of the create-updates message.
+ */
+public class FanOutPosition {
+
+    public static final String FAN_OUT_ID = "fanOutId";
+    public static final String CASE_INDEX = "caseIndex";
+
+    public final transient String fanOutId;
+    public final transient int caseIndex;
+
+    public FanOutPosition(String fanOutId, int caseIndex) {
+        this.fanOutId = fanOutId;
+        this.caseIndex = caseIndex;
+    }
+
+    /**
+     * Returns the position carried in the given message properties, or null if they do not carry one.
+     */
+    public static FanOutPosition fromProperties(Map<String, Object> properties) {
+        if (properties == null || properties.get(FAN_OUT_ID) == null || properties.get(CASE_INDEX) == null) {
+            return null;
+        }
+        return new FanOutPosition(properties.get(FAN_OUT_ID).toString(),
+                                  Integer.parseInt(properties.get(CASE_INDEX).toString()));
+    }
+}
@@ -0,0 +1,194 @@
+package uk.gov.hmcts.reform.ethos.ecm.consumer.service;
+
+import com.nimbusds.jwt.JWTParser;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PreDestroy;
+
+import static uk.gov.hmcts.reform.ethos.ecm.consumer.service.AccessTokenService.BEARER_AUTH_TYPE;
+
+/**
+ * In-process cache of IDAM access tokens, valid until shortly before the JWT exp claim.
+ * Tokens are refreshed in the background ahead of expiry and concurrent refreshes share a single IDAM call.
+ * IDAM calls go through the IDAM circuit breaker.
+ */
+@Slf4j
+@Component
+public class AccessTokenCache {
+
+    private final transient AccessTokenService accessTokenService;
+    private final transient CircuitBreaker circuitBreaker;
+    private final transient Duration refreshAhead;
+    private final transient Duration expirySkew;
+    private final transient Duration fallbackTtl;
+    private final transient ScheduledExecutorService refresher;
+    private final transient Counter hits;
+    private final transient Counter misses;
+    private final transient Counter refreshFailures;
+    private final transient Timer refreshTimer;
+
+    private final transient ConcurrentMap<String, CachedToken> tokens = new ConcurrentHashMap<>();
+    private final transient ConcurrentMap<String, CompletableFuture<CachedToken>> refreshes =
+        new ConcurrentHashMap<>();
+    private final transient ConcurrentMap<String, ScheduledFuture<?>> scheduledRefreshes = new ConcurrentHashMap<>();
+
+    @Autowired
+    public AccessTokenCache(AccessTokenService accessTokenService,
+                            @Qualifier("idam-circuit-breaker") CircuitBreaker circuitBreaker,
+                            MeterRegistry meterRegistry,
+                            @Value("${idam.token-cache.refresh-ahead-seconds:300}") long refreshAheadSeconds,
+                            @Value("${idam.token-cache.expiry-skew-seconds:30}") long expirySkewSeconds,
+                            @Value("${idam.token-cache.fallback-ttl-seconds:600}") long fallbackTtlSeconds) {
+        this.accessTokenService = accessTokenService;
+        this.circuitBreaker = circuitBreaker;
+        this.refreshAhead = Duration.ofSeconds(refreshAheadSeconds);
+        this.expirySkew = Duration.ofSeconds(expirySkewSeconds);
+        this.fallbackTtl = Duration.ofSeconds(fallbackTtlSeconds);
+        this.refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+            var thread = new Thread(r, "idam-token-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.hits = meterRegistry.counter("idam.token.cache", "result", "hit");
+        this.misses = meterRegistry.counter("idam.token.cache", "result", "miss");
+        this.refreshFailures = meterRegistry.counter("idam.token.refresh.failures");
+        this.refreshTimer = meterRegistry.timer("idam.token.refresh");
+    }
+
+    public String getAccessToken(String username, String password) {
+        CachedToken cached = tokens.get(username);
+        var now = Instant.now();
+
+        if (cached != null && now.isBefore(cached.expiresAt)) {
+            hits.increment();
+            if (!now.isBefore(cached.refreshAt)) {
+                refresh(username, password, false);
+            }
+            return cached.token;
+        }
+
+        misses.increment();
+        try {
+            return refresh(username, password, true).join().token;
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refresher.shutdownNow();
+    }
+
+    private CompletableFuture<CachedToken> refresh(String username, String password, boolean inline) {
+        var created = new CompletableFuture<CachedToken>();
+        CompletableFuture<CachedToken> inFlight = refreshes.putIfAbsent(username, created);
+        if (inFlight != null) {
+            return inFlight;
+        }
+
+        Runnable task = () -> {
+            try {
+                CachedToken token = refreshTimer.recordCallable(() -> fetch(username, password));
+                refreshes.remove(username, created);
+                created.complete(token);
+            } catch (Exception e) {
+                refreshFailures.increment();
+                log.warn("Failed to refresh IDAM access token", e);
+                refreshes.remove(username, created);
+                created.completeExceptionally(e);
+            }
+        };
+
+        if (inline) {
+            task.run();
+        } else {
+            refresher.execute(task);
+        }
+        return created;
+    }
+
+    private CachedToken fetch(String username, String password) {
+        String token = circuitBreaker.call(() -> accessTokenService.getAccessToken(username, password));
+        var now = Instant.now();
+
+        Instant expiresAt = token == null || token.isEmpty() ? now : expiryOf(token, now).minus(expirySkew);
+        if (!expiresAt.isAfter(now)) {
+            // Nothing worth caching, the next call goes back to IDAM
+            return new CachedToken(token, now, now);
+        }
+
+        Instant refreshAt = expiresAt.minus(refreshAhead);
+        if (refreshAt.isBefore(now)) {
+            refreshAt = now.plus(Duration.between(now, expiresAt).dividedBy(2));
+        }
+
+        var cachedToken = new CachedToken(token, refreshAt, expiresAt);
+        tokens.put(username, cachedToken);
+        scheduleRefresh(username, password, Duration.between(now, refreshAt));
+
+        log.info("Cached IDAM access token, expires at {}, background refresh at {}", expiresAt, refreshAt);
+        return cachedToken;
+    }
+
+    private void scheduleRefresh(String username, String password, Duration delay) {
+        if (refresher.isShutdown()) {
+            return;
+        }
+        ScheduledFuture<?> next = refresher.schedule(() -> refresh(username, password, true),
+                                                     delay.toMillis(), TimeUnit.MILLISECONDS);
+        ScheduledFuture<?> previous = scheduledRefreshes.put(username, next);
+        if (previous != null) {
+            previous.cancel(false);
+        }
+    }
+
+    private Instant expiryOf(String token, Instant now) {
+        String jwt = token.startsWith(BEARER_AUTH_TYPE + " ")
+            ? token.substring(BEARER_AUTH_TYPE.length() + 1)
+            : token;
+        try {
+            Date expirationTime = JWTParser.parse(jwt).getJWTClaimsSet().getExpirationTime();
+            if (expirationTime != null) {
+                return expirationTime.toInstant();
+            }
+        } catch (ParseException e) {
+            log.warn("IDAM access token is not a parseable JWT, caching it for {}", fallbackTtl);
+        }
+        return now.plus(fallbackTtl);
+    }
+
+    private static final class CachedToken {
+        private final String token;
+        private final Instant refreshAt;
+        private final Instant expiresAt;
+
+        private CachedToken(String token, Instant refreshAt, Instant expiresAt) {
+            this.token = token;
+            this.refreshAt = refreshAt;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
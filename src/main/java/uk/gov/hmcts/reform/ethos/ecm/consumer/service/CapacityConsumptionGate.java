@@ -0,0 +1,52 @@
+package uk.gov.hmcts.reform.ethos.ecm.consumer.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.servicebus.ConsumptionGate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds back update-case messages while the services they need have no room for them: a circuit breaker is open,
+ * or the CCD concurrency limit is all in use or has single-case calls waiting. Intake resumes once every breaker is
+ * closed or ready to let its probe through, so the probe is made by the next message taken in, and CCD has room.
+ * Calls of multiples waiting for their share of the limit do not hold intake back, so single cases are still taken
+ * in to use the share reserved for them.
+ */
+@Slf4j
+@Component
+public class CapacityConsumptionGate implements ConsumptionGate {
+
+    private final transient List<CircuitBreaker> circuitBreakers;
+    private final transient CcdConcurrencyLimiter concurrencyLimiter;
+    private final transient long pollMillis;
+
+    @Autowired
+    public CapacityConsumptionGate(List<CircuitBreaker> circuitBreakers,
+                                   CcdConcurrencyLimiter concurrencyLimiter,
+                                   @Value("${circuit-breaker.intake-poll-millis}") long pollMillis) {
+        this.circuitBreakers = circuitBreakers;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.pollMillis = pollMillis;
+    }
+
+    @Override
+    public void awaitOpen() throws InterruptedException {
+        if (isOpen()) {
+            return;
+        }
+
+        log.warn("Pausing message intake while a circuit breaker is open or CCD is at its concurrency limit");
+        do {
+            TimeUnit.MILLISECONDS.sleep(pollMillis);
+        } while (!isOpen());
+        log.info("Resuming message intake");
+    }
+
+    private boolean isOpen() {
+        return circuitBreakers.stream().allMatch(CircuitBreaker::permitsIntake) && concurrencyLimiter.permitsIntake();
+    }
+}
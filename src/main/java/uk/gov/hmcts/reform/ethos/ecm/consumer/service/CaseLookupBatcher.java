@@ -0,0 +1,199 @@
+package uk.gov.hmcts.reform.ethos.ecm.consumer.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import uk.gov.hmcts.ecm.common.client.CcdClient;
+import uk.gov.hmcts.ecm.common.model.ccd.SubmitEvent;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.CcdCallExecutor.Budget;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.PreDestroy;
+
+/**
+ * Collects Elasticsearch lookups made by concurrent messages for a short window and runs them as one multi-term
+ * search per case type. A batch is searched when the window closes or when it reaches the maximum size.
+ * Each search is one CCD call through {@link CcdCallExecutor}, so it takes one concurrency limiter permit and
+ * reports one outcome to the circuit breaker however many lookups it serves. Lookups waiting for their batch hold
+ * no permit and no thread. The search has a retry budget of its own and is made with priority if any of its lookups is.
+ */
+@Slf4j
+@Component
+public class CaseLookupBatcher {
+
+    private final transient CcdClient ccdClient;
+    private final transient CcdCallExecutor ccdCallExecutor;
+    private final transient long windowMillis;
+    private final transient int maxBatchSize;
+    private final transient ScheduledExecutorService timer;
+    private final transient ExecutorService searchers;
+    private final transient DistributionSummary batchSizes;
+
+    // Guarded by itself
+    private final transient Map<String, PendingBatch> pending = new HashMap<>();
+
+    @Autowired
+    public CaseLookupBatcher(CcdClient ccdClient,
+                             CcdCallExecutor ccdCallExecutor,
+                             MeterRegistry meterRegistry,
+                             @Value("${ccd.lookup-batch.window-millis}") long windowMillis,
+                             @Value("${ccd.lookup-batch.max-size}") int maxBatchSize,
+                             @Value("${ccd.lookup-batch.search-threads}") int searchThreads) {
+        this.ccdClient = ccdClient;
+        this.ccdCallExecutor = ccdCallExecutor;
+        this.windowMillis = windowMillis;
+        this.maxBatchSize = maxBatchSize;
+        this.timer = Executors.newSingleThreadScheduledExecutor(daemonThreads("case-lookup-batch-timer"));
+        this.searchers = Executors.newFixedThreadPool(searchThreads, daemonThreads("case-lookup-batch-search"));
+        this.batchSizes = DistributionSummary.builder("ccd.lookup.batch.size")
+            .description("Case references per Elasticsearch search")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Returns the cases found for the given reference, completed by a search thread once the batch holding the lookup
+     * has been searched. No caller thread waits for the window to close. Without batching the search is made straight
+     * away on the calling thread within the given budget.
+     */
+    public CompletableFuture<List<SubmitEvent>> retrieveCaseAsync(String accessToken, String caseTypeId,
+                                                                  String ethosCaseReference, Budget budget) {
+        if (windowMillis <= 0) {
+            batchSizes.record(1);
+            try {
+                return CompletableFuture.completedFuture(ccdCallExecutor.call("lookup", budget, () ->
+                    ccdClient.retrieveCasesElasticSearch(
+                        accessToken,
+                        caseTypeId,
+                        new ArrayList<>(Collections.singletonList(ethosCaseReference)))));
+            } catch (IOException | RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+
+        return enqueue(accessToken, caseTypeId, ethosCaseReference, budget.isPriority());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        timer.shutdownNow();
+        searchers.shutdownNow();
+    }
+
+    private CompletableFuture<List<SubmitEvent>> enqueue(String accessToken, String caseTypeId,
+                                                         String ethosCaseReference, boolean priority) {
+        var lookup = new Lookup(ethosCaseReference);
+        PendingBatch full = null;
+
+        synchronized (pending) {
+            PendingBatch batch = pending.get(caseTypeId);
+            if (batch == null) {
+                // All lookups are made with the case worker token, so the first one serves the whole batch
+                batch = new PendingBatch(caseTypeId, accessToken);
+                pending.put(caseTypeId, batch);
+                PendingBatch scheduled = batch;
+                batch.windowClose = timer.schedule(() -> flush(scheduled), windowMillis, TimeUnit.MILLISECONDS);
+            }
+            batch.lookups.add(lookup);
+            batch.priority |= priority;
+            if (batch.lookups.size() >= maxBatchSize) {
+                pending.remove(caseTypeId);
+                full = batch;
+            }
+        }
+
+        if (full != null) {
+            full.windowClose.cancel(false);
+            PendingBatch toSearch = full;
+            searchers.execute(() -> search(toSearch));
+        }
+        return lookup.result;
+    }
+
+    private void flush(PendingBatch batch) {
+        synchronized (pending) {
+            if (!pending.remove(batch.caseTypeId, batch)) {
+                // Already taken when it filled up
+                return;
+            }
+        }
+        searchers.execute(() -> search(batch));
+    }
+
+    private void search(PendingBatch batch) {
+        var references = new LinkedHashSet<String>();
+        batch.lookups.forEach(lookup -> references.add(lookup.ethosCaseReference));
+        batchSizes.record(references.size());
+
+        try {
+            List<SubmitEvent> submitEvents = ccdCallExecutor.call(
+                "lookup-batch", ccdCallExecutor.newBudget(batch.priority), () -> ccdClient.retrieveCasesElasticSearch(
+                    batch.accessToken, batch.caseTypeId, new ArrayList<>(references)));
+
+            Map<String, List<SubmitEvent>> byReference = new HashMap<>();
+            if (submitEvents != null) {
+                for (SubmitEvent submitEvent : submitEvents) {
+                    if (submitEvent.getCaseData() != null) {
+                        byReference
+                            .computeIfAbsent(submitEvent.getCaseData().getEthosCaseReference(), k -> new ArrayList<>())
+                            .add(submitEvent);
+                    }
+                }
+            }
+            for (Lookup lookup : batch.lookups) {
+                lookup.result.complete(
+                    new ArrayList<>(byReference.getOrDefault(lookup.ethosCaseReference, Collections.emptyList())));
+            }
+        } catch (Exception e) {
+            log.error("Elasticsearch lookup of {} cases in {} failed", references.size(), batch.caseTypeId, e);
+            batch.lookups.forEach(lookup -> lookup.result.completeExceptionally(e));
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String prefix) {
+        var counter = new AtomicInteger();
+        return runnable -> {
+            var thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static final class Lookup {
+        private final String ethosCaseReference;
+        private final CompletableFuture<List<SubmitEvent>> result = new CompletableFuture<>();
+
+        private Lookup(String ethosCaseReference) {
+            this.ethosCaseReference = ethosCaseReference;
+        }
+    }
+
+    private static final class PendingBatch {
+        private final String caseTypeId;
+        private final String accessToken;
+        private final List<Lookup> lookups = new ArrayList<>();
+        private boolean priority;
+        private ScheduledFuture<?> windowClose;
+
+        private PendingBatch(String caseTypeId, String accessToken) {
+            this.caseTypeId = caseTypeId;
+            this.accessToken = accessToken;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package uk.gov.hmcts.reform.ethos.ecm.consumer.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.HttpClientErrorException;
+import uk.gov.hmcts.ecm.common.client.CcdClient;
+import uk.gov.hmcts.ecm.common.model.ccd.SubmitEvent;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.CcdCallExecutor.Budget;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Finds CCD cases by ethos case reference. The CCD case ID found by an Elasticsearch search is cached per case type,
+ * so later lookups of the same case fetch it directly by ID. Every CCD call is made through
+ * {@link CcdCallExecutor} within the budget of the message it is made for.
+ */
+@Slf4j
+@Service
+public class CaseLookupService {
+
+    private static final String CACHE_NAME = "ccd.case-ids";
+
+    // Rough per-entry cost of the key, its two strings, the boxed case ID and the cache node
+    private static final int ENTRY_OVERHEAD_BYTES = 160;
+
+    private final transient CcdClient ccdClient;
+    private final transient CaseLookupBatcher caseLookupBatcher;
+    private final transient CcdCallExecutor ccdCallExecutor;
+    private final transient Cache<CaseKey, Long> caseIds;
+
+    @Autowired
+    public CaseLookupService(CcdClient ccdClient,
+                             CaseLookupBatcher caseLookupBatcher,
+                             CcdCallExecutor ccdCallExecutor,
+                             MeterRegistry meterRegistry,
+                             @Value("${ccd.case-id-cache.max-bytes}") long maxBytes,
+                             @Value("${ccd.case-id-cache.ttl-minutes}") long ttlMinutes) {
+        this.ccdClient = ccdClient;
+        this.caseLookupBatcher = caseLookupBatcher;
+        this.ccdCallExecutor = ccdCallExecutor;
+        this.caseIds = Caffeine.newBuilder()
+            .maximumWeight(maxBytes)
+            .weigher((CaseKey key, Long caseId) -> key.approximateBytes())
+            .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+            .recordStats()
+            .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, caseIds, CACHE_NAME);
+        meterRegistry.gauge(CACHE_NAME + ".weighted.bytes", caseIds,
+            cache -> cache.policy().eviction().map(eviction -> eviction.weightedSize().orElse(0L)).orElse(0L));
+    }
+
+    /**
+     * Returns the cases found for the given reference. A cached case ID is fetched on the calling thread; a search
+     * goes through {@link CaseLookupBatcher} and completes once its batch has been searched.
+     */
+    public CompletableFuture<List<SubmitEvent>> retrieveCaseAsync(String accessToken, String caseTypeId,
+                                                                  String jurisdiction, String ethosCaseReference,
+                                                                  Budget budget) {
+
+        var key = new CaseKey(caseTypeId, ethosCaseReference);
+        Long caseId = caseIds.getIfPresent(key);
+
+        if (caseId != null) {
+            SubmitEvent submitEvent;
+            try {
+                submitEvent = retrieveCaseById(accessToken, caseTypeId, jurisdiction, caseId, budget);
+            } catch (IOException | RuntimeException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+            if (submitEvent != null && submitEvent.getCaseData() != null
+                && ethosCaseReference.equals(submitEvent.getCaseData().getEthosCaseReference())) {
+                return CompletableFuture.completedFuture(new ArrayList<>(Collections.singletonList(submitEvent)));
+            }
+            log.info("Cached case ID {} no longer matches case {}, searching again", caseId, ethosCaseReference);
+            caseIds.invalidate(key);
+        }
+
+        return caseLookupBatcher.retrieveCaseAsync(accessToken, caseTypeId, ethosCaseReference, budget)
+            .thenApply(submitEvents -> {
+                if (submitEvents != null && !submitEvents.isEmpty()) {
+                    caseIds.put(key, submitEvents.get(0).getCaseId());
+                }
+                return submitEvents;
+            });
+    }
+
+    public void invalidate(String caseTypeId, String ethosCaseReference) {
+        caseIds.invalidate(new CaseKey(caseTypeId, ethosCaseReference));
+    }
+
+    /**
+     * Retrieves the case by its cached ID, or returns null if CCD no longer knows the ID so the case is searched for
+     * again. Any other failure, such as a CCD server error or timeout, is thrown to the caller.
+     */
+    private SubmitEvent retrieveCaseById(String accessToken, String caseTypeId, String jurisdiction, Long caseId,
+                                         Budget budget) throws IOException {
+        try {
+            return ccdCallExecutor.call("lookup-by-id", budget, () ->
+                ccdClient.retrieveCase(accessToken, caseTypeId, jurisdiction, String.valueOf(caseId)));
+        } catch (HttpClientErrorException.NotFound e) {
+            log.info("Cached case ID {} not found, searching again", caseId);
+            return null;
+        }
+    }
+
+    private static final class CaseKey {
+        private final String caseTypeId;
+        private final String ethosCaseReference;
+
+        private CaseKey(String caseTypeId, String ethosCaseReference) {
+            this.caseTypeId = caseTypeId;
+            this.ethosCaseReference = ethosCaseReference;
+        }
+
+        private int approximateBytes() {
+            return ENTRY_OVERHEAD_BYTES + 2 * (caseTypeId.length() + ethosCaseReference.length());
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof CaseKey)) {
+                return false;
+            }
+            CaseKey other = (CaseKey) o;
+            return caseTypeId.equals(other.caseTypeId) && ethosCaseReference.equals(other.ethosCaseReference);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(caseTypeId, ethosCaseReference);
+        }
+    }
+}
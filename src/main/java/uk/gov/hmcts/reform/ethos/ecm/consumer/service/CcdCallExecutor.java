@@ -0,0 +1,241 @@
+package uk.gov.hmcts.reform.ethos.ecm.consumer.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.retry.RetryCallback;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.backoff.ExponentialRandomBackOffPolicy;
+import org.springframework.retry.policy.SimpleRetryPolicy;
+import org.springframework.retry.support.RetryTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.util.Collections;
+import java.util.Set;
+import java.util.function.Predicate;
+
+/**
+ * Runs a single CCD call, retrying it in process when it fails with a transient error: a 502, 503 or 504 response,
+ * or a connection that was reset or timed out. Any other error fails the call straight away. Retries back off
+ * exponentially with jitter and stop at the maximum number of attempts or when the {@link Budget} of the message
+ * runs out, whichever comes first. Every attempt goes through the CCD {@link CircuitBreaker} and
+ * the {@link CcdConcurrencyLimiter}, with priority if the budget was started for a single case. Calls rejected by
+ * an open breaker are not retried.
+ * Calls that submit an event are not idempotent: after a timeout or a 502 or 504, CCD may already have applied the
+ * event. They are made through {@link #submit}, which only retries errors where CCD cannot have received the
+ * request, a failure to connect or a 503.
+ */
+@Slf4j
+@Component
+public class CcdCallExecutor {
+
+    private static final String METRIC_PREFIX = "ccd.call";
+    private static final String DEADLINE = "ccd.call.deadline";
+    private static final Set<HttpStatus> TRANSIENT_STATUSES =
+        Set.of(HttpStatus.BAD_GATEWAY, HttpStatus.SERVICE_UNAVAILABLE, HttpStatus.GATEWAY_TIMEOUT);
+
+    private final transient CcdConcurrencyLimiter concurrencyLimiter;
+    private final transient CircuitBreaker circuitBreaker;
+    private final transient RetryTemplate retryTemplate;
+    private final transient RetryTemplate submitRetryTemplate;
+    private final transient MeterRegistry meterRegistry;
+    private final transient long budgetMillis;
+
+    @Autowired
+    public CcdCallExecutor(MeterRegistry meterRegistry,
+                           CcdConcurrencyLimiter concurrencyLimiter,
+                           @Qualifier("ccd-circuit-breaker") CircuitBreaker circuitBreaker,
+                           @Value("${ccd.retry.max-attempts}") int maxAttempts,
+                           @Value("${ccd.retry.initial-backoff-millis}") long initialBackoffMillis,
+                           @Value("${ccd.retry.max-backoff-millis}") long maxBackoffMillis,
+                           @Value("${ccd.retry.budget-millis}") long budgetMillis) {
+        this.meterRegistry = meterRegistry;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.circuitBreaker = circuitBreaker;
+        this.budgetMillis = budgetMillis;
+
+        this.retryTemplate = retryTemplate(
+            new TransientErrorRetryPolicy(maxAttempts, CcdCallExecutor::isTransient),
+            initialBackoffMillis, maxBackoffMillis);
+        this.submitRetryTemplate = retryTemplate(
+            new TransientErrorRetryPolicy(maxAttempts, CcdCallExecutor::isUnsent),
+            initialBackoffMillis, maxBackoffMillis);
+    }
+
+    private static RetryTemplate retryTemplate(TransientErrorRetryPolicy retryPolicy,
+                                               long initialBackoffMillis,
+                                               long maxBackoffMillis) {
+        var backOffPolicy = new ExponentialRandomBackOffPolicy();
+        backOffPolicy.setInitialInterval(initialBackoffMillis);
+        backOffPolicy.setMaxInterval(maxBackoffMillis);
+        backOffPolicy.setMultiplier(2);
+
+        var retryTemplate = new RetryTemplate();
+        retryTemplate.setRetryPolicy(retryPolicy);
+        retryTemplate.setBackOffPolicy(backOffPolicy);
+        return retryTemplate;
+    }
+
+    /**
+     * Starts the retry budget of a message. All CCD calls made for the message should share it. Calls made with a
+     * priority budget may use the share of the concurrency limit reserved for single cases.
+     */
+    public Budget newBudget(boolean priority) {
+        return new Budget(System.nanoTime() + budgetMillis * 1_000_000, priority);
+    }
+
+    /**
+     * Runs a call that reads from CCD or starts an event, retrying any transient error.
+     */
+    public <T> T call(String step, Budget budget, CcdCall<T> call) throws IOException {
+        return execute(retryTemplate, step, budget, call);
+    }
+
+    /**
+     * Runs a call that submits an event, retrying only errors where CCD cannot have received the request.
+     */
+    public <T> T submit(String step, Budget budget, CcdCall<T> call) throws IOException {
+        return execute(submitRetryTemplate, step, budget, call);
+    }
+
+    private <T> T execute(RetryTemplate retryTemplate, String step, Budget budget, CcdCall<T> call)
+        throws IOException {
+        int[] attempts = {0};
+        try {
+            T result = retryTemplate.execute((RetryCallback<T, IOException>) context -> {
+                context.setAttribute(DEADLINE, budget);
+                if (context.getRetryCount() > 0) {
+                    countRetry(step, context.getLastThrowable());
+                }
+                attempts[0]++;
+                return circuitBreaker.call(() -> concurrencyLimiter.call(call, budget.priority));
+            });
+            recordAttempts(step, "success", attempts[0]);
+            return result;
+        } catch (IOException | RuntimeException e) {
+            recordAttempts(step, "failure", attempts[0]);
+            throw e;
+        }
+    }
+
+    /**
+     * Returns whether the error is one a retry of the same call can be expected to get past.
+     */
+    public static boolean isTransient(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof HttpStatusCodeException) {
+                return TRANSIENT_STATUSES.contains(((HttpStatusCodeException) cause).getStatusCode());
+            }
+            if (cause instanceof ResourceAccessException
+                || cause instanceof SocketException
+                || cause instanceof SocketTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns whether the error shows that the request never reached CCD, or was turned away before being handled,
+     * so sending it again cannot apply it twice.
+     */
+    public static boolean isUnsent(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof HttpStatusCodeException) {
+                return ((HttpStatusCodeException) cause).getStatusCode() == HttpStatus.SERVICE_UNAVAILABLE;
+            }
+            if (cause instanceof ConnectException || cause instanceof ConnectTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void countRetry(String step, Throwable error) {
+        log.warn("Retrying CCD call {} after transient error: {}", step, error.toString());
+        Counter.builder(METRIC_PREFIX + ".retries")
+            .tag("step", step)
+            .tag("reason", reason(error))
+            .register(meterRegistry)
+            .increment();
+    }
+
+    private void recordAttempts(String step, String outcome, int attempts) {
+        DistributionSummary.builder(METRIC_PREFIX + ".attempts")
+            .tag("step", step)
+            .tag("outcome", outcome)
+            .register(meterRegistry)
+            .record(attempts);
+    }
+
+    private static String reason(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof HttpStatusCodeException) {
+                return String.valueOf(((HttpStatusCodeException) cause).getRawStatusCode());
+            }
+        }
+        return "connection";
+    }
+
+    @FunctionalInterface
+    public interface CcdCall<T> {
+        T call() throws IOException;
+    }
+
+    /**
+     * Time left for retrying the CCD calls of one message, and whether they are made with priority.
+     */
+    public static final class Budget {
+        private final long deadlineNanos;
+        private final boolean priority;
+
+        private Budget(long deadlineNanos, boolean priority) {
+            this.deadlineNanos = deadlineNanos;
+            this.priority = priority;
+        }
+
+        boolean isExhausted() {
+            return System.nanoTime() - deadlineNanos >= 0;
+        }
+
+        boolean isPriority() {
+            return priority;
+        }
+    }
+
+    private static final class TransientErrorRetryPolicy extends SimpleRetryPolicy {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient Predicate<Throwable> retryable;
+
+        private TransientErrorRetryPolicy(int maxAttempts, Predicate<Throwable> retryable) {
+            super(maxAttempts, Collections.singletonMap(Exception.class, true));
+            this.retryable = retryable;
+        }
+
+        @Override
+        public boolean canRetry(RetryContext context) {
+            Throwable lastThrowable = context.getLastThrowable();
+            if (lastThrowable == null) {
+                return true;
+            }
+            Budget budget = (Budget) context.getAttribute(DEADLINE);
+            return super.canRetry(context)
+                && retryable.test(lastThrowable)
+                && (budget == null || !budget.isExhausted());
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package uk.gov.hmcts.reform.ethos.ecm.consumer.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.CcdCallExecutor.CcdCall;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits the number of CCD requests in flight with an AIMD limit. The limit grows by one for each call that
+ * completes quickly while the limit is being used, and is cut by the backoff ratio when a call is slower than the
+ * latency threshold or fails with a transient error. A call that finds the limit reached waits for a request to
+ * finish rather than failing.
+ * A share of the limit is reserved for priority calls, the updates of single cases, so a running multiple cannot
+ * take every request and hold them back. Other calls wait once they would eat into the reserved share.
+ * {@link #permitsIntake()} is false while the whole limit is in use or a priority call is waiting, so no new
+ * messages are taken in until CCD has room for the ones already in progress. Other calls waiting at the edge of
+ * the reserved share do not pause intake, so single cases are still taken in to use it.
+ */
+@Slf4j
+@Component
+public class CcdConcurrencyLimiter {
+
+    private static final String METRIC_PREFIX = "ccd.limiter";
+
+    private final transient int minLimit;
+    private final transient int maxLimit;
+    private final transient long latencyThresholdNanos;
+    private final transient double backoffRatio;
+    private final transient double reservedShare;
+    private final transient Counter rejections;
+
+    private final transient ReentrantLock lock = new ReentrantLock();
+    private final transient Condition released = lock.newCondition();
+
+    // Guarded by lock
+    private transient double limit;
+    private transient int inFlight;
+    private transient int waitingPriority;
+
+    @Autowired
+    public CcdConcurrencyLimiter(MeterRegistry meterRegistry,
+                                 @Value("${ccd.limiter.initial-limit}") int initialLimit,
+                                 @Value("${ccd.limiter.min-limit}") int minLimit,
+                                 @Value("${ccd.limiter.max-limit}") int maxLimit,
+                                 @Value("${ccd.limiter.latency-threshold-millis}") long latencyThresholdMillis,
+                                 @Value("${ccd.limiter.backoff-ratio}") double backoffRatio,
+                                 @Value("${ccd.limiter.reserved-share}") double reservedShare) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThresholdMillis * 1_000_000;
+        this.backoffRatio = backoffRatio;
+        this.reservedShare = reservedShare;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+
+        Gauge.builder(METRIC_PREFIX + ".limit", this, CcdConcurrencyLimiter::getLimit).register(meterRegistry);
+        Gauge.builder(METRIC_PREFIX + ".in-flight", this, CcdConcurrencyLimiter::getInFlight).register(meterRegistry);
+        this.rejections = Counter.builder(METRIC_PREFIX + ".rejections")
+            .description("CCD calls that had to wait because the concurrency limit was reached")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Runs the call once the limit has room for it. Priority calls may use the whole limit, other calls only the
+     * part that is not reserved.
+     */
+    public <T> T call(CcdCall<T> call, boolean priority) throws IOException {
+        acquire(priority);
+        long start = System.nanoTime();
+        try {
+            T result = call.call();
+            release(System.nanoTime() - start > latencyThresholdNanos ? Outcome.DROPPED : Outcome.SUCCESS);
+            return result;
+        } catch (IOException | RuntimeException e) {
+            release(CcdCallExecutor.isTransient(e) ? Outcome.DROPPED : Outcome.IGNORED);
+            throw e;
+        }
+    }
+
+    public int getLimit() {
+        lock.lock();
+        try {
+            return (int) limit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns whether new work should be taken in: the limit is not all in use and no priority call is waiting.
+     */
+    public boolean permitsIntake() {
+        lock.lock();
+        try {
+            return inFlight < (int) limit && waitingPriority == 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void acquire(boolean priority) throws InterruptedIOException {
+        lock.lock();
+        try {
+            if (inFlight >= available(priority)) {
+                rejections.increment();
+                if (priority) {
+                    waitingPriority++;
+                }
+                try {
+                    do {
+                        released.await();
+                    } while (inFlight >= available(priority));
+                } finally {
+                    if (priority) {
+                        waitingPriority--;
+                    }
+                }
+            }
+            inFlight++;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for CCD capacity");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Called with lock held
+    private int available(boolean priority) {
+        if (priority || reservedShare <= 0) {
+            return (int) limit;
+        }
+        int reserved = (int) Math.ceil(limit * reservedShare);
+        return Math.max(1, (int) limit - reserved);
+    }
+
+    private void release(Outcome outcome) {
+        lock.lock();
+        try {
+            boolean limited = inFlight * 2 >= limit;
+            inFlight--;
+            if (outcome == Outcome.DROPPED) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+                log.debug("CCD concurrency limit lowered to {}", (int) limit);
+            } else if (outcome == Outcome.SUCCESS && limited) {
+                limit = Math.min(maxLimit, limit + 1);
+            }
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private enum Outcome {
+        SUCCESS,
+        DROPPED,
+        IGNORED
+    }
+}
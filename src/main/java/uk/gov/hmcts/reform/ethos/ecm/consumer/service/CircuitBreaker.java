@@ -0,0 +1,133 @@
+package uk.gov.hmcts.reform.ethos.ecm.consumer.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.function.Predicate;
+
+/**
+ * Stops calls to a downstream service after a run of consecutive failures. While open, calls fail straight away
+ * with a {@link CircuitBreakerOpenException}. Once the open duration has passed, a single call is let through as a
+ * probe: if it succeeds the breaker closes, otherwise it opens again. Only errors matching the failure predicate
+ * count; any other outcome shows the service is answering.
+ */
+@Slf4j
+public class CircuitBreaker {
+
+    private static final String METRIC_PREFIX = "circuit-breaker";
+
+    public enum State {
+        CLOSED,
+        HALF_OPEN,
+        OPEN
+    }
+
+    private final transient String name;
+    private final transient MeterRegistry meterRegistry;
+    private final transient int failureThreshold;
+    private final transient long openNanos;
+    private final transient Predicate<Throwable> isFailure;
+
+    // Guarded by this
+    private transient State state = State.CLOSED;
+    private transient int consecutiveFailures;
+    private transient long openedAt;
+    private transient boolean probeInFlight;
+
+    public CircuitBreaker(String name,
+                          MeterRegistry meterRegistry,
+                          int failureThreshold,
+                          Duration openDuration,
+                          Predicate<Throwable> isFailure) {
+        this.name = name;
+        this.meterRegistry = meterRegistry;
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+        this.isFailure = isFailure;
+
+        Gauge.builder(METRIC_PREFIX + ".state", this, breaker -> breaker.getState().ordinal())
+            .tag("name", name)
+            .description("0 closed, 1 half open, 2 open")
+            .register(meterRegistry);
+    }
+
+    public <T, E extends Exception> T call(Call<T, E> call) throws E {
+        acquirePermission();
+        try {
+            T result = call.call();
+            onSuccess();
+            return result;
+        } catch (Exception e) {
+            if (isFailure.test(e)) {
+                onFailure();
+            } else {
+                onSuccess();
+            }
+            throw e;
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Returns whether new work should be taken in: the breaker is closed, or open long enough for a probe.
+     */
+    public synchronized boolean permitsIntake() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                return System.nanoTime() - openedAt >= openNanos;
+            default:
+                return !probeInFlight;
+        }
+    }
+
+    private synchronized void acquirePermission() {
+        if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos) {
+            transitionTo(State.HALF_OPEN);
+        }
+        if (state == State.OPEN || state == State.HALF_OPEN && probeInFlight) {
+            throw new CircuitBreakerOpenException(name);
+        }
+        if (state == State.HALF_OPEN) {
+            probeInFlight = true;
+        }
+    }
+
+    private synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        if (state == State.HALF_OPEN) {
+            probeInFlight = false;
+            transitionTo(State.CLOSED);
+        }
+    }
+
+    private synchronized void onFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || state == State.CLOSED && consecutiveFailures >= failureThreshold) {
+            probeInFlight = false;
+            openedAt = System.nanoTime();
+            transitionTo(State.OPEN);
+        }
+    }
+
+    private void transitionTo(State next) {
+        log.warn("Circuit breaker {} changed from {} to {}", name, state, next);
+        meterRegistry.counter(METRIC_PREFIX + ".transitions", "name", name, "to", next.name()).increment();
+        state = next;
+    }
+
+    @FunctionalInterface
+    public interface Call<T, E extends Exception> {
+        T call() throws E;
+    }
+}
@@ -0,0 +1,10 @@
+package uk.gov.hmcts.reform.ethos.ecm.consumer.service;
+
+public class CircuitBreakerOpenException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public CircuitBreakerOpenException(String name) {
+        super("Circuit breaker " + name + " is open");
+    }
+}
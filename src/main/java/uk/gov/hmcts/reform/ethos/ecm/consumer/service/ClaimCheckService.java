@@ -0,0 +1,144 @@
+package uk.gov.hmcts.reform.ethos.ecm.consumer.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import uk.gov.hmcts.ecm.common.exceptions.InvalidMessageException;
+import uk.gov.hmcts.ecm.common.model.servicebus.CreateUpdatesMsg;
+import uk.gov.hmcts.ecm.common.model.servicebus.UpdateCaseMsg;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.domain.ClaimCheck;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.domain.repository.ClaimCheckRepository;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * Stores the part of an update-case message that is the same for every case of a create-updates message once, so
+ * the update-case messages only carry a claim check ID referring to it. Resolved payloads are cached, so each
+ * consumer reads and parses a payload once per create-updates message.
+ * A payload is kept for a grace period after its multiple finishes, so late redeliveries and retries of its
+ * messages can still be resolved, and for a maximum age if the multiple never finishes.
+ */
+@Slf4j
+@Service
+public class ClaimCheckService {
+
+    public static final String CLAIM_CHECK_ID = "claimCheckId";
+
+    private static final String CACHE_NAME = "claim-check.payloads";
+
+    private final transient ClaimCheckRepository claimCheckRepository;
+    private final transient ObjectMapper objectMapper;
+    private final transient Cache<String, UpdateCaseMsg> payloads;
+    private final transient Duration maxAge;
+    private final transient int graceMinutes;
+
+    @Autowired
+    public ClaimCheckService(ClaimCheckRepository claimCheckRepository,
+                             ObjectMapper objectMapper,
+                             MeterRegistry meterRegistry,
+                             @Value("${queue.update-case.claim-check.cache-size}") long cacheSize,
+                             @Value("${queue.update-case.claim-check.cache-ttl-minutes}") long ttlMinutes,
+                             @Value("${queue.update-case.claim-check.max-age-hours}") long maxAgeHours,
+                             @Value("${queue.update-case.claim-check.grace-minutes}") int graceMinutes) {
+        this.claimCheckRepository = claimCheckRepository;
+        this.objectMapper = objectMapper;
+        this.maxAge = Duration.ofHours(maxAgeHours);
+        this.graceMinutes = graceMinutes;
+        this.payloads = Caffeine.newBuilder()
+            .maximumSize(cacheSize)
+            .expireAfterAccess(Duration.ofMinutes(ttlMinutes))
+            .recordStats()
+            .build();
+
+        CaffeineCacheMetrics.monitor(meterRegistry, payloads, CACHE_NAME);
+    }
+
+    /**
+     * Stores the shared payload of the create-updates message and returns its claim check ID. Storing the same
+     * message again, as happens when it is redelivered, overwrites the payload with the same content.
+     */
+    public String store(CreateUpdatesMsg createUpdatesMsg) {
+        UpdateCaseMsg shared = UpdateCaseMsg.builder()
+            .multipleRef(createUpdatesMsg.getMultipleRef())
+            .multipleReferenceLinkMarkUp(createUpdatesMsg.getMultipleReferenceLinkMarkUp())
+            .username(createUpdatesMsg.getUsername())
+            .confirmation(createUpdatesMsg.getConfirmation())
+            .dataModelParent(createUpdatesMsg.getDataModelParent())
+            .build();
+
+        String claimCheckId = createUpdatesMsg.getMsgId();
+        claimCheckRepository.save(new ClaimCheck(claimCheckId, createUpdatesMsg.getMultipleRef(), toJson(shared),
+                                                 LocalDateTime.now().plus(maxAge)));
+        payloads.put(claimCheckId, shared);
+        return claimCheckId;
+    }
+
+    /**
+     * Fills in the shared fields of an update-case message sent with a claim check ID. The data model is shared
+     * by all messages resolved from the same payload and must not be modified.
+     */
+    public void resolve(String claimCheckId, UpdateCaseMsg updateCaseMsg) throws IOException {
+        UpdateCaseMsg shared;
+        try {
+            shared = payloads.get(claimCheckId, this::load);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (shared == null) {
+            throw new IOException("No payload stored for claim check " + claimCheckId);
+        }
+
+        updateCaseMsg.setMultipleReferenceLinkMarkUp(shared.getMultipleReferenceLinkMarkUp());
+        updateCaseMsg.setUsername(shared.getUsername());
+        updateCaseMsg.setConfirmation(shared.getConfirmation());
+        updateCaseMsg.setDataModelParent(shared.getDataModelParent());
+    }
+
+    /**
+     * Lets the payload with the given claim check ID expire once the grace period has passed. The claim check ID
+     * is the ID of the create-updates message the payload was stored for.
+     */
+    public void expire(String claimCheckId) {
+        claimCheckRepository.persistentQExpireClaimCheck(claimCheckId, graceMinutes);
+    }
+
+    /**
+     * Deletes the payloads that have expired. Cached copies are left to expire from the cache.
+     */
+    public int purgeExpired() {
+        return claimCheckRepository.deleteExpired();
+    }
+
+    private UpdateCaseMsg load(String claimCheckId) {
+        log.info("Loading claim check {}", claimCheckId);
+        return claimCheckRepository.findById(claimCheckId)
+            .map(claimCheck -> fromJson(claimCheck.getPayload()))
+            .orElse(null);
+    }
+
+    private String toJson(UpdateCaseMsg shared) {
+        try {
+            return objectMapper.writeValueAsString(shared);
+        } catch (JsonProcessingException e) {
+            throw new InvalidMessageException("Unable to create claim check payload in json format", e);
+        }
+    }
+
+    private UpdateCaseMsg fromJson(String payload) {
+        try {
+            return objectMapper.readValue(payload, UpdateCaseMsg.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
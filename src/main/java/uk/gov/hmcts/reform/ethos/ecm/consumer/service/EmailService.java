@@ -1,13 +1,20 @@
 package uk.gov.hmcts.reform.ethos.ecm.consumer.service;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import uk.gov.hmcts.ecm.common.exceptions.InvalidMessageException;
 import uk.gov.hmcts.reform.ethos.ecm.consumer.config.EmailClient;
-import uk.gov.hmcts.reform.ethos.ecm.consumer.domain.MultipleErrors;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.domain.PendingEmail;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.domain.repository.PendingEmailRepository;
+import uk.gov.service.notify.NotificationClient;
 import uk.gov.service.notify.NotificationClientException;
 
-import java.util.ArrayList;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -17,67 +24,140 @@ import java.util.stream.Collectors;
 import static uk.gov.hmcts.reform.ethos.ecm.consumer.helpers.Constants.CONFIRMATION_ERROR_EMAIL;
 import static uk.gov.hmcts.reform.ethos.ecm.consumer.helpers.Constants.CONFIRMATION_OK_EMAIL;
 
+/**
+ * Sends confirmation emails through GOV.UK Notify. Emails are first stored as pending, and sent later by
+ * {@code EmailDispatchTask}, so a slow or failing Notify call does not hold up the caller and a failed send is
+ * retried, also after a restart. The reference of an email is derived from the multiple and the create-updates
+ * message it confirms, so queueing it again while it is pending, as a retried finish does, has no effect.
+ */
 @Slf4j
 @Service
 public class EmailService {
 
     public static final String MULTIPLE_ERRORS = "multipleErrors";
     public static final String MULTIPLE_REFERENCE = "multipleReference";
+    public static final String ERRORS_FILE = "errorsFile";
     public static final String EMAIL_DESCRIPTION = "send Confirmation email to ";
     public static final String EMAIL_DESCRIPTION_ERROR = "send Confirmation with ERRORS to ";
+    public static final String ERRORS_FILE_UNAVAILABLE =
+        "Not available. The full list of errors could not be attached to this email.";
+
+    private static final TypeReference<Map<String, Object>> PERSONALISATION_TYPE = new TypeReference<>() {};
 
     private final transient EmailClient emailClient;
+    private final transient PendingEmailRepository pendingEmailRepository;
+    private final transient ObjectMapper objectMapper;
 
     @Autowired
-    public EmailService(EmailClient emailClient) {
+    public EmailService(EmailClient emailClient,
+                        PendingEmailRepository pendingEmailRepository,
+                        ObjectMapper objectMapper) {
         this.emailClient = emailClient;
+        this.pendingEmailRepository = pendingEmailRepository;
+        this.objectMapper = objectMapper;
     }
 
-    public void sendConfirmationEmail(String emailAddress, String multipleRef) {
-        sendEmail(CONFIRMATION_OK_EMAIL,
+    public void sendConfirmationEmail(String emailAddress, String multipleRef, String fanOutId) {
+        Map<String, Object> personalisation = new HashMap<>();
+        personalisation.put(MULTIPLE_ERRORS, "");
+        personalisation.put(MULTIPLE_REFERENCE, multipleRef);
+
+        sendEmail(referenceId(multipleRef, fanOutId),
+                  CONFIRMATION_OK_EMAIL,
                   emailAddress,
-                  buildPersonalisation(new ArrayList<>(), multipleRef),
+                  personalisation,
                   EMAIL_DESCRIPTION + emailAddress);
     }
 
-    public void sendConfirmationErrorEmail(String emailAddress,
-                                           List<MultipleErrors> multipleErrorsList, String multipleRef) {
-        sendEmail(CONFIRMATION_ERROR_EMAIL,
+    /**
+     * Sends the errors of the multiple grouped by description, with the full list of errors attached as a CSV
+     * file that the email links to. If the file cannot be attached, for example because it is too large, the
+     * email says so in its place.
+     */
+    public void sendConfirmationErrorEmail(String emailAddress, MultipleErrorsSummary multipleErrorsSummary,
+                                           byte[] errorsFile, String multipleRef, String fanOutId) {
+        Map<String, Object> personalisation = new HashMap<>();
+        String errors = multipleErrorsSummary.getGroups().stream()
+            .map(group -> group.getDescription() + ": " + group.getTotal() + " case(s), for example "
+                + group.getSampleRefs())
+            .collect(Collectors.joining(System.lineSeparator()));
+        log.info("Sending email for multipleRef: " + multipleRef + " with " + multipleErrorsSummary.getTotal()
+                     + " errors: " + errors);
+        personalisation.put(MULTIPLE_ERRORS, errors);
+        personalisation.put(MULTIPLE_REFERENCE, multipleRef);
+        personalisation.put(ERRORS_FILE, prepareUpload(errorsFile, multipleRef));
+
+        sendEmail(referenceId(multipleRef, fanOutId),
+                  CONFIRMATION_ERROR_EMAIL,
                   emailAddress,
-                  buildPersonalisation(multipleErrorsList, multipleRef),
+                  personalisation,
                   EMAIL_DESCRIPTION_ERROR + emailAddress);
     }
 
-    private Map<String, String> buildPersonalisation(List<MultipleErrors> multipleErrorsList, String multipleRef) {
-        Map<String, String> personalisation = new HashMap<>();
+    private Object prepareUpload(byte[] errorsFile, String multipleRef) {
+        try {
+            return NotificationClient.prepareUpload(errorsFile, true).toMap();
+        } catch (NotificationClientException e) {
+            log.warn("Failed to attach errors file of multiple {}, sending the email without it. Reason:",
+                     multipleRef, e);
+            return ERRORS_FILE_UNAVAILABLE;
+        }
+    }
 
-        String errors = multipleErrorsList.stream()
-            .map(MultipleErrors::toString)
-            .collect(Collectors.joining(System.lineSeparator()));
-        log.info("Sending email for multipleRef: " + multipleRef + " with errors: " + errors);
-        personalisation.put(MULTIPLE_ERRORS, errors);
-        personalisation.put(MULTIPLE_REFERENCE, multipleRef);
+    /**
+     * Returns the reference of the confirmation email of the given multiple and create-updates message.
+     */
+    public static String referenceId(String multipleRef, String fanOutId) {
+        String name = multipleRef + ":" + fanOutId;
+        return UUID.nameUUIDFromBytes(name.getBytes(StandardCharsets.UTF_8)).toString();
+    }
+
+    private void sendEmail(String referenceId, String templateId, String emailAddress,
+                           Map<String, Object> personalisation, String emailDescription) {
+
+        int queued = pendingEmailRepository.persistentQAddPendingEmail(referenceId, templateId, emailAddress,
+                                                                       toJson(personalisation), emailDescription);
+        if (queued == 0) {
+            log.info("{} email already queued. Reference ID: {}", emailDescription, referenceId);
+        } else {
+            log.info("Queueing {} email. Reference ID: {}", emailDescription, referenceId);
+        }
+    }
 
-        return personalisation;
+    /**
+     * Claims up to the given number of pending emails that are due to be sent. A claimed email is claimed again
+     * once the lease has passed, unless it has been sent or dropped.
+     */
+    public List<PendingEmail> claimPendingEmails(int limit, int leaseSeconds) {
+        return pendingEmailRepository.persistentQClaimPendingEmail(limit, leaseSeconds);
     }
 
-    private void sendEmail(String templateId, String emailAddress,
-                           Map<String, String> personalisation, String emailDescription) {
+    public void send(PendingEmail pendingEmail) throws NotificationClientException, IOException {
+
+        log.info("Attempting to {}. Reference ID: {}, attempt {}",
+                 pendingEmail.getDescription(), pendingEmail.getReferenceid(), pendingEmail.getAttempts());
+        emailClient.sendEmail(
+            pendingEmail.getTemplateid(),
+            pendingEmail.getEmailaddress(),
+            objectMapper.readValue(pendingEmail.getPersonalisation(), PERSONALISATION_TYPE),
+            pendingEmail.getReferenceid()
+        );
+        log.info("Sending email success. Reference ID: {}", pendingEmail.getReferenceid());
+    }
 
-        var referenceId = UUID.randomUUID().toString();
+    public void retryLater(String referenceId, int delaySeconds) {
+        pendingEmailRepository.persistentQRetryPendingEmail(referenceId, delaySeconds);
+    }
 
-        try {
-            log.info("Attempting to send {} email. Reference ID: {}", emailDescription, referenceId);
-            emailClient.sendEmail(
-                templateId,
-                emailAddress,
-                personalisation,
-                referenceId
-            );
-            log.info("Sending email success. Reference ID: {}", referenceId);
+    public void removePendingEmail(String referenceId) {
+        pendingEmailRepository.deleteByReferenceId(referenceId);
+    }
 
-        } catch (NotificationClientException e) {
-            log.warn("Failed to send email. Reference ID: {}. Reason:", referenceId, e);
+    private String toJson(Map<String, Object> personalisation) {
+        try {
+            return objectMapper.writeValueAsString(personalisation);
+        } catch (JsonProcessingException e) {
+            throw new InvalidMessageException("Unable to create email personalisation in json format", e);
         }
     }
 }
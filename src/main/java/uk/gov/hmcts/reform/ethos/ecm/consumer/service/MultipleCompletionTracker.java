@@ -0,0 +1,63 @@
+package uk.gov.hmcts.reform.ethos.ecm.consumer.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.domain.repository.MultipleCounterRepository;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.model.servicebus.FanOutPosition;
+
+/**
+ * Records the completed cases of multiples as one bit per case, at the position of the case in the fan-out, so a
+ * case that is delivered again after it was counted is not counted twice. The multiple is complete when the number
+ * of bits set, plus the cases counted on the multiple counter because their message carries no fan-out position,
+ * reaches its total. The case that sees this claims the finish, so it is claimed once however many cases see it.
+ */
+@Slf4j
+@Service
+public class MultipleCompletionTracker {
+
+    private final transient MultipleCounterRepository multipleCounterRepository;
+    private final transient boolean enabled;
+
+    @Autowired
+    public MultipleCompletionTracker(MultipleCounterRepository multipleCounterRepository,
+                                     @Value("${multiple-counter.completion-bitmap.enabled}") boolean enabled) {
+        this.multipleCounterRepository = multipleCounterRepository;
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean canTrack(FanOutPosition fanOutPosition) {
+        return enabled && fanOutPosition != null && fanOutPosition.caseIndex >= 0;
+    }
+
+    /**
+     * Marks the case as completed. Returns false if the case had already been marked.
+     */
+    public boolean markCompleted(String multipleRef, FanOutPosition fanOutPosition) {
+        boolean marked = multipleCounterRepository.persistentQMarkMultipleCaseCompleted(
+            multipleRef, fanOutPosition.fanOutId, fanOutPosition.caseIndex);
+        if (!marked) {
+            log.info("Case " + fanOutPosition.caseIndex + " of fan-out " + fanOutPosition.fanOutId
+                         + " of multiple " + multipleRef + " already counted");
+        }
+        return marked;
+    }
+
+    /**
+     * Returns true if all cases of the multiple have completed and this caller has claimed its finish. Must be called
+     * after the case has been marked or counted, in its own transaction.
+     */
+    public boolean claimFinish(String multipleRef, int totalCases) {
+        return multipleCounterRepository.persistentQClaimMultipleCompletionFinish(multipleRef, totalCases);
+    }
+
+    public void delete(String multipleRef) {
+        multipleCounterRepository.deleteCompletionByMultipleRef(multipleRef);
+        multipleCounterRepository.deleteFinishClaimByMultipleRef(multipleRef);
+    }
+}
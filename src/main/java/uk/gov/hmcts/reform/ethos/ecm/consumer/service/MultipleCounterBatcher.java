@@ -0,0 +1,115 @@
+package uk.gov.hmcts.reform.ethos.ecm.consumer.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.domain.repository.MultipleCounterRepository;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PreDestroy;
+
+/**
+ * Counts the completed cases of multiples. When batching is enabled, the cases of a multiple completed within the
+ * flush window are added to its counter in one increment, so the counter row is locked once per batch instead of
+ * once per case. Each case still gets its own counter value, taken from the range the increment added, so exactly
+ * one case of the multiple sees the total.
+ */
+@Slf4j
+@Service
+public class MultipleCounterBatcher {
+
+    private final transient MultipleCounterRepository multipleCounterRepository;
+    private final transient boolean enabled;
+    private final transient long flushMillis;
+    private final transient ScheduledExecutorService flusher;
+    private final transient DistributionSummary batchSizes;
+
+    // Guarded by itself
+    private final transient Map<String, List<CompletableFuture<Integer>>> pending = new LinkedHashMap<>();
+    private transient ScheduledFuture<?> scheduledFlush;
+
+    @Autowired
+    public MultipleCounterBatcher(MultipleCounterRepository multipleCounterRepository,
+                                  MeterRegistry meterRegistry,
+                                  @Value("${multiple-counter.batch.enabled}") boolean enabled,
+                                  @Value("${multiple-counter.batch.flush-millis}") long flushMillis) {
+        this.multipleCounterRepository = multipleCounterRepository;
+        this.enabled = enabled;
+        this.flushMillis = flushMillis;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            var thread = new Thread(r, "multiple-counter-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.batchSizes = DistributionSummary.builder("multiple-counter.batch-size")
+            .description("Number of completed cases added to a multiple counter per increment")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Counts one completed case of the multiple and returns the counter value of that case.
+     */
+    public CompletableFuture<Integer> nextCountAsync(String multipleRef) {
+        if (!enabled) {
+            return CompletableFuture.completedFuture(
+                multipleCounterRepository.persistentQGetNextMultipleCountVal(multipleRef));
+        }
+
+        var result = new CompletableFuture<Integer>();
+        synchronized (pending) {
+            pending.computeIfAbsent(multipleRef, key -> new ArrayList<>()).add(result);
+            if (scheduledFlush == null) {
+                scheduledFlush = flusher.schedule(this::flush, flushMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Adds all cases counted so far to the counters of their multiples.
+     */
+    public void flush() {
+        Map<String, List<CompletableFuture<Integer>>> batch;
+        synchronized (pending) {
+            batch = new LinkedHashMap<>(pending);
+            pending.clear();
+            if (scheduledFlush != null) {
+                scheduledFlush.cancel(false);
+                scheduledFlush = null;
+            }
+        }
+
+        batch.forEach(this::increment);
+    }
+
+    private void increment(String multipleRef, List<CompletableFuture<Integer>> results) {
+        try {
+            int counter = multipleCounterRepository.persistentQAddMultipleCount(multipleRef, results.size());
+            batchSizes.record(results.size());
+            int first = counter - results.size() + 1;
+            for (int i = 0; i < results.size(); i++) {
+                results.get(i).complete(first + i);
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to add {} cases to counter of multiple {}", results.size(), multipleRef, e);
+            results.forEach(result -> result.completeExceptionally(e));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+        flusher.shutdown();
+    }
+}
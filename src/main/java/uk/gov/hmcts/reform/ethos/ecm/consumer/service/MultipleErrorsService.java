@@ -0,0 +1,87 @@
+package uk.gov.hmcts.reform.ethos.ecm.consumer.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.domain.MultipleErrors;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.domain.repository.MultipleErrorsRepository;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * Reads the errors of a multiple without loading them all at once: grouped by description in the database for the
+ * summary, and page by page for the full list.
+ */
+@Slf4j
+@Service
+public class MultipleErrorsService {
+
+    private static final String CSV_HEADER = "Ethos Case Reference,Description\n";
+    private static final String CSV_TRUNCATED = "...,List truncated\n";
+
+    private final transient MultipleErrorsRepository multipleErrorsRepository;
+    private final transient int pageSize;
+    private final transient int samples;
+    private final transient int maxFileBytes;
+
+    @Autowired
+    public MultipleErrorsService(MultipleErrorsRepository multipleErrorsRepository,
+                                 @Value("${multiple-errors.page-size}") int pageSize,
+                                 @Value("${multiple-errors.samples}") int samples,
+                                 @Value("${multiple-errors.max-file-bytes}") int maxFileBytes) {
+        this.multipleErrorsRepository = multipleErrorsRepository;
+        this.pageSize = pageSize;
+        this.samples = samples;
+        this.maxFileBytes = maxFileBytes;
+    }
+
+    public MultipleErrorsSummary summarise(String multipleRef) {
+        return new MultipleErrorsSummary(multipleErrorsRepository.groupByDescription(multipleRef, samples));
+    }
+
+    /**
+     * Returns all errors of the multiple as CSV. The list is cut short if it would exceed the maximum file size.
+     */
+    public byte[] toCsv(String multipleRef) {
+        var csv = new ByteArrayOutputStream();
+        write(csv, CSV_HEADER);
+
+        long lastId = 0;
+        List<MultipleErrors> page;
+        do {
+            page = multipleErrorsRepository.findByMultiplerefAndIdGreaterThanOrderByIdAsc(
+                multipleRef, lastId, PageRequest.of(0, pageSize));
+            for (MultipleErrors multipleErrors : page) {
+                byte[] row = (csvField(multipleErrors.getEthoscaseref()) + ","
+                    + csvField(multipleErrors.getDescription()) + "\n").getBytes(StandardCharsets.UTF_8);
+                if (csv.size() + row.length + CSV_TRUNCATED.length() > maxFileBytes) {
+                    log.info("Errors file of multiple {} truncated at {} bytes", multipleRef, csv.size());
+                    write(csv, CSV_TRUNCATED);
+                    return csv.toByteArray();
+                }
+                csv.writeBytes(row);
+                lastId = multipleErrors.getId();
+            }
+        } while (page.size() == pageSize);
+
+        return csv.toByteArray();
+    }
+
+    private static void write(ByteArrayOutputStream csv, String text) {
+        csv.writeBytes(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.contains(",") || value.contains("\"") || value.contains("\n")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+}
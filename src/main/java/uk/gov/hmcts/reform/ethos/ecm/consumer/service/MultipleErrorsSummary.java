@@ -0,0 +1,31 @@
+package uk.gov.hmcts.reform.ethos.ecm.consumer.service;
+
+import uk.gov.hmcts.reform.ethos.ecm.consumer.domain.MultipleErrorsGroup;
+
+import java.util.List;
+
+/**
+ * Errors of a multiple grouped by description, largest group first.
+ */
+public class MultipleErrorsSummary {
+
+    private final transient List<MultipleErrorsGroup> groups;
+    private final transient long total;
+
+    public MultipleErrorsSummary(List<MultipleErrorsGroup> groups) {
+        this.groups = groups;
+        this.total = groups.stream().mapToLong(MultipleErrorsGroup::getTotal).sum();
+    }
+
+    public List<MultipleErrorsGroup> getGroups() {
+        return groups;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public boolean hasErrors() {
+        return total > 0;
+    }
+}
@@ -0,0 +1,133 @@
+package uk.gov.hmcts.reform.ethos.ecm.consumer.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PreDestroy;
+
+/**
+ * Writes multiple errors in batches. Errors are collected and inserted together once the batch is full or the
+ * flush window has passed, instead of one database call per error. The returned future completes once the error is
+ * stored, so a case can be counted as done only after its error can be read by the finish of its multiple.
+ */
+@Slf4j
+@Service
+public class MultipleErrorsWriter {
+
+    private static final String INSERT_ERROR =
+        "INSERT INTO multipleErrors (multipleRef, ethosCaseRef, description) VALUES (?, ?, ?)";
+
+    private final transient JdbcTemplate jdbcTemplate;
+    private final transient int maxBatchSize;
+    private final transient long flushMillis;
+    private final transient ScheduledExecutorService flusher;
+    private final transient Timer flushTimer;
+    private final transient DistributionSummary batchSizes;
+
+    // Guarded by itself
+    private final transient List<PendingError> pending = new ArrayList<>();
+    private transient ScheduledFuture<?> scheduledFlush;
+
+    @Autowired
+    public MultipleErrorsWriter(JdbcTemplate jdbcTemplate,
+                                MeterRegistry meterRegistry,
+                                @Value("${multiple-errors.write.batch-size}") int maxBatchSize,
+                                @Value("${multiple-errors.write.flush-millis}") long flushMillis) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.maxBatchSize = maxBatchSize;
+        this.flushMillis = flushMillis;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            var thread = new Thread(r, "multiple-errors-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.flushTimer = Timer.builder("multiple-errors.write.flush")
+            .description("Time taken to insert a batch of multiple errors")
+            .register(meterRegistry);
+        this.batchSizes = DistributionSummary.builder("multiple-errors.write.batch-size")
+            .description("Number of multiple errors inserted per batch")
+            .register(meterRegistry);
+    }
+
+    public CompletableFuture<Void> addAsync(String multipleRef, String ethosCaseRef, String description) {
+        var pendingError = new PendingError(multipleRef, ethosCaseRef, description);
+        boolean full = false;
+        synchronized (pending) {
+            pending.add(pendingError);
+            if (pending.size() >= maxBatchSize) {
+                full = true;
+            } else if (scheduledFlush == null) {
+                scheduledFlush = flusher.schedule(this::flush, flushMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        if (full) {
+            flusher.execute(this::flush);
+        }
+        return pendingError.result;
+    }
+
+    /**
+     * Writes all errors collected so far.
+     */
+    public void flush() {
+        List<PendingError> batch;
+        synchronized (pending) {
+            batch = new ArrayList<>(pending);
+            pending.clear();
+            if (scheduledFlush != null) {
+                scheduledFlush.cancel(false);
+                scheduledFlush = null;
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> rows = new ArrayList<>(batch.size());
+        for (PendingError pendingError : batch) {
+            rows.add(new Object[] {pendingError.multipleRef, pendingError.ethosCaseRef, pendingError.description});
+        }
+
+        try {
+            flushTimer.record(() -> jdbcTemplate.batchUpdate(INSERT_ERROR, rows));
+            batchSizes.record(batch.size());
+            batch.forEach(pendingError -> pendingError.result.complete(null));
+        } catch (RuntimeException e) {
+            log.error("Failed to write batch of {} multiple errors", batch.size(), e);
+            batch.forEach(pendingError -> pendingError.result.completeExceptionally(e));
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+        flusher.shutdown();
+    }
+
+    private static final class PendingError {
+        private final String multipleRef;
+        private final String ethosCaseRef;
+        private final String description;
+        private final CompletableFuture<Void> result = new CompletableFuture<>();
+
+        private PendingError(String multipleRef, String ethosCaseRef, String description) {
+            this.multipleRef = multipleRef;
+            this.ethosCaseRef = ethosCaseRef;
+            this.description = description;
+        }
+    }
+}
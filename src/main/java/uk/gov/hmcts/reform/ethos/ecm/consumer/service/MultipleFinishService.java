@@ -0,0 +1,81 @@
+package uk.gov.hmcts.reform.ethos.ecm.consumer.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import uk.gov.hmcts.ecm.common.exceptions.InvalidMessageException;
+import uk.gov.hmcts.ecm.common.model.servicebus.UpdateCaseMsg;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.domain.MultipleFinish;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.domain.repository.MultipleFinishRepository;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Persistent queue of multiples whose cases have all been updated. The update of the last case only records the
+ * multiple here, and the multiple is finished later by {@code MultipleFinishTask}, so update-case workers are not
+ * held up by the multiple update, the email and the clean up. Each step of the finish is recorded once done, so a
+ * finish that is retried does not update the multiple or queue the email again.
+ */
+@Slf4j
+@RequiredArgsConstructor
+@Service
+public class MultipleFinishService {
+
+    public static final int NOT_STARTED = 0;
+    public static final int MULTIPLE_UPDATED = 1;
+    public static final int EMAIL_QUEUED = 2;
+
+    private final MultipleFinishRepository multipleFinishRepository;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Records that the multiple of the message is ready to be finished, together with the ID of the create-updates
+     * message whose fan-out completed it, or null if the message did not carry one. Recording the same multiple
+     * again, as happens when the last message is redelivered, has no effect.
+     */
+    public void schedule(UpdateCaseMsg updateCaseMsg, String fanOutId) {
+        int scheduled = multipleFinishRepository.persistentQScheduleMultipleFinish(updateCaseMsg.getMultipleRef(),
+                                                                                   toJson(updateCaseMsg),
+                                                                                   fanOutId);
+        log.info("Scheduled finish of multiple {}: {}", updateCaseMsg.getMultipleRef(), scheduled > 0);
+    }
+
+    /**
+     * Claims up to the given number of multiples that are due to be finished. A claimed multiple is claimed again
+     * once the lease has passed, unless it has been completed.
+     */
+    public List<MultipleFinish> claim(int limit, int leaseSeconds) {
+        return multipleFinishRepository.persistentQClaimMultipleFinish(limit, leaseSeconds);
+    }
+
+    /**
+     * Extends the lease of multiples that are still being finished, so they are not claimed again meanwhile.
+     */
+    public void renewLeases(Collection<String> multipleRefs, int leaseSeconds) {
+        multipleFinishRepository.persistentQRenewMultipleFinishLease(multipleRefs, leaseSeconds);
+    }
+
+    public void recordStep(String multipleRef, int step) {
+        multipleFinishRepository.persistentQRecordMultipleFinishStep(multipleRef, step);
+    }
+
+    public UpdateCaseMsg readMessage(MultipleFinish multipleFinish) throws IOException {
+        return objectMapper.readValue(multipleFinish.getPayload(), UpdateCaseMsg.class);
+    }
+
+    public void complete(String multipleRef) {
+        multipleFinishRepository.deleteByMultipleRef(multipleRef);
+    }
+
+    private String toJson(UpdateCaseMsg updateCaseMsg) {
+        try {
+            return objectMapper.writeValueAsString(updateCaseMsg);
+        } catch (JsonProcessingException e) {
+            throw new InvalidMessageException("Unable to create multiple finish payload in json format", e);
+        }
+    }
+}
@@ -10,7 +10,7 @@ import uk.gov.hmcts.ecm.common.model.multiples.MultipleData;
 import uk.gov.hmcts.ecm.common.model.multiples.SubmitMultipleEvent;
 import uk.gov.hmcts.ecm.common.model.servicebus.UpdateCaseMsg;
 import uk.gov.hmcts.ecm.common.model.servicebus.datamodel.CreationSingleDataModel;
-import uk.gov.hmcts.reform.ethos.ecm.consumer.domain.MultipleErrors;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.CcdCallExecutor.Budget;
 
 import java.io.IOException;
 import java.util.List;
@@ -20,25 +20,31 @@ import static uk.gov.hmcts.ecm.common.model.helper.Constants.MIGRATION_CASE_SOUR
 import static uk.gov.hmcts.ecm.common.model.helper.Constants.OPEN_STATE;
 import static uk.gov.hmcts.ecm.common.model.helper.Constants.TRANSFERRED_STATE;
 
+/**
+ * Updates the multiple once all its cases have been updated. Every CCD call is made through
+ * {@link CcdCallExecutor}, within a retry budget shared by all calls of the update.
+ */
 @Slf4j
 @Service
 public class MultipleUpdateService {
 
     private final transient CcdClient ccdClient;
     private final transient UserService userService;
+    private final transient CcdCallExecutor ccdCallExecutor;
 
     @Autowired
-    public MultipleUpdateService(CcdClient ccdClient, UserService userService) {
+    public MultipleUpdateService(CcdClient ccdClient, UserService userService, CcdCallExecutor ccdCallExecutor) {
         this.ccdClient = ccdClient;
         this.userService = userService;
+        this.ccdCallExecutor = ccdCallExecutor;
     }
 
-    public void sendUpdateToMultipleLogic(UpdateCaseMsg updateCaseMsg,
-                                          List<MultipleErrors> multipleErrorsList) throws IOException {
+    public void sendUpdateToMultipleLogic(UpdateCaseMsg updateCaseMsg, boolean hasErrors) throws IOException {
 
         String accessToken = userService.getAccessToken();
+        Budget budget = ccdCallExecutor.newBudget(false);
 
-        List<SubmitMultipleEvent> submitMultipleEvents = retrieveMultipleCase(accessToken, updateCaseMsg);
+        List<SubmitMultipleEvent> submitMultipleEvents = retrieveMultipleCase(accessToken, updateCaseMsg, budget);
         if (submitMultipleEvents != null && !submitMultipleEvents.isEmpty()) {
 
             if (updateCaseMsg.getDataModelParent() instanceof CreationSingleDataModel) {
@@ -46,15 +52,16 @@ public class MultipleUpdateService {
                 log.info("Send update to multiple updating to transferred");
 
                 sendUpdate(submitMultipleEvents.get(0), accessToken, updateCaseMsg,
-                           multipleErrorsList, TRANSFERRED_STATE);
+                           hasErrors, TRANSFERRED_STATE, budget);
 
                 log.info("Create new multiple");
 
-                sendMultipleCreation(accessToken, updateCaseMsg, multipleErrorsList);
+                sendMultipleCreation(accessToken, updateCaseMsg, hasErrors, budget);
 
             } else {
 
-                sendUpdate(submitMultipleEvents.get(0), accessToken, updateCaseMsg, multipleErrorsList, OPEN_STATE);
+                sendUpdate(submitMultipleEvents.get(0), accessToken, updateCaseMsg, hasErrors, OPEN_STATE,
+                           budget);
             }
 
         } else {
@@ -63,29 +70,31 @@ public class MultipleUpdateService {
         }
     }
 
-    private List<SubmitMultipleEvent> retrieveMultipleCase(String authToken,
-                                                           UpdateCaseMsg updateCaseMsg) throws IOException {
+    private List<SubmitMultipleEvent> retrieveMultipleCase(String authToken, UpdateCaseMsg updateCaseMsg,
+                                                           Budget budget) throws IOException {
 
-        return ccdClient.retrieveMultipleCasesElasticSearchWithRetries(authToken,
-                                                        updateCaseMsg.getCaseTypeId(),
-                                                        updateCaseMsg.getMultipleRef());
+        return ccdCallExecutor.call("multiple-lookup", budget, () ->
+            ccdClient.retrieveMultipleCasesElasticSearchWithRetries(authToken,
+                                                                    updateCaseMsg.getCaseTypeId(),
+                                                                    updateCaseMsg.getMultipleRef()));
     }
 
     private void sendUpdate(SubmitMultipleEvent submitMultipleEvent, String accessToken, UpdateCaseMsg updateCaseMsg,
-                            List<MultipleErrors> multipleErrorsList, String multipleState) throws IOException {
+                            boolean hasErrors, String multipleState, Budget budget) throws IOException {
 
         String caseTypeId = updateCaseMsg.getCaseTypeId();
         String jurisdiction = updateCaseMsg.getJurisdiction();
         String caseId = String.valueOf(submitMultipleEvent.getCaseId());
 
-        CCDRequest returnedRequest = ccdClient.startBulkAmendEventForCase(accessToken,
-                                                                          caseTypeId,
-                                                                          jurisdiction,
-                                                                          caseId);
+        CCDRequest returnedRequest = ccdCallExecutor.call("start-multiple-update", budget, () ->
+            ccdClient.startBulkAmendEventForCase(accessToken,
+                                                 caseTypeId,
+                                                 jurisdiction,
+                                                 caseId));
 
         var multipleData = new MultipleData();
 
-        if (multipleErrorsList != null && !multipleErrorsList.isEmpty()) {
+        if (hasErrors) {
 
             multipleData.setState(ERRORED_STATE);
 
@@ -107,18 +116,19 @@ public class MultipleUpdateService {
             log.info("Updating the multiple STATE: " + multipleState);
         }
 
-        ccdClient.submitMultipleEventForCase(accessToken,
-                                             multipleData,
-                                             caseTypeId,
-                                             jurisdiction,
-                                             returnedRequest,
-                                             caseId);
+        ccdCallExecutor.submit("submit-multiple-update", budget, () ->
+            ccdClient.submitMultipleEventForCase(accessToken,
+                                                 multipleData,
+                                                 caseTypeId,
+                                                 jurisdiction,
+                                                 returnedRequest,
+                                                 caseId));
     }
 
     private void sendMultipleCreation(String accessToken, UpdateCaseMsg updateCaseMsg,
-                                      List<MultipleErrors> multipleErrorsList) throws IOException {
+                                      boolean hasErrors, Budget budget) throws IOException {
 
-        if (multipleErrorsList == null || multipleErrorsList.isEmpty()) {
+        if (!hasErrors) {
 
             String caseTypeId = (((CreationSingleDataModel) updateCaseMsg.getDataModelParent()).getOfficeCT());
             String jurisdiction = updateCaseMsg.getJurisdiction();
@@ -133,15 +143,17 @@ public class MultipleUpdateService {
 
             String multipleCaseTypeId = UtilHelper.getBulkCaseTypeId(caseTypeId);
 
-            CCDRequest returnedRequest = ccdClient.startCaseMultipleCreation(accessToken,
-                                                                             multipleCaseTypeId,
-                                                                             jurisdiction);
-
-            ccdClient.submitMultipleCreation(accessToken,
-                                             multipleData,
-                                             multipleCaseTypeId,
-                                             jurisdiction,
-                                             returnedRequest);
+            CCDRequest returnedRequest = ccdCallExecutor.call("start-multiple-creation", budget, () ->
+                ccdClient.startCaseMultipleCreation(accessToken,
+                                                    multipleCaseTypeId,
+                                                    jurisdiction));
+
+            ccdCallExecutor.submit("submit-multiple-creation", budget, () ->
+                ccdClient.submitMultipleCreation(accessToken,
+                                                 multipleData,
+                                                 multipleCaseTypeId,
+                                                 jurisdiction,
+                                                 returnedRequest));
 
         }
     }
@@ -10,11 +10,10 @@ import uk.gov.hmcts.ecm.common.model.ccd.CaseDetails;
 import uk.gov.hmcts.ecm.common.model.ccd.SubmitEvent;
 import uk.gov.hmcts.ecm.common.model.servicebus.UpdateCaseMsg;
 import uk.gov.hmcts.ecm.common.model.servicebus.datamodel.CreationSingleDataModel;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.CcdCallExecutor.Budget;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static uk.gov.hmcts.ecm.common.model.helper.Constants.CLOSED_STATE;
 
@@ -24,9 +23,33 @@ import static uk.gov.hmcts.ecm.common.model.helper.Constants.CLOSED_STATE;
 public class SingleCreationService {
 
     private final CcdClient ccdClient;
+    private final CaseLookupService caseLookupService;
 
-    public void sendCreation(SubmitEvent oldSubmitEvent, String accessToken,
-                             UpdateCaseMsg updateCaseMsg) throws IOException {
+    /**
+     * Looks up the case in the destination office, returning null if it does not exist there yet. The lookup makes
+     * its CCD calls within the given budget and completes once its search batch has been searched.
+     */
+    public CompletableFuture<SubmitEvent> findDestinationCaseAsync(SubmitEvent oldSubmitEvent, String accessToken,
+                                                                   UpdateCaseMsg updateCaseMsg, Budget budget) {
+
+        log.info("Retrieve single case and check if it exists");
+
+        String caseTypeId = ((CreationSingleDataModel) updateCaseMsg.getDataModelParent()).getOfficeCT();
+
+        return caseLookupService.retrieveCaseAsync(
+            accessToken, caseTypeId, updateCaseMsg.getJurisdiction(),
+            oldSubmitEvent.getCaseData().getEthosCaseReference(), budget)
+            .thenApply(submitEvents -> submitEvents != null && !submitEvents.isEmpty() ? submitEvents.get(0) : null);
+
+    }
+
+    /**
+     * Builds the case data to send to the destination office and starts the CCD event, on the case found there by
+     * {@link #findDestinationCaseAsync} or on a new case if none was found. Nothing is written to CCD until
+     * {@link #submitCreation(String, PreparedCreation)} is called.
+     */
+    public PreparedCreation prepareCreation(SubmitEvent oldSubmitEvent, SubmitEvent caseDestinationOffice,
+                                            String accessToken, UpdateCaseMsg updateCaseMsg) throws IOException {
 
         CreationSingleDataModel creationSingleDataModel =
             ((CreationSingleDataModel) updateCaseMsg.getDataModelParent());
@@ -36,32 +59,51 @@ public class SingleCreationService {
         String jurisdiction = updateCaseMsg.getJurisdiction();
         String caseId = String.valueOf(oldSubmitEvent.getCaseId());
 
-        log.info("Retrieve single case and check if it exists");
-
-        SubmitEvent caseDestinationOffice =
-            existCaseDestinationOffice(accessToken, oldSubmitEvent.getCaseData().getEthosCaseReference(), caseTypeId);
-
         if (caseDestinationOffice != null) {
 
             log.info("Amend case state as it is returned");
 
-            updateExistingCase(caseDestinationOffice, oldSubmitEvent, caseId, caseTypeId, jurisdiction, accessToken,
-                               ccdGatewayBaseUrl, positionTypeCT);
+            return prepareExistingCase(caseDestinationOffice, oldSubmitEvent, caseId, caseTypeId, jurisdiction,
+                                       accessToken, ccdGatewayBaseUrl, positionTypeCT);
 
         } else {
 
             log.info("Transferring new case");
 
-            transferNewCase(oldSubmitEvent, caseId, caseTypeId, ccdGatewayBaseUrl, positionTypeCT,
-                            jurisdiction, accessToken);
+            return prepareNewCase(oldSubmitEvent, caseId, caseTypeId, ccdGatewayBaseUrl, positionTypeCT,
+                                  jurisdiction, accessToken);
 
         }
 
     }
 
-    private void updateExistingCase(SubmitEvent caseDestinationOffice, SubmitEvent oldSubmitEvent, String caseId,
-                                    String caseTypeId, String jurisdiction, String accessToken,
-                                    String ccdGatewayBaseUrl, String positionTypeCT) throws IOException {
+    public void submitCreation(String accessToken, PreparedCreation preparedCreation) throws IOException {
+
+        CaseDetails caseDetails = preparedCreation.caseDetails;
+
+        if (preparedCreation.destinationCaseId != null) {
+
+            ccdClient.submitEventForCase(accessToken,
+                                         caseDetails.getCaseData(),
+                                         caseDetails.getCaseTypeId(),
+                                         caseDetails.getJurisdiction(),
+                                         preparedCreation.returnedRequest,
+                                         preparedCreation.destinationCaseId);
+
+        } else {
+
+            ccdClient.submitCaseCreation(accessToken, caseDetails, preparedCreation.returnedRequest);
+
+        }
+
+        caseLookupService.invalidate(caseDetails.getCaseTypeId(), caseDetails.getCaseData().getEthosCaseReference());
+
+    }
+
+    private PreparedCreation prepareExistingCase(SubmitEvent caseDestinationOffice, SubmitEvent oldSubmitEvent,
+                                                 String caseId, String caseTypeId, String jurisdiction,
+                                                 String accessToken, String ccdGatewayBaseUrl,
+                                                 String positionTypeCT) throws IOException {
 
         String destinationCaseId = String.valueOf(caseDestinationOffice.getCaseId());
 
@@ -70,22 +112,23 @@ public class SingleCreationService {
                                                                           jurisdiction,
                                                                           destinationCaseId);
 
-        ccdClient.submitEventForCase(accessToken,
-                                     generateCaseDataCaseTransfer(caseDestinationOffice.getCaseData(),
-                                                                  oldSubmitEvent.getCaseData(),
-                                                                  caseId,
-                                                                  ccdGatewayBaseUrl,
-                                                                  positionTypeCT,
-                                                                  oldSubmitEvent.getState()),
-                                     caseTypeId,
-                                     jurisdiction,
-                                     returnedRequest,
-                                     destinationCaseId);
+        CaseDetails caseDetails = new CaseDetails();
+        caseDetails.setCaseTypeId(caseTypeId);
+        caseDetails.setJurisdiction(jurisdiction);
+        caseDetails.setCaseData(generateCaseDataCaseTransfer(caseDestinationOffice.getCaseData(),
+                                                             oldSubmitEvent.getCaseData(),
+                                                             caseId,
+                                                             ccdGatewayBaseUrl,
+                                                             positionTypeCT,
+                                                             oldSubmitEvent.getState()));
+
+        return new PreparedCreation(caseDetails, returnedRequest, destinationCaseId);
 
     }
 
-    private void transferNewCase(SubmitEvent oldSubmitEvent, String caseId, String caseTypeId, String ccdGatewayBaseUrl,
-                                 String positionTypeCT, String jurisdiction, String accessToken) throws IOException {
+    private PreparedCreation prepareNewCase(SubmitEvent oldSubmitEvent, String caseId, String caseTypeId,
+                                            String ccdGatewayBaseUrl, String positionTypeCT, String jurisdiction,
+                                            String accessToken) throws IOException {
 
         CaseDetails newCaseDetailsCT =
             createCaseDetailsCaseTransfer(oldSubmitEvent.getCaseData(), caseId, caseTypeId,
@@ -94,27 +137,7 @@ public class SingleCreationService {
 
         CCDRequest returnedRequest = ccdClient.startCaseCreationTransfer(accessToken, newCaseDetailsCT);
 
-        ccdClient.submitCaseCreation(accessToken, newCaseDetailsCT, returnedRequest);
-
-    }
-
-    private SubmitEvent existCaseDestinationOffice(String accessToken, String ethosCaseReference,
-                                                   String destinationCaseTypeId) throws IOException {
-
-        List<SubmitEvent> submitEvents = retrieveDestinationCase(accessToken,
-                                                                 ethosCaseReference, destinationCaseTypeId);
-
-        return !submitEvents.isEmpty() ? submitEvents.get(0) : null;
-
-    }
-
-    private List<SubmitEvent> retrieveDestinationCase(String authToken, String ethosCaseReference,
-                                                     String destinationCaseTypeId) throws IOException {
-
-        return ccdClient.retrieveCasesElasticSearch(
-            authToken,
-            destinationCaseTypeId,
-            new ArrayList<>(Collections.singletonList(ethosCaseReference)));
+        return new PreparedCreation(newCaseDetailsCT, returnedRequest, null);
 
     }
 
@@ -211,4 +234,19 @@ public class SingleCreationService {
 
     }
 
+    /**
+     * Case data and started event of a creation in the destination office that has not been submitted yet.
+     */
+    public static class PreparedCreation {
+        private final CaseDetails caseDetails;
+        private final CCDRequest returnedRequest;
+        private final String destinationCaseId;
+
+        private PreparedCreation(CaseDetails caseDetails, CCDRequest returnedRequest, String destinationCaseId) {
+            this.caseDetails = caseDetails;
+            this.returnedRequest = returnedRequest;
+            this.destinationCaseId = destinationCaseId;
+        }
+    }
+
 }
@@ -3,16 +3,13 @@ package uk.gov.hmcts.reform.ethos.ecm.consumer.service;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import uk.gov.hmcts.ecm.common.client.CcdClient;
 import uk.gov.hmcts.ecm.common.helpers.UtilHelper;
 import uk.gov.hmcts.ecm.common.model.ccd.SubmitEvent;
 import uk.gov.hmcts.ecm.common.model.servicebus.UpdateCaseMsg;
-import uk.gov.hmcts.ecm.common.model.servicebus.datamodel.CreationSingleDataModel;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.CcdCallExecutor.Budget;
 
-import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 import static uk.gov.hmcts.ecm.common.model.helper.Constants.SINGLE_CASE_TYPE;
 
@@ -21,53 +18,32 @@ import static uk.gov.hmcts.ecm.common.model.helper.Constants.SINGLE_CASE_TYPE;
 @Service
 public class SingleReadingService {
 
-    private final CcdClient ccdClient;
-    private final UserService userService;
-    private final SingleUpdateService singleUpdateService;
-    private final SingleCreationService singleCreationService;
-    private final SingleTransferService singleTransferService;
+    private final CaseLookupService caseLookupService;
 
-    public void sendUpdateToSingleLogic(UpdateCaseMsg updateCaseMsg) throws IOException {
+    public CompletableFuture<List<SubmitEvent>> retrieveSingleCaseAsync(String accessToken, UpdateCaseMsg updateCaseMsg,
+                                                                        Budget budget) {
 
-        String accessToken = userService.getAccessToken();
-
-        List<SubmitEvent> submitEvents = retrieveSingleCase(accessToken, updateCaseMsg);
-
-        if (submitEvents != null && !submitEvents.isEmpty()) {
-
-            if (updateCaseMsg.getDataModelParent() instanceof CreationSingleDataModel) {
-
-                log.info("Send updates to the old case");
-
-                singleTransferService.sendTransferred(submitEvents.get(0), accessToken, updateCaseMsg);
-
-                singleCreationService.sendCreation(submitEvents.get(0), accessToken, updateCaseMsg);
-
-            } else {
-
-                singleUpdateService.sendUpdate(submitEvents.get(0), accessToken, updateCaseMsg);
-
-            }
+        return caseLookupService.retrieveCaseAsync(
+            accessToken,
+            getCaseTypeId(updateCaseMsg),
+            updateCaseMsg.getJurisdiction(),
+            updateCaseMsg.getEthosCaseReference(),
+            budget);
 
-        } else {
+    }
 
-            log.info("No submit events found");
+    public void invalidateSingleCase(UpdateCaseMsg updateCaseMsg) {
 
-        }
+        caseLookupService.invalidate(getCaseTypeId(updateCaseMsg), updateCaseMsg.getEthosCaseReference());
 
     }
 
-    public List<SubmitEvent> retrieveSingleCase(String accessToken, UpdateCaseMsg updateCaseMsg) throws IOException {
+    private String getCaseTypeId(UpdateCaseMsg updateCaseMsg) {
 
-        String caseType = !updateCaseMsg.getMultipleRef().equals(SINGLE_CASE_TYPE)
+        return !updateCaseMsg.getMultipleRef().equals(SINGLE_CASE_TYPE)
             ? UtilHelper.getCaseTypeId(updateCaseMsg.getCaseTypeId())
             : updateCaseMsg.getCaseTypeId();
 
-        return ccdClient.retrieveCasesElasticSearch(
-            accessToken,
-            caseType,
-            new ArrayList<>(Collections.singletonList(updateCaseMsg.getEthosCaseReference())));
-
     }
 
 }
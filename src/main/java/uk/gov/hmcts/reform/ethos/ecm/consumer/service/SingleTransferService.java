@@ -21,14 +21,22 @@ public class SingleTransferService {
 
     private final CcdClient ccdClient;
 
-    public void sendTransferred(SubmitEvent submitEvent, String accessToken,
-                             UpdateCaseMsg updateCaseMsg) throws IOException {
+    /**
+     * Sets the transfer details on the case data of the case being transferred. The creation in the destination
+     * office copies some of them, so this must run before the creation is prepared.
+     */
+    public void markTransferred(SubmitEvent submitEvent, UpdateCaseMsg updateCaseMsg) {
 
         var creationSingleDataModel =
             ((CreationSingleDataModel) updateCaseMsg.getDataModelParent());
-        String positionTypeCT = creationSingleDataModel.getPositionTypeCT();
-        String caseTypeIdCT = creationSingleDataModel.getOfficeCT();
-        String reasonForCT = creationSingleDataModel.getReasonForCT();
+
+        generateCaseData(submitEvent.getCaseData(), creationSingleDataModel.getOfficeCT(),
+                         creationSingleDataModel.getPositionTypeCT(), creationSingleDataModel.getReasonForCT());
+
+    }
+
+    public void submitTransferred(SubmitEvent submitEvent, String accessToken,
+                                  UpdateCaseMsg updateCaseMsg) throws IOException {
 
         String jurisdiction = updateCaseMsg.getJurisdiction();
 
@@ -36,20 +44,9 @@ public class SingleTransferService {
             ? UtilHelper.getCaseTypeId(updateCaseMsg.getCaseTypeId())
             : updateCaseMsg.getCaseTypeId();
 
-        updateTransferredCase(submitEvent, caseTypeId, caseTypeIdCT, jurisdiction, accessToken, positionTypeCT,
-                              reasonForCT);
-
-    }
-
-    private void updateTransferredCase(SubmitEvent submitEvent, String caseTypeId, String caseTypeIdCT,
-                                       String jurisdiction, String accessToken, String positionTypeCT,
-                                       String reasonForCT) throws IOException {
-
         CCDRequest returnedRequest = ccdClient.startCaseTransfer(accessToken, caseTypeId, jurisdiction,
                                                                  String.valueOf(submitEvent.getCaseId()));
 
-        generateCaseData(submitEvent.getCaseData(), caseTypeIdCT, positionTypeCT, reasonForCT);
-
         ccdClient.submitEventForCase(accessToken,
                                      submitEvent.getCaseData(),
                                      caseTypeId,
@@ -22,23 +22,25 @@ public class SingleUpdateService {
 
     private final CcdClient ccdClient;
 
-    public void sendUpdate(SubmitEvent submitEvent, String accessToken,
-                            UpdateCaseMsg updateCaseMsg) throws IOException {
+    public CCDRequest startUpdate(SubmitEvent submitEvent, String accessToken,
+                                  UpdateCaseMsg updateCaseMsg) throws IOException {
 
-        var caseTypeId = UtilHelper.getCaseTypeId(updateCaseMsg.getCaseTypeId());
-        var jurisdiction = updateCaseMsg.getJurisdiction();
-        var caseId = String.valueOf(submitEvent.getCaseId());
+        return getReturnedRequest(accessToken,
+                                  UtilHelper.getCaseTypeId(updateCaseMsg.getCaseTypeId()),
+                                  updateCaseMsg.getJurisdiction(),
+                                  String.valueOf(submitEvent.getCaseId()),
+                                  updateCaseMsg);
+    }
 
-        CCDRequest returnedRequest = getReturnedRequest(accessToken, caseTypeId,
-                                                        jurisdiction, caseId, updateCaseMsg);
-        updateCaseMsg.runTask(submitEvent);
+    public void submitUpdate(SubmitEvent submitEvent, String accessToken, UpdateCaseMsg updateCaseMsg,
+                             CCDRequest returnedRequest) throws IOException {
 
         ccdClient.submitEventForCase(accessToken,
                                     submitEvent.getCaseData(),
-                                    caseTypeId,
-                                    jurisdiction,
+                                    UtilHelper.getCaseTypeId(updateCaseMsg.getCaseTypeId()),
+                                    updateCaseMsg.getJurisdiction(),
                                     returnedRequest,
-                                    caseId);
+                                    String.valueOf(submitEvent.getCaseId()));
     }
 
     private CCDRequest getReturnedRequest(String accessToken, String caseTypeId, String jurisdiction,
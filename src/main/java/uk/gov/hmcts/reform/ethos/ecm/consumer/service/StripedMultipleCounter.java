@@ -0,0 +1,54 @@
+package uk.gov.hmcts.reform.ethos.ecm.consumer.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.domain.repository.MultipleCounterRepository;
+
+/**
+ * Counts the completed cases of multiples on several stripe rows per multiple, chosen by the case reference, so
+ * cases of one large multiple do not all wait for the lock of a single counter row. Completion is detected by
+ * summing the stripes after the increment is committed, and a finish claim makes sure only one case of the multiple
+ * reports it. Enabled when more than one stripe is configured.
+ */
+@Slf4j
+@Service
+public class StripedMultipleCounter {
+
+    private final transient MultipleCounterRepository multipleCounterRepository;
+    private final transient int stripes;
+
+    @Autowired
+    public StripedMultipleCounter(MultipleCounterRepository multipleCounterRepository,
+                                  @Value("${multiple-counter.stripes}") int stripes) {
+        this.multipleCounterRepository = multipleCounterRepository;
+        this.stripes = stripes;
+    }
+
+    public boolean isEnabled() {
+        return stripes > 1;
+    }
+
+    /**
+     * Counts one completed case and returns true if it completed the multiple. The increment and the claim run in
+     * separate transactions, so whichever case is counted last sees every other increment when it sums the stripes.
+     */
+    public boolean countAndClaimFinish(String multipleRef, String ethosCaseReference, int totalCases) {
+        int stripe = stripeOf(ethosCaseReference);
+        multipleCounterRepository.persistentQAddMultipleCountStripe(multipleRef, stripe, 1);
+
+        boolean claimed = multipleCounterRepository.persistentQClaimStripedMultipleFinish(multipleRef, totalCases);
+        log.info("STRIPE: " + stripe + " TOTAL CASES: " + totalCases + " FINISH CLAIMED: " + claimed);
+        return claimed;
+    }
+
+    public void delete(String multipleRef) {
+        multipleCounterRepository.deleteStripesByMultipleRef(multipleRef);
+        multipleCounterRepository.deleteFinishClaimByMultipleRef(multipleRef);
+    }
+
+    int stripeOf(String ethosCaseReference) {
+        return Math.floorMod(ethosCaseReference.hashCode(), stripes);
+    }
+}
@@ -4,17 +4,12 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import uk.gov.hmcts.ecm.common.model.servicebus.UpdateCaseMsg;
-import uk.gov.hmcts.ecm.common.model.servicebus.datamodel.ResetStateDataModel;
-import uk.gov.hmcts.reform.ethos.ecm.consumer.domain.MultipleCounter;
-import uk.gov.hmcts.reform.ethos.ecm.consumer.domain.MultipleErrors;
 import uk.gov.hmcts.reform.ethos.ecm.consumer.domain.repository.MultipleCounterRepository;
 import uk.gov.hmcts.reform.ethos.ecm.consumer.domain.repository.MultipleErrorsRepository;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.model.servicebus.FanOutPosition;
 
 import java.io.IOException;
-import java.security.SecureRandom;
-import java.util.List;
 
-import static uk.gov.hmcts.ecm.common.model.helper.Constants.SINGLE_CASE_TYPE;
 import static uk.gov.hmcts.ecm.common.model.helper.Constants.YES;
 import static uk.gov.hmcts.reform.ethos.ecm.consumer.helpers.Constants.UNPROCESSABLE_MESSAGE;
 
@@ -26,79 +21,124 @@ public class UpdateManagementService {
     private final MultipleCounterRepository multipleCounterRepository;
     private final MultipleErrorsRepository multipleErrorsRepository;
     private final MultipleUpdateService multipleUpdateService;
-    private final SingleReadingService singleReadingService;
     private final EmailService emailService;
+    private final ClaimCheckService claimCheckService;
+    private final MultipleFinishService multipleFinishService;
+    private final MultipleErrorsService multipleErrorsService;
+    private final MultipleErrorsWriter multipleErrorsWriter;
+    private final MultipleCounterBatcher multipleCounterBatcher;
+    private final StripedMultipleCounter stripedMultipleCounter;
+    private final MultipleCompletionTracker multipleCompletionTracker;
 
-    public void updateLogic(UpdateCaseMsg updateCaseMsg) throws IOException, InterruptedException {
+    /**
+     * Resets the multiple to its open state by clearing its counter and errors. Makes no CCD call.
+     */
+    public void resetState(UpdateCaseMsg updateCaseMsg) {
 
-        if (updateCaseMsg.getDataModelParent() instanceof ResetStateDataModel) {
+        log.info("Resetting state of multiple to Open State");
 
-            log.info("Resetting state of multiple to Open State");
+        deleteMultipleRefDatabase(updateCaseMsg.getMultipleRef());
 
-            deleteMultipleRefDatabase(updateCaseMsg.getMultipleRef());
+    }
 
-        } else {
+    public void checkIfFinish(UpdateCaseMsg updateCaseMsg, FanOutPosition fanOutPosition) throws IOException {
+
+        if (isLastCase(updateCaseMsg, fanOutPosition)) {
+
+            log.info("----- MULTIPLE UPDATE FINISHED: scheduling update to multiple ------");
+
+            multipleFinishService.schedule(updateCaseMsg, fanOutPosition != null ? fanOutPosition.fanOutId : null);
+        }
+
+    }
+
+    private boolean isLastCase(UpdateCaseMsg updateCaseMsg, FanOutPosition fanOutPosition) {
+
+        int totalCases = Integer.parseInt(updateCaseMsg.getTotalCases());
 
-            singleReadingService.sendUpdateToSingleLogic(updateCaseMsg);
+        if (multipleCompletionTracker.isEnabled()) {
 
-            if (!updateCaseMsg.getMultipleRef().equals(SINGLE_CASE_TYPE)) {
+            if (multipleCompletionTracker.canTrack(fanOutPosition)) {
 
-                checkIfFinish(updateCaseMsg);
+                // A case already marked still tries the claim, in case its first delivery stopped before claiming
+                multipleCompletionTracker.markCompleted(updateCaseMsg.getMultipleRef(), fanOutPosition);
 
+            } else {
+
+                // Sent without a fan-out position, so counted on the multiple counter, which the claim adds in
+                multipleCounterBatcher.nextCountAsync(updateCaseMsg.getMultipleRef()).join();
             }
 
+            return multipleCompletionTracker.claimFinish(updateCaseMsg.getMultipleRef(), totalCases);
         }
 
-    }
+        if (stripedMultipleCounter.isEnabled()) {
 
-    public void checkIfFinish(UpdateCaseMsg updateCaseMsg) throws IOException, InterruptedException {
+            return stripedMultipleCounter.countAndClaimFinish(updateCaseMsg.getMultipleRef(),
+                                                              updateCaseMsg.getEthosCaseReference(),
+                                                              totalCases);
+        }
 
-        int counter = getNextCounterNumberWithDelay(updateCaseMsg.getMultipleRef());
+        int counter = multipleCounterBatcher.nextCountAsync(updateCaseMsg.getMultipleRef()).join();
 
-        log.info("COUNTER: " + counter + " TOTAL CASES: " + updateCaseMsg.getTotalCases());
+        log.info("COUNTER: " + counter + " TOTAL CASES: " + totalCases);
 
-        if (counter == Integer.parseInt(updateCaseMsg.getTotalCases())) {
+        return counter == totalCases;
+    }
 
-            log.info("----- MULTIPLE UPDATE FINISHED: sending update to multiple ------");
+    /**
+     * Finishes the multiple of the message, skipping the steps up to the given step of {@link MultipleFinishService},
+     * which a previous attempt has completed. Each step is recorded once done. The clean up comes last, so the
+     * errors of the multiple are still there when a retried finish needs them. The fan-out ID is the ID of the
+     * create-updates message whose fan-out completed the multiple, or null if its messages did not carry one.
+     */
+    public void finishMultiple(UpdateCaseMsg updateCaseMsg, String fanOutId, int completedStep) throws IOException {
 
-            if (updateCaseMsg.getConfirmation().equals(YES)) {
+        String multipleRef = updateCaseMsg.getMultipleRef();
 
-                List<MultipleErrors> multipleErrorsList =
-                    multipleErrorsRepository.findByMultipleref(updateCaseMsg.getMultipleRef());
+        if (updateCaseMsg.getConfirmation().equals(YES) && completedStep < MultipleFinishService.EMAIL_QUEUED) {
 
-                multipleUpdateService.sendUpdateToMultipleLogic(updateCaseMsg, multipleErrorsList);
+            MultipleErrorsSummary multipleErrorsSummary = multipleErrorsService.summarise(multipleRef);
 
-                sendEmailToUser(updateCaseMsg, multipleErrorsList);
+            if (completedStep < MultipleFinishService.MULTIPLE_UPDATED) {
 
-            }
+                log.info("----- Sending update to multiple: " + multipleRef + " ------");
 
-            deleteMultipleRefDatabase(updateCaseMsg.getMultipleRef());
-        }
+                multipleUpdateService.sendUpdateToMultipleLogic(updateCaseMsg, multipleErrorsSummary.hasErrors());
 
-    }
+                multipleFinishService.recordStep(multipleRef, MultipleFinishService.MULTIPLE_UPDATED);
+            }
 
-    private int getNextCounterNumberWithDelay(String multipleRef) throws InterruptedException {
+            // Without a fan-out ID the message of the last case, which is fixed once the finish is scheduled,
+            // identifies the run instead
+            sendEmailToUser(updateCaseMsg, multipleErrorsSummary,
+                            fanOutId != null ? fanOutId : updateCaseMsg.getMsgId());
 
-        SecureRandom random = new SecureRandom();
+            multipleFinishService.recordStep(multipleRef, MultipleFinishService.EMAIL_QUEUED);
 
-        long delay = random.nextInt(1000);
+        }
 
-        Thread.sleep(delay);
+        deleteMultipleRefDatabase(updateCaseMsg.getMultipleRef());
 
-        return multipleCounterRepository.persistentQGetNextMultipleCountVal(multipleRef);
+        if (fanOutId != null) {
+            claimCheckService.expire(fanOutId);
+        }
 
     }
 
-    private void sendEmailToUser(UpdateCaseMsg updateCaseMsg, List<MultipleErrors> multipleErrorsList) {
+    private void sendEmailToUser(UpdateCaseMsg updateCaseMsg, MultipleErrorsSummary multipleErrorsSummary,
+                                 String fanOutId) {
 
-        if (multipleErrorsList != null && !multipleErrorsList.isEmpty()) {
+        if (multipleErrorsSummary.hasErrors()) {
 
-            emailService.sendConfirmationErrorEmail(updateCaseMsg.getUsername(),
-                                                    multipleErrorsList, updateCaseMsg.getMultipleRef());
+            emailService.sendConfirmationErrorEmail(updateCaseMsg.getUsername(), multipleErrorsSummary,
+                                                    multipleErrorsService.toCsv(updateCaseMsg.getMultipleRef()),
+                                                    updateCaseMsg.getMultipleRef(), fanOutId);
 
         } else {
 
-            emailService.sendConfirmationEmail(updateCaseMsg.getUsername(), updateCaseMsg.getMultipleRef());
+            emailService.sendConfirmationEmail(updateCaseMsg.getUsername(), updateCaseMsg.getMultipleRef(),
+                                               fanOutId);
 
         }
 
@@ -109,20 +149,23 @@ public class UpdateManagementService {
         log.info("Clearing all multipleRef from DBs: " + multipleRef);
 
         log.info("Clearing multiple counter repository");
-        List<MultipleCounter> multipleCounters = multipleCounterRepository.findByMultipleref(multipleRef);
-        multipleCounterRepository.deleteInBatch(multipleCounters);
+        multipleCounterRepository.deleteByMultipleRef(multipleRef);
+        stripedMultipleCounter.delete(multipleRef);
+        multipleCompletionTracker.delete(multipleRef);
 
         log.info("Clearing multiple errors repository");
-        List<MultipleErrors> multipleErrors = multipleErrorsRepository.findByMultipleref(multipleRef);
-        multipleErrorsRepository.deleteInBatch(multipleErrors);
+        multipleErrorsRepository.deleteByMultipleRef(multipleRef);
 
         log.info("Deleted repositories");
     }
 
+    /**
+     * Stores the error, waiting until it is written so the finish of the multiple sees it once the case is counted.
+     */
     public void addUnrecoverableErrorToDatabase(UpdateCaseMsg updateCaseMsg) {
 
-        multipleErrorsRepository.persistentQLogMultipleError(updateCaseMsg.getMultipleRef(),
-                                                             updateCaseMsg.getEthosCaseReference(),
-                                                             UNPROCESSABLE_MESSAGE);
+        multipleErrorsWriter.addAsync(updateCaseMsg.getMultipleRef(),
+                                      updateCaseMsg.getEthosCaseReference(),
+                                      UNPROCESSABLE_MESSAGE).join();
     }
 }
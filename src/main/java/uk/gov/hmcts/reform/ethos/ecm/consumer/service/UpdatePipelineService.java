@@ -0,0 +1,190 @@
+package uk.gov.hmcts.reform.ethos.ecm.consumer.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import uk.gov.hmcts.ecm.common.model.ccd.SubmitEvent;
+import uk.gov.hmcts.ecm.common.model.servicebus.UpdateCaseMsg;
+import uk.gov.hmcts.ecm.common.model.servicebus.datamodel.CreationSingleDataModel;
+import uk.gov.hmcts.ecm.common.model.servicebus.datamodel.ResetStateDataModel;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.model.servicebus.FanOutPosition;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.CcdCallExecutor.Budget;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.SingleCreationService.PreparedCreation;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+import static uk.gov.hmcts.ecm.common.model.helper.Constants.SINGLE_CASE_TYPE;
+
+/**
+ * Runs the update of a single case as a chain of stages on a thread pool: lookup, start event, run task, submit
+ * event and count towards the multiple. {@link uk.gov.hmcts.ecm.common.client.CcdClient} is blocking, so each stage
+ * holds a thread of the CCD I/O executor for the whole of its CCD round trip, and the number of CCD calls in flight
+ * is bounded by the size of that executor. Splitting the update into stages only frees the thread between calls,
+ * so the lane workers are not tied up while a case waits on CCD. A case lookup waiting for its search batch holds
+ * no thread at all: the stages after it are composed on the lookup and resume on the I/O executor once the batch
+ * has been searched.
+ * For a case transfer, the transfer of the old case and the preparation of the case in the destination office run
+ * concurrently, and the destination case is only submitted once the transfer has succeeded.
+ * Every CCD call goes through {@link CcdCallExecutor}, so it is retried on transient errors within a retry budget
+ * shared by all calls of the message, and is subject to its circuit breaker and concurrency limit. A case lookup
+ * batched with the lookups of other messages is made as one call for the batch, with a budget of its own.
+ * A state reset only clears the multiple from the database and makes no CCD call.
+ * Single cases run on an I/O executor of their own and make their CCD calls with priority, so they keep moving
+ * while multiples use up the shared I/O threads and concurrency limit.
+ */
+@Slf4j
+@Service
+public class UpdatePipelineService {
+
+    private final transient UserService userService;
+    private final transient SingleReadingService singleReadingService;
+    private final transient SingleUpdateService singleUpdateService;
+    private final transient SingleTransferService singleTransferService;
+    private final transient SingleCreationService singleCreationService;
+    private final transient UpdateManagementService updateManagementService;
+    private final transient CcdCallExecutor ccdCallExecutor;
+    private final transient Executor ccdIo;
+    private final transient Executor ccdIoSingle;
+
+    @Autowired
+    public UpdatePipelineService(UserService userService,
+                                 SingleReadingService singleReadingService,
+                                 SingleUpdateService singleUpdateService,
+                                 SingleTransferService singleTransferService,
+                                 SingleCreationService singleCreationService,
+                                 UpdateManagementService updateManagementService,
+                                 CcdCallExecutor ccdCallExecutor,
+                                 @Qualifier("ccd-io-executor") Executor ccdIo,
+                                 @Qualifier("ccd-io-single-executor") Executor ccdIoSingle) {
+        this.userService = userService;
+        this.singleReadingService = singleReadingService;
+        this.singleUpdateService = singleUpdateService;
+        this.singleTransferService = singleTransferService;
+        this.singleCreationService = singleCreationService;
+        this.updateManagementService = updateManagementService;
+        this.ccdCallExecutor = ccdCallExecutor;
+        this.ccdIo = ccdIo;
+        this.ccdIoSingle = ccdIoSingle;
+    }
+
+    /**
+     * Completes when the case has been updated. Fails with a {@link CompletionException} whose cause is the
+     * exception of the stage that failed. The fan-out position is passed on to the finish check.
+     */
+    public CompletableFuture<Void> updateLogicAsync(UpdateCaseMsg updateCaseMsg, FanOutPosition fanOutPosition) {
+
+        boolean single = SINGLE_CASE_TYPE.equals(updateCaseMsg.getMultipleRef());
+        Executor io = single ? ccdIoSingle : ccdIo;
+
+        if (updateCaseMsg.getDataModelParent() instanceof ResetStateDataModel) {
+
+            return CompletableFuture.runAsync(() -> updateManagementService.resetState(updateCaseMsg), io);
+
+        }
+
+        Budget budget = ccdCallExecutor.newBudget(single);
+        return CompletableFuture
+            .supplyAsync(userService::getAccessToken, io)
+            // The lookup makes its own CCD calls, so it holds no CCD capacity or thread while waiting for its batch
+            .thenCompose(accessToken -> singleReadingService.retrieveSingleCaseAsync(accessToken, updateCaseMsg, budget)
+                .thenApply(submitEvents -> new Lookup(accessToken, submitEvents)))
+            .thenComposeAsync(lookup -> {
+                if (lookup.submitEvents == null || lookup.submitEvents.isEmpty()) {
+                    log.info("No submit events found");
+                    return CompletableFuture.completedFuture(null);
+                }
+                if (updateCaseMsg.getDataModelParent() instanceof CreationSingleDataModel) {
+                    return sendTransferAsync(lookup.submitEvents.get(0), lookup.accessToken, updateCaseMsg, budget,
+                                             io);
+                }
+                return sendUpdateAsync(lookup.submitEvents.get(0), lookup.accessToken, updateCaseMsg, budget, io);
+            }, io)
+            .thenRunAsync(() -> unchecked(() -> {
+                if (!single) {
+                    updateManagementService.checkIfFinish(updateCaseMsg, fanOutPosition);
+                }
+                return null;
+            }), io);
+    }
+
+    private CompletableFuture<Void> sendUpdateAsync(SubmitEvent submitEvent, String accessToken,
+                                                    UpdateCaseMsg updateCaseMsg, Budget budget, Executor io) {
+        return CompletableFuture
+            .supplyAsync(() -> ccdCall("start-update", budget,
+                () -> singleUpdateService.startUpdate(submitEvent, accessToken, updateCaseMsg)), io)
+            .thenApply(returnedRequest -> {
+                updateCaseMsg.runTask(submitEvent);
+                return returnedRequest;
+            })
+            .thenAcceptAsync(returnedRequest -> ccdSubmit("submit-update", budget, () -> {
+                singleUpdateService.submitUpdate(submitEvent, accessToken, updateCaseMsg, returnedRequest);
+                return null;
+            }), io);
+    }
+
+    private CompletableFuture<Void> sendTransferAsync(SubmitEvent submitEvent, String accessToken,
+                                                      UpdateCaseMsg updateCaseMsg, Budget budget, Executor io) {
+        // The destination case copies the transfer details, so they are set before either branch starts
+        singleTransferService.markTransferred(submitEvent, updateCaseMsg);
+
+        CompletableFuture<Void> transfer = CompletableFuture.runAsync(() -> {
+            log.info("Send updates to the old case");
+            ccdSubmit("submit-transfer", budget, () -> {
+                singleTransferService.submitTransferred(submitEvent, accessToken, updateCaseMsg);
+                return null;
+            });
+            singleReadingService.invalidateSingleCase(updateCaseMsg);
+        }, io);
+
+        CompletableFuture<PreparedCreation> creation = CompletableFuture.completedFuture(submitEvent)
+            .thenComposeAsync(oldSubmitEvent -> singleCreationService.findDestinationCaseAsync(
+                oldSubmitEvent, accessToken, updateCaseMsg, budget), io)
+            .thenApplyAsync(caseDestinationOffice -> ccdCall("prepare-creation", budget,
+                () -> singleCreationService.prepareCreation(submitEvent, caseDestinationOffice, accessToken,
+                                                            updateCaseMsg)), io);
+
+        // Waits for both branches, so no CCD call of this message is still running when it fails
+        return CompletableFuture.allOf(transfer, creation)
+            .thenCompose(ignored -> creation)
+            .thenAcceptAsync(preparedCreation -> ccdSubmit("submit-creation", budget, () -> {
+                singleCreationService.submitCreation(accessToken, preparedCreation);
+                return null;
+            }), io);
+    }
+
+    private <T> T ccdCall(String step, Budget budget, IoCall<T> call) {
+        return unchecked(() -> ccdCallExecutor.call(step, budget, call::call));
+    }
+
+    private <T> T ccdSubmit(String step, Budget budget, IoCall<T> call) {
+        return unchecked(() -> ccdCallExecutor.submit(step, budget, call::call));
+    }
+
+    private static <T> T unchecked(IoCall<T> call) {
+        try {
+            return call.call();
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface IoCall<T> {
+        T call() throws IOException;
+    }
+
+    private static final class Lookup {
+        private final String accessToken;
+        private final List<SubmitEvent> submitEvents;
+
+        private Lookup(String accessToken, List<SubmitEvent> submitEvents) {
+            this.accessToken = accessToken;
+            this.submitEvents = submitEvents;
+        }
+    }
+}
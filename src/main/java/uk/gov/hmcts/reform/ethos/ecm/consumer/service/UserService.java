@@ -1,5 +1,7 @@
 package uk.gov.hmcts.reform.ethos.ecm.consumer.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -7,12 +9,19 @@ import org.springframework.stereotype.Component;
 import uk.gov.hmcts.ecm.common.idam.models.UserDetails;
 import uk.gov.hmcts.reform.ethos.ecm.consumer.idam.IdamApi;
 
+import java.time.Duration;
+
 @Slf4j
 @Component
 public class UserService implements uk.gov.hmcts.ecm.common.service.UserService {
 
     private final transient IdamApi idamApi;
-    private final transient AccessTokenService accessTokenService;
+    private final transient AccessTokenCache accessTokenCache;
+    // CcdClient looks up the user for every fetch by case ID, and the answer never changes for a token
+    private final transient Cache<String, UserDetails> userDetails = Caffeine.newBuilder()
+        .maximumSize(100)
+        .expireAfterWrite(Duration.ofMinutes(30))
+        .build();
 
     @Value("${caseWorkerUserName}")
     private transient String caseWorkerUserName;
@@ -20,17 +29,17 @@ public class UserService implements uk.gov.hmcts.ecm.common.service.UserService
     private transient String caseWorkerPassword;
 
     @Autowired
-    public UserService(IdamApi idamApi, AccessTokenService accessTokenService) {
+    public UserService(IdamApi idamApi, AccessTokenCache accessTokenCache) {
         this.idamApi = idamApi;
-        this.accessTokenService = accessTokenService;
+        this.accessTokenCache = accessTokenCache;
     }
 
     public UserDetails getUserDetails(String authorisation) {
-        return idamApi.retrieveUserDetails(authorisation);
+        return userDetails.get(authorisation, idamApi::retrieveUserDetails);
     }
 
     public String getAccessToken() {
-        return accessTokenService.getAccessToken(caseWorkerUserName, caseWorkerPassword);
+        return accessTokenCache.getAccessToken(caseWorkerUserName, caseWorkerPassword);
     }
 
 }
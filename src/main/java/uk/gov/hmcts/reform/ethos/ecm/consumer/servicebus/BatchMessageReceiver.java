@@ -0,0 +1,168 @@
+package uk.gov.hmcts.reform.ethos.ecm.consumer.servicebus;
+
+import com.microsoft.azure.servicebus.ExceptionPhase;
+import com.microsoft.azure.servicebus.IMessage;
+import com.microsoft.azure.servicebus.IMessageHandler;
+import com.microsoft.azure.servicebus.IMessageReceiver;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pulls messages from a queue in batches and hands them to a message handler, with at most a given number of
+ * messages being handled at once. Alternative to the one-message-at-a-time pump of
+ * {@code registerMessageHandler}. Each receive asks for no more messages than there is free capacity to handle, so
+ * every message received is handed over straight away and has its lock renewed while it is handled, as the pump
+ * does. The receiver should not prefetch, as prefetched messages would wait in the client without lock renewal.
+ * Nothing is received while the {@link ConsumptionGate} is closed: the receive loop waits on the gate, so no
+ * message is locked, and no delivery is counted, until it opens.
+ */
+@Slf4j
+public class BatchMessageReceiver {
+
+    private static final long RECEIVE_RETRY_MILLIS = 1000;
+
+    private final transient String name;
+    private final transient IMessageReceiver receiver;
+    private final transient IMessageHandler handler;
+    private final transient ConsumptionGate consumptionGate;
+    private final transient int batchSize;
+    private final transient Duration maxWait;
+    private final transient Semaphore handling;
+    private final transient Duration lockRenewInterval;
+    private final transient Duration maxLockRenewDuration;
+    private final transient ScheduledExecutorService lockRenewer;
+
+    private transient volatile boolean running;
+    private transient Thread receiveThread;
+
+    public BatchMessageReceiver(String name,
+                                IMessageReceiver receiver,
+                                IMessageHandler handler,
+                                ConsumptionGate consumptionGate,
+                                int batchSize,
+                                Duration maxWait,
+                                int maxConcurrentMessages,
+                                Duration lockRenewInterval,
+                                Duration maxLockRenewDuration) {
+        this.name = name;
+        this.receiver = receiver;
+        this.handler = handler;
+        this.consumptionGate = consumptionGate;
+        this.batchSize = batchSize;
+        this.maxWait = maxWait;
+        this.handling = new Semaphore(maxConcurrentMessages);
+        this.lockRenewInterval = lockRenewInterval;
+        this.maxLockRenewDuration = maxLockRenewDuration;
+        this.lockRenewer = Executors.newSingleThreadScheduledExecutor(r -> {
+            var thread = new Thread(r, name + "-lock-renew");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        receiveThread = new Thread(this::receiveLoop, name);
+        receiveThread.start();
+    }
+
+    public synchronized void stop() {
+        running = false;
+        if (receiveThread != null) {
+            receiveThread.interrupt();
+        }
+        lockRenewer.shutdownNow();
+    }
+
+    private void receiveLoop() {
+        while (running) {
+            try {
+                receiveFreeCapacity();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                handler.notifyException(e, ExceptionPhase.RECEIVE);
+                pauseAfterFailure();
+            }
+        }
+    }
+
+    private void receiveFreeCapacity() throws Exception {
+        // Waits for at least one free slot, then takes every free slot up to the batch size
+        handling.acquire();
+        int free = 1 + handling.drainPermits();
+        int permits = Math.min(batchSize, free);
+        handling.release(free - permits);
+
+        int handed = 0;
+        try {
+            // Checked once there is capacity, right before the receive, as it may have closed while waiting for it
+            consumptionGate.awaitOpen();
+            Collection<IMessage> messages = receiver.receiveBatch(permits, maxWait);
+            if (messages == null || messages.isEmpty()) {
+                return;
+            }
+            log.debug("Received batch of {} messages on {}", messages.size(), name);
+            for (IMessage message : messages) {
+                handed++;
+                handle(message);
+            }
+        } finally {
+            handling.release(permits - handed);
+        }
+    }
+
+    private void handle(IMessage message) {
+        ScheduledFuture<?> lockRenewal = scheduleLockRenewal(message);
+
+        CompletableFuture<Void> handled;
+        try {
+            handled = handler.onMessageAsync(message);
+        } catch (RuntimeException e) {
+            handled = CompletableFuture.failedFuture(e);
+        }
+        handled.whenComplete((v, error) -> {
+            lockRenewal.cancel(false);
+            handling.release();
+            if (error != null) {
+                handler.notifyException(error, ExceptionPhase.USERCALLBACK);
+            }
+        });
+    }
+
+    private ScheduledFuture<?> scheduleLockRenewal(IMessage message) {
+        Instant renewUntil = Instant.now().plus(maxLockRenewDuration);
+        long intervalMillis = lockRenewInterval.toMillis();
+        return lockRenewer.scheduleAtFixedRate(() -> {
+            if (Instant.now().isBefore(renewUntil)) {
+                receiver.renewMessageLockAsync(message)
+                    .exceptionally(error -> {
+                        handler.notifyException(error, ExceptionPhase.RENEWMESSAGELOCK);
+                        return null;
+                    });
+            }
+        }, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void pauseAfterFailure() {
+        try {
+            TimeUnit.MILLISECONDS.sleep(RECEIVE_RETRY_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package uk.gov.hmcts.reform.ethos.ecm.consumer.servicebus;
+
+/**
+ * Holds back the intake of new messages while they could not be processed. Checked by the receive loop of
+ * {@link BatchMessageReceiver} before each receive, never by a message handler, so messages stay on the queue
+ * while the gate is closed.
+ */
+@FunctionalInterface
+public interface ConsumptionGate {
+
+    ConsumptionGate OPEN = () -> { };
+
+    /**
+     * Returns once new messages may be taken in, blocking the calling receive loop until then.
+     */
+    void awaitOpen() throws InterruptedException;
+}
@@ -0,0 +1,110 @@
+package uk.gov.hmcts.reform.ethos.ecm.consumer.servicebus;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Queue of tasks that takes them out by weighted round robin across offices, and by round robin across the
+ * multiples of each office, so one large multiple does not hold back the others. An office with weight n has up to
+ * n tasks taken in a row before the next office. Offices without a configured weight have weight 1.
+ * Not thread-safe.
+ */
+public class FairTaskQueue<T> {
+
+    private final transient Map<String, Integer> officeWeights;
+    private final transient Map<String, Office<T>> offices = new HashMap<>();
+    private final transient Deque<Office<T>> rotation = new ArrayDeque<>();
+    private transient int size;
+
+    public FairTaskQueue(Map<String, Integer> officeWeights) {
+        this.officeWeights = officeWeights;
+    }
+
+    public void add(String office, String multipleRef, T task) {
+        Office<T> queue = offices.get(office);
+        if (queue == null) {
+            queue = new Office<>(Math.max(1, officeWeights.getOrDefault(office, 1)));
+            offices.put(office, queue);
+            rotation.add(queue);
+        }
+        queue.add(multipleRef, task);
+        size++;
+    }
+
+    public T poll() {
+        Office<T> office = rotation.peek();
+        if (office == null) {
+            return null;
+        }
+
+        T task = office.poll();
+        size--;
+        if (office.isEmpty()) {
+            rotation.poll();
+            offices.values().remove(office);
+        } else if (office.credits == 0) {
+            rotation.add(rotation.poll());
+        }
+        return task;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Returns the number of multiples with tasks in the queue, across all offices.
+     */
+    public int multipleCount() {
+        int count = 0;
+        for (Office<T> office : rotation) {
+            count += office.multiples.size();
+        }
+        return count;
+    }
+
+    private static final class Office<T> {
+        private final int weight;
+        private final Map<String, Deque<T>> multiples = new HashMap<>();
+        private final Deque<String> rotation = new ArrayDeque<>();
+        private int credits;
+
+        private Office(int weight) {
+            this.weight = weight;
+        }
+
+        private void add(String multipleRef, T task) {
+            multiples.computeIfAbsent(multipleRef, key -> {
+                rotation.add(key);
+                return new ArrayDeque<>();
+            }).add(task);
+        }
+
+        private T poll() {
+            if (credits == 0) {
+                credits = weight;
+            }
+            credits--;
+
+            String multipleRef = rotation.poll();
+            Deque<T> tasks = multiples.get(multipleRef);
+            T task = tasks.poll();
+            if (tasks.isEmpty()) {
+                multiples.remove(multipleRef);
+            } else {
+                rotation.add(multipleRef);
+            }
+            return task;
+        }
+
+        private boolean isEmpty() {
+            return rotation.isEmpty();
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package uk.gov.hmcts.reform.ethos.ecm.consumer.servicebus;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+/**
+ * Runs tasks on a shared executor while keeping tasks that share a key in submission order.
+ * Tasks with different keys run concurrently, up to the size of the underlying executor.
+ * Plain {@link #execute(Runnable)} calls go straight to the underlying executor without any ordering.
+ */
+public class KeyedSerialExecutor implements Executor {
+
+    private static final CompletableFuture<Void> IDLE = CompletableFuture.completedFuture(null);
+
+    private final transient Executor executor;
+    private final transient ConcurrentMap<String, CompletableFuture<?>> tails = new ConcurrentHashMap<>();
+
+    public KeyedSerialExecutor(Executor executor) {
+        this.executor = executor;
+    }
+
+    public <T> CompletableFuture<T> submit(String key, Supplier<T> task) {
+        return submitAsync(key, () -> CompletableFuture.completedFuture(task.get()));
+    }
+
+    /**
+     * Like {@link #submit(String, Supplier)} for tasks that start asynchronous work. The next task for the key
+     * waits until the future returned by this one has completed, not just until it has been started.
+     */
+    public <T> CompletableFuture<T> submitAsync(String key, Supplier<CompletableFuture<T>> task) {
+        CompletableFuture<T> next = new CompletableFuture<>();
+
+        tails.compute(key, (k, previous) -> {
+            CompletableFuture<?> predecessor = previous != null ? previous : IDLE;
+            // The outcome of the previous task for the key does not matter, only that it has finished
+            predecessor.whenComplete((v, error) -> executor.execute(() -> run(task, next)));
+            return next;
+        });
+
+        next.whenComplete((v, error) -> tails.remove(key, next));
+
+        return next;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        executor.execute(command);
+    }
+
+    public int activeKeys() {
+        return tails.size();
+    }
+
+    private static <T> void run(Supplier<CompletableFuture<T>> task, CompletableFuture<T> result) {
+        try {
+            task.get().whenComplete((value, error) -> {
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(value);
+                }
+            });
+        } catch (Exception e) {
+            result.completeExceptionally(e);
+        }
+    }
+}
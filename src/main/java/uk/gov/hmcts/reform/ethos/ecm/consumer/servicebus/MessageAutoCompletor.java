@@ -1,22 +1,32 @@
 package uk.gov.hmcts.reform.ethos.ecm.consumer.servicebus;
 
+import com.microsoft.azure.servicebus.IMessageReceiver;
 import com.microsoft.azure.servicebus.IQueueClient;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
+/**
+ * Completes received messages through the client that received them, one settlement per message. The Service Bus
+ * SDK in use has no call that completes several lock tokens at once.
+ */
 @Slf4j
 public class MessageAutoCompletor {
 
-    private final transient IQueueClient queueClient;
+    private final transient Function<UUID, CompletableFuture<Void>> completion;
 
     public MessageAutoCompletor(IQueueClient queueClient) {
-        this.queueClient = queueClient;
+        this.completion = queueClient::completeAsync;
+    }
+
+    public MessageAutoCompletor(IMessageReceiver messageReceiver) {
+        this.completion = messageReceiver::completeAsync;
     }
 
     public CompletableFuture<Void> completeAsync(UUID lockToken) {
-        return queueClient.completeAsync(lockToken);
+        return completion.apply(lockToken);
     }
 
 }
@@ -0,0 +1,135 @@
+package uk.gov.hmcts.reform.ethos.ecm.consumer.servicebus;
+
+import com.microsoft.azure.servicebus.IMessage;
+import com.microsoft.azure.servicebus.IQueueClient;
+import com.microsoft.azure.servicebus.Message;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Re-sends a failed message to its queue with a delay that grows exponentially with the number of attempts, with
+ * jitter so that messages failed together do not come back together. The attempt number is carried in the message
+ * properties, and each attempt gets a message ID derived from the original one, so a re-send that is repeated after
+ * a failure to complete the original is dropped by duplicate detection. Each copy also carries the deliveries used
+ * by the copies before it, so deliveries that ended in a lost lock count towards the retry budget too.
+ * A message can also be deferred, re-sent after a fixed delay without using up an attempt, to make room for other
+ * messages of the queue.
+ */
+@Slf4j
+public class MessageRescheduler {
+
+    public static final String RETRY_ATTEMPT = "retryAttempt";
+    public static final String ORIGINAL_MESSAGE_ID = "originalMessageId";
+    public static final String PREVIOUS_DELIVERIES = "previousDeliveries";
+    public static final String DEFERRAL = "deferral";
+
+    private final transient IQueueClient sendClient;
+    private final transient long initialDelayMillis;
+    private final transient long maxDelayMillis;
+    private final transient Duration deferDelay;
+
+    public MessageRescheduler(IQueueClient sendClient, Duration initialDelay, Duration maxDelay,
+                              Duration deferDelay) {
+        this.sendClient = sendClient;
+        this.initialDelayMillis = initialDelay.toMillis();
+        this.maxDelayMillis = maxDelay.toMillis();
+        this.deferDelay = deferDelay;
+    }
+
+    /**
+     * Returns how many times the message has been re-sent already.
+     */
+    public static int retryAttempt(IMessage message) {
+        Object attempt = message.getProperties() != null ? message.getProperties().get(RETRY_ATTEMPT) : null;
+        return attempt != null ? Integer.parseInt(attempt.toString()) : 0;
+    }
+
+    /**
+     * Returns how many times the message has been delivered in total, counting the current delivery and the
+     * deliveries of the copies it was re-sent from. Copies sent before the deliveries were carried count as one
+     * delivery each.
+     */
+    public static long deliveryAttempts(IMessage message) {
+        Object previous = message.getProperties() != null ? message.getProperties().get(PREVIOUS_DELIVERIES) : null;
+        long previousDeliveries = previous != null ? Long.parseLong(previous.toString()) : retryAttempt(message);
+        return previousDeliveries + Math.max(message.getDeliveryCount(), 1);
+    }
+
+    /**
+     * Schedules a copy of the message for its next attempt. The returned future completes once the copy has been
+     * accepted by the queue; the caller then completes the original.
+     */
+    public CompletableFuture<Instant> rescheduleAsync(IMessage message) {
+        int nextAttempt = retryAttempt(message) + 1;
+        Instant scheduledTime = Instant.now().plus(backoff(nextAttempt));
+
+        Map<String, Object> properties = message.getProperties() != null
+            ? new HashMap<>(message.getProperties())
+            : new HashMap<>();
+        String originalMessageId = properties.getOrDefault(ORIGINAL_MESSAGE_ID, message.getMessageId()).toString();
+        properties.put(ORIGINAL_MESSAGE_ID, originalMessageId);
+        properties.put(RETRY_ATTEMPT, nextAttempt);
+        properties.put(PREVIOUS_DELIVERIES, deliveryAttempts(message));
+
+        return scheduleCopyAsync(message, originalMessageId + "-retry-" + nextAttempt, properties, scheduledTime);
+    }
+
+    /**
+     * Schedules a copy of the message after the defer delay, keeping its attempt. The current delivery is not
+     * counted, as the message was not processed. The returned future completes once the copy has been accepted by
+     * the queue; the caller then completes the original.
+     */
+    public CompletableFuture<Instant> deferAsync(IMessage message) {
+        int attempt = retryAttempt(message);
+        Object deferral = message.getProperties() != null ? message.getProperties().get(DEFERRAL) : null;
+        int nextDeferral = deferral != null ? Integer.parseInt(deferral.toString()) + 1 : 1;
+
+        Map<String, Object> properties = message.getProperties() != null
+            ? new HashMap<>(message.getProperties())
+            : new HashMap<>();
+        String originalMessageId = properties.getOrDefault(ORIGINAL_MESSAGE_ID, message.getMessageId()).toString();
+        properties.put(ORIGINAL_MESSAGE_ID, originalMessageId);
+        properties.put(RETRY_ATTEMPT, attempt);
+        properties.put(PREVIOUS_DELIVERIES, deliveryAttempts(message) - 1);
+        properties.put(DEFERRAL, nextDeferral);
+
+        String attemptId = attempt > 0 ? originalMessageId + "-retry-" + attempt : originalMessageId;
+        return scheduleCopyAsync(message, attemptId + "-deferred-" + nextDeferral, properties,
+                                 Instant.now().plus(deferDelay));
+    }
+
+    private CompletableFuture<Instant> scheduleCopyAsync(IMessage message, String messageId,
+                                                         Map<String, Object> properties, Instant scheduledTime) {
+        Message copy = new Message();
+        copy.setMessageId(messageId);
+        copy.setMessageBody(message.getMessageBody());
+        copy.setContentType(message.getContentType());
+        copy.setLabel(message.getLabel());
+        copy.setProperties(properties);
+
+        CompletableFuture<Long> scheduled;
+        try {
+            scheduled = sendClient.scheduleMessageAsync(copy, scheduledTime);
+        } catch (RuntimeException e) {
+            scheduled = CompletableFuture.failedFuture(e);
+        }
+        return scheduled.thenApply(sequenceNumber -> scheduledTime);
+    }
+
+    /**
+     * Returns the delay before the given attempt: half of the exponential delay, plus a random part of up to the
+     * other half, capped at the maximum delay.
+     */
+    public Duration backoff(int attempt) {
+        long exponential = initialDelayMillis << Math.min(attempt - 1, 30);
+        long capped = exponential <= 0 || exponential > maxDelayMillis ? maxDelayMillis : exponential;
+        long half = capped / 2;
+        return Duration.ofMillis(half + ThreadLocalRandom.current().nextLong(capped - half + 1));
+    }
+}
@@ -0,0 +1,153 @@
+package uk.gov.hmcts.reform.ethos.ecm.consumer.servicebus;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microsoft.azure.servicebus.IMessage;
+import com.microsoft.azure.servicebus.IQueueClient;
+import com.microsoft.azure.servicebus.Message;
+import com.microsoft.azure.servicebus.MessageBody;
+import lombok.extern.slf4j.Slf4j;
+import uk.gov.hmcts.ecm.common.exceptions.InvalidMessageException;
+import uk.gov.hmcts.ecm.common.model.servicebus.UpdateCaseMsg;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.model.servicebus.FanOutPosition;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static java.util.Collections.singletonList;
+
+/**
+ * Sends update-case messages to Service Bus in batches, with a bound on the number of batches awaiting
+ * acknowledgement. Callers block while the bound is reached, which throttles fan-out to the rate the queue accepts.
+ */
+@Slf4j
+public class ServiceBusBatchSender {
+
+    private final transient IQueueClient sendClient;
+    private final transient ObjectMapper objectMapper;
+    private final transient int maxBatchSize;
+    private final transient long maxBatchBytes;
+    private final transient Semaphore inFlightBatches;
+
+    public ServiceBusBatchSender(IQueueClient sendClient,
+                                 ObjectMapper objectMapper,
+                                 int maxBatchSize,
+                                 long maxBatchBytes,
+                                 int maxInFlightBatches) {
+        this.sendClient = sendClient;
+        this.objectMapper = objectMapper;
+        this.maxBatchSize = maxBatchSize;
+        this.maxBatchBytes = maxBatchBytes;
+        this.inFlightBatches = new Semaphore(maxInFlightBatches);
+    }
+
+    /**
+     * Sends all messages and returns a future that completes once every batch has been acknowledged.
+     * Sending stops at the first failed batch and the returned future completes exceptionally.
+     */
+    public CompletableFuture<Void> sendAsync(List<UpdateCaseMsg> msgs) {
+        return sendAsync(msgs, Collections.emptyMap());
+    }
+
+    /**
+     * Like {@link #sendAsync(List)}, setting the given application properties on every message sent.
+     */
+    public CompletableFuture<Void> sendAsync(List<UpdateCaseMsg> msgs, Map<String, Object> properties) {
+        return sendAsync(msgs, properties, -1);
+    }
+
+    /**
+     * Like {@link #sendAsync(List, Map)}, also setting on each message its index in the fan-out, counting from the
+     * given index for the first message. The properties are expected to carry the ID of the fan-out.
+     */
+    public CompletableFuture<Void> sendAsync(List<UpdateCaseMsg> msgs, Map<String, Object> properties,
+                                             int firstCaseIndex) {
+        long start = System.nanoTime();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        List<CompletableFuture<Void>> batchesSent = new ArrayList<>();
+
+        List<IMessage> batch = new ArrayList<>();
+        long batchBytes = 0;
+        for (int i = 0; i < msgs.size(); i++) {
+            if (failure.get() != null) {
+                break;
+            }
+            UpdateCaseMsg msg = msgs.get(i);
+            byte[] body = toJson(msg);
+            if (!batch.isEmpty() && (batch.size() >= maxBatchSize || batchBytes + body.length > maxBatchBytes)) {
+                batchesSent.add(sendBatch(batch, failure));
+                batch = new ArrayList<>();
+                batchBytes = 0;
+            }
+            batch.add(mapToBusMessage(msg, body, properties, firstCaseIndex < 0 ? -1 : firstCaseIndex + i));
+            batchBytes += body.length;
+        }
+        if (!batch.isEmpty() && failure.get() == null) {
+            batchesSent.add(sendBatch(batch, failure));
+        }
+
+        return CompletableFuture.allOf(batchesSent.toArray(new CompletableFuture[0]))
+            .thenRun(() -> logThroughput(msgs.size(), batchesSent.size(), start));
+    }
+
+    private CompletableFuture<Void> sendBatch(List<IMessage> batch, AtomicReference<Throwable> failure) {
+        try {
+            inFlightBatches.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            failure.compareAndSet(null, e);
+            return CompletableFuture.failedFuture(e);
+        }
+
+        CompletableFuture<Void> sent;
+        try {
+            sent = sendClient.sendBatchAsync(batch);
+        } catch (RuntimeException e) {
+            sent = CompletableFuture.failedFuture(e);
+        }
+        return sent.whenComplete((v, error) -> {
+            inFlightBatches.release();
+            if (error != null) {
+                failure.compareAndSet(null, error);
+                log.error("Failed to send batch of {} 'Update Case' messages", batch.size(), error);
+            }
+        });
+    }
+
+    private byte[] toJson(UpdateCaseMsg msg) {
+        try {
+            return objectMapper.writeValueAsBytes(msg); //default encoding is UTF-8
+        } catch (JsonProcessingException e) {
+            throw new InvalidMessageException("Unable to create message body in json format", e);
+        }
+    }
+
+    private Message mapToBusMessage(UpdateCaseMsg msg, byte[] body, Map<String, Object> properties, int caseIndex) {
+        Message busMessage = new Message();
+        if (caseIndex >= 0) {
+            Map<String, Object> caseProperties = new HashMap<>(properties);
+            caseProperties.put(FanOutPosition.CASE_INDEX, caseIndex);
+            busMessage.setProperties(caseProperties);
+        } else if (!properties.isEmpty()) {
+            busMessage.setProperties(new HashMap<>(properties));
+        }
+        busMessage.setContentType("application/json");
+        busMessage.setMessageId(msg.getMsgId());
+        busMessage.setMessageBody(MessageBody.fromBinaryData(singletonList(body)));
+        busMessage.setLabel(msg.getJurisdiction());
+        return busMessage;
+    }
+
+    private void logThroughput(int messages, int batches, long start) {
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        log.info("Sent {} 'Update Case' messages in {} batches in {} s ({} msg/s)",
+                 messages, batches, String.format("%.2f", seconds),
+                 String.format("%.1f", seconds > 0 ? messages / seconds : messages));
+    }
+}
@@ -0,0 +1,181 @@
+package uk.gov.hmcts.reform.ethos.ecm.consumer.servicebus;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import uk.gov.hmcts.ecm.common.model.servicebus.UpdateCaseMsg;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Runs at most a given number of tasks at once, starting them on the lane's own executor. Tasks beyond that wait
+ * in the lane, so one lane filling up does not hold back the others. Waiting tasks are started fairly across
+ * offices and multiples, see {@link FairTaskQueue}.
+ * Progress is counted per multiple, so fairness across multiples can be checked. The counter of a multiple is
+ * removed from the registry once the lane holds no more of its tasks, so finished multiples leave no meter behind.
+ */
+public class UpdateCaseLane {
+
+    private static final String UNKNOWN = "unknown";
+
+    private final transient String name;
+    private final transient Executor executor;
+    private final transient int maxInFlight;
+    private final transient Timer queueWait;
+    private final transient MeterRegistry meterRegistry;
+
+    // Guarded by this
+    private final transient FairTaskQueue<Runnable> waiting;
+    private transient int inFlight;
+    private final transient Map<String, ActiveMultiple> activeMultiples = new HashMap<>();
+
+    public UpdateCaseLane(String name,
+                          Executor executor,
+                          int maxInFlight,
+                          Map<String, Integer> officeWeights,
+                          MeterRegistry meterRegistry) {
+        this.name = name;
+        this.executor = executor;
+        this.maxInFlight = maxInFlight;
+        this.waiting = new FairTaskQueue<>(officeWeights);
+        this.meterRegistry = meterRegistry;
+        this.queueWait = Timer.builder("update-case.lane.queue-wait")
+            .description("Time from receiving an update-case message to starting to process it")
+            .tag("lane", name)
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+        Gauge.builder("update-case.lane.in-flight", this, UpdateCaseLane::getInFlight)
+            .tag("lane", name)
+            .register(meterRegistry);
+        Gauge.builder("update-case.lane.waiting", this, UpdateCaseLane::getWaiting)
+            .tag("lane", name)
+            .register(meterRegistry);
+        Gauge.builder("update-case.lane.waiting-multiples", this, UpdateCaseLane::getWaitingMultiples)
+            .description("Multiples with update-case messages waiting in the lane")
+            .tag("lane", name)
+            .register(meterRegistry);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized int getInFlight() {
+        return inFlight;
+    }
+
+    public synchronized int getWaiting() {
+        return waiting.size();
+    }
+
+    public synchronized int getWaitingMultiples() {
+        return waiting.multipleCount();
+    }
+
+    /**
+     * Starts the task once the lane has room for it. The queue wait is recorded from the given receive time.
+     */
+    public <T> CompletableFuture<T> submitAsync(UpdateCaseMsg updateCaseMsg,
+                                                long receivedNanos,
+                                                Supplier<CompletableFuture<T>> task) {
+        String office = updateCaseMsg == null ? UNKNOWN : Objects.toString(updateCaseMsg.getCaseTypeId(), UNKNOWN);
+        String multipleRef = updateCaseMsg == null
+            ? UNKNOWN
+            : Objects.toString(updateCaseMsg.getMultipleRef(), UNKNOWN);
+        CompletableFuture<T> result = new CompletableFuture<>();
+
+        boolean startNow;
+        Runnable start;
+        synchronized (this) {
+            ActiveMultiple multiple = activeMultiples.computeIfAbsent(
+                office + ":" + multipleRef, key -> new ActiveMultiple(key, processed(office, multipleRef)));
+            multiple.tasks++;
+            start = () -> run(receivedNanos, task, result, multiple);
+            startNow = inFlight < maxInFlight;
+            if (startNow) {
+                inFlight++;
+            } else {
+                waiting.add(office, multipleRef, start);
+            }
+        }
+
+        if (startNow) {
+            executor.execute(start);
+        }
+        return result;
+    }
+
+    private <T> void run(long receivedNanos,
+                         Supplier<CompletableFuture<T>> task,
+                         CompletableFuture<T> result,
+                         ActiveMultiple multiple) {
+        queueWait.record(System.nanoTime() - receivedNanos, TimeUnit.NANOSECONDS);
+
+        CompletableFuture<T> running;
+        try {
+            running = task.get();
+        } catch (RuntimeException e) {
+            running = CompletableFuture.failedFuture(e);
+        }
+        running.whenComplete((value, error) -> {
+            multiple.processed.increment();
+            leave(multiple);
+            release();
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else {
+                result.complete(value);
+            }
+        });
+    }
+
+    private Counter processed(String office, String multipleRef) {
+        return Counter.builder("update-case.lane.processed")
+            .description("Update-case messages processed, per multiple")
+            .tag("lane", name)
+            .tag("caseTypeId", office)
+            .tag("multipleRef", multipleRef)
+            .register(meterRegistry);
+    }
+
+    private synchronized void leave(ActiveMultiple multiple) {
+        multiple.tasks--;
+        if (multiple.tasks == 0) {
+            activeMultiples.remove(multiple.key);
+            meterRegistry.remove(multiple.processed);
+        }
+    }
+
+    private void release() {
+        Runnable next;
+        synchronized (this) {
+            next = waiting.poll();
+            if (next == null) {
+                inFlight--;
+            }
+        }
+        // The permit passes straight to the next waiting task
+        if (next != null) {
+            executor.execute(next);
+        }
+    }
+
+    // Tasks of a multiple that are waiting or in flight in the lane
+    private static final class ActiveMultiple {
+        private final String key;
+        private final Counter processed;
+        private int tasks;
+
+        private ActiveMultiple(String key, Counter processed) {
+            this.key = key;
+            this.processed = processed;
+        }
+    }
+}
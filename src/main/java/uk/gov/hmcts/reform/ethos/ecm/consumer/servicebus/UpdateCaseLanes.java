@@ -0,0 +1,104 @@
+package uk.gov.hmcts.reform.ethos.ecm.consumer.servicebus;
+
+import uk.gov.hmcts.ecm.common.model.servicebus.UpdateCaseMsg;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
+
+import static uk.gov.hmcts.ecm.common.model.helper.Constants.SINGLE_CASE_TYPE;
+
+/**
+ * Routes update-case messages to separate lanes, so single-case updates are not queued behind a running multiple
+ * and very large multiples are throttled harder than ordinary ones. Messages for the same case are still processed
+ * in order across lanes, through a shared {@link KeyedSerialExecutor}.
+ * The single lane also has CCD I/O threads and a share of the CCD concurrency limit of its own, see
+ * {@code UpdatePipelineService}. The large lane shares the pool and the CCD capacity of the bulk lane, and is only
+ * held back by its lower in-flight limit.
+ * Messages waiting in a lane still hold a receive slot of the queue, so messages of multiples may only hold up to
+ * a given number of slots between them. The remaining slots are kept for single cases; a message of a multiple
+ * received while they are all held should be put back on the queue, see {@link #tryHold}.
+ */
+public class UpdateCaseLanes implements Executor {
+
+    private final transient KeyedSerialExecutor workers;
+    private final transient UpdateCaseLane single;
+    private final transient UpdateCaseLane bulk;
+    private final transient UpdateCaseLane large;
+    private final transient int largeMultipleThreshold;
+    private final transient int maxHeldByMultiples;
+
+    // Guarded by this
+    private transient int heldByMultiples;
+
+    public UpdateCaseLanes(KeyedSerialExecutor workers,
+                           UpdateCaseLane single,
+                           UpdateCaseLane bulk,
+                           UpdateCaseLane large,
+                           int largeMultipleThreshold,
+                           int maxHeldByMultiples) {
+        this.workers = workers;
+        this.single = single;
+        this.bulk = bulk;
+        this.large = large;
+        this.largeMultipleThreshold = largeMultipleThreshold;
+        this.maxHeldByMultiples = maxHeldByMultiples;
+    }
+
+    /**
+     * Takes a receive slot for the message, from the time it is received until it is finalised. Always succeeds
+     * for single cases. Returns false if the message belongs to a multiple and multiples already hold all the slots
+     * they may hold. Each slot taken must be given back with {@link #release}.
+     */
+    public synchronized boolean tryHold(UpdateCaseMsg updateCaseMsg) {
+        if (laneFor(updateCaseMsg) == single) {
+            return true;
+        }
+        if (heldByMultiples >= maxHeldByMultiples) {
+            return false;
+        }
+        heldByMultiples++;
+        return true;
+    }
+
+    public synchronized void release(UpdateCaseMsg updateCaseMsg) {
+        if (laneFor(updateCaseMsg) != single) {
+            heldByMultiples--;
+        }
+    }
+
+    public synchronized int getHeldByMultiples() {
+        return heldByMultiples;
+    }
+
+    public <T> CompletableFuture<T> submitAsync(String key, UpdateCaseMsg updateCaseMsg,
+                                                Supplier<CompletableFuture<T>> task) {
+        long receivedNanos = System.nanoTime();
+        UpdateCaseLane lane = laneFor(updateCaseMsg);
+        return workers.submitAsync(key, () -> lane.submitAsync(updateCaseMsg, receivedNanos, task));
+    }
+
+    /**
+     * Returns the lane of the message. Messages that could not be read go to the single lane, where they fail
+     * quickly without waiting behind a multiple.
+     */
+    public UpdateCaseLane laneFor(UpdateCaseMsg updateCaseMsg) {
+        if (updateCaseMsg == null || SINGLE_CASE_TYPE.equals(updateCaseMsg.getMultipleRef())) {
+            return single;
+        }
+        return totalCases(updateCaseMsg) > largeMultipleThreshold ? large : bulk;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        workers.execute(command);
+    }
+
+    private static int totalCases(UpdateCaseMsg updateCaseMsg) {
+        try {
+            return Integer.parseInt(updateCaseMsg.getTotalCases());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package uk.gov.hmcts.reform.ethos.ecm.consumer.tasks;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.ClaimCheckService;
+
+/**
+ * Deletes claim check payloads that have expired, see {@link ClaimCheckService}.
+ */
+@Slf4j
+@Component
+public class ClaimCheckPurgeTask {
+
+    private final transient ClaimCheckService claimCheckService;
+
+    @Autowired
+    public ClaimCheckPurgeTask(ClaimCheckService claimCheckService) {
+        this.claimCheckService = claimCheckService;
+    }
+
+    @Scheduled(fixedDelayString = "${queue.update-case.claim-check.purge-millis}")
+    public void purgeExpiredClaimChecks() {
+        try {
+            int purged = claimCheckService.purgeExpired();
+            if (purged > 0) {
+                log.info("Purged {} expired claim checks", purged);
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to purge expired claim checks", e);
+        }
+    }
+}
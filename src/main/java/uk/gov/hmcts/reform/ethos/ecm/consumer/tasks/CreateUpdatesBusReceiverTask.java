@@ -8,27 +8,39 @@ import com.microsoft.azure.servicebus.IMessage;
 import com.microsoft.azure.servicebus.IMessageHandler;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.DependsOn;
 import org.springframework.stereotype.Service;
 import uk.gov.hmcts.ecm.common.exceptions.InvalidMessageException;
 import uk.gov.hmcts.ecm.common.model.servicebus.CreateUpdatesMsg;
 import uk.gov.hmcts.ecm.common.model.servicebus.UpdateCaseMsg;
 import uk.gov.hmcts.ecm.common.servicebus.MessageBodyRetriever;
-import uk.gov.hmcts.ecm.common.servicebus.ServiceBusSender;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.domain.FanOutCheckpoint;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.domain.repository.FanOutCheckpointRepository;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.model.servicebus.FanOutPosition;
 import uk.gov.hmcts.reform.ethos.ecm.consumer.model.servicebus.MessageProcessingResult;
 import uk.gov.hmcts.reform.ethos.ecm.consumer.model.servicebus.MessageProcessingResultType;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.ClaimCheckService;
 import uk.gov.hmcts.reform.ethos.ecm.consumer.servicebus.MessageAutoCompletor;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.servicebus.ServiceBusBatchSender;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.function.Function;
 
 /**
  * Handler of messages for create-updates queue.
  */
-@DependsOn({"create-updates-completor", "update-case-send-helper"})
+@DependsOn({"create-updates-completor", "update-case-batch-sender"})
 @Service
 @Slf4j
 public class CreateUpdatesBusReceiverTask implements IMessageHandler {
@@ -37,21 +49,34 @@ public class CreateUpdatesBusReceiverTask implements IMessageHandler {
 
     private final transient ObjectMapper objectMapper;
     private final transient MessageAutoCompletor messageCompletor;
-    private final transient ServiceBusSender serviceBusSender;
+    private final transient ServiceBusBatchSender serviceBusBatchSender;
+    private final transient FanOutCheckpointRepository fanOutCheckpointRepository;
+    private final transient int checkpointChunkSize;
+    private final transient ClaimCheckService claimCheckService;
+    private final transient boolean claimCheckEnabled;
 
     public CreateUpdatesBusReceiverTask(
         ObjectMapper objectMapper,
         @Qualifier("create-updates-completor") MessageAutoCompletor messageCompletor,
-        @Qualifier("update-case-send-helper") ServiceBusSender serviceBusSender) {
+        @Qualifier("update-case-batch-sender") ServiceBusBatchSender serviceBusBatchSender,
+        FanOutCheckpointRepository fanOutCheckpointRepository,
+        @Value("${queue.create-updates.checkpoint-chunk-size}") int checkpointChunkSize,
+        ClaimCheckService claimCheckService,
+        @Value("${queue.update-case.claim-check.enabled}") boolean claimCheckEnabled) {
         this.objectMapper = objectMapper;
         this.messageCompletor = messageCompletor;
-        this.serviceBusSender = serviceBusSender;
+        this.serviceBusBatchSender = serviceBusBatchSender;
+        this.fanOutCheckpointRepository = fanOutCheckpointRepository;
+        this.checkpointChunkSize = checkpointChunkSize;
+        this.claimCheckService = claimCheckService;
+        this.claimCheckEnabled = claimCheckEnabled;
     }
 
     @Override
     public CompletableFuture<Void> onMessageAsync(IMessage message) {
         return CompletableFuture
             .supplyAsync(() -> tryProcessMessage(message), EXECUTOR)
+            .thenCompose(Function.identity())
             .thenComposeAsync(processingResult -> tryFinaliseMessage(message, processingResult), EXECUTOR)
             .handleAsync((v, error) -> {
                 // Individual steps are supposed to handle their exceptions themselves.
@@ -107,25 +132,34 @@ public class CreateUpdatesBusReceiverTask implements IMessageHandler {
         return CompletableFuture.completedFuture(null);
     }
 
-    private MessageProcessingResult tryProcessMessage(IMessage message) {
+    private CompletableFuture<MessageProcessingResult> tryProcessMessage(IMessage message) {
         try {
 
             CreateUpdatesMsg createUpdatesMsg = readMessage(message);
             log.info("RECEIVED 'Create Updates' ------>  message with ID {}", createUpdatesMsg);
-            sendUpdateCaseMessages(createUpdatesMsg);
 
-            return new MessageProcessingResult(MessageProcessingResultType.SUCCESS);
+            return sendUpdateCaseMessages(createUpdatesMsg)
+                .handle((v, error) -> {
+                    if (error != null) {
+                        return processingFailure(message, error);
+                    }
+                    return new MessageProcessingResult(MessageProcessingResultType.SUCCESS);
+                });
 
         } catch (Exception e) {
-            log.error(
-                "An error occurred when handling 'Create Updates' message with ID {}",
-                message.getMessageId(),
-                e
-            );
-            return new MessageProcessingResult(MessageProcessingResultType.POTENTIALLY_RECOVERABLE_FAILURE);
+            return CompletableFuture.completedFuture(processingFailure(message, e));
         }
     }
 
+    private MessageProcessingResult processingFailure(IMessage message, Throwable error) {
+        log.error(
+            "An error occurred when handling 'Create Updates' message with ID {}",
+            message.getMessageId(),
+            error
+        );
+        return new MessageProcessingResult(MessageProcessingResultType.POTENTIALLY_RECOVERABLE_FAILURE);
+    }
+
     private CreateUpdatesMsg readMessage(IMessage message) throws IOException {
         try {
             return objectMapper.readValue(
@@ -137,18 +171,54 @@ public class CreateUpdatesBusReceiverTask implements IMessageHandler {
         }
     }
 
-    private void sendUpdateCaseMessages(CreateUpdatesMsg createUpdatesMsg) {
-        if (createUpdatesMsg.getEthosCaseRefCollection() != null) {
-            for (String ethosCaseReference : createUpdatesMsg.getEthosCaseRefCollection()) {
-                UpdateCaseMsg updateCaseMsg = mapToUpdateCaseMsg(createUpdatesMsg, ethosCaseReference);
-                serviceBusSender.sendMessageAsync(updateCaseMsg);
-            }
+    private CompletableFuture<Void> sendUpdateCaseMessages(CreateUpdatesMsg createUpdatesMsg) {
+        List<String> ethosCaseRefCollection = createUpdatesMsg.getEthosCaseRefCollection() != null
+            ? createUpdatesMsg.getEthosCaseRefCollection()
+            : Collections.emptyList();
+
+        int sentCases = fanOutCheckpointRepository.findById(createUpdatesMsg.getMsgId())
+            .map(FanOutCheckpoint::getSentcases)
+            .orElse(0);
+        if (sentCases > 0) {
+            log.info("Resuming fan-out of 'Create Updates' message with ID {} after {} of {} cases",
+                     createUpdatesMsg.getMsgId(), sentCases, ethosCaseRefCollection.size());
         }
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(FanOutPosition.FAN_OUT_ID, createUpdatesMsg.getMsgId());
+        if (claimCheckEnabled && sentCases < ethosCaseRefCollection.size()) {
+            properties.put(ClaimCheckService.CLAIM_CHECK_ID, claimCheckService.store(createUpdatesMsg));
+        }
+
+        return sendChunks(createUpdatesMsg, ethosCaseRefCollection, sentCases, properties)
+            .thenRun(() -> fanOutCheckpointRepository.deleteByCreateUpdatesMsgId(createUpdatesMsg.getMsgId()));
+    }
+
+    private CompletableFuture<Void> sendChunks(CreateUpdatesMsg createUpdatesMsg,
+                                               List<String> ethosCaseRefCollection,
+                                               int from,
+                                               Map<String, Object> properties) {
+        if (from >= ethosCaseRefCollection.size()) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        int to = Math.min(from + checkpointChunkSize, ethosCaseRefCollection.size());
+        List<UpdateCaseMsg> updateCaseMsgs = new ArrayList<>();
+        for (String ethosCaseReference : ethosCaseRefCollection.subList(from, to)) {
+            updateCaseMsgs.add(properties.containsKey(ClaimCheckService.CLAIM_CHECK_ID)
+                                   ? mapToSlimUpdateCaseMsg(createUpdatesMsg, ethosCaseReference)
+                                   : mapToUpdateCaseMsg(createUpdatesMsg, ethosCaseReference));
+        }
+
+        return serviceBusBatchSender.sendAsync(updateCaseMsgs, properties, from)
+            .thenRun(() -> fanOutCheckpointRepository.save(
+                new FanOutCheckpoint(createUpdatesMsg.getMsgId(), createUpdatesMsg.getMultipleRef(), to)))
+            .thenComposeAsync(v -> sendChunks(createUpdatesMsg, ethosCaseRefCollection, to, properties), EXECUTOR);
     }
 
     private UpdateCaseMsg mapToUpdateCaseMsg(CreateUpdatesMsg createUpdatesMsg, String ethosCaseReference) {
         return UpdateCaseMsg.builder()
-            .msgId(UUID.randomUUID().toString())
+            .msgId(updateCaseMsgId(createUpdatesMsg, ethosCaseReference))
             .multipleRef(createUpdatesMsg.getMultipleRef())
             .ethosCaseReference(ethosCaseReference)
             .totalCases(createUpdatesMsg.getTotalCases())
@@ -160,4 +230,28 @@ public class CreateUpdatesBusReceiverTask implements IMessageHandler {
             .dataModelParent(createUpdatesMsg.getDataModelParent())
             .build();
     }
+
+    /**
+     * Leaves out the fields stored with the claim check, which the update-case consumer fills in again.
+     */
+    private UpdateCaseMsg mapToSlimUpdateCaseMsg(CreateUpdatesMsg createUpdatesMsg, String ethosCaseReference) {
+        return UpdateCaseMsg.builder()
+            .msgId(updateCaseMsgId(createUpdatesMsg, ethosCaseReference))
+            .multipleRef(createUpdatesMsg.getMultipleRef())
+            .ethosCaseReference(ethosCaseReference)
+            .totalCases(createUpdatesMsg.getTotalCases())
+            .jurisdiction(createUpdatesMsg.getJurisdiction())
+            .caseTypeId(createUpdatesMsg.getCaseTypeId())
+            .build();
+    }
+
+    /**
+     * The same case in the same create-updates message always gets the same ID, so Service Bus duplicate detection
+     * drops messages re-sent after a redelivery. The create-updates ID keeps separate updates to the same multiple
+     * apart.
+     */
+    private static String updateCaseMsgId(CreateUpdatesMsg createUpdatesMsg, String ethosCaseReference) {
+        String name = createUpdatesMsg.getMsgId() + ":" + createUpdatesMsg.getMultipleRef() + ":" + ethosCaseReference;
+        return UUID.nameUUIDFromBytes(name.getBytes(StandardCharsets.UTF_8)).toString();
+    }
 }
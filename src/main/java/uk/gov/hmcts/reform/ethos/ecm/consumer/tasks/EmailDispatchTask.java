@@ -0,0 +1,130 @@
+package uk.gov.hmcts.reform.ethos.ecm.consumer.tasks;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.domain.PendingEmail;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.EmailService;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Sends pending emails of {@link EmailService} on its own executor. Emails are claimed no more than there are free
+ * threads, so several consumers share the work without sending an email twice. A failed send is retried with an
+ * exponential backoff until the email has run out of attempts.
+ */
+@Slf4j
+@Component
+public class EmailDispatchTask {
+
+    private final transient EmailService emailService;
+    private final transient Executor executor;
+    private final transient Semaphore freeThreads;
+    private final transient int leaseSeconds;
+    private final transient int maxAttempts;
+    private final transient long initialBackoffSeconds;
+    private final transient long maxBackoffSeconds;
+    private final transient Timer dispatchLatency;
+    private final transient Counter retried;
+    private final transient Counter dropped;
+
+    @Autowired
+    public EmailDispatchTask(EmailService emailService,
+                             @Qualifier("email-dispatch-executor") Executor executor,
+                             MeterRegistry meterRegistry,
+                             @Value("${email.dispatch.threads}") int threads,
+                             @Value("${email.dispatch.lease-seconds}") int leaseSeconds,
+                             @Value("${email.dispatch.max-attempts}") int maxAttempts,
+                             @Value("${email.dispatch.initial-backoff-seconds}") long initialBackoffSeconds,
+                             @Value("${email.dispatch.max-backoff-seconds}") long maxBackoffSeconds) {
+        this.emailService = emailService;
+        this.executor = executor;
+        this.freeThreads = new Semaphore(threads);
+        this.leaseSeconds = leaseSeconds;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffSeconds = initialBackoffSeconds;
+        this.maxBackoffSeconds = maxBackoffSeconds;
+        this.dispatchLatency = Timer.builder("email.dispatch.latency")
+            .description("Time from queueing an email to Notify accepting it")
+            .publishPercentileHistogram()
+            .register(meterRegistry);
+        this.retried = failures(meterRegistry, "retried");
+        this.dropped = failures(meterRegistry, "dropped");
+    }
+
+    @Scheduled(fixedDelayString = "${email.dispatch.poll-millis}")
+    public void dispatchDueEmails() {
+        int free = freeThreads.drainPermits();
+        if (free == 0) {
+            return;
+        }
+
+        List<PendingEmail> claimed;
+        try {
+            claimed = emailService.claimPendingEmails(free, leaseSeconds);
+        } catch (RuntimeException e) {
+            freeThreads.release(free);
+            log.error("Failed to claim pending emails", e);
+            return;
+        }
+        freeThreads.release(free - claimed.size());
+
+        for (PendingEmail pendingEmail : claimed) {
+            try {
+                executor.execute(() -> dispatch(pendingEmail));
+            } catch (RejectedExecutionException e) {
+                freeThreads.release();
+                log.error("Failed to start sending email {}", pendingEmail.getReferenceid(), e);
+            }
+        }
+    }
+
+    private void dispatch(PendingEmail pendingEmail) {
+        String referenceId = pendingEmail.getReferenceid();
+        try {
+            emailService.send(pendingEmail);
+            emailService.removePendingEmail(referenceId);
+            if (pendingEmail.getCreatedat() != null) {
+                dispatchLatency.record(Duration.between(pendingEmail.getCreatedat(), LocalDateTime.now()));
+            }
+        } catch (Exception e) {
+            if (pendingEmail.getAttempts() >= maxAttempts) {
+                log.error("Failed to send email. Reference ID: {}. Dropping it after {} attempts",
+                          referenceId, pendingEmail.getAttempts(), e);
+                dropped.increment();
+                emailService.removePendingEmail(referenceId);
+            } else {
+                long delaySeconds = backoffSeconds(pendingEmail.getAttempts());
+                log.warn("Failed to send email. Reference ID: {}. Retrying in {} seconds",
+                         referenceId, delaySeconds, e);
+                retried.increment();
+                emailService.retryLater(referenceId, (int) delaySeconds);
+            }
+        } finally {
+            freeThreads.release();
+        }
+    }
+
+    private long backoffSeconds(int attempt) {
+        int exponent = Math.min(Math.max(attempt - 1, 0), 30);
+        return Math.min(maxBackoffSeconds, initialBackoffSeconds << exponent);
+    }
+
+    private static Counter failures(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("email.dispatch.failures")
+            .description("Failed email sends")
+            .tag("outcome", outcome)
+            .register(meterRegistry);
+    }
+}
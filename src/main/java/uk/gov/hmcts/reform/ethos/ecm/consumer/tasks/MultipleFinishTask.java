@@ -0,0 +1,116 @@
+package uk.gov.hmcts.reform.ethos.ecm.consumer.tasks;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import uk.gov.hmcts.ecm.common.model.servicebus.UpdateCaseMsg;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.domain.MultipleFinish;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.MultipleFinishService;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.UpdateManagementService;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Finishes multiples whose cases have all been updated, on its own executor. Multiples are claimed from the
+ * persistent queue of {@link MultipleFinishService}, no more than there are free threads, so several consumers
+ * share the work without finishing a multiple twice. The lease of a multiple is renewed while it is being
+ * finished, however long that takes. A finish that fails is retried once its lease has passed, from the step
+ * where it stopped.
+ */
+@Slf4j
+@Component
+public class MultipleFinishTask {
+
+    private final transient MultipleFinishService multipleFinishService;
+    private final transient UpdateManagementService updateManagementService;
+    private final transient Executor executor;
+    private final transient Semaphore freeThreads;
+    private final transient int leaseSeconds;
+    private final transient int maxAttempts;
+    private final transient Set<String> finishing = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public MultipleFinishTask(MultipleFinishService multipleFinishService,
+                              UpdateManagementService updateManagementService,
+                              @Qualifier("multiple-finish-executor") Executor executor,
+                              @Value("${multiple-finish.threads}") int threads,
+                              @Value("${multiple-finish.lease-seconds}") int leaseSeconds,
+                              @Value("${multiple-finish.max-attempts}") int maxAttempts) {
+        this.multipleFinishService = multipleFinishService;
+        this.updateManagementService = updateManagementService;
+        this.executor = executor;
+        this.freeThreads = new Semaphore(threads);
+        this.leaseSeconds = leaseSeconds;
+        this.maxAttempts = maxAttempts;
+    }
+
+    @Scheduled(fixedDelayString = "${multiple-finish.poll-millis}")
+    public void finishDueMultiples() {
+        int free = freeThreads.drainPermits();
+        if (free == 0) {
+            return;
+        }
+
+        List<MultipleFinish> claimed;
+        try {
+            claimed = multipleFinishService.claim(free, leaseSeconds);
+        } catch (RuntimeException e) {
+            freeThreads.release(free);
+            log.error("Failed to claim multiples to finish", e);
+            return;
+        }
+        freeThreads.release(free - claimed.size());
+
+        for (MultipleFinish multipleFinish : claimed) {
+            try {
+                executor.execute(() -> finish(multipleFinish));
+            } catch (RejectedExecutionException e) {
+                freeThreads.release();
+                log.error("Failed to start finish of multiple {}", multipleFinish.getMultipleref(), e);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${multiple-finish.lease-renew-millis}")
+    public void renewLeases() {
+        if (finishing.isEmpty()) {
+            return;
+        }
+        try {
+            multipleFinishService.renewLeases(Set.copyOf(finishing), leaseSeconds);
+        } catch (RuntimeException e) {
+            log.error("Failed to renew leases of multiples being finished", e);
+        }
+    }
+
+    private void finish(MultipleFinish multipleFinish) {
+        String multipleRef = multipleFinish.getMultipleref();
+        finishing.add(multipleRef);
+        try {
+            log.info("Finishing multiple {}, attempt {}, from step {}", multipleRef, multipleFinish.getAttempts(),
+                     multipleFinish.getStep());
+            UpdateCaseMsg updateCaseMsg = multipleFinishService.readMessage(multipleFinish);
+            updateManagementService.finishMultiple(updateCaseMsg, multipleFinish.getFanoutid(),
+                                                   multipleFinish.getStep() != null ? multipleFinish.getStep() : 0);
+            multipleFinishService.complete(multipleRef);
+        } catch (Exception e) {
+            if (multipleFinish.getAttempts() >= maxAttempts) {
+                log.error("Giving up finishing multiple {} after {} attempts", multipleRef, maxAttempts, e);
+                multipleFinishService.complete(multipleRef);
+            } else {
+                log.error("Failed to finish multiple {}, retrying when its lease has passed", multipleRef, e);
+            }
+        } finally {
+            finishing.remove(multipleRef);
+            freeThreads.release();
+        }
+    }
+}
@@ -13,44 +13,72 @@ import org.springframework.stereotype.Service;
 import uk.gov.hmcts.ecm.common.exceptions.InvalidMessageException;
 import uk.gov.hmcts.ecm.common.model.servicebus.UpdateCaseMsg;
 import uk.gov.hmcts.ecm.common.servicebus.MessageBodyRetriever;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.model.servicebus.FanOutPosition;
 import uk.gov.hmcts.reform.ethos.ecm.consumer.model.servicebus.MessageProcessingResult;
 import uk.gov.hmcts.reform.ethos.ecm.consumer.model.servicebus.MessageProcessingResultType;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.ClaimCheckService;
 import uk.gov.hmcts.reform.ethos.ecm.consumer.service.UpdateManagementService;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.UpdatePipelineService;
 import uk.gov.hmcts.reform.ethos.ecm.consumer.servicebus.MessageAutoCompletor;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.servicebus.MessageRescheduler;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.servicebus.UpdateCaseLanes;
 import java.io.IOException;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.concurrent.CompletionException;
 
 /**
  * Handler of messages for update-case queue.
+ * Messages are processed concurrently, one at a time per ethosCaseReference, in separate lanes for single cases,
+ * multiples and very large multiples. The CCD calls of each update run as
+ * separate stages on the CCD I/O executor, so a worker thread is not held while a case waits on CCD.
+ * Messages that fail with a potentially recoverable error are re-sent with an exponential backoff delay, until
+ * they have been delivered {@code MAX_RETRIES} times across the original and its re-sent copies.
+ * Messages of multiples received while multiples hold all the receive slots they may hold are deferred, re-sent
+ * behind the messages queued after them, so single cases are still received during a large multiple.
+ * Intake is paused by the receiver of the queue, which checks the consumption gate before each receive, so this
+ * handler never holds a message while waiting for CCD to recover.
  */
-@DependsOn("update-case-completor")
+@DependsOn({"update-case-completor", "update-case-lanes", "update-case-rescheduler"})
 @Service
 @Slf4j
 public class UpdateCaseBusReceiverTask implements IMessageHandler {
 
-    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor();
-
     private static final int MAX_RETRIES = 10;
 
     private final transient ObjectMapper objectMapper;
     private final transient MessageAutoCompletor messageCompletor;
     private final transient UpdateManagementService updateManagementService;
+    private final transient UpdatePipelineService updatePipelineService;
+    private final transient UpdateCaseLanes lanes;
+    private final transient ClaimCheckService claimCheckService;
+    private final transient MessageRescheduler messageRescheduler;
 
     public UpdateCaseBusReceiverTask(ObjectMapper objectMapper,
                                      @Qualifier("update-case-completor") MessageAutoCompletor messageCompletor,
-                                     UpdateManagementService updateManagementService) {
+                                     UpdateManagementService updateManagementService,
+                                     UpdatePipelineService updatePipelineService,
+                                     @Qualifier("update-case-lanes") UpdateCaseLanes lanes,
+                                     ClaimCheckService claimCheckService,
+                                     @Qualifier("update-case-rescheduler") MessageRescheduler messageRescheduler) {
         this.objectMapper = objectMapper;
         this.messageCompletor = messageCompletor;
         this.updateManagementService = updateManagementService;
+        this.updatePipelineService = updatePipelineService;
+        this.lanes = lanes;
+        this.claimCheckService = claimCheckService;
+        this.messageRescheduler = messageRescheduler;
     }
 
     @Override
     public CompletableFuture<Void> onMessageAsync(IMessage message) {
-        return CompletableFuture
-            .supplyAsync(() -> tryProcessMessage(message), EXECUTOR)
-            .thenComposeAsync(processingResult -> tryFinaliseMessageAsync(message, processingResult), EXECUTOR)
+        UpdateCaseMsg updateCaseMsg = tryReadMessage(message);
+        if (!lanes.tryHold(updateCaseMsg)) {
+            return deferMessageAsync(message);
+        }
+        return lanes
+            .submitAsync(orderingKey(message, updateCaseMsg), updateCaseMsg,
+                         () -> tryProcessMessageAsync(message, updateCaseMsg))
+            .thenComposeAsync(processingResult -> tryFinaliseMessageAsync(message, processingResult), lanes)
             .handleAsync((v, error) -> {
                 // Individual steps are supposed to handle their exceptions themselves.
                 // This code is here to make sure errors are logged even when they fail to do that.
@@ -62,7 +90,8 @@ public class UpdateCaseBusReceiverTask implements IMessageHandler {
                 }
 
                 return null;
-            });
+            })
+            .whenComplete((v, error) -> lanes.release(updateCaseMsg));
     }
 
     @Override
@@ -110,7 +139,38 @@ public class UpdateCaseBusReceiverTask implements IMessageHandler {
                     );
             default:
 
-                if (message.getDeliveryCount() == MAX_RETRIES) {
+                if (isLastAttempt(message)) {
+
+                    log.info("RECOVERABLE FAILURE: Last retry checking if finished");
+                    checkIfFinishWhenError(message);
+
+                    return messageCompletor
+                        .completeAsync(message.getLockToken())
+                        .thenRun(() ->
+                                     log.info("RETRIES EXHAUSTED 'Update Case' "
+                                                  + "----> message with ID {}", message.getMessageId())
+                        );
+                }
+
+                return rescheduleMessageAsync(message);
+        }
+    }
+
+    private CompletableFuture<Void> rescheduleMessageAsync(IMessage message) {
+        return messageRescheduler.rescheduleAsync(message)
+            .thenCompose(scheduledTime -> {
+                log.info(
+                    "Rescheduled 'Update Case' message with ID {} for {}. Retry attempt {}.",
+                    message.getMessageId(),
+                    scheduledTime,
+                    MessageRescheduler.retryAttempt(message) + 1
+                );
+                return messageCompletor.completeAsync(message.getLockToken());
+            })
+            .exceptionally(error -> {
+                log.error("Failed to reschedule 'Update Case' message with ID {}", message.getMessageId(), error);
+
+                if (isLastAttempt(message)) {
 
                     log.info("RECOVERABLE FAILURE: Last retry checking if finished");
                     checkIfFinishWhenError(message);
@@ -119,11 +179,31 @@ public class UpdateCaseBusReceiverTask implements IMessageHandler {
                 log.info(
                     "Letting 'Update Case' message with ID {} return to the queue. Delivery attempt {}.",
                     message.getMessageId(),
-                    message.getDeliveryCount() + 1
+                    MessageRescheduler.deliveryAttempts(message) + 1
                 );
 
-                return CompletableFuture.completedFuture(null);
-        }
+                return null;
+            });
+    }
+
+    // Puts a message of a multiple back on the queue, behind any single cases, when multiples hold all the receive
+    // slots they may hold. It is not counted as an attempt
+    private CompletableFuture<Void> deferMessageAsync(IMessage message) {
+        return messageRescheduler.deferAsync(message)
+            .thenCompose(scheduledTime -> {
+                log.info("Deferred 'Update Case' message with ID {} to {}, as multiples hold their receive slots",
+                         message.getMessageId(), scheduledTime);
+                return messageCompletor.completeAsync(message.getLockToken());
+            })
+            .exceptionally(error -> {
+                log.error("Failed to defer 'Update Case' message with ID {}", message.getMessageId(), error);
+                return null;
+            });
+    }
+
+    // Counts the deliveries of the copies the message was re-sent from, not only those of this copy
+    private static boolean isLastAttempt(IMessage message) {
+        return MessageRescheduler.deliveryAttempts(message) >= MAX_RETRIES;
     }
 
     private void checkIfFinishWhenError(IMessage message) {
@@ -136,7 +216,8 @@ public class UpdateCaseBusReceiverTask implements IMessageHandler {
             updateManagementService.addUnrecoverableErrorToDatabase(updateCaseMsg);
 
             log.info("Checking if finished");
-            updateManagementService.checkIfFinish(updateCaseMsg);
+            updateManagementService.checkIfFinish(updateCaseMsg,
+                                                  FanOutPosition.fromProperties(message.getProperties()));
 
         } catch (Exception e) {
             log.error("Error reading message when checking if finished", e);
@@ -145,47 +226,81 @@ public class UpdateCaseBusReceiverTask implements IMessageHandler {
 
     }
 
-    private MessageProcessingResult tryProcessMessage(IMessage message) {
+    private String orderingKey(IMessage message, UpdateCaseMsg updateCaseMsg) {
+        return updateCaseMsg != null && updateCaseMsg.getEthosCaseReference() != null
+            ? updateCaseMsg.getEthosCaseReference()
+            : message.getMessageId();
+    }
+
+    private UpdateCaseMsg tryReadMessage(IMessage message) {
+        try {
+            return readMessage(message);
+        } catch (Exception e) {
+            // Reported by tryProcessMessage, which reads the message again and handles the failure
+            return null;
+        }
+    }
+
+    private CompletableFuture<MessageProcessingResult> tryProcessMessageAsync(IMessage message,
+                                                                             UpdateCaseMsg parsedMessage) {
+        CompletableFuture<Void> processing;
         try {
 
-            var updateCaseMsg = readMessage(message);
+            var updateCaseMsg = parsedMessage != null ? parsedMessage : readMessage(message);
             log.info("RECEIVED 'Update Case' ------> ethosCaseRef {} - multipleRef {} - multipleRefLinkMarkUp {}",
                      updateCaseMsg.getEthosCaseReference(),
                      updateCaseMsg.getMultipleRef(),
                      updateCaseMsg.getMultipleReferenceLinkMarkUp());
 
-            updateManagementService.updateLogic(updateCaseMsg);
+            processing = updatePipelineService.updateLogicAsync(updateCaseMsg,
+                                                                FanOutPosition.fromProperties(message.getProperties()));
+
+        } catch (Exception e) {
+            processing = CompletableFuture.failedFuture(e);
+        }
+
+        return processing.handle((v, error) -> error == null
+            ? new MessageProcessingResult(MessageProcessingResultType.SUCCESS)
+            : processingFailure(message, error));
+    }
 
-            return new MessageProcessingResult(MessageProcessingResultType.SUCCESS);
+    private MessageProcessingResult processingFailure(IMessage message, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
 
-        } catch (IOException e) {
+        if (cause instanceof IOException) {
             log.error(
                 "Unrecoverable error occurred when handling 'Update Case' message with ID {}",
                 message.getMessageId(),
-                e
+                cause
             );
             return new MessageProcessingResult(MessageProcessingResultType.UNRECOVERABLE_FAILURE);
-
-        } catch (Exception e) {
-            log.error(
-                "Potentially recoverable error occurred when handling 'Update Case' message with ID {}",
-                message.getMessageId(),
-                e
-            );
-            Thread.currentThread().interrupt();
-            return new MessageProcessingResult(MessageProcessingResultType.POTENTIALLY_RECOVERABLE_FAILURE);
         }
 
+        log.error(
+            "Potentially recoverable error occurred when handling 'Update Case' message with ID {}",
+            message.getMessageId(),
+            cause
+        );
+        return new MessageProcessingResult(MessageProcessingResultType.POTENTIALLY_RECOVERABLE_FAILURE);
     }
 
     private UpdateCaseMsg readMessage(IMessage message) throws IOException {
+        UpdateCaseMsg updateCaseMsg;
         try {
-            return objectMapper.readValue(
+            updateCaseMsg = objectMapper.readValue(
                 MessageBodyRetriever.getBinaryData(message.getMessageBody()),
                 UpdateCaseMsg.class
             );
         } catch (JsonParseException | JsonMappingException e) {
             throw new InvalidMessageException("Failed to parse 'Update Case' message", e);
         }
+
+        Object claimCheckId = message.getProperties() != null
+            ? message.getProperties().get(ClaimCheckService.CLAIM_CHECK_ID)
+            : null;
+        if (claimCheckId != null) {
+            claimCheckService.resolve(claimCheckId.toString(), updateCaseMsg);
+        }
+        return updateCaseMsg;
     }
 }
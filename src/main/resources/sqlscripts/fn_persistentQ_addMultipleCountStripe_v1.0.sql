@@ -0,0 +1,31 @@
+/* CREATE FUNCTION */
+
+CREATE OR REPLACE FUNCTION fn_persistentQ_addMultipleCountStripe (p_multipleRef varchar(25), p_stripe integer,
+                                                                  p_count integer)
+RETURNS Integer AS $$
+
+-- =============================================
+-- Author:		ECM Team
+
+-- TEST :		SELECT fn_persistentQ_addMultipleCountStripe ('3265', 3, 1);
+--				
+-- Create date: 18-OCT-2026
+-- Description:	Function to add p_count completed cases to one stripe row of the counter of a multiple reference
+--				number, and return the counter of that stripe. Only the stripe row is locked, so cases counted
+--				on other stripes of the same multiple do not wait for each other.
+-- VERSION	  :	18-OCT-2026	- 1.0  - Initial
+-- =============================================
+
+
+    DECLARE currentval integer;
+
+BEGIN 
+
+    INSERT INTO multipleCounterStripe AS mcs (multipleRef, stripe, counter) VALUES (p_multipleRef, p_stripe, p_count)
+    ON CONFLICT (multipleRef, stripe) DO UPDATE SET counter = mcs.counter + p_count
+    RETURNING mcs.counter INTO currentval;
+
+    RETURN  currentval;
+
+END;
+   $$ LANGUAGE plpgsql;
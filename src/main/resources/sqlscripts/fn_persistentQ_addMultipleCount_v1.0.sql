@@ -0,0 +1,30 @@
+/* CREATE FUNCTION */
+
+CREATE OR REPLACE FUNCTION fn_persistentQ_addMultipleCount (p_multipleRef varchar(25), p_count integer)
+RETURNS Integer AS $$
+
+-- =============================================
+-- Author:		ECM Team
+
+-- TEST :		SELECT fn_persistentQ_addMultipleCount ('3265', 10);
+--				
+-- Create date: 18-OCT-2026
+-- Description:	Function to add p_count completed cases to the counter of a multiple reference number in one
+--				increment, and return the counter after the increment. The caller owns the values from
+--				counter - p_count + 1 to counter, so exactly one caller sees any given value.
+-- VERSION	  :	18-OCT-2026	- 1.0  - Initial
+-- =============================================
+
+
+    DECLARE currentval integer;
+
+BEGIN 
+
+    INSERT INTO multipleCounter AS mc (multipleRef, counter) VALUES (p_multipleRef, p_count)
+    ON CONFLICT (multipleRef) DO UPDATE SET counter = mc.counter + p_count
+    RETURNING mc.counter INTO currentval;
+
+    RETURN  currentval;
+
+END;
+   $$ LANGUAGE plpgsql;
@@ -0,0 +1,48 @@
+/* CREATE FUNCTION */
+
+CREATE OR REPLACE FUNCTION fn_persistentQ_claimMultipleCompletionFinish (p_multipleRef varchar(25),
+                                                                         p_totalCases integer)
+RETURNS Boolean AS $$
+
+-- =============================================
+-- Author:		ECM Team
+
+-- TEST :		SELECT fn_persistentQ_claimMultipleCompletionFinish ('3265', 100);
+--				
+-- Create date: 18-OCT-2026
+-- Description:	Function to check whether all cases of a multiple reference number have completed, and if so to
+--				claim its finish. Returns true to exactly one caller per multiple. Completed cases are the counts
+--				of bits set kept on the multipleCompletion rows of the multiple, one row per fan-out, plus the
+--				multipleCounter row, which only counts cases whose message carries no fan-out position.
+--				Must be called in a new transaction after the case has been marked, so the caller that marks
+--				the last case sees the marks of all the others.
+-- VERSION	  :	18-OCT-2026	- 1.0  - Initial
+-- =============================================
+
+
+    DECLARE counted integer;
+    DECLARE claimed integer;
+
+BEGIN 
+
+    -- Reads the counts kept by fn_persistentQ_markMultipleCaseCompleted, so the bitmaps themselves are not read
+
+    SELECT COALESCE(SUM(completedCount), 0)
+    INTO counted
+    FROM multipleCompletion WHERE multipleRef = p_multipleRef;
+
+    counted := counted + COALESCE((SELECT counter FROM multipleCounter WHERE multipleRef = p_multipleRef), 0);
+
+    IF counted < p_totalCases THEN
+        RETURN false;
+    END IF;
+
+    INSERT INTO multipleCounterFinishClaim (multipleRef) VALUES (p_multipleRef)
+    ON CONFLICT (multipleRef) DO NOTHING;
+
+    GET DIAGNOSTICS claimed = ROW_COUNT;
+
+    RETURN  claimed = 1;
+
+END;
+   $$ LANGUAGE plpgsql;
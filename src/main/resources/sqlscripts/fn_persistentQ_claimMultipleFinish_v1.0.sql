@@ -0,0 +1,35 @@
+/* CREATE FUNCTION */
+
+CREATE OR REPLACE FUNCTION fn_persistentQ_claimMultipleFinish (p_limit integer, p_leaseSeconds integer)
+RETURNS SETOF multipleFinish AS $$
+
+-- =============================================
+-- Author:		ECM Team
+
+-- TEST :		SELECT * FROM fn_persistentQ_claimMultipleFinish (10, 300);
+--				
+-- Create date: 18-OCT-2026
+-- Description:	Function to claim up to p_limit multiples that are due to be finished. Claimed rows are leased
+--				for p_leaseSeconds by moving their next attempt time, so a finish that is not completed in time
+--				is claimed again. Rows locked by another consumer are skipped rather than waited for.
+-- VERSION	  :	18-OCT-2026	- 1.0  - Initial
+-- =============================================
+
+BEGIN 
+
+    RETURN QUERY
+    UPDATE multipleFinish AS mf
+    SET attempts = mf.attempts + 1,
+        nextAttemptAt = now() + make_interval(secs => p_leaseSeconds)
+    WHERE mf.multipleRef IN (
+        SELECT due.multipleRef
+        FROM multipleFinish AS due
+        WHERE due.nextAttemptAt <= now()
+        ORDER BY due.nextAttemptAt
+        LIMIT p_limit
+        FOR UPDATE SKIP LOCKED
+    )
+    RETURNING mf.*;
+
+END;
+   $$ LANGUAGE plpgsql;
@@ -0,0 +1,35 @@
+/* CREATE FUNCTION */
+
+CREATE OR REPLACE FUNCTION fn_persistentQ_claimPendingEmail (p_limit integer, p_leaseSeconds integer)
+RETURNS SETOF pendingEmail AS $$
+
+-- =============================================
+-- Author:		ECM Team
+
+-- TEST :		SELECT * FROM fn_persistentQ_claimPendingEmail (10, 120);
+--				
+-- Create date: 18-OCT-2026
+-- Description:	Function to claim up to p_limit emails that are due to be sent. Claimed rows are leased for
+--				p_leaseSeconds by moving their next attempt time, so an email whose send is not completed in
+--				time is claimed again. Rows locked by another consumer are skipped rather than waited for.
+-- VERSION	  :	18-OCT-2026	- 1.0  - Initial
+-- =============================================
+
+BEGIN 
+
+    RETURN QUERY
+    UPDATE pendingEmail AS pe
+    SET attempts = pe.attempts + 1,
+        nextAttemptAt = now() + make_interval(secs => p_leaseSeconds)
+    WHERE pe.referenceId IN (
+        SELECT due.referenceId
+        FROM pendingEmail AS due
+        WHERE due.nextAttemptAt <= now()
+        ORDER BY due.nextAttemptAt
+        LIMIT p_limit
+        FOR UPDATE SKIP LOCKED
+    )
+    RETURNING pe.*;
+
+END;
+   $$ LANGUAGE plpgsql;
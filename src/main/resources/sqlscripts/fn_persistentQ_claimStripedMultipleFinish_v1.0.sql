@@ -0,0 +1,39 @@
+/* CREATE FUNCTION */
+
+CREATE OR REPLACE FUNCTION fn_persistentQ_claimStripedMultipleFinish (p_multipleRef varchar(25), p_totalCases integer)
+RETURNS Boolean AS $$
+
+-- =============================================
+-- Author:		ECM Team
+
+-- TEST :		SELECT fn_persistentQ_claimStripedMultipleFinish ('3265', 100);
+--				
+-- Create date: 18-OCT-2026
+-- Description:	Function to check whether all cases of a multiple reference number have been counted across its
+--				stripe rows, and if so to claim its finish. Returns true to exactly one caller per multiple.
+--				Must be called in a new transaction after the stripe increment has been committed, so the caller
+--				that counts the last case sees the increments of all the others.
+-- VERSION	  :	18-OCT-2026	- 1.0  - Initial
+-- =============================================
+
+
+    DECLARE counted integer;
+    DECLARE claimed integer;
+
+BEGIN 
+
+    SELECT COALESCE(SUM(counter), 0) INTO counted FROM multipleCounterStripe WHERE multipleRef = p_multipleRef;
+
+    IF counted < p_totalCases THEN
+        RETURN false;
+    END IF;
+
+    INSERT INTO multipleCounterFinishClaim (multipleRef) VALUES (p_multipleRef)
+    ON CONFLICT (multipleRef) DO NOTHING;
+
+    GET DIAGNOSTICS claimed = ROW_COUNT;
+
+    RETURN  claimed = 1;
+
+END;
+   $$ LANGUAGE plpgsql;
@@ -10,6 +10,8 @@ CREATE OR REPLACE FUNCTION fn_persistentQ_getNextMultipleCountVal (p_multipleRef
 -- Create date: 10-JUN-2020
 -- Description:	Function to return next incremental value for a multiple reference number passed in
 -- VERSION	  :	10-JUN-2020	- 1.0  - Initial
+--            :	18-OCT-2026	- 1.1  - Single atomic upsert on the multipleCounter primary key instead of
+--                                   SELECT ... FOR UPDATE followed by a separate INSERT or UPDATE
 -- =============================================
 
 
@@ -17,23 +19,12 @@ CREATE OR REPLACE FUNCTION fn_persistentQ_getNextMultipleCountVal (p_multipleRef
 
 BEGIN 
 
-    -- Acquire Lock on multipleCounter table 
+    -- Creates the counter on first use, otherwise increments it under the row lock taken by the upsert
 
-    SELECT counter INTO currentval FROM multipleCounter WHERE multipleRef = p_multipleRef FOR UPDATE ;
-        
-    CASE 
-    
-    WHEN currentval IS NULL THEN
-    INSERT INTO multipleCounter(multipleRef) VALUES (p_multipleRef);
-    currentval := 1;
+    INSERT INTO multipleCounter AS mc (multipleRef, counter) VALUES (p_multipleRef, 1)
+    ON CONFLICT (multipleRef) DO UPDATE SET counter = mc.counter + 1
+    RETURNING mc.counter INTO currentval;
 
-    ELSE  
-    
-    currentval = currentval + 1;
-    UPDATE  multipleCounter SET counter = currentval WHERE multipleRef = p_multipleRef;
-
-    END CASE;
-         
     RETURN  currentval;
 
 END;
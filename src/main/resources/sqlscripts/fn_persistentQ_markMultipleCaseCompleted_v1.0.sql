@@ -0,0 +1,53 @@
+/* CREATE FUNCTION */
+
+CREATE OR REPLACE FUNCTION fn_persistentQ_markMultipleCaseCompleted (p_multipleRef varchar(25), p_fanOutId varchar(50),
+                                                                     p_caseIndex integer)
+RETURNS Boolean AS $$
+
+-- =============================================
+-- Author:		ECM Team
+
+-- TEST :		SELECT fn_persistentQ_markMultipleCaseCompleted ('3265', 'c1f0e0f2-0d2c-4e0b-9a4f-1b2a3c4d5e6f', 7);
+--				
+-- Create date: 18-OCT-2026
+-- Description:	Function to mark the case at position p_caseIndex of fan-out p_fanOutId of a multiple reference
+--				number as completed. Returns true if the case was newly marked, or false if it was already
+--				marked, so a redelivered case is not counted twice. The count of bits set is raised only when a
+--				bit is newly set. Whether the multiple has finished is
+--				decided afterwards by fn_persistentQ_claimMultipleCompletionFinish.
+-- VERSION	  :	18-OCT-2026	- 1.0  - Initial
+-- =============================================
+
+
+    DECLARE marked integer;
+
+BEGIN 
+
+    -- Redelivered cases are answered from a plain read, without waiting for any row lock
+
+    IF EXISTS (SELECT 1 FROM multipleCompletion
+               WHERE multipleRef = p_multipleRef AND fanOutId = p_fanOutId
+               AND CASE WHEN length(completed) * 8 > p_caseIndex THEN get_bit(completed, p_caseIndex) ELSE 0 END = 1)
+    THEN
+        RETURN false;
+    END IF;
+
+    -- Sets the bit, growing the bitmap when needed, and counts it, under the row lock taken by the upsert. The guard
+    -- is checked again against the locked row, so of two deliveries of the same case racing here only one marks it
+
+    INSERT INTO multipleCompletion AS mc (multipleRef, fanOutId, completed, completedCount)
+    VALUES (p_multipleRef, p_fanOutId, set_bit(decode(repeat('00', p_caseIndex / 8 + 1), 'hex'), p_caseIndex, 1), 1)
+    ON CONFLICT (multipleRef, fanOutId) DO UPDATE
+        SET completed = set_bit(mc.completed
+                                    || decode(repeat('00', GREATEST(p_caseIndex / 8 + 1 - length(mc.completed), 0)),
+                                              'hex'),
+                                p_caseIndex, 1),
+            completedCount = mc.completedCount + 1
+        WHERE CASE WHEN length(mc.completed) * 8 > p_caseIndex THEN get_bit(mc.completed, p_caseIndex) ELSE 0 END = 0;
+
+    GET DIAGNOSTICS marked = ROW_COUNT;
+
+    RETURN  marked = 1;
+
+END;
+   $$ LANGUAGE plpgsql;
@@ -13,14 +13,53 @@ EOSQL
 
 set -e
 
-echo "Running tbls_PersistentQ_multiplecounter_v1.0.sql"
-psql postgresql://localhost:5050/ecmconsumer -U ecmconsumer -f ./tbls_PersistentQ_multiplecounter_v1.0.sql
+echo "Running tbls_PersistentQ_multiplecounter_v1.1.sql"
+psql postgresql://localhost:5050/ecmconsumer -U ecmconsumer -f ./tbls_PersistentQ_multiplecounter_v1.1.sql
 
 echo "Running tbls_PersistentQ_multipleErrors_v1.1.sql"
 psql postgresql://localhost:5050/ecmconsumer -U ecmconsumer -f ./tbls_PersistentQ_multipleErrors_v1.1.sql
 
-echo "Running fn_persistentQ_getNextMultipleCountVal_v1.0.sql"
-psql postgresql://localhost:5050/ecmconsumer -U ecmconsumer -f ./fn_persistentQ_getNextMultipleCountVal_v1.0.sql
+echo "Running tbls_PersistentQ_fanOutCheckpoint_v1.0.sql"
+psql postgresql://localhost:5050/ecmconsumer -U ecmconsumer -f ./tbls_PersistentQ_fanOutCheckpoint_v1.0.sql
+
+echo "Running tbls_PersistentQ_claimCheck_v1.0.sql"
+psql postgresql://localhost:5050/ecmconsumer -U ecmconsumer -f ./tbls_PersistentQ_claimCheck_v1.0.sql
+
+echo "Running tbls_PersistentQ_multipleFinish_v1.0.sql"
+psql postgresql://localhost:5050/ecmconsumer -U ecmconsumer -f ./tbls_PersistentQ_multipleFinish_v1.0.sql
+
+echo "Running tbls_PersistentQ_pendingEmail_v1.0.sql"
+psql postgresql://localhost:5050/ecmconsumer -U ecmconsumer -f ./tbls_PersistentQ_pendingEmail_v1.0.sql
+
+echo "Running tbls_PersistentQ_multipleCounterStripe_v1.0.sql"
+psql postgresql://localhost:5050/ecmconsumer -U ecmconsumer -f ./tbls_PersistentQ_multipleCounterStripe_v1.0.sql
+
+echo "Running tbls_PersistentQ_multipleCompletion_v1.0.sql"
+psql postgresql://localhost:5050/ecmconsumer -U ecmconsumer -f ./tbls_PersistentQ_multipleCompletion_v1.0.sql
+
+echo "Running fn_persistentQ_getNextMultipleCountVal_v1.1.sql"
+psql postgresql://localhost:5050/ecmconsumer -U ecmconsumer -f ./fn_persistentQ_getNextMultipleCountVal_v1.1.sql
 
 echo "Running fn_persistentQ_logMultipleError_v1.3.sql"
 psql postgresql://localhost:5050/ecmconsumer -U ecmconsumer -f ./fn_persistentQ_logMultipleError_v1.3.sql
+
+echo "Running fn_persistentQ_claimMultipleFinish_v1.0.sql"
+psql postgresql://localhost:5050/ecmconsumer -U ecmconsumer -f ./fn_persistentQ_claimMultipleFinish_v1.0.sql
+
+echo "Running fn_persistentQ_claimPendingEmail_v1.0.sql"
+psql postgresql://localhost:5050/ecmconsumer -U ecmconsumer -f ./fn_persistentQ_claimPendingEmail_v1.0.sql
+
+echo "Running fn_persistentQ_addMultipleCount_v1.0.sql"
+psql postgresql://localhost:5050/ecmconsumer -U ecmconsumer -f ./fn_persistentQ_addMultipleCount_v1.0.sql
+
+echo "Running fn_persistentQ_addMultipleCountStripe_v1.0.sql"
+psql postgresql://localhost:5050/ecmconsumer -U ecmconsumer -f ./fn_persistentQ_addMultipleCountStripe_v1.0.sql
+
+echo "Running fn_persistentQ_claimStripedMultipleFinish_v1.0.sql"
+psql postgresql://localhost:5050/ecmconsumer -U ecmconsumer -f ./fn_persistentQ_claimStripedMultipleFinish_v1.0.sql
+
+echo "Running fn_persistentQ_markMultipleCaseCompleted_v1.0.sql"
+psql postgresql://localhost:5050/ecmconsumer -U ecmconsumer -f ./fn_persistentQ_markMultipleCaseCompleted_v1.0.sql
+
+echo "Running fn_persistentQ_claimMultipleCompletionFinish_v1.0.sql"
+psql postgresql://localhost:5050/ecmconsumer -U ecmconsumer -f ./fn_persistentQ_claimMultipleCompletionFinish_v1.0.sql
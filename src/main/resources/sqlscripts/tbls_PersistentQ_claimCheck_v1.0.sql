@@ -0,0 +1,26 @@
+/* CREATE TABLES FOR PERSISTENT QUEUE */
+
+-- =============================================
+-- Author:		ECM Team
+--				
+-- Create date: 18-OCT-2026
+-- Description:	Script to create table holding the payload shared by all update-case messages of a
+--				create-updates message, so that each update-case message only carries a reference to it.
+--				Payloads are purged once they expire: a grace period after their multiple finishes, or a
+--				maximum age after they are stored if it never does
+-- Called by  : ecm-consumer ClaimCheckService
+-- VERSION	  :	18-OCT-2026		1.0  - Initial
+-- =============================================
+
+/***********   claimCheck   ************/  
+
+DROP TABLE IF EXISTS claimCheck;
+CREATE TABLE claimCheck 
+  (
+  claimCheckId  varchar(100) PRIMARY KEY,
+  multipleRef   varchar(25),
+  payload       text NOT NULL,
+  expiresAt     timestamp NOT NULL
+  );
+
+CREATE INDEX IX_claimCheck_expiresAt ON claimCheck (expiresAt);
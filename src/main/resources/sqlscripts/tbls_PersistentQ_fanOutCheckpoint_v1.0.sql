@@ -0,0 +1,21 @@
+/* CREATE TABLES FOR PERSISTENT QUEUE */
+
+-- =============================================
+-- Author:		ECM Team
+--				
+-- Create date: 18-OCT-2026
+-- Description:	Script to create table recording how far the fan-out of a create-updates message has got,
+--				so that a redelivered message resumes from the last acknowledged chunk
+-- Called by  : ecm-consumer CreateUpdatesBusReceiverTask
+-- VERSION	  :	18-OCT-2026		1.0  - Initial
+-- =============================================
+
+/***********   fanOutCheckpoint   ************/  
+
+DROP TABLE IF EXISTS fanOutCheckpoint;
+CREATE TABLE fanOutCheckpoint 
+  (
+  createUpdatesMsgId  varchar(100) PRIMARY KEY,
+  multipleRef         varchar(25),
+  sentCases           integer NOT NULL DEFAULT 0
+  );
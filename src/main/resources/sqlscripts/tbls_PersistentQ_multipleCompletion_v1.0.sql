@@ -0,0 +1,24 @@
+/* CREATE TABLES FOR PERSISTENT QUEUE */
+
+-- =============================================
+-- Author:		ECM Team
+--				
+-- Create date: 18-OCT-2026
+-- Description:	Script to create table recording which cases of a multiple have completed, as one bit per case
+--				at the position of the case in the fan-out of its create-updates message, with the number of
+--				bits set kept alongside so completion is checked without reading the bitmap
+-- Called by  : fn_persistentQ_markMultipleCaseCompleted, fn_persistentQ_claimMultipleCompletionFinish
+-- VERSION	  :	18-OCT-2026		1.0  - Initial
+-- =============================================
+
+/***********   multipleCompletion   ************/  
+
+DROP TABLE IF EXISTS multipleCompletion;
+CREATE TABLE multipleCompletion 
+  (
+  multipleRef  varchar(25) NOT NULL,
+  fanOutId     varchar(50) NOT NULL,
+  completed    bytea NOT NULL,
+  completedCount integer NOT NULL DEFAULT 0,
+  PRIMARY KEY (multipleRef, fanOutId)
+  );
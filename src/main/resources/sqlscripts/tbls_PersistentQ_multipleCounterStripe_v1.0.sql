@@ -0,0 +1,33 @@
+/* CREATE TABLES FOR PERSISTENT QUEUE */
+
+-- =============================================
+-- Author:		ECM Team
+--				
+-- Create date: 18-OCT-2026
+-- Description:	Script to create the tables used when the completed cases of a multiple are counted on several
+--				stripe rows instead of the single multipleCounter row, and the table recording which multiples
+--				have already claimed their finish
+-- Called by  : fn_persistentQ_addMultipleCountStripe, fn_persistentQ_claimStripedMultipleFinish,
+--				fn_persistentQ_claimMultipleCompletionFinish
+-- VERSION	  :	18-OCT-2026		1.0  - Initial
+-- =============================================
+
+/***********   multipleCounterStripe   ************/  
+
+DROP TABLE IF EXISTS multipleCounterStripe;
+CREATE TABLE multipleCounterStripe 
+  (
+  multipleRef  varchar(25) NOT NULL,
+  stripe       integer NOT NULL,
+  counter      integer NOT NULL DEFAULT 0,
+  PRIMARY KEY (multipleRef, stripe)
+  );
+
+/***********   multipleCounterFinishClaim   ************/  
+
+DROP TABLE IF EXISTS multipleCounterFinishClaim;
+CREATE TABLE multipleCounterFinishClaim 
+  (
+  multipleRef  varchar(25) PRIMARY KEY,
+  claimedAt    timestamp NOT NULL DEFAULT now()
+  );
@@ -0,0 +1,27 @@
+/* CREATE TABLES FOR PERSISTENT QUEUE */
+
+-- =============================================
+-- Author:		ECM Team
+--				
+-- Create date: 18-OCT-2026
+-- Description:	Script to create table holding multiples whose cases have all been updated and that are waiting
+--				to be finished: multiple updated, email sent and persistent queue tables cleared. The last
+--				step completed is recorded, so a retried finish carries on where the previous attempt stopped
+-- Called by  : ecm-consumer MultipleFinishService, fn_persistentQ_claimMultipleFinish
+-- VERSION	  :	18-OCT-2026		1.0  - Initial
+-- =============================================
+
+/***********   multipleFinish   ************/  
+
+DROP TABLE IF EXISTS multipleFinish;
+CREATE TABLE multipleFinish 
+  (
+  multipleRef   varchar(25) PRIMARY KEY,
+  payload       text NOT NULL,
+  fanOutId      varchar(100),
+  step          integer NOT NULL DEFAULT 0,
+  attempts      integer NOT NULL DEFAULT 0,
+  nextAttemptAt timestamp NOT NULL DEFAULT now()
+  );
+
+CREATE INDEX IX_multipleFinish_nextAttemptAt ON multipleFinish (nextAttemptAt);
@@ -7,6 +7,7 @@
 -- Description:	Script to create base table used by ECM multiples persistent queue 
 -- Called by  : fn_persistentQ_getNextMultipleCountVal
 -- VERSION	:	10-JUN-2020		1.0  - Initial
+--        	:	18-OCT-2026		1.1  - multipleRef is now the primary key so there is only ever one counter row per multiple
 -- =============================================
 
 /***********   multipleCounter   ************/  
@@ -14,9 +15,7 @@
 DROP TABLE IF EXISTS multipleCounter;
 CREATE TABLE multipleCounter 
   (
-  multipleRef  varchar(25),
-  counter integer DEFAULT 1
+  multipleRef  varchar(25) PRIMARY KEY,
+  counter integer NOT NULL DEFAULT 1
   );
 
-CREATE INDEX IX_multipleCounter_multipleRef ON multipleCounter(multipleRef);
-
@@ -0,0 +1,28 @@
+/* CREATE TABLES FOR PERSISTENT QUEUE */
+
+-- =============================================
+-- Author:		ECM Team
+--				
+-- Create date: 18-OCT-2026
+-- Description:	Script to create table holding confirmation emails waiting to be sent through GOV.UK Notify,
+--				so that emails are retried and survive restarts
+-- Called by  : ecm-consumer EmailService, fn_persistentQ_claimPendingEmail
+-- VERSION	  :	18-OCT-2026		1.0  - Initial
+-- =============================================
+
+/***********   pendingEmail   ************/  
+
+DROP TABLE IF EXISTS pendingEmail;
+CREATE TABLE pendingEmail 
+  (
+  referenceId     varchar(36) PRIMARY KEY,
+  templateId      varchar(36) NOT NULL,
+  emailAddress    varchar(250) NOT NULL,
+  personalisation text NOT NULL,
+  description     varchar(300),
+  attempts        integer NOT NULL DEFAULT 0,
+  nextAttemptAt   timestamp NOT NULL DEFAULT now(),
+  createdAt       timestamp NOT NULL DEFAULT now()
+  );
+
+CREATE INDEX IX_pendingEmail_nextAttemptAt ON pendingEmail (nextAttemptAt);
@@ -0,0 +1,40 @@
+package uk.gov.hmcts.ethos.ecm.consumer.benchmark;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import javax.sql.DataSource;
+
+/**
+ * Loads the consumer's SQL scripts from the classpath into an embedded Postgres database.
+ */
+final class EmbeddedPostgresSupport {
+
+    private static final String BYTE_ORDER_MARK = "\uFEFF";
+
+    private EmbeddedPostgresSupport() {
+    }
+
+    static void runScripts(DataSource dataSource, String... scriptNames) throws IOException, SQLException {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            for (String scriptName : scriptNames) {
+                statement.execute(readScript(scriptName));
+            }
+        }
+    }
+
+    private static String readScript(String scriptName) throws IOException {
+        try (InputStream inputStream = EmbeddedPostgresSupport.class
+            .getResourceAsStream("/sqlscripts/" + scriptName)) {
+            if (inputStream == null) {
+                throw new IOException("SQL script not found on classpath: " + scriptName);
+            }
+            String script = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
+            return script.startsWith(BYTE_ORDER_MARK) ? script.substring(1) : script;
+        }
+    }
+}
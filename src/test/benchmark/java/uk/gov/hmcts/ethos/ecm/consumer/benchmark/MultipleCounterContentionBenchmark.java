@@ -0,0 +1,136 @@
+package uk.gov.hmcts.ethos.ecm.consumer.benchmark;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.sql.DataSource;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Measures counted cases per second against an embedded Postgres, with every worker counting cases of the same
+ * multiple, either one fn_persistentQ_getNextMultipleCountVal call per case or one fn_persistentQ_addMultipleCount
+ * call per batch of cases.
+ */
+@Slf4j
+public class MultipleCounterContentionBenchmark {
+
+    private static final int INCREMENTS_PER_WORKER = 500;
+    private static final int[] WORKER_COUNTS = {1, 4, 8, 16, 32, 64};
+    private static final int BATCH_SIZE = 10;
+
+    private static EmbeddedPostgres postgres;
+    private static DataSource dataSource;
+
+    @BeforeClass
+    public static void startDatabase() throws Exception {
+        postgres = EmbeddedPostgres.start();
+        dataSource = postgres.getPostgresDatabase();
+        EmbeddedPostgresSupport.runScripts(dataSource,
+                                           "tbls_PersistentQ_multiplecounter_v1.1.sql",
+                                           "fn_persistentQ_getNextMultipleCountVal_v1.1.sql",
+                                           "fn_persistentQ_addMultipleCount_v1.0.sql");
+    }
+
+    @AfterClass
+    public static void stopDatabase() throws Exception {
+        postgres.close();
+    }
+
+    @Test
+    public void incrementsPerSecondByWorkerCount() throws Exception {
+        for (int workers : WORKER_COUNTS) {
+            String multipleRef = "41" + workers;
+            double perSecond = run(workers, () -> increment(multipleRef));
+
+            assertEquals(workers * INCREMENTS_PER_WORKER, currentCount(multipleRef));
+            log.info("workers={} increments/s={}", workers, String.format("%.0f", perSecond));
+        }
+    }
+
+    @Test
+    public void batchedCasesPerSecondByWorkerCount() throws Exception {
+        for (int workers : WORKER_COUNTS) {
+            String multipleRef = "42" + workers;
+            double perSecond = run(workers, () -> addBatches(multipleRef));
+
+            assertEquals(workers * INCREMENTS_PER_WORKER, currentCount(multipleRef));
+            log.info("workers={} batchSize={} cases/s={}", workers, BATCH_SIZE, String.format("%.0f", perSecond));
+        }
+    }
+
+    private double run(int workers, Callable<Void> worker) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        try {
+            List<Callable<Void>> tasks = new ArrayList<>();
+            for (int i = 0; i < workers; i++) {
+                tasks.add(worker);
+            }
+
+            long start = System.nanoTime();
+            for (Future<Void> future : pool.invokeAll(tasks)) {
+                future.get();
+            }
+            long elapsed = System.nanoTime() - start;
+
+            return workers * INCREMENTS_PER_WORKER / (elapsed / 1_000_000_000.0);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private Void increment(String multipleRef) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement =
+                 connection.prepareStatement("SELECT fn_persistentQ_getNextMultipleCountVal(?)")) {
+            for (int i = 0; i < INCREMENTS_PER_WORKER; i++) {
+                statement.setString(1, multipleRef);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    resultSet.next();
+                }
+            }
+        }
+        return null;
+    }
+
+    private Void addBatches(String multipleRef) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement =
+                 connection.prepareStatement("SELECT fn_persistentQ_addMultipleCount(?, ?)")) {
+            for (int i = 0; i < INCREMENTS_PER_WORKER / BATCH_SIZE; i++) {
+                statement.setString(1, multipleRef);
+                statement.setInt(2, BATCH_SIZE);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    resultSet.next();
+                }
+            }
+        }
+        return null;
+    }
+
+    private int currentCount(String multipleRef) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement(
+                 "SELECT count(*), max(counter) FROM multipleCounter WHERE multipleRef = ?")) {
+            statement.setString(1, multipleRef);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                resultSet.next();
+                assertEquals("exactly one counter row per multiple", 1, resultSet.getInt(1));
+                return resultSet.getInt(2);
+            }
+        }
+    }
+}
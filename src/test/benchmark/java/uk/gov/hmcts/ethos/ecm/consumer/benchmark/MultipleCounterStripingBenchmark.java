@@ -0,0 +1,151 @@
+package uk.gov.hmcts.ethos.ecm.consumer.benchmark;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.sql.DataSource;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares counted cases per second of the single multipleCounter row with the striped counter against an embedded
+ * Postgres, with every worker counting cases of the same multiple and checking whether its case was the last one.
+ */
+@Slf4j
+public class MultipleCounterStripingBenchmark {
+
+    private static final int CASES_PER_WORKER = 200;
+    private static final int[] WORKER_COUNTS = {8, 32, 128};
+    private static final int STRIPES = 16;
+
+    private static EmbeddedPostgres postgres;
+    private static DataSource dataSource;
+
+    @BeforeClass
+    public static void startDatabase() throws Exception {
+        postgres = EmbeddedPostgres.builder().setServerConfig("max_connections", "200").start();
+        dataSource = postgres.getPostgresDatabase();
+        EmbeddedPostgresSupport.runScripts(dataSource,
+                                           "tbls_PersistentQ_multiplecounter_v1.1.sql",
+                                           "tbls_PersistentQ_multipleCounterStripe_v1.0.sql",
+                                           "fn_persistentQ_getNextMultipleCountVal_v1.1.sql",
+                                           "fn_persistentQ_addMultipleCountStripe_v1.0.sql",
+                                           "fn_persistentQ_claimStripedMultipleFinish_v1.0.sql");
+    }
+
+    @AfterClass
+    public static void stopDatabase() throws Exception {
+        postgres.close();
+    }
+
+    @Test
+    public void singleRowVersusStriped() throws Exception {
+        for (int workers : WORKER_COUNTS) {
+            int totalCases = workers * CASES_PER_WORKER;
+
+            String singleRef = "43" + workers;
+            List<Integer> singleFinishes = new ArrayList<>();
+            double singlePerSecond = run(workers, worker -> countSingleRow(singleRef, worker, totalCases),
+                                         singleFinishes);
+            assertEquals("exactly one case finishes the multiple", 1, sum(singleFinishes));
+
+            String stripedRef = "44" + workers;
+            List<Integer> stripedFinishes = new ArrayList<>();
+            double stripedPerSecond = run(workers, worker -> countStriped(stripedRef, worker, totalCases),
+                                          stripedFinishes);
+            assertEquals("exactly one case finishes the multiple", 1, sum(stripedFinishes));
+
+            log.info("workers={} single-row cases/s={} striped({}) cases/s={}", workers,
+                     String.format("%.0f", singlePerSecond), STRIPES, String.format("%.0f", stripedPerSecond));
+        }
+    }
+
+    private double run(int workers, CountingWorker countingWorker, List<Integer> finishes) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        try {
+            List<Callable<Integer>> tasks = new ArrayList<>();
+            for (int i = 0; i < workers; i++) {
+                int worker = i;
+                tasks.add(() -> countingWorker.count(worker));
+            }
+
+            long start = System.nanoTime();
+            for (Future<Integer> future : pool.invokeAll(tasks)) {
+                finishes.add(future.get());
+            }
+            long elapsed = System.nanoTime() - start;
+
+            return workers * CASES_PER_WORKER / (elapsed / 1_000_000_000.0);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private int countSingleRow(String multipleRef, int worker, int totalCases) throws SQLException {
+        int finishes = 0;
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement =
+                 connection.prepareStatement("SELECT fn_persistentQ_getNextMultipleCountVal(?)")) {
+            for (int i = 0; i < CASES_PER_WORKER; i++) {
+                statement.setString(1, multipleRef);
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    resultSet.next();
+                    if (resultSet.getInt(1) == totalCases) {
+                        finishes++;
+                    }
+                }
+            }
+        }
+        return finishes;
+    }
+
+    private int countStriped(String multipleRef, int worker, int totalCases) throws SQLException {
+        int finishes = 0;
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement increment =
+                 connection.prepareStatement("SELECT fn_persistentQ_addMultipleCountStripe(?, ?, 1)");
+             PreparedStatement claim =
+                 connection.prepareStatement("SELECT fn_persistentQ_claimStripedMultipleFinish(?, ?)")) {
+            for (int i = 0; i < CASES_PER_WORKER; i++) {
+                String ethosCaseReference = (4_100_000 + worker * CASES_PER_WORKER + i) + "/2020";
+                increment.setString(1, multipleRef);
+                increment.setInt(2, Math.floorMod(ethosCaseReference.hashCode(), STRIPES));
+                try (ResultSet resultSet = increment.executeQuery()) {
+                    resultSet.next();
+                }
+
+                claim.setString(1, multipleRef);
+                claim.setInt(2, totalCases);
+                try (ResultSet resultSet = claim.executeQuery()) {
+                    resultSet.next();
+                    if (resultSet.getBoolean(1)) {
+                        finishes++;
+                    }
+                }
+            }
+        }
+        return finishes;
+    }
+
+    private static int sum(List<Integer> values) {
+        return values.stream().mapToInt(Integer::intValue).sum();
+    }
+
+    @FunctionalInterface
+    private interface CountingWorker {
+        int count(int worker) throws SQLException;
+    }
+}
@@ -0,0 +1,128 @@
+package uk.gov.hmcts.ethos.ecm.consumer.benchmark;
+
+import com.microsoft.azure.servicebus.ExceptionPhase;
+import com.microsoft.azure.servicebus.IMessage;
+import com.microsoft.azure.servicebus.IMessageHandler;
+import com.microsoft.azure.servicebus.IMessageReceiver;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Test;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.servicebus.BatchMessageReceiver;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.servicebus.ConsumptionGate;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.servicebus.MessageAutoCompletor;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Compares message throughput of one-message receives against batched receives, both completing each message on
+ * its own, against a stub queue that answers every receive and completion after a fixed delay.
+ */
+@Slf4j
+public class ReceiveModeBenchmark {
+
+    private static final int MESSAGES = 5_000;
+    private static final long RECEIVE_LATENCY_MILLIS = 10;
+    private static final long COMPLETE_LATENCY_MILLIS = 5;
+    private static final long HANDLE_MILLIS = 1;
+    private static final int MAX_CONCURRENT_MESSAGES = 8;
+
+    @Test
+    public void perMessageVersusBatched() throws Exception {
+        log.info("Receive modes: {} messages, {} ms receive latency, {} ms complete latency",
+                 MESSAGES, RECEIVE_LATENCY_MILLIS, COMPLETE_LATENCY_MILLIS);
+
+        for (int batchSize : new int[] {1, 16, 64}) {
+            log.info("batchSize={} maxConcurrent={} throughput={} msg/s",
+                     batchSize, MAX_CONCURRENT_MESSAGES, String.format("%.1f", run(batchSize)));
+        }
+    }
+
+    private double run(int batchSize) throws Exception {
+        ScheduledExecutorService queue = Executors.newScheduledThreadPool(4);
+        ExecutorService handlers = Executors.newFixedThreadPool(MAX_CONCURRENT_MESSAGES);
+        IMessageReceiver receiver = stubReceiver(queue);
+        var completor = new MessageAutoCompletor(receiver);
+        var handled = new CountDownLatch(MESSAGES);
+
+        var batchMessageReceiver = new BatchMessageReceiver(
+            "benchmark-receive", receiver, handler(completor, handlers, handled), ConsumptionGate.OPEN, batchSize,
+            Duration.ofMillis(RECEIVE_LATENCY_MILLIS), MAX_CONCURRENT_MESSAGES,
+            Duration.ofMinutes(1), Duration.ofMinutes(5));
+        try {
+            long start = System.nanoTime();
+            batchMessageReceiver.start();
+            handled.await();
+            long elapsed = System.nanoTime() - start;
+
+            return MESSAGES / (elapsed / 1_000_000_000.0);
+        } finally {
+            batchMessageReceiver.stop();
+            handlers.shutdownNow();
+            queue.shutdownNow();
+        }
+    }
+
+    private static IMessageReceiver stubReceiver(ScheduledExecutorService queue) throws Exception {
+        IMessageReceiver receiver = mock(IMessageReceiver.class);
+        var remaining = new AtomicInteger(MESSAGES);
+        when(receiver.receiveBatch(anyInt(), any(Duration.class))).thenAnswer(invocation -> {
+            TimeUnit.MILLISECONDS.sleep(RECEIVE_LATENCY_MILLIS);
+            int requested = invocation.getArgument(0);
+            List<IMessage> messages = new ArrayList<>();
+            while (messages.size() < requested && remaining.getAndDecrement() > 0) {
+                IMessage message = mock(IMessage.class);
+                when(message.getLockToken()).thenReturn(UUID.randomUUID());
+                messages.add(message);
+            }
+            return messages.isEmpty() ? Collections.emptyList() : messages;
+        });
+        when(receiver.completeAsync(any(UUID.class))).thenAnswer(invocation -> {
+            var completed = new CompletableFuture<Void>();
+            queue.schedule(() -> completed.complete(null), COMPLETE_LATENCY_MILLIS, TimeUnit.MILLISECONDS);
+            return completed;
+        });
+        return receiver;
+    }
+
+    private static IMessageHandler handler(MessageAutoCompletor completor,
+                                           ExecutorService handlers,
+                                           CountDownLatch handled) {
+        return new IMessageHandler() {
+            @Override
+            public CompletableFuture<Void> onMessageAsync(IMessage message) {
+                return CompletableFuture
+                    .runAsync(ReceiveModeBenchmark::handle, handlers)
+                    .thenCompose(v -> completor.completeAsync(message.getLockToken()))
+                    .thenRun(handled::countDown);
+            }
+
+            @Override
+            public void notifyException(Throwable exception, ExceptionPhase phase) {
+                log.error("{} failed", phase, exception);
+            }
+        };
+    }
+
+    private static void handle() {
+        try {
+            TimeUnit.MILLISECONDS.sleep(HANDLE_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
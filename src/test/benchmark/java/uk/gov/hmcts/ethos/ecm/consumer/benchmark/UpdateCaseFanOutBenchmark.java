@@ -0,0 +1,87 @@
+package uk.gov.hmcts.ethos.ecm.consumer.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microsoft.azure.servicebus.IQueueClient;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.gov.hmcts.ecm.common.model.servicebus.UpdateCaseMsg;
+import uk.gov.hmcts.ethos.ecm.consumer.helpers.Helper;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.config.JacksonConfiguration;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.servicebus.ServiceBusBatchSender;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Measures create-updates fan-out in messages per second for a range of batch sizes and in-flight bounds,
+ * with Service Bus replaced by a fixed acknowledgement delay per send call.
+ */
+@Slf4j
+public class UpdateCaseFanOutBenchmark {
+
+    private static final int CASES = 10_000;
+    private static final long SEND_LATENCY_MILLIS = 15;
+    private static final int[] BATCH_SIZES = {1, 50, 100};
+    private static final int[] IN_FLIGHT_BATCHES = {1, 4, 16};
+
+    private final transient ObjectMapper objectMapper = new JacksonConfiguration().objectMapper();
+    private transient ScheduledExecutorService acknowledger;
+    private transient IQueueClient sendClient;
+
+    @Before
+    public void setUp() {
+        acknowledger = Executors.newScheduledThreadPool(4);
+        sendClient = mock(IQueueClient.class);
+        when(sendClient.sendBatchAsync(any())).thenAnswer(invocation -> {
+            CompletableFuture<Void> acknowledgement = new CompletableFuture<>();
+            acknowledger.schedule(() -> acknowledgement.complete(null), SEND_LATENCY_MILLIS, TimeUnit.MILLISECONDS);
+            return acknowledgement;
+        });
+    }
+
+    @After
+    public void tearDown() {
+        acknowledger.shutdownNow();
+    }
+
+    @Test
+    public void fanOutThroughput() throws Exception {
+        List<UpdateCaseMsg> msgs = createMessages();
+
+        log.info("Update-case fan-out: {} messages, {} ms simulated send latency", CASES, SEND_LATENCY_MILLIS);
+        for (int batchSize : BATCH_SIZES) {
+            for (int inFlight : IN_FLIGHT_BATCHES) {
+                ServiceBusBatchSender sender =
+                    new ServiceBusBatchSender(sendClient, objectMapper, batchSize, 200_000, inFlight);
+
+                long start = System.nanoTime();
+                sender.sendAsync(msgs).get();
+                double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+                log.info("batchSize={} inFlightBatches={} throughput={} msg/s",
+                         batchSize, inFlight, String.format("%.0f", CASES / seconds));
+            }
+        }
+    }
+
+    private static List<UpdateCaseMsg> createMessages() {
+        List<UpdateCaseMsg> msgs = new ArrayList<>();
+        for (int caseNumber = 0; caseNumber < CASES; caseNumber++) {
+            UpdateCaseMsg msg = Helper.generateUpdateCaseMsg();
+            msg.setMsgId("4150002-" + caseNumber);
+            msg.setEthosCaseReference((4_100_000 + caseNumber) + "/2020");
+            msgs.add(msg);
+        }
+        return msgs;
+    }
+}
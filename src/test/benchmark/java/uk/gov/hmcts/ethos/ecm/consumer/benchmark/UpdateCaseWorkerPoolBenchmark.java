@@ -0,0 +1,116 @@
+package uk.gov.hmcts.ethos.ecm.consumer.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microsoft.azure.servicebus.Message;
+import com.microsoft.azure.servicebus.MessageBody;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Test;
+import uk.gov.hmcts.ecm.common.model.servicebus.UpdateCaseMsg;
+import uk.gov.hmcts.ethos.ecm.consumer.helpers.Helper;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.config.JacksonConfiguration;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.ClaimCheckService;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.SingleCreationService;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.SingleReadingService;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.SingleTransferService;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.SingleUpdateService;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.UpdateManagementService;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.UpdatePipelineService;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.UserService;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.servicebus.MessageAutoCompletor;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.servicebus.MessageRescheduler;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.tasks.UpdateCaseBusReceiverTask;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static java.util.Collections.singletonList;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Measures update-case throughput for increasing worker counts, with CCD replaced by a fixed delay.
+ */
+@Slf4j
+public class UpdateCaseWorkerPoolBenchmark {
+
+    private static final int MULTIPLES = 4;
+    private static final int CASES_PER_MULTIPLE = 250;
+    private static final long CCD_LATENCY_MILLIS = 20;
+    private static final int[] WORKER_COUNTS = {1, 2, 4, 8, 16, 32};
+
+    private final transient ObjectMapper objectMapper = new JacksonConfiguration().objectMapper();
+
+    @Test
+    public void throughputByWorkerCount() throws Exception {
+        List<Message> messages = createMessages();
+
+        log.info("Update-case worker pool: {} messages, {} ms simulated CCD latency",
+                 messages.size(), CCD_LATENCY_MILLIS);
+        for (int workers : WORKER_COUNTS) {
+            double perSecond = run(workers, messages);
+            log.info("workers={} throughput={} msg/s", workers, String.format("%.1f", perSecond));
+        }
+    }
+
+    private double run(int workers, List<Message> messages) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+        try {
+            UpdateManagementService updateManagementService = mock(UpdateManagementService.class);
+            SingleReadingService singleReadingService = mock(SingleReadingService.class);
+            doAnswer(invocation -> {
+                TimeUnit.MILLISECONDS.sleep(CCD_LATENCY_MILLIS);
+                return CompletableFuture.completedFuture(List.of());
+            }).when(singleReadingService).retrieveSingleCaseAsync(any(), any(), any());
+            MessageAutoCompletor completor = mock(MessageAutoCompletor.class);
+            when(completor.completeAsync(any())).thenReturn(CompletableFuture.completedFuture(null));
+
+            UpdatePipelineService updatePipelineService = new UpdatePipelineService(
+                mock(UserService.class), singleReadingService, mock(SingleUpdateService.class),
+                mock(SingleTransferService.class), mock(SingleCreationService.class), updateManagementService,
+                Helper.ccdCallExecutor(), pool, pool);
+
+            UpdateCaseBusReceiverTask task = new UpdateCaseBusReceiverTask(
+                objectMapper, completor, updateManagementService, updatePipelineService,
+                Helper.updateCaseLanes(pool), mock(ClaimCheckService.class), mock(MessageRescheduler.class));
+
+            long start = System.nanoTime();
+            List<CompletableFuture<Void>> inFlight = new ArrayList<>();
+            for (Message message : messages) {
+                inFlight.add(task.onMessageAsync(message));
+            }
+            CompletableFuture.allOf(inFlight.toArray(new CompletableFuture[0])).get();
+            long elapsed = System.nanoTime() - start;
+
+            return messages.size() / (elapsed / 1_000_000_000.0);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private List<Message> createMessages() throws JsonProcessingException {
+        List<Message> messages = new ArrayList<>();
+        for (int multiple = 0; multiple < MULTIPLES; multiple++) {
+            for (int caseNumber = 0; caseNumber < CASES_PER_MULTIPLE; caseNumber++) {
+                UpdateCaseMsg msg = Helper.generateUpdateCaseMsg();
+                msg.setMultipleRef(String.valueOf(4_150_000 + multiple));
+                msg.setEthosCaseReference((4_100_000 + multiple * CASES_PER_MULTIPLE + caseNumber) + "/2020");
+                msg.setMsgId(msg.getMultipleRef() + "-" + caseNumber);
+
+                Message busMessage = new Message();
+                busMessage.setContentType("application/json");
+                busMessage.setMessageId(msg.getMsgId());
+                busMessage.setMessageBody(MessageBody.fromBinaryData(singletonList(
+                    objectMapper.writeValueAsBytes(msg))));
+                messages.add(busMessage);
+            }
+        }
+        return messages;
+    }
+}
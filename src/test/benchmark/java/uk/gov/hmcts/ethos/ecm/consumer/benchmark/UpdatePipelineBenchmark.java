@@ -0,0 +1,161 @@
+package uk.gov.hmcts.ethos.ecm.consumer.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.Test;
+import org.mockito.stubbing.Answer;
+import uk.gov.hmcts.ecm.common.client.CcdClient;
+import uk.gov.hmcts.ecm.common.model.ccd.CaseData;
+import uk.gov.hmcts.ecm.common.model.ccd.SubmitEvent;
+import uk.gov.hmcts.ecm.common.model.servicebus.UpdateCaseMsg;
+import uk.gov.hmcts.ethos.ecm.consumer.helpers.Helper;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.domain.repository.MultipleCounterRepository;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.domain.repository.MultipleErrorsRepository;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.CaseLookupBatcher;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.CaseLookupService;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.ClaimCheckService;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.EmailService;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.MultipleCompletionTracker;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.MultipleCounterBatcher;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.MultipleErrorsService;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.MultipleErrorsWriter;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.MultipleFinishService;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.MultipleUpdateService;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.SingleCreationService;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.SingleReadingService;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.SingleTransferService;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.SingleUpdateService;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.StripedMultipleCounter;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.UpdateManagementService;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.UpdatePipelineService;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.UserService;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.servicebus.KeyedSerialExecutor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.RETURNS_DEFAULTS;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Measures update-case throughput of the CCD pipeline for increasing CCD I/O thread counts, against a stub CCD
+ * that answers every call after a fixed delay. Each update makes three CCD calls: search, start event and submit.
+ * As the CCD client is blocking, throughput is expected to grow with the I/O threads rather than the workers.
+ */
+@Slf4j
+public class UpdatePipelineBenchmark {
+
+    private static final int CASES = 2_000;
+    private static final long CCD_LATENCY_MILLIS = 20;
+    private static final int WORKERS = 8;
+    private static final int[] CCD_IO_THREAD_COUNTS = {8, 25, 50};
+
+    @Test
+    public void throughputByCcdIoThreads() throws Exception {
+        log.info("Update pipeline: {} cases, {} ms simulated CCD latency per call", CASES, CCD_LATENCY_MILLIS);
+
+        for (int ccdIoThreads : CCD_IO_THREAD_COUNTS) {
+            log.info("workers={} ccdIoThreads={} throughput={} msg/s",
+                     WORKERS, ccdIoThreads, String.format("%.1f", run(WORKERS, ccdIoThreads)));
+        }
+    }
+
+    private double run(int workers, int ccdIoThreads) throws Exception {
+        ExecutorService workerPool = Executors.newFixedThreadPool(workers);
+        ExecutorService ccdIo = Executors.newFixedThreadPool(ccdIoThreads);
+        try {
+            UpdatePipelineService updatePipelineService = createPipeline(stubCcdClient(), ccdIo);
+            KeyedSerialExecutor keyedWorkers = new KeyedSerialExecutor(workerPool);
+
+            long start = System.nanoTime();
+            List<CompletableFuture<Void>> inFlight = new ArrayList<>();
+            for (UpdateCaseMsg msg : createMessages()) {
+                inFlight.add(keyedWorkers.submitAsync(
+                    msg.getEthosCaseReference(), () -> updatePipelineService.updateLogicAsync(msg, null)));
+            }
+            CompletableFuture.allOf(inFlight.toArray(new CompletableFuture[0])).get();
+            long elapsed = System.nanoTime() - start;
+
+            return CASES / (elapsed / 1_000_000_000.0);
+        } finally {
+            workerPool.shutdownNow();
+            ccdIo.shutdownNow();
+        }
+    }
+
+    private static UpdatePipelineService createPipeline(CcdClient ccdClient, ExecutorService ccdIo) {
+        var registry = new SimpleMeterRegistry();
+        var ccdCallExecutor = Helper.ccdCallExecutor();
+        var caseLookupService = new CaseLookupService(
+            ccdClient, new CaseLookupBatcher(ccdClient, ccdCallExecutor, registry, 0, 1, 1), ccdCallExecutor,
+            registry, 16_777_216, 60);
+
+        UserService userService = mock(UserService.class);
+        when(userService.getAccessToken()).thenReturn("accessToken");
+
+        var singleUpdateService = new SingleUpdateService(ccdClient);
+        var singleTransferService = new SingleTransferService(ccdClient);
+        var singleCreationService = new SingleCreationService(ccdClient, caseLookupService);
+        var singleReadingService = new SingleReadingService(caseLookupService);
+        MultipleCounterRepository multipleCounterRepository = mock(MultipleCounterRepository.class);
+        var updateManagementService = new UpdateManagementService(
+            multipleCounterRepository, mock(MultipleErrorsRepository.class),
+            mock(MultipleUpdateService.class), mock(EmailService.class),
+            mock(ClaimCheckService.class), mock(MultipleFinishService.class), mock(MultipleErrorsService.class),
+            mock(MultipleErrorsWriter.class),
+            new MultipleCounterBatcher(multipleCounterRepository, registry, false, 0),
+            new StripedMultipleCounter(multipleCounterRepository, 1),
+            new MultipleCompletionTracker(multipleCounterRepository, false));
+
+        return new UpdatePipelineService(userService, singleReadingService, singleUpdateService,
+                                         singleTransferService, singleCreationService, updateManagementService,
+                                         ccdCallExecutor, ccdIo, ccdIo);
+    }
+
+    private static CcdClient stubCcdClient() throws Exception {
+        Answer<Object> delayed = invocation -> {
+            TimeUnit.MILLISECONDS.sleep(CCD_LATENCY_MILLIS);
+            return RETURNS_DEFAULTS.answer(invocation);
+        };
+        CcdClient ccdClient = mock(CcdClient.class, withSettings().defaultAnswer(delayed));
+
+        var caseIds = new AtomicLong();
+        doAnswer(invocation -> {
+            TimeUnit.MILLISECONDS.sleep(CCD_LATENCY_MILLIS);
+            List<String> references = invocation.getArgument(2);
+            List<SubmitEvent> submitEvents = new ArrayList<>();
+            for (String reference : references) {
+                CaseData caseData = new CaseData();
+                caseData.setEthosCaseReference(reference);
+                SubmitEvent submitEvent = new SubmitEvent();
+                submitEvent.setCaseId(caseIds.incrementAndGet());
+                submitEvent.setCaseData(caseData);
+                submitEvents.add(submitEvent);
+            }
+            return submitEvents;
+        }).when(ccdClient).retrieveCasesElasticSearch(anyString(), anyString(), any());
+        return ccdClient;
+    }
+
+    private static List<UpdateCaseMsg> createMessages() {
+        List<UpdateCaseMsg> msgs = new ArrayList<>();
+        for (int caseNumber = 0; caseNumber < CASES; caseNumber++) {
+            UpdateCaseMsg msg = Helper.generateUpdateCaseMsg();
+            msg.setMsgId("4150002-" + caseNumber);
+            msg.setEthosCaseReference((4_100_000 + caseNumber) + "/2020");
+            msg.setTotalCases(String.valueOf(Integer.MAX_VALUE));
+            msgs.add(msg);
+        }
+        return msgs;
+    }
+}
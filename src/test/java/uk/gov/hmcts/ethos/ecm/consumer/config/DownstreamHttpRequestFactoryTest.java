@@ -0,0 +1,49 @@
+package uk.gov.hmcts.ethos.ecm.consumer.config;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.HttpClients;
+import org.junit.Before;
+import org.junit.Test;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.config.DownstreamHttpRequestFactory;
+
+import java.net.URI;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+public class DownstreamHttpRequestFactoryTest {
+
+    private transient RequestConfig ccdConfig;
+    private transient RequestConfig defaultConfig;
+    private transient DownstreamHttpRequestFactory requestFactory;
+
+    @Before
+    public void setUp() {
+        ccdConfig = RequestConfig.custom().setSocketTimeout(30_000).build();
+        defaultConfig = RequestConfig.custom().setSocketTimeout(10_000).build();
+        requestFactory = new DownstreamHttpRequestFactory(
+            HttpClients.createMinimal(),
+            Map.of(DownstreamHttpRequestFactory.authority(URI.create("http://ccd-data-store-api:4452")), ccdConfig),
+            defaultConfig);
+    }
+
+    @Test
+    public void usesConfigOfMatchingDownstream() {
+        assertEquals(ccdConfig, requestFactory.requestConfigFor(
+            URI.create("http://CCD-data-store-api:4452/caseworkers/1/jurisdictions/EMPLOYMENT/cases/2")));
+    }
+
+    @Test
+    public void usesDefaultConfigForOtherHosts() {
+        assertEquals(defaultConfig, requestFactory.requestConfigFor(URI.create("http://sidam-api:5000/o/token")));
+        assertEquals(defaultConfig, requestFactory.requestConfigFor(URI.create("http://ccd-data-store-api/cases")));
+    }
+
+    @Test
+    public void resolvesDefaultPorts() {
+        assertEquals("idam-api.platform.hmcts.net:443",
+                     DownstreamHttpRequestFactory.authority(URI.create("https://idam-api.platform.hmcts.net/o/token")));
+        assertEquals("ccd-data-store-api:80",
+                     DownstreamHttpRequestFactory.authority(URI.create("http://ccd-data-store-api/cases")));
+    }
+}
@@ -1,14 +1,25 @@
 package uk.gov.hmcts.ethos.ecm.consumer.helpers;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import uk.gov.hmcts.ecm.common.model.servicebus.CreateUpdatesMsg;
 import uk.gov.hmcts.ecm.common.model.servicebus.UpdateCaseMsg;
 import uk.gov.hmcts.ecm.common.model.servicebus.datamodel.CloseDataModel;
 import uk.gov.hmcts.ecm.common.model.servicebus.datamodel.CreationDataModel;
 import uk.gov.hmcts.ecm.common.model.servicebus.datamodel.CreationSingleDataModel;
 import uk.gov.hmcts.ecm.common.model.servicebus.datamodel.PreAcceptDataModel;
-
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.CcdCallExecutor;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.CcdConcurrencyLimiter;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.CircuitBreaker;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.servicebus.KeyedSerialExecutor;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.servicebus.UpdateCaseLane;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.servicebus.UpdateCaseLanes;
+
+import java.time.Duration;
 import java.util.Arrays;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
 
 import static uk.gov.hmcts.ecm.common.model.helper.Constants.NO;
@@ -119,4 +130,33 @@ public class Helper {
             }
         });
     }
+
+    /**
+     * Returns a CCD call executor that makes every call once, with no concurrency limit or circuit breaking in
+     * practice.
+     */
+    public static CcdCallExecutor ccdCallExecutor() {
+        return ccdCallExecutor(new SimpleMeterRegistry());
+    }
+
+    public static CcdCallExecutor ccdCallExecutor(MeterRegistry registry) {
+        return new CcdCallExecutor(
+            registry, new CcdConcurrencyLimiter(registry, 1000, 1, 1000, 60_000, 0.9, 0),
+            new CircuitBreaker("ccd", registry, Integer.MAX_VALUE, Duration.ZERO, error -> false), 1, 0, 0, 0);
+    }
+
+    public static UpdateCaseLanes updateCaseLanes(Executor executor) {
+        return updateCaseLanes(executor, Integer.MAX_VALUE);
+    }
+
+    public static UpdateCaseLanes updateCaseLanes(Executor executor, int maxHeldByMultiples) {
+        var registry = new SimpleMeterRegistry();
+        return new UpdateCaseLanes(
+            new KeyedSerialExecutor(executor),
+            new UpdateCaseLane("single", executor, Integer.MAX_VALUE, Map.of(), registry),
+            new UpdateCaseLane("bulk", executor, Integer.MAX_VALUE, Map.of(), registry),
+            new UpdateCaseLane("large", executor, Integer.MAX_VALUE, Map.of(), registry),
+            Integer.MAX_VALUE,
+            maxHeldByMultiples);
+    }
 }
@@ -0,0 +1,137 @@
+package uk.gov.hmcts.ethos.ecm.consumer.service;
+
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.PlainJWT;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.AccessTokenCache;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.AccessTokenService;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.CcdCallExecutor;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.CircuitBreaker;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static uk.gov.hmcts.reform.ethos.ecm.consumer.service.AccessTokenService.BEARER_AUTH_TYPE;
+
+@RunWith(MockitoJUnitRunner.class)
+public class AccessTokenCacheTest {
+
+    private static final String USERNAME = "example@gmail.com";
+    private static final String PASSWORD = "123456";
+
+    @Mock
+    private transient AccessTokenService accessTokenService;
+
+    private transient SimpleMeterRegistry meterRegistry;
+    private transient AccessTokenCache accessTokenCache;
+
+    @Before
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        accessTokenCache = new AccessTokenCache(accessTokenService, circuitBreaker(), meterRegistry, 300, 0, 600);
+    }
+
+    @After
+    public void tearDown() {
+        accessTokenCache.shutdown();
+    }
+
+    @Test
+    public void cachesTokenUntilExpiry() {
+        String token = bearerToken(Duration.ofHours(8));
+        when(accessTokenService.getAccessToken(USERNAME, PASSWORD)).thenReturn(token);
+
+        assertEquals(token, accessTokenCache.getAccessToken(USERNAME, PASSWORD));
+        assertEquals(token, accessTokenCache.getAccessToken(USERNAME, PASSWORD));
+
+        verify(accessTokenService, times(1)).getAccessToken(USERNAME, PASSWORD);
+        assertEquals(1, meterRegistry.counter("idam.token.cache", "result", "hit").count(), 0);
+        assertEquals(1, meterRegistry.counter("idam.token.cache", "result", "miss").count(), 0);
+        assertEquals(1, meterRegistry.timer("idam.token.refresh").count());
+    }
+
+    @Test
+    public void cachesTokenWithoutExpiryForFallbackTtl() {
+        when(accessTokenService.getAccessToken(USERNAME, PASSWORD)).thenReturn(BEARER_AUTH_TYPE + " accessToken");
+
+        accessTokenCache.getAccessToken(USERNAME, PASSWORD);
+        accessTokenCache.getAccessToken(USERNAME, PASSWORD);
+
+        verify(accessTokenService, times(1)).getAccessToken(USERNAME, PASSWORD);
+    }
+
+    @Test
+    public void doesNotCacheEmptyToken() {
+        when(accessTokenService.getAccessToken(USERNAME, PASSWORD)).thenReturn("");
+
+        assertEquals("", accessTokenCache.getAccessToken(USERNAME, PASSWORD));
+        assertEquals("", accessTokenCache.getAccessToken(USERNAME, PASSWORD));
+
+        verify(accessTokenService, times(2)).getAccessToken(USERNAME, PASSWORD);
+    }
+
+    @Test
+    public void concurrentMissesShareOneIdamCall() throws Exception {
+        String token = bearerToken(Duration.ofHours(8));
+        when(accessTokenService.getAccessToken(USERNAME, PASSWORD)).thenAnswer(invocation -> {
+            TimeUnit.MILLISECONDS.sleep(200);
+            return token;
+        });
+
+        ExecutorService callers = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<String>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(callers.submit(() -> accessTokenCache.getAccessToken(USERNAME, PASSWORD)));
+            }
+            for (Future<String> result : results) {
+                assertEquals(token, result.get());
+            }
+        } finally {
+            callers.shutdownNow();
+        }
+
+        verify(accessTokenService, times(1)).getAccessToken(USERNAME, PASSWORD);
+    }
+
+    @Test
+    public void refreshesInBackgroundBeforeExpiry() {
+        accessTokenCache.shutdown();
+        accessTokenCache = new AccessTokenCache(accessTokenService, circuitBreaker(), meterRegistry, 59, 0, 600);
+        when(accessTokenService.getAccessToken(USERNAME, PASSWORD)).thenReturn(bearerToken(Duration.ofSeconds(60)));
+
+        accessTokenCache.getAccessToken(USERNAME, PASSWORD);
+
+        verify(accessTokenService, timeout(5000).times(2)).getAccessToken(USERNAME, PASSWORD);
+    }
+
+    private static String bearerToken(Duration lifetime) {
+        JWTClaimsSet claims = new JWTClaimsSet.Builder()
+            .subject(USERNAME)
+            .expirationTime(Date.from(Instant.now().plus(lifetime)))
+            .build();
+        return BEARER_AUTH_TYPE + " " + new PlainJWT(claims).serialize();
+    }
+
+    private CircuitBreaker circuitBreaker() {
+        return new CircuitBreaker("idam", meterRegistry, 3, Duration.ofSeconds(30), CcdCallExecutor::isTransient);
+    }
+}
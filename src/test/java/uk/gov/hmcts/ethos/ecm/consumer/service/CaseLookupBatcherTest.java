@@ -0,0 +1,168 @@
+package uk.gov.hmcts.ethos.ecm.consumer.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.hmcts.ecm.common.client.CcdClient;
+import uk.gov.hmcts.ecm.common.model.ccd.CaseData;
+import uk.gov.hmcts.ecm.common.model.ccd.SubmitEvent;
+import uk.gov.hmcts.ethos.ecm.consumer.helpers.Helper;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.CaseLookupBatcher;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.CcdCallExecutor;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CaseLookupBatcherTest {
+
+    private static final String TOKEN = "accessToken";
+    private static final String MANCHESTER = "Manchester";
+    private static final String LEEDS = "Leeds";
+
+    @Mock
+    private transient CcdClient ccdClient;
+
+    private transient SimpleMeterRegistry meterRegistry;
+    private transient CcdCallExecutor ccdCallExecutor;
+    private transient CaseLookupBatcher caseLookupBatcher;
+
+    @Before
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        ccdCallExecutor = Helper.ccdCallExecutor(meterRegistry);
+        caseLookupBatcher = new CaseLookupBatcher(ccdClient, ccdCallExecutor, meterRegistry, 200, 3, 2);
+    }
+
+    @After
+    public void tearDown() {
+        caseLookupBatcher.shutdown();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void searchesConcurrentLookupsTogether() throws Exception {
+        when(ccdClient.retrieveCasesElasticSearch(eq(TOKEN), eq(MANCHESTER), anyList()))
+            .thenReturn(Arrays.asList(submitEvent(1, "4150001/2020"), submitEvent(2, "4150002/2020")));
+
+        Future<List<SubmitEvent>> first = lookup(MANCHESTER, "4150001/2020");
+        Future<List<SubmitEvent>> second = lookup(MANCHESTER, "4150002/2020");
+
+        assertEquals(1, first.get().get(0).getCaseId());
+        assertEquals(2, second.get().get(0).getCaseId());
+        ArgumentCaptor<List<String>> references = ArgumentCaptor.forClass(List.class);
+        verify(ccdClient, times(1)).retrieveCasesElasticSearch(eq(TOKEN), eq(MANCHESTER), references.capture());
+        assertEquals(new HashSet<>(Arrays.asList("4150001/2020", "4150002/2020")),
+                     new HashSet<>(references.getValue()));
+    }
+
+    @Test
+    public void makesOneCcdCallPerBatch() throws Exception {
+        when(ccdClient.retrieveCasesElasticSearch(eq(TOKEN), eq(MANCHESTER), anyList()))
+            .thenReturn(Arrays.asList(submitEvent(1, "4150001/2020"), submitEvent(2, "4150002/2020")));
+
+        Future<List<SubmitEvent>> first = lookup(MANCHESTER, "4150001/2020");
+        Future<List<SubmitEvent>> second = lookup(MANCHESTER, "4150002/2020");
+        first.get();
+        second.get();
+
+        assertEquals(1, meterRegistry.get("ccd.call.attempts").tag("step", "lookup-batch").summary().count());
+    }
+
+    @Test
+    public void searchesFullBatchWithoutWaitingForWindow() throws Exception {
+        caseLookupBatcher.shutdown();
+        caseLookupBatcher = new CaseLookupBatcher(ccdClient, ccdCallExecutor, meterRegistry, 60_000, 2, 2);
+        when(ccdClient.retrieveCasesElasticSearch(eq(TOKEN), eq(MANCHESTER), anyList()))
+            .thenReturn(Arrays.asList(submitEvent(1, "4150001/2020"), submitEvent(2, "4150002/2020")));
+
+        Future<List<SubmitEvent>> first = lookup(MANCHESTER, "4150001/2020");
+        Future<List<SubmitEvent>> second = lookup(MANCHESTER, "4150002/2020");
+
+        assertEquals(1, first.get().size());
+        assertEquals(1, second.get().size());
+    }
+
+    @Test
+    public void returnsLookupBeforeItsBatchIsSearched() throws Exception {
+        caseLookupBatcher.shutdown();
+        caseLookupBatcher = new CaseLookupBatcher(ccdClient, ccdCallExecutor, meterRegistry, 60_000, 2, 2);
+        when(ccdClient.retrieveCasesElasticSearch(eq(TOKEN), eq(MANCHESTER), anyList()))
+            .thenReturn(Arrays.asList(submitEvent(1, "4150001/2020"), submitEvent(2, "4150002/2020")));
+
+        Future<List<SubmitEvent>> first = lookup(MANCHESTER, "4150001/2020");
+
+        assertFalse(first.isDone());
+        Future<List<SubmitEvent>> second = lookup(MANCHESTER, "4150002/2020");
+        assertEquals(1, first.get().get(0).getCaseId());
+        assertEquals(2, second.get().get(0).getCaseId());
+    }
+
+    @Test
+    public void searchesEachCaseTypeSeparately() throws Exception {
+        when(ccdClient.retrieveCasesElasticSearch(eq(TOKEN), eq(MANCHESTER), anyList()))
+            .thenReturn(Arrays.asList(submitEvent(1, "2400001/2020")));
+        when(ccdClient.retrieveCasesElasticSearch(eq(TOKEN), eq(LEEDS), anyList()))
+            .thenReturn(new ArrayList<>());
+
+        Future<List<SubmitEvent>> manchester = lookup(MANCHESTER, "2400001/2020");
+        Future<List<SubmitEvent>> leeds = lookup(LEEDS, "2400001/2020");
+
+        assertEquals(1, manchester.get().size());
+        assertTrue(leeds.get().isEmpty());
+        verify(ccdClient, times(1)).retrieveCasesElasticSearch(eq(TOKEN), eq(MANCHESTER), anyList());
+        verify(ccdClient, times(1)).retrieveCasesElasticSearch(eq(TOKEN), eq(LEEDS), anyList());
+    }
+
+    @Test
+    public void failsEveryLookupInFailedBatch() throws Exception {
+        when(ccdClient.retrieveCasesElasticSearch(eq(TOKEN), eq(MANCHESTER), anyList()))
+            .thenThrow(new IOException("Elasticsearch unavailable"));
+
+        Future<List<SubmitEvent>> first = lookup(MANCHESTER, "4150001/2020");
+        Future<List<SubmitEvent>> second = lookup(MANCHESTER, "4150002/2020");
+
+        for (Future<List<SubmitEvent>> future : Arrays.asList(first, second)) {
+            try {
+                future.get();
+                fail("Expected lookup to fail");
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof IOException);
+            }
+        }
+    }
+
+    private Future<List<SubmitEvent>> lookup(String caseTypeId, String ethosCaseReference) {
+        return caseLookupBatcher.retrieveCaseAsync(TOKEN, caseTypeId, ethosCaseReference,
+                                                   ccdCallExecutor.newBudget(false));
+    }
+
+    private static SubmitEvent submitEvent(long caseId, String ethosCaseReference) {
+        SubmitEvent submitEvent = new SubmitEvent();
+        submitEvent.setCaseId(caseId);
+        CaseData caseData = new CaseData();
+        caseData.setEthosCaseReference(ethosCaseReference);
+        submitEvent.setCaseData(caseData);
+        return submitEvent;
+    }
+}
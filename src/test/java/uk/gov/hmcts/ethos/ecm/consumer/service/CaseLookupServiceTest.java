@@ -0,0 +1,158 @@
+package uk.gov.hmcts.ethos.ecm.consumer.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import uk.gov.hmcts.ecm.common.client.CcdClient;
+import uk.gov.hmcts.ecm.common.model.ccd.CaseData;
+import uk.gov.hmcts.ecm.common.model.ccd.SubmitEvent;
+import uk.gov.hmcts.ethos.ecm.consumer.helpers.Helper;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.CaseLookupBatcher;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.CaseLookupService;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.CcdCallExecutor.Budget;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class CaseLookupServiceTest {
+
+    private static final String CASE_TYPE_ID = "Manchester";
+    private static final String JURISDICTION = "EMPLOYMENT";
+    private static final String ETHOS_CASE_REFERENCE = "4150002/2020";
+    private static final String TOKEN = "accessToken";
+
+    @Mock
+    private transient CcdClient ccdClient;
+
+    private transient SimpleMeterRegistry meterRegistry;
+    private transient CaseLookupService caseLookupService;
+    private transient Budget budget;
+    private transient SubmitEvent submitEvent;
+
+    @Before
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        var ccdCallExecutor = Helper.ccdCallExecutor();
+        var caseLookupBatcher = new CaseLookupBatcher(ccdClient, ccdCallExecutor, meterRegistry, 0, 1, 1);
+        caseLookupService = new CaseLookupService(ccdClient, caseLookupBatcher, ccdCallExecutor, meterRegistry,
+                                                  1_000_000, 60);
+        budget = ccdCallExecutor.newBudget(false);
+        submitEvent = generateSubmitEvent(ETHOS_CASE_REFERENCE);
+    }
+
+    @Test
+    public void searchesOnceThenRetrievesById() throws Exception {
+        when(ccdClient.retrieveCasesElasticSearch(eq(TOKEN), eq(CASE_TYPE_ID), anyList()))
+            .thenReturn(new ArrayList<>(Collections.singletonList(submitEvent)));
+        when(ccdClient.retrieveCase(TOKEN, CASE_TYPE_ID, JURISDICTION, "1234")).thenReturn(submitEvent);
+
+        retrieveCase();
+        List<SubmitEvent> submitEvents = retrieveCase();
+
+        assertEquals(submitEvent, submitEvents.get(0));
+        verify(ccdClient, times(1)).retrieveCasesElasticSearch(eq(TOKEN), eq(CASE_TYPE_ID), anyList());
+        verify(ccdClient, times(1)).retrieveCase(TOKEN, CASE_TYPE_ID, JURISDICTION, "1234");
+        assertEquals(1, meterRegistry.get("cache.gets").tag("result", "hit").functionCounter().count(), 0);
+        assertTrue(meterRegistry.get("ccd.case-ids.weighted.bytes").gauge().value() > 0);
+    }
+
+    @Test
+    public void searchesAgainWhenCachedCaseNoLongerMatches() throws Exception {
+        when(ccdClient.retrieveCasesElasticSearch(eq(TOKEN), eq(CASE_TYPE_ID), anyList()))
+            .thenReturn(new ArrayList<>(Collections.singletonList(submitEvent)));
+        when(ccdClient.retrieveCase(TOKEN, CASE_TYPE_ID, JURISDICTION, "1234"))
+            .thenReturn(generateSubmitEvent("4150003/2020"));
+
+        retrieveCase();
+        List<SubmitEvent> submitEvents = retrieveCase();
+
+        assertEquals(submitEvent, submitEvents.get(0));
+        verify(ccdClient, times(2)).retrieveCasesElasticSearch(eq(TOKEN), eq(CASE_TYPE_ID), anyList());
+    }
+
+    @Test
+    public void searchesAgainWhenCachedCaseNotFound() throws Exception {
+        when(ccdClient.retrieveCasesElasticSearch(eq(TOKEN), eq(CASE_TYPE_ID), anyList()))
+            .thenReturn(new ArrayList<>(Collections.singletonList(submitEvent)));
+        when(ccdClient.retrieveCase(TOKEN, CASE_TYPE_ID, JURISDICTION, "1234"))
+            .thenThrow(HttpClientErrorException.create(HttpStatus.NOT_FOUND, "Not Found", null, null, null));
+
+        retrieveCase();
+        List<SubmitEvent> submitEvents = retrieveCase();
+
+        assertEquals(submitEvent, submitEvents.get(0));
+        verify(ccdClient, times(2)).retrieveCasesElasticSearch(eq(TOKEN), eq(CASE_TYPE_ID), anyList());
+    }
+
+    @Test
+    public void throwsServerErrorOfCachedCase() throws Exception {
+        when(ccdClient.retrieveCasesElasticSearch(eq(TOKEN), eq(CASE_TYPE_ID), anyList()))
+            .thenReturn(new ArrayList<>(Collections.singletonList(submitEvent)));
+        when(ccdClient.retrieveCase(TOKEN, CASE_TYPE_ID, JURISDICTION, "1234"))
+            .thenThrow(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+
+        retrieveCase();
+
+        ExecutionException e = assertThrows(ExecutionException.class, this::retrieveCase);
+        assertTrue(e.getCause() instanceof HttpServerErrorException);
+        verify(ccdClient, times(1)).retrieveCasesElasticSearch(eq(TOKEN), eq(CASE_TYPE_ID), anyList());
+    }
+
+    @Test
+    public void searchesAgainAfterInvalidate() throws Exception {
+        when(ccdClient.retrieveCasesElasticSearch(eq(TOKEN), eq(CASE_TYPE_ID), anyList()))
+            .thenReturn(new ArrayList<>(Collections.singletonList(submitEvent)));
+
+        retrieveCase();
+        caseLookupService.invalidate(CASE_TYPE_ID, ETHOS_CASE_REFERENCE);
+        retrieveCase();
+
+        verify(ccdClient, times(2)).retrieveCasesElasticSearch(eq(TOKEN), eq(CASE_TYPE_ID), anyList());
+        verify(ccdClient, never()).retrieveCase(anyString(), anyString(), anyString(), anyString());
+    }
+
+    @Test
+    public void doesNotCacheMissingCase() throws Exception {
+        when(ccdClient.retrieveCasesElasticSearch(eq(TOKEN), eq(CASE_TYPE_ID), anyList()))
+            .thenReturn(new ArrayList<>());
+
+        retrieveCase();
+        retrieveCase();
+
+        verify(ccdClient, times(2)).retrieveCasesElasticSearch(eq(TOKEN), eq(CASE_TYPE_ID), anyList());
+    }
+
+    private List<SubmitEvent> retrieveCase() throws Exception {
+        return caseLookupService.retrieveCaseAsync(TOKEN, CASE_TYPE_ID, JURISDICTION, ETHOS_CASE_REFERENCE, budget)
+            .get();
+    }
+
+    private static SubmitEvent generateSubmitEvent(String ethosCaseReference) {
+        SubmitEvent event = new SubmitEvent();
+        event.setCaseId(1234);
+        CaseData caseData = new CaseData();
+        caseData.setEthosCaseReference(ethosCaseReference);
+        event.setCaseData(caseData);
+        return event;
+    }
+}
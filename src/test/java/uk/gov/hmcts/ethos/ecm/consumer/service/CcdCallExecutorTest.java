@@ -0,0 +1,157 @@
+package uk.gov.hmcts.ethos.ecm.consumer.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.CcdCallExecutor;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.CcdConcurrencyLimiter;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.CircuitBreaker;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CcdCallExecutorTest {
+
+    private transient SimpleMeterRegistry meterRegistry;
+    private transient CcdCallExecutor ccdCallExecutor;
+
+    @Before
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        ccdCallExecutor = new CcdCallExecutor(meterRegistry, limiter(), circuitBreaker(), 3, 1, 5, 10_000);
+    }
+
+    @Test
+    public void retriesTransientErrorUntilSuccess() throws IOException {
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = ccdCallExecutor.call("submit-update", ccdCallExecutor.newBudget(false), () -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE);
+            }
+            return "submitted";
+        });
+
+        assertEquals("submitted", result);
+        assertEquals(3, attempts.get());
+        assertEquals(2.0, meterRegistry.get("ccd.call.retries").tag("reason", "503").counter().count(), 0);
+        assertEquals(3.0, meterRegistry.get("ccd.call.attempts").tag("outcome", "success").summary().totalAmount(),
+                     0);
+    }
+
+    @Test
+    public void doesNotRetryClientError() throws IOException {
+        AtomicInteger attempts = new AtomicInteger();
+
+        try {
+            ccdCallExecutor.call("start-update", ccdCallExecutor.newBudget(false), () -> {
+                attempts.incrementAndGet();
+                throw new HttpClientErrorException(HttpStatus.CONFLICT);
+            });
+            fail("Expected the call to fail");
+        } catch (HttpClientErrorException e) {
+            assertEquals(1, attempts.get());
+        }
+    }
+
+    @Test
+    public void doesNotRetrySubmitAfterReadTimeout() throws IOException {
+        AtomicInteger attempts = new AtomicInteger();
+
+        try {
+            ccdCallExecutor.submit("submit-update", ccdCallExecutor.newBudget(false), () -> {
+                attempts.incrementAndGet();
+                throw new ResourceAccessException("Read timed out", new SocketTimeoutException("Read timed out"));
+            });
+            fail("Expected the call to fail");
+        } catch (ResourceAccessException e) {
+            assertEquals(1, attempts.get());
+        }
+    }
+
+    @Test
+    public void doesNotRetrySubmitAfterGatewayTimeout() throws IOException {
+        AtomicInteger attempts = new AtomicInteger();
+
+        try {
+            ccdCallExecutor.submit("submit-creation", ccdCallExecutor.newBudget(false), () -> {
+                attempts.incrementAndGet();
+                throw new HttpServerErrorException(HttpStatus.GATEWAY_TIMEOUT);
+            });
+            fail("Expected the call to fail");
+        } catch (HttpServerErrorException e) {
+            assertEquals(1, attempts.get());
+        }
+    }
+
+    @Test
+    public void retriesSubmitThatNeverReachedCcd() throws IOException {
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = ccdCallExecutor.submit("submit-transfer", ccdCallExecutor.newBudget(false), () -> {
+            int attempt = attempts.incrementAndGet();
+            if (attempt == 1) {
+                throw new ResourceAccessException("Connection refused", new ConnectException("Connection refused"));
+            }
+            if (attempt == 2) {
+                throw new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE);
+            }
+            return "submitted";
+        });
+
+        assertEquals("submitted", result);
+        assertEquals(3, attempts.get());
+    }
+
+    @Test(expected = ResourceAccessException.class)
+    public void failsAfterMaxAttempts() throws IOException {
+        ccdCallExecutor.call("lookup", ccdCallExecutor.newBudget(false), () -> {
+            throw new ResourceAccessException("Connection reset", new SocketException("Connection reset"));
+        });
+    }
+
+    @Test
+    public void stopsRetryingWhenBudgetIsExhausted() throws IOException {
+        CcdCallExecutor noBudget = new CcdCallExecutor(meterRegistry, limiter(), circuitBreaker(), 10, 1, 5, 0);
+        AtomicInteger attempts = new AtomicInteger();
+
+        try {
+            noBudget.call("lookup", noBudget.newBudget(false), () -> {
+                attempts.incrementAndGet();
+                throw new HttpServerErrorException(HttpStatus.BAD_GATEWAY);
+            });
+            fail("Expected the call to fail");
+        } catch (HttpServerErrorException e) {
+            assertEquals(1, attempts.get());
+        }
+    }
+
+    @Test
+    public void classifiesTransientErrors() {
+        assertTrue(CcdCallExecutor.isTransient(new HttpServerErrorException(HttpStatus.GATEWAY_TIMEOUT)));
+        assertTrue(CcdCallExecutor.isTransient(new IOException(new SocketException("Connection reset"))));
+        assertFalse(CcdCallExecutor.isTransient(new HttpServerErrorException(HttpStatus.INTERNAL_SERVER_ERROR)));
+        assertFalse(CcdCallExecutor.isTransient(new IOException("Invalid case data")));
+    }
+
+    private CircuitBreaker circuitBreaker() {
+        return new CircuitBreaker("ccd", meterRegistry, 10, Duration.ofSeconds(30), CcdCallExecutor::isTransient);
+    }
+
+    private CcdConcurrencyLimiter limiter() {
+        return new CcdConcurrencyLimiter(meterRegistry, 10, 1, 10, 60_000, 0.9, 0);
+    }
+}
@@ -0,0 +1,200 @@
+package uk.gov.hmcts.ethos.ecm.consumer.service;
+
+import com.microsoft.azure.servicebus.IMessage;
+import com.microsoft.azure.servicebus.IMessageHandler;
+import com.microsoft.azure.servicebus.IMessageReceiver;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.CapacityConsumptionGate;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.CcdConcurrencyLimiter;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.servicebus.BatchMessageReceiver;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class CcdConcurrencyLimiterTest {
+
+    private transient SimpleMeterRegistry meterRegistry;
+    private transient CcdConcurrencyLimiter limiter;
+    private transient ExecutorService pool;
+
+    @Before
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        limiter = new CcdConcurrencyLimiter(meterRegistry, 2, 1, 4, 1_000, 0.5, 0);
+        pool = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void growsLimitWhenCallsSucceedUnderLoad() throws IOException {
+        limiter.call(() -> "case", false);
+
+        assertEquals(3, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+        assertEquals(3.0, meterRegistry.get("ccd.limiter.limit").gauge().value(), 0);
+    }
+
+    @Test
+    public void cutsLimitOnTransientError() {
+        try {
+            limiter.call(() -> {
+                throw new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE);
+            }, false);
+            fail("Expected the call to fail");
+        } catch (HttpServerErrorException | IOException e) {
+            assertEquals(1, limiter.getLimit());
+        }
+    }
+
+    @Test
+    public void keepsLimitOnClientError() {
+        try {
+            limiter.call(() -> {
+                throw new HttpClientErrorException(HttpStatus.NOT_FOUND);
+            }, false);
+            fail("Expected the call to fail");
+        } catch (HttpClientErrorException | IOException e) {
+            assertEquals(2, limiter.getLimit());
+        }
+    }
+
+    @Test
+    public void holdsCallsBackWhenLimitIsReached() throws Exception {
+        CountDownLatch running = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        for (int i = 0; i < 2; i++) {
+            CompletableFuture.runAsync(() -> callUntil(limiter, running, release), pool);
+        }
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        assertFalse(limiter.permitsIntake());
+
+        CompletableFuture<String> held = CompletableFuture.supplyAsync(() -> {
+            try {
+                return limiter.call(() -> "case", false);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }, pool);
+
+        TimeUnit.MILLISECONDS.sleep(100);
+        assertFalse(held.isDone());
+        assertEquals(2, limiter.getInFlight());
+        assertFalse(limiter.permitsIntake());
+
+        release.countDown();
+        assertEquals("case", held.get(5, TimeUnit.SECONDS));
+        assertTrue(limiter.permitsIntake());
+        assertEquals(1.0, meterRegistry.get("ccd.limiter.rejections").counter().count(), 0);
+    }
+
+    @Test
+    public void keepsReservedShareForPriorityCalls() throws Exception {
+        CcdConcurrencyLimiter reserving = new CcdConcurrencyLimiter(meterRegistry, 2, 1, 4, 1_000, 0.5, 0.5);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture.runAsync(() -> callUntil(reserving, running, release), pool);
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+
+        CompletableFuture<String> held = CompletableFuture.supplyAsync(() -> {
+            try {
+                return reserving.call(() -> "case", false);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        }, pool);
+
+        assertEquals("single", reserving.call(() -> "single", true));
+        TimeUnit.MILLISECONDS.sleep(100);
+        assertFalse(held.isDone());
+
+        release.countDown();
+        assertEquals("case", held.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void receivesSingleCaseWhileBulkCallsSaturateLimiter() throws Exception {
+        CcdConcurrencyLimiter reserving = new CcdConcurrencyLimiter(meterRegistry, 2, 1, 4, 1_000, 0.5, 0.5);
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture.runAsync(() -> callUntil(reserving, running, release), pool);
+        assertTrue(running.await(5, TimeUnit.SECONDS));
+        CompletableFuture<Void> heldBulk = CompletableFuture.runAsync(() -> callUntil(reserving, running, release),
+                                                                      pool);
+        TimeUnit.MILLISECONDS.sleep(100);
+        assertFalse(heldBulk.isDone());
+        assertTrue(reserving.permitsIntake());
+
+        IMessageReceiver messageReceiver = mock(IMessageReceiver.class);
+        IMessage singleCaseMessage = mock(IMessage.class);
+        when(messageReceiver.receiveBatch(anyInt(), any(Duration.class)))
+            .thenReturn(List.of(singleCaseMessage))
+            .thenAnswer(invocation -> {
+                TimeUnit.MILLISECONDS.sleep(10);
+                return Collections.emptyList();
+            });
+        IMessageHandler messageHandler = mock(IMessageHandler.class);
+        CompletableFuture<String> single = new CompletableFuture<>();
+        when(messageHandler.onMessageAsync(singleCaseMessage)).thenAnswer(invocation -> CompletableFuture.runAsync(
+            () -> {
+                try {
+                    single.complete(reserving.call(() -> "single", true));
+                } catch (IOException e) {
+                    single.completeExceptionally(e);
+                }
+            }, pool));
+        BatchMessageReceiver receiver = new BatchMessageReceiver(
+            "test-receive", messageReceiver, messageHandler, new CapacityConsumptionGate(List.of(), reserving, 10),
+            1, Duration.ofMillis(10), 2, Duration.ofMinutes(1), Duration.ofMinutes(5));
+        try {
+            receiver.start();
+
+            assertEquals("single", single.get(5, TimeUnit.SECONDS));
+            assertFalse(heldBulk.isDone());
+        } finally {
+            receiver.stop();
+            release.countDown();
+        }
+    }
+
+    private static void callUntil(CcdConcurrencyLimiter limiter, CountDownLatch running, CountDownLatch release) {
+        try {
+            limiter.call(() -> {
+                running.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return null;
+            }, false);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package uk.gov.hmcts.ethos.ecm.consumer.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.CapacityConsumptionGate;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.CcdCallExecutor;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.CcdConcurrencyLimiter;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.CircuitBreaker;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.CircuitBreaker.State;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.CircuitBreakerOpenException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CircuitBreakerTest {
+
+    private static final Duration OPEN_DURATION = Duration.ofMillis(100);
+
+    private transient SimpleMeterRegistry meterRegistry;
+    private transient CircuitBreaker circuitBreaker;
+
+    @Before
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        circuitBreaker = new CircuitBreaker("ccd", meterRegistry, 3, OPEN_DURATION, CcdCallExecutor::isTransient);
+    }
+
+    @Test
+    public void opensAfterConsecutiveFailures() {
+        failCalls(3);
+
+        assertEquals(State.OPEN, circuitBreaker.getState());
+        assertFalse(circuitBreaker.permitsIntake());
+        assertEquals(2.0, meterRegistry.get("circuit-breaker.state").tag("name", "ccd").gauge().value(), 0);
+        assertEquals(1.0, meterRegistry.get("circuit-breaker.transitions").tag("to", "OPEN").counter().count(), 0);
+    }
+
+    @Test
+    public void ignoresErrorsThatAreNotFailures() {
+        for (int i = 0; i < 5; i++) {
+            try {
+                circuitBreaker.call(() -> {
+                    throw new HttpClientErrorException(HttpStatus.NOT_FOUND);
+                });
+            } catch (HttpClientErrorException e) {
+                // Expected
+            }
+        }
+
+        assertEquals(State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test(expected = CircuitBreakerOpenException.class)
+    public void rejectsCallsWhileOpen() {
+        failCalls(3);
+
+        circuitBreaker.call(() -> "case");
+    }
+
+    @Test
+    public void closesAfterSuccessfulProbe() throws InterruptedException {
+        failCalls(3);
+        TimeUnit.MILLISECONDS.sleep(OPEN_DURATION.toMillis() + 50);
+        assertTrue(circuitBreaker.permitsIntake());
+
+        assertEquals("case", circuitBreaker.call(() -> "case"));
+
+        assertEquals(State.CLOSED, circuitBreaker.getState());
+    }
+
+    @Test
+    public void reopensAfterFailedProbe() throws InterruptedException {
+        failCalls(3);
+        TimeUnit.MILLISECONDS.sleep(OPEN_DURATION.toMillis() + 50);
+
+        failCalls(1);
+
+        assertEquals(State.OPEN, circuitBreaker.getState());
+        assertEquals(2.0, meterRegistry.get("circuit-breaker.transitions").tag("to", "OPEN").counter().count(), 0);
+    }
+
+    @Test
+    public void gateHoldsIntakeUntilProbeIsDue() throws Exception {
+        var limiter = new CcdConcurrencyLimiter(meterRegistry, 2, 1, 4, 1_000, 0.5, 0);
+        var gate = new CapacityConsumptionGate(List.of(circuitBreaker), limiter, 10);
+        failCalls(3);
+
+        CompletableFuture<Void> intake = CompletableFuture.runAsync(() -> {
+            try {
+                gate.awaitOpen();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+
+        assertFalse(intake.isDone());
+        intake.get(OPEN_DURATION.toMillis() * 10, TimeUnit.MILLISECONDS);
+    }
+
+    private void failCalls(int count) {
+        for (int i = 0; i < count; i++) {
+            try {
+                circuitBreaker.call(() -> {
+                    throw new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE);
+                });
+            } catch (HttpServerErrorException e) {
+                // Expected
+            }
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package uk.gov.hmcts.ethos.ecm.consumer.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.hmcts.ecm.common.model.servicebus.CreateUpdatesMsg;
+import uk.gov.hmcts.ecm.common.model.servicebus.UpdateCaseMsg;
+import uk.gov.hmcts.ethos.ecm.consumer.helpers.Helper;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.config.JacksonConfiguration;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.domain.ClaimCheck;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.domain.repository.ClaimCheckRepository;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.ClaimCheckService;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ClaimCheckServiceTest {
+
+    private static final int MAX_AGE_HOURS = 168;
+    private static final int GRACE_MINUTES = 1440;
+
+    @Mock
+    private transient ClaimCheckRepository claimCheckRepository;
+
+    private final transient ObjectMapper objectMapper = new JacksonConfiguration().objectMapper();
+    private transient CreateUpdatesMsg createUpdatesMsg;
+
+    @Before
+    public void setUp() {
+        createUpdatesMsg = Helper.generateCreateUpdatesMsg();
+    }
+
+    @Test
+    public void storesPayloadOnceAndResolvesFromCache() throws IOException {
+        ClaimCheckService claimCheckService = newClaimCheckService();
+
+        String claimCheckId = claimCheckService.store(createUpdatesMsg);
+        UpdateCaseMsg updateCaseMsg = slimMessage();
+        claimCheckService.resolve(claimCheckId, updateCaseMsg);
+
+        assertEquals(createUpdatesMsg.getMsgId(), claimCheckId);
+        assertEquals(createUpdatesMsg.getUsername(), updateCaseMsg.getUsername());
+        assertEquals(createUpdatesMsg.getConfirmation(), updateCaseMsg.getConfirmation());
+        assertNotNull(updateCaseMsg.getDataModelParent());
+        verify(claimCheckRepository, times(0)).findById(claimCheckId);
+    }
+
+    @Test
+    public void loadsPayloadOncePerConsumer() throws IOException {
+        ArgumentCaptor<ClaimCheck> stored = ArgumentCaptor.forClass(ClaimCheck.class);
+        String claimCheckId = newClaimCheckService().store(createUpdatesMsg);
+        verify(claimCheckRepository).save(stored.capture());
+        when(claimCheckRepository.findById(claimCheckId)).thenReturn(Optional.of(stored.getValue()));
+
+        ClaimCheckService consumer = newClaimCheckService();
+        for (int i = 0; i < 3; i++) {
+            UpdateCaseMsg updateCaseMsg = slimMessage();
+            consumer.resolve(claimCheckId, updateCaseMsg);
+            assertEquals(createUpdatesMsg.getMultipleReferenceLinkMarkUp(),
+                         updateCaseMsg.getMultipleReferenceLinkMarkUp());
+            assertEquals(createUpdatesMsg.getDataModelParent().getClass(),
+                         updateCaseMsg.getDataModelParent().getClass());
+        }
+
+        verify(claimCheckRepository, times(1)).findById(claimCheckId);
+    }
+
+    @Test(expected = IOException.class)
+    public void failsWhenPayloadMissing() throws IOException {
+        when(claimCheckRepository.findById("missing")).thenReturn(Optional.empty());
+
+        newClaimCheckService().resolve("missing", slimMessage());
+    }
+
+    @Test
+    public void storesPayloadWithMaxAge() {
+        ArgumentCaptor<ClaimCheck> stored = ArgumentCaptor.forClass(ClaimCheck.class);
+        LocalDateTime before = LocalDateTime.now();
+
+        newClaimCheckService().store(createUpdatesMsg);
+
+        verify(claimCheckRepository).save(stored.capture());
+        assertFalse(stored.getValue().getExpiresat().isBefore(before.plusHours(MAX_AGE_HOURS)));
+    }
+
+    @Test
+    public void expiresPayloadAfterGracePeriod() throws IOException {
+        ClaimCheckService claimCheckService = newClaimCheckService();
+        String claimCheckId = claimCheckService.store(createUpdatesMsg);
+
+        claimCheckService.expire(claimCheckId);
+
+        verify(claimCheckRepository).persistentQExpireClaimCheck(claimCheckId, GRACE_MINUTES);
+        UpdateCaseMsg updateCaseMsg = slimMessage();
+        claimCheckService.resolve(claimCheckId, updateCaseMsg);
+        assertEquals(createUpdatesMsg.getUsername(), updateCaseMsg.getUsername());
+    }
+
+    @Test
+    public void purgesExpiredPayloads() {
+        when(claimCheckRepository.deleteExpired()).thenReturn(2);
+
+        assertEquals(2, newClaimCheckService().purgeExpired());
+    }
+
+    private ClaimCheckService newClaimCheckService() {
+        return new ClaimCheckService(claimCheckRepository, objectMapper, new SimpleMeterRegistry(), 100, 60,
+                                     MAX_AGE_HOURS, GRACE_MINUTES);
+    }
+
+    private UpdateCaseMsg slimMessage() {
+        return UpdateCaseMsg.builder()
+            .msgId("1")
+            .multipleRef(createUpdatesMsg.getMultipleRef())
+            .ethosCaseReference("4150002/2020")
+            .totalCases(createUpdatesMsg.getTotalCases())
+            .jurisdiction(createUpdatesMsg.getJurisdiction())
+            .caseTypeId(createUpdatesMsg.getCaseTypeId())
+            .build();
+    }
+}
@@ -1,42 +1,59 @@
 package uk.gov.hmcts.ethos.ecm.consumer.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.mockito.InjectMocks;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.MockitoJUnitRunner;
 import uk.gov.hmcts.reform.ethos.ecm.consumer.config.EmailClient;
-import uk.gov.hmcts.reform.ethos.ecm.consumer.domain.MultipleErrors;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.config.JacksonConfiguration;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.domain.MultipleErrorsGroup;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.domain.PendingEmail;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.domain.repository.PendingEmailRepository;
 import uk.gov.hmcts.reform.ethos.ecm.consumer.service.EmailService;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.MultipleErrorsSummary;
+import uk.gov.service.notify.NotificationClient;
 import uk.gov.service.notify.NotificationClientException;
 
-import java.util.ArrayList;
-import java.util.Collections;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 import static uk.gov.hmcts.reform.ethos.ecm.consumer.helpers.Constants.CONFIRMATION_ERROR_EMAIL;
 import static uk.gov.hmcts.reform.ethos.ecm.consumer.helpers.Constants.CONFIRMATION_OK_EMAIL;
 import static uk.gov.hmcts.reform.ethos.ecm.consumer.helpers.Constants.UNPROCESSABLE_STATE;
+import static uk.gov.hmcts.reform.ethos.ecm.consumer.service.EmailService.ERRORS_FILE;
+import static uk.gov.hmcts.reform.ethos.ecm.consumer.service.EmailService.ERRORS_FILE_UNAVAILABLE;
 import static uk.gov.hmcts.reform.ethos.ecm.consumer.service.EmailService.MULTIPLE_ERRORS;
 import static uk.gov.hmcts.reform.ethos.ecm.consumer.service.EmailService.MULTIPLE_REFERENCE;
 
 @RunWith(MockitoJUnitRunner.class)
 public class EmailServiceTest {
 
-    @InjectMocks
+    private static final String FAN_OUT_ID = "fanOut1";
+
     private transient EmailService emailService;
     @Mock
     private transient EmailClient emailClient;
+    @Mock
+    private transient PendingEmailRepository pendingEmailRepository;
+
+    private final transient ObjectMapper objectMapper = new JacksonConfiguration().objectMapper();
 
     private transient String emailAddress;
 
@@ -46,53 +63,105 @@ public class EmailServiceTest {
     public void setUp() {
         emailAddress = "example@hmcts.net";
         multipleRef = "4150001";
+        emailService = new EmailService(emailClient, pendingEmailRepository, objectMapper);
     }
 
     @Test
-    public void sendConfirmationEmail() throws NotificationClientException {
-        emailService.sendConfirmationEmail(emailAddress, multipleRef);
-        Map<String, String> personalisation = getPersonalisation(new ArrayList<>(), multipleRef);
+    public void sendConfirmationEmail() throws NotificationClientException, IOException {
+        emailService.sendConfirmationEmail(emailAddress, multipleRef, FAN_OUT_ID);
+
+        PendingEmail pendingEmail = queuedEmail(CONFIRMATION_OK_EMAIL);
+        verifyNoMoreInteractions(emailClient);
+
+        emailService.send(pendingEmail);
+        Map<String, String> personalisation = getPersonalisation("", multipleRef);
         verify(emailClient).sendEmail(eq(CONFIRMATION_OK_EMAIL), eq(emailAddress),
-                                      eq(personalisation), isA(String.class));
+                                      eq(personalisation), eq(pendingEmail.getReferenceid()));
         verifyNoMoreInteractions(emailClient);
     }
 
-    @Test
-    public void sendConfirmationEmailException() throws NotificationClientException {
-        Map<String, String> personalisation = getPersonalisation(new ArrayList<>(), multipleRef);
+    @Test(expected = NotificationClientException.class)
+    public void sendConfirmationEmailException() throws NotificationClientException, IOException {
+        emailService.sendConfirmationEmail(emailAddress, multipleRef, FAN_OUT_ID);
+        PendingEmail pendingEmail = queuedEmail(CONFIRMATION_OK_EMAIL);
+        Map<String, String> personalisation = getPersonalisation("", multipleRef);
         when(emailClient.sendEmail(eq(CONFIRMATION_OK_EMAIL), eq(emailAddress),
                                    eq(personalisation), isA(String.class)))
             .thenThrow(new NotificationClientException("Exception"));
-        emailService.sendConfirmationEmail(emailAddress, multipleRef);
-        verify(emailClient).sendEmail(eq(CONFIRMATION_OK_EMAIL), eq(emailAddress),
+
+        emailService.send(pendingEmail);
+    }
+
+    @Test
+    public void sendConfirmationErrorEmail() throws NotificationClientException, IOException {
+        MultipleErrorsGroup multipleErrorsGroup = mock(MultipleErrorsGroup.class);
+        when(multipleErrorsGroup.getDescription()).thenReturn(UNPROCESSABLE_STATE);
+        when(multipleErrorsGroup.getTotal()).thenReturn(3L);
+        when(multipleErrorsGroup.getSampleRefs()).thenReturn("4150002/2020, 4150003/2020");
+        byte[] errorsFile = "Ethos Case Reference,Description\n4150002/2020,Unprocessable State\n"
+            .getBytes(StandardCharsets.UTF_8);
+
+        emailService.sendConfirmationErrorEmail(
+            emailAddress, new MultipleErrorsSummary(List.of(multipleErrorsGroup)), errorsFile, multipleRef, FAN_OUT_ID);
+
+        emailService.send(queuedEmail(CONFIRMATION_ERROR_EMAIL));
+        Map<String, Object> personalisation = new HashMap<>(getPersonalisation(
+            UNPROCESSABLE_STATE + ": 3 case(s), for example 4150002/2020, 4150003/2020", multipleRef));
+        personalisation.put(ERRORS_FILE, NotificationClient.prepareUpload(errorsFile, true).toMap());
+        verify(emailClient).sendEmail(eq(CONFIRMATION_ERROR_EMAIL), eq(emailAddress),
                                       eq(personalisation), isA(String.class));
         verifyNoMoreInteractions(emailClient);
     }
 
     @Test
-    public void sendConfirmationErrorEmail() throws NotificationClientException {
-        List<MultipleErrors> multipleErrorsList = generateMultipleErrorList();
-        assertEquals("4150002/2020", multipleErrorsList.get(0).getEthoscaseref());
-        assertEquals(UNPROCESSABLE_STATE, multipleErrorsList.get(0).getDescription());
-        emailService.sendConfirmationErrorEmail(emailAddress, multipleErrorsList, multipleRef);
+    public void sendConfirmationErrorEmailWithoutAttachment() throws NotificationClientException, IOException {
+        MultipleErrorsGroup multipleErrorsGroup = mock(MultipleErrorsGroup.class);
+        when(multipleErrorsGroup.getDescription()).thenReturn(UNPROCESSABLE_STATE);
+        when(multipleErrorsGroup.getTotal()).thenReturn(1L);
+        when(multipleErrorsGroup.getSampleRefs()).thenReturn("4150002/2020");
+        // Notify does not accept files over 2MB
+        byte[] errorsFile = new byte[3 * 1024 * 1024];
+
+        emailService.sendConfirmationErrorEmail(
+            emailAddress, new MultipleErrorsSummary(List.of(multipleErrorsGroup)), errorsFile, multipleRef, FAN_OUT_ID);
+
+        emailService.send(queuedEmail(CONFIRMATION_ERROR_EMAIL));
+        Map<String, Object> personalisation = new HashMap<>(getPersonalisation(
+            UNPROCESSABLE_STATE + ": 1 case(s), for example 4150002/2020", multipleRef));
+        personalisation.put(ERRORS_FILE, ERRORS_FILE_UNAVAILABLE);
         verify(emailClient).sendEmail(eq(CONFIRMATION_ERROR_EMAIL), eq(emailAddress),
-                                      eq(getPersonalisation(multipleErrorsList, multipleRef)), isA(String.class));
-        verifyNoMoreInteractions(emailClient);
+                                      eq(personalisation), isA(String.class));
+    }
+
+    @Test
+    public void queuesEmailOfRunOnce() {
+        when(pendingEmailRepository.persistentQAddPendingEmail(anyString(), anyString(), anyString(), anyString(),
+                                                               anyString())).thenReturn(1, 0);
+
+        emailService.sendConfirmationEmail(emailAddress, multipleRef, FAN_OUT_ID);
+        emailService.sendConfirmationEmail(emailAddress, multipleRef, FAN_OUT_ID);
+
+        ArgumentCaptor<String> referenceId = ArgumentCaptor.forClass(String.class);
+        verify(pendingEmailRepository, times(2)).persistentQAddPendingEmail(referenceId.capture(), anyString(),
+                                                                            anyString(), anyString(), anyString());
+        assertEquals(EmailService.referenceId(multipleRef, FAN_OUT_ID), referenceId.getAllValues().get(0));
+        assertEquals(referenceId.getAllValues().get(0), referenceId.getAllValues().get(1));
+        assertNotEquals(EmailService.referenceId(multipleRef, "fanOut2"), referenceId.getAllValues().get(0));
     }
 
-    private List<MultipleErrors> generateMultipleErrorList() {
-        MultipleErrors multipleErrors = new MultipleErrors();
-        multipleErrors.setEthoscaseref("4150002/2020");
-        multipleErrors.setMultipleref(multipleRef);
-        multipleErrors.setDescription(UNPROCESSABLE_STATE);
-        return new ArrayList<>(Collections.singletonList(multipleErrors));
+    private PendingEmail queuedEmail(String templateId) {
+        ArgumentCaptor<String> referenceId = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<String> personalisation = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<String> description = ArgumentCaptor.forClass(String.class);
+        verify(pendingEmailRepository).persistentQAddPendingEmail(referenceId.capture(), eq(templateId),
+                                                                  eq(emailAddress), personalisation.capture(),
+                                                                  description.capture());
+        return new PendingEmail(referenceId.getValue(), templateId, emailAddress, personalisation.getValue(),
+                                description.getValue(), 1, LocalDateTime.now(), LocalDateTime.now());
     }
 
-    private Map<String, String> getPersonalisation(List<MultipleErrors> multipleErrorsList, String multipleRef) {
+    private Map<String, String> getPersonalisation(String errors, String multipleRef) {
         Map<String, String> personalisation = new HashMap<>();
-        String errors = multipleErrorsList.stream()
-            .map(MultipleErrors::toString)
-            .collect(Collectors.joining(", "));
         personalisation.put(MULTIPLE_ERRORS, errors);
         personalisation.put(MULTIPLE_REFERENCE, multipleRef);
         return personalisation;
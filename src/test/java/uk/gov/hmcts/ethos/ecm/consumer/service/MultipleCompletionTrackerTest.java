@@ -0,0 +1,79 @@
+package uk.gov.hmcts.ethos.ecm.consumer.service;
+
+import org.junit.Before;
+import org.junit.Test;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.domain.repository.MultipleCounterRepository;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.model.servicebus.FanOutPosition;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.MultipleCompletionTracker;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class MultipleCompletionTrackerTest {
+
+    private static final String MULTIPLE_REF = "4150001";
+    private static final FanOutPosition FAN_OUT_POSITION = new FanOutPosition("fanOut1", 7);
+
+    private transient MultipleCounterRepository multipleCounterRepository;
+    private transient MultipleCompletionTracker multipleCompletionTracker;
+
+    @Before
+    public void setUp() {
+        multipleCounterRepository = mock(MultipleCounterRepository.class);
+        multipleCompletionTracker = new MultipleCompletionTracker(multipleCounterRepository, true);
+    }
+
+    @Test
+    public void tracksCasesWithFanOutPosition() {
+        assertTrue(multipleCompletionTracker.canTrack(FAN_OUT_POSITION));
+        assertFalse(multipleCompletionTracker.canTrack(null));
+        assertFalse(new MultipleCompletionTracker(multipleCounterRepository, false).canTrack(FAN_OUT_POSITION));
+    }
+
+    @Test
+    public void readsFanOutPositionFromProperties() {
+        FanOutPosition fanOutPosition = FanOutPosition.fromProperties(
+            Map.of(FanOutPosition.FAN_OUT_ID, "fanOut1", FanOutPosition.CASE_INDEX, 7));
+
+        assertEquals("fanOut1", fanOutPosition.fanOutId);
+        assertEquals(7, fanOutPosition.caseIndex);
+        assertNull(FanOutPosition.fromProperties(Map.of(FanOutPosition.CASE_INDEX, 7)));
+        assertNull(FanOutPosition.fromProperties(null));
+    }
+
+    @Test
+    public void marksCaseOfFanOut() {
+        when(multipleCounterRepository.persistentQMarkMultipleCaseCompleted(MULTIPLE_REF, "fanOut1", 7))
+            .thenReturn(true);
+
+        assertTrue(multipleCompletionTracker.markCompleted(MULTIPLE_REF, FAN_OUT_POSITION));
+    }
+
+    @Test
+    public void returnsFalseForCaseAlreadyMarked() {
+        assertFalse(multipleCompletionTracker.markCompleted(MULTIPLE_REF, FAN_OUT_POSITION));
+    }
+
+    @Test
+    public void claimsFinishOfMultiple() {
+        when(multipleCounterRepository.persistentQClaimMultipleCompletionFinish(MULTIPLE_REF, 10)).thenReturn(true);
+
+        assertTrue(multipleCompletionTracker.claimFinish(MULTIPLE_REF, 10));
+        assertFalse(multipleCompletionTracker.claimFinish(MULTIPLE_REF, 11));
+    }
+
+    @Test
+    public void deletesCompletionAndClaimOfMultiple() {
+        multipleCompletionTracker.delete(MULTIPLE_REF);
+
+        verify(multipleCounterRepository).deleteCompletionByMultipleRef(MULTIPLE_REF);
+        verify(multipleCounterRepository).deleteFinishClaimByMultipleRef(MULTIPLE_REF);
+    }
+}
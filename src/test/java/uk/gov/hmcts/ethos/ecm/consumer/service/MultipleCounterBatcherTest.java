@@ -0,0 +1,103 @@
+package uk.gov.hmcts.ethos.ecm.consumer.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.domain.repository.MultipleCounterRepository;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.MultipleCounterBatcher;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+public class MultipleCounterBatcherTest {
+
+    private static final String MULTIPLE_REF = "4150001";
+    private static final String OTHER_MULTIPLE_REF = "4150002";
+
+    private transient MultipleCounterRepository multipleCounterRepository;
+    private transient SimpleMeterRegistry meterRegistry;
+    private transient MultipleCounterBatcher multipleCounterBatcher;
+
+    @Before
+    public void setUp() {
+        multipleCounterRepository = mock(MultipleCounterRepository.class);
+        meterRegistry = new SimpleMeterRegistry();
+        multipleCounterBatcher = new MultipleCounterBatcher(multipleCounterRepository, meterRegistry, true, 60_000);
+    }
+
+    @After
+    public void tearDown() {
+        multipleCounterBatcher.shutdown();
+    }
+
+    @Test
+    public void addsBatchInOneIncrement() throws Exception {
+        when(multipleCounterRepository.persistentQAddMultipleCount(MULTIPLE_REF, 3)).thenReturn(10);
+        when(multipleCounterRepository.persistentQAddMultipleCount(OTHER_MULTIPLE_REF, 1)).thenReturn(1);
+
+        CompletableFuture<Integer> first = multipleCounterBatcher.nextCountAsync(MULTIPLE_REF);
+        CompletableFuture<Integer> second = multipleCounterBatcher.nextCountAsync(MULTIPLE_REF);
+        CompletableFuture<Integer> other = multipleCounterBatcher.nextCountAsync(OTHER_MULTIPLE_REF);
+        CompletableFuture<Integer> third = multipleCounterBatcher.nextCountAsync(MULTIPLE_REF);
+        assertFalse(first.isDone());
+
+        multipleCounterBatcher.flush();
+
+        assertEquals(Integer.valueOf(8), first.get());
+        assertEquals(Integer.valueOf(9), second.get());
+        assertEquals(Integer.valueOf(10), third.get());
+        assertEquals(Integer.valueOf(1), other.get());
+        verify(multipleCounterRepository).persistentQAddMultipleCount(MULTIPLE_REF, 3);
+        verify(multipleCounterRepository).persistentQAddMultipleCount(OTHER_MULTIPLE_REF, 1);
+        verifyNoMoreInteractions(multipleCounterRepository);
+        assertEquals(4.0, meterRegistry.get("multiple-counter.batch-size").summary().totalAmount(), 0.0);
+    }
+
+    @Test
+    public void flushesAfterWindow() throws Exception {
+        multipleCounterBatcher = new MultipleCounterBatcher(multipleCounterRepository, meterRegistry, true, 10);
+        when(multipleCounterRepository.persistentQAddMultipleCount(MULTIPLE_REF, 1)).thenReturn(1);
+
+        assertEquals(Integer.valueOf(1), multipleCounterBatcher.nextCountAsync(MULTIPLE_REF).get(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void failsAllCasesOfFailedIncrement() {
+        when(multipleCounterRepository.persistentQAddMultipleCount(anyString(), anyInt()))
+            .thenThrow(new DataAccessResourceFailureException("Database unavailable"));
+
+        CompletableFuture<Integer> first = multipleCounterBatcher.nextCountAsync(MULTIPLE_REF);
+        CompletableFuture<Integer> second = multipleCounterBatcher.nextCountAsync(MULTIPLE_REF);
+        multipleCounterBatcher.flush();
+
+        for (CompletableFuture<Integer> result : List.of(first, second)) {
+            ExecutionException exception = assertThrows(ExecutionException.class, result::get);
+            assertTrue(exception.getCause() instanceof DataAccessResourceFailureException);
+        }
+    }
+
+    @Test
+    public void countsEachCaseWhenDisabled() {
+        multipleCounterBatcher = new MultipleCounterBatcher(multipleCounterRepository, meterRegistry, false, 10);
+        when(multipleCounterRepository.persistentQGetNextMultipleCountVal(MULTIPLE_REF)).thenReturn(5);
+
+        assertEquals(Integer.valueOf(5), multipleCounterBatcher.nextCountAsync(MULTIPLE_REF).join());
+        verify(multipleCounterRepository).persistentQGetNextMultipleCountVal(MULTIPLE_REF);
+        verifyNoMoreInteractions(multipleCounterRepository);
+    }
+}
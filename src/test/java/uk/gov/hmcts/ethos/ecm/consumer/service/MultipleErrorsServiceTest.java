@@ -0,0 +1,110 @@
+package uk.gov.hmcts.ethos.ecm.consumer.service;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import org.springframework.data.domain.PageRequest;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.domain.MultipleErrors;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.domain.MultipleErrorsGroup;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.domain.repository.MultipleErrorsRepository;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.MultipleErrorsService;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.MultipleErrorsSummary;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static uk.gov.hmcts.reform.ethos.ecm.consumer.helpers.Constants.UNPROCESSABLE_MESSAGE;
+import static uk.gov.hmcts.reform.ethos.ecm.consumer.helpers.Constants.UNPROCESSABLE_STATE;
+
+@RunWith(MockitoJUnitRunner.class)
+public class MultipleErrorsServiceTest {
+
+    private static final String MULTIPLE_REF = "4150001";
+    private static final int PAGE_SIZE = 2;
+
+    @Mock
+    private transient MultipleErrorsRepository multipleErrorsRepository;
+
+    private transient MultipleErrorsService multipleErrorsService;
+
+    @Before
+    public void setUp() {
+        multipleErrorsService = new MultipleErrorsService(multipleErrorsRepository, PAGE_SIZE, 5, 1000);
+    }
+
+    @Test
+    public void summarisesGroups() {
+        MultipleErrorsGroup unprocessableState = group(3L);
+        MultipleErrorsGroup unprocessableMessage = group(2L);
+        when(multipleErrorsRepository.groupByDescription(MULTIPLE_REF, 5))
+            .thenReturn(List.of(unprocessableState, unprocessableMessage));
+
+        MultipleErrorsSummary summary = multipleErrorsService.summarise(MULTIPLE_REF);
+
+        assertTrue(summary.hasErrors());
+        assertEquals(5, summary.getTotal());
+        assertEquals(List.of(unprocessableState, unprocessableMessage), summary.getGroups());
+    }
+
+    @Test
+    public void summarisesNoErrors() {
+        when(multipleErrorsRepository.groupByDescription(MULTIPLE_REF, 5)).thenReturn(new ArrayList<>());
+
+        assertFalse(multipleErrorsService.summarise(MULTIPLE_REF).hasErrors());
+    }
+
+    @Test
+    public void writesAllPagesAsCsv() {
+        when(multipleErrorsRepository.findByMultiplerefAndIdGreaterThanOrderByIdAsc(
+            MULTIPLE_REF, 0L, PageRequest.of(0, PAGE_SIZE)))
+            .thenReturn(List.of(error(1L, "4150002/2020", UNPROCESSABLE_STATE),
+                                error(2L, "4150003/2020", UNPROCESSABLE_MESSAGE)));
+        when(multipleErrorsRepository.findByMultiplerefAndIdGreaterThanOrderByIdAsc(
+            MULTIPLE_REF, 2L, PageRequest.of(0, PAGE_SIZE)))
+            .thenReturn(List.of(error(3L, "4150004/2020", "Failed, \"retried\"")));
+
+        String csv = new String(multipleErrorsService.toCsv(MULTIPLE_REF), StandardCharsets.UTF_8);
+
+        assertEquals("Ethos Case Reference,Description\n"
+                         + "4150002/2020,Unprocessable State\n"
+                         + "4150003/2020,Unprocessable Message\n"
+                         + "4150004/2020,\"Failed, \"\"retried\"\"\"\n", csv);
+    }
+
+    @Test
+    public void truncatesCsvAtMaxFileSize() {
+        multipleErrorsService = new MultipleErrorsService(multipleErrorsRepository, PAGE_SIZE, 5, 80);
+        when(multipleErrorsRepository.findByMultiplerefAndIdGreaterThanOrderByIdAsc(
+            MULTIPLE_REF, 0L, PageRequest.of(0, PAGE_SIZE)))
+            .thenReturn(List.of(error(1L, "4150002/2020", UNPROCESSABLE_STATE),
+                                error(2L, "4150003/2020", UNPROCESSABLE_MESSAGE)));
+
+        String csv = new String(multipleErrorsService.toCsv(MULTIPLE_REF), StandardCharsets.UTF_8);
+
+        assertEquals("Ethos Case Reference,Description\n"
+                         + "...,List truncated\n", csv);
+    }
+
+    private static MultipleErrorsGroup group(long total) {
+        MultipleErrorsGroup group = mock(MultipleErrorsGroup.class);
+        when(group.getTotal()).thenReturn(total);
+        return group;
+    }
+
+    private static MultipleErrors error(Long id, String ethosCaseRef, String description) {
+        MultipleErrors multipleErrors = new MultipleErrors();
+        multipleErrors.setId(id);
+        multipleErrors.setMultipleref(MULTIPLE_REF);
+        multipleErrors.setEthoscaseref(ethosCaseRef);
+        multipleErrors.setDescription(description);
+        return multipleErrors;
+    }
+}
@@ -0,0 +1,89 @@
+package uk.gov.hmcts.ethos.ecm.consumer.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.MultipleErrorsWriter;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+public class MultipleErrorsWriterTest {
+
+    private static final String MULTIPLE_REF = "4150001";
+
+    private transient JdbcTemplate jdbcTemplate;
+    private transient SimpleMeterRegistry meterRegistry;
+    private transient MultipleErrorsWriter multipleErrorsWriter;
+
+    @Before
+    public void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @After
+    public void tearDown() {
+        multipleErrorsWriter.shutdown();
+    }
+
+    @Test
+    public void flushesFullBatch() throws Exception {
+        multipleErrorsWriter = new MultipleErrorsWriter(jdbcTemplate, meterRegistry, 2, 60_000);
+
+        CompletableFuture<Void> first = multipleErrorsWriter.addAsync(MULTIPLE_REF, "4150001/2020", "Error one");
+        verifyNoInteractions(jdbcTemplate);
+        assertFalse(first.isDone());
+
+        CompletableFuture<Void> second = multipleErrorsWriter.addAsync(MULTIPLE_REF, "4150002/2020", "Error two");
+        first.get(1, TimeUnit.SECONDS);
+        second.get(1, TimeUnit.SECONDS);
+
+        verify(jdbcTemplate).batchUpdate(anyString(), anyList());
+        assertEquals(1, meterRegistry.get("multiple-errors.write.flush").timer().count());
+        assertEquals(2.0, meterRegistry.get("multiple-errors.write.batch-size").summary().totalAmount(), 0.0);
+    }
+
+    @Test
+    public void flushesAfterWindow() throws Exception {
+        multipleErrorsWriter = new MultipleErrorsWriter(jdbcTemplate, meterRegistry, 100, 10);
+
+        multipleErrorsWriter.addAsync(MULTIPLE_REF, "4150001/2020", "Error one").get(1, TimeUnit.SECONDS);
+
+        verify(jdbcTemplate, times(1)).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    public void failsAllErrorsOfFailedBatch() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+            .thenThrow(new DataAccessResourceFailureException("Database unavailable"));
+        multipleErrorsWriter = new MultipleErrorsWriter(jdbcTemplate, meterRegistry, 2, 60_000);
+
+        List<CompletableFuture<Void>> results = List.of(
+            multipleErrorsWriter.addAsync(MULTIPLE_REF, "4150001/2020", "Error one"),
+            multipleErrorsWriter.addAsync(MULTIPLE_REF, "4150002/2020", "Error two"));
+
+        for (CompletableFuture<Void> result : results) {
+            ExecutionException exception = assertThrows(ExecutionException.class,
+                                                         () -> result.get(1, TimeUnit.SECONDS));
+            assertTrue(exception.getCause() instanceof DataAccessResourceFailureException);
+        }
+    }
+}
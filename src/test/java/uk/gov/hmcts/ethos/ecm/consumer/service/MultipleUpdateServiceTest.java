@@ -3,7 +3,6 @@ package uk.gov.hmcts.ethos.ecm.consumer.service;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import uk.gov.hmcts.ecm.common.client.CcdClient;
@@ -11,7 +10,6 @@ import uk.gov.hmcts.ecm.common.model.multiples.MultipleData;
 import uk.gov.hmcts.ecm.common.model.multiples.SubmitMultipleEvent;
 import uk.gov.hmcts.ecm.common.model.servicebus.UpdateCaseMsg;
 import uk.gov.hmcts.ethos.ecm.consumer.helpers.Helper;
-import uk.gov.hmcts.reform.ethos.ecm.consumer.domain.MultipleErrors;
 import uk.gov.hmcts.reform.ethos.ecm.consumer.service.MultipleUpdateService;
 import uk.gov.hmcts.reform.ethos.ecm.consumer.service.UserService;
 
@@ -26,12 +24,10 @@ import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
-import static uk.gov.hmcts.reform.ethos.ecm.consumer.helpers.Constants.UNPROCESSABLE_STATE;
 
 @RunWith(SpringJUnit4ClassRunner.class)
 public class MultipleUpdateServiceTest {
 
-    @InjectMocks
     private transient MultipleUpdateService multipleUpdateService;
     @Mock
     private transient CcdClient ccdClient;
@@ -45,6 +41,7 @@ public class MultipleUpdateServiceTest {
 
     @Before
     public void setUp() {
+        multipleUpdateService = new MultipleUpdateService(ccdClient, userService, Helper.ccdCallExecutor());
         submitMultipleEvent = new SubmitMultipleEvent();
         MultipleData multipleData = new MultipleData();
         multipleData.setMultipleReference("4100001");
@@ -63,7 +60,7 @@ public class MultipleUpdateServiceTest {
 
         when(ccdClient.submitMultipleEventForCase(anyString(), any(), anyString(),
                                                   anyString(), any(), anyString())).thenReturn(submitMultipleEvent);
-        multipleUpdateService.sendUpdateToMultipleLogic(updateCaseMsg, new ArrayList<>());
+        multipleUpdateService.sendUpdateToMultipleLogic(updateCaseMsg, false);
 
         verifyMocks();
     }
@@ -75,7 +72,7 @@ public class MultipleUpdateServiceTest {
                                                                      anyString(),
                                                                      anyString())).thenReturn(new ArrayList<>());
 
-        multipleUpdateService.sendUpdateToMultipleLogic(updateCaseMsg, new ArrayList<>());
+        multipleUpdateService.sendUpdateToMultipleLogic(updateCaseMsg, false);
 
         verify(ccdClient).retrieveMultipleCasesElasticSearchWithRetries(eq(userToken),
                                                                         eq(updateCaseMsg.getCaseTypeId()),
@@ -89,7 +86,7 @@ public class MultipleUpdateServiceTest {
         when(ccdClient.retrieveMultipleCasesElasticSearchWithRetries(anyString(), anyString(),
                                                                      anyString())).thenReturn(null);
 
-        multipleUpdateService.sendUpdateToMultipleLogic(updateCaseMsg, new ArrayList<>());
+        multipleUpdateService.sendUpdateToMultipleLogic(updateCaseMsg, false);
 
         verify(ccdClient).retrieveMultipleCasesElasticSearchWithRetries(eq(userToken),
                                                                         eq(updateCaseMsg.getCaseTypeId()),
@@ -107,10 +104,7 @@ public class MultipleUpdateServiceTest {
         when(ccdClient.submitMultipleEventForCase(anyString(), any(),
                                                   anyString(), anyString(), any(),
                                                   anyString())).thenReturn(submitMultipleEvent);
-        MultipleErrors multipleErrors = new MultipleErrors();
-        multipleErrors.setDescription(UNPROCESSABLE_STATE);
-        multipleUpdateService.sendUpdateToMultipleLogic(updateCaseMsg, new ArrayList<>(Collections.singletonList(
-            multipleErrors)));
+        multipleUpdateService.sendUpdateToMultipleLogic(updateCaseMsg, true);
 
         verifyMocks();
     }
@@ -124,7 +118,7 @@ public class MultipleUpdateServiceTest {
 
         updateCaseMsg = Helper.generateCreationSingleCaseMsg();
 
-        multipleUpdateService.sendUpdateToMultipleLogic(updateCaseMsg, new ArrayList<>());
+        multipleUpdateService.sendUpdateToMultipleLogic(updateCaseMsg, false);
 
         verify(ccdClient).retrieveMultipleCasesElasticSearchWithRetries(eq(userToken),
                                                                         eq(updateCaseMsg.getCaseTypeId()),
@@ -148,7 +142,7 @@ public class MultipleUpdateServiceTest {
         when(ccdClient.retrieveMultipleCasesElasticSearchWithRetries(anyString(), anyString(),
                                                                      anyString())).thenThrow(new Exception());
 
-        multipleUpdateService.sendUpdateToMultipleLogic(updateCaseMsg, new ArrayList<>());
+        multipleUpdateService.sendUpdateToMultipleLogic(updateCaseMsg, false);
     }
 
     private void verifyMocks() throws IOException {
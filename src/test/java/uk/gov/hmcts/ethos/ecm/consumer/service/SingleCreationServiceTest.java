@@ -13,10 +13,13 @@ import uk.gov.hmcts.ecm.common.model.ccd.SubmitEvent;
 import uk.gov.hmcts.ecm.common.model.ccd.types.CasePreAcceptType;
 import uk.gov.hmcts.ecm.common.model.servicebus.UpdateCaseMsg;
 import uk.gov.hmcts.ethos.ecm.consumer.helpers.Helper;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.CaseLookupService;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.CcdCallExecutor.Budget;
 import uk.gov.hmcts.reform.ethos.ecm.consumer.service.SingleCreationService;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
@@ -34,10 +37,13 @@ public class SingleCreationServiceTest {
     private transient SingleCreationService singleCreationService;
     @Mock
     private transient CcdClient ccdClient;
+    @Mock
+    private transient CaseLookupService caseLookupService;
 
     private transient SubmitEvent submitEvent;
     private transient UpdateCaseMsg updateCaseMsg;
     private transient String userToken;
+    private transient Budget budget;
 
     @Before
     public void setUp() {
@@ -53,13 +59,17 @@ public class SingleCreationServiceTest {
         caseDetails.setCaseData(caseData);
         updateCaseMsg = Helper.generateCreationSingleCaseMsg();
         userToken = "accessToken";
+        budget = Helper.ccdCallExecutor().newBudget(false);
+        when(caseLookupService.retrieveCaseAsync(anyString(), any(), any(), any(), any()))
+            .thenReturn(CompletableFuture.completedFuture(new ArrayList<>()));
     }
 
     @Test
-    public void sendCreation() throws IOException {
-        singleCreationService.sendCreation(submitEvent, userToken, updateCaseMsg);
+    public void createNewCase() throws IOException {
+        createInDestinationOffice();
 
-        verify(ccdClient).retrieveCasesElasticSearch(eq(userToken), any(), any());
+        verify(caseLookupService).retrieveCaseAsync(eq(userToken), any(), any(), eq("4150002/2020"), eq(budget));
+        verify(caseLookupService).invalidate(any(), eq("4150002/2020"));
         verify(ccdClient).startCaseCreationTransfer(eq(userToken), any());
         verify(ccdClient).submitCaseCreation(eq(userToken), any(), any());
         verifyNoMoreInteractions(ccdClient);
@@ -67,14 +77,21 @@ public class SingleCreationServiceTest {
 
     @Test
     public void returnCaseTransfer() throws IOException {
-        when(ccdClient.retrieveCasesElasticSearch(anyString(), any(), any()))
-            .thenReturn(new ArrayList<>(Collections.singletonList(submitEvent)));
-        singleCreationService.sendCreation(submitEvent, userToken, updateCaseMsg);
+        when(caseLookupService.retrieveCaseAsync(anyString(), any(), any(), any(), any()))
+            .thenReturn(CompletableFuture.completedFuture(new ArrayList<>(Collections.singletonList(submitEvent))));
+        createInDestinationOffice();
 
-        verify(ccdClient).retrieveCasesElasticSearch(eq(userToken), any(), any());
+        verify(caseLookupService).retrieveCaseAsync(eq(userToken), any(), any(), eq("4150002/2020"), eq(budget));
         verify(ccdClient).returnCaseCreationTransfer(eq(userToken), anyString(), anyString(), anyString());
         verify(ccdClient).submitEventForCase(eq(userToken), any(), anyString(), anyString(), any(), anyString());
         verifyNoMoreInteractions(ccdClient);
     }
 
+    private void createInDestinationOffice() throws IOException {
+        SubmitEvent caseDestinationOffice =
+            singleCreationService.findDestinationCaseAsync(submitEvent, userToken, updateCaseMsg, budget).join();
+        singleCreationService.submitCreation(
+            userToken, singleCreationService.prepareCreation(submitEvent, caseDestinationOffice, userToken,
+                                                             updateCaseMsg));
+    }
 }
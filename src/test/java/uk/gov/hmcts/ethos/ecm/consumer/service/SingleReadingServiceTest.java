@@ -6,23 +6,20 @@ import org.junit.runner.RunWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
-import uk.gov.hmcts.ecm.common.client.CcdClient;
 import uk.gov.hmcts.ecm.common.model.ccd.CaseData;
 import uk.gov.hmcts.ecm.common.model.ccd.SubmitEvent;
 import uk.gov.hmcts.ecm.common.model.servicebus.UpdateCaseMsg;
 import uk.gov.hmcts.ethos.ecm.consumer.helpers.Helper;
-import uk.gov.hmcts.reform.ethos.ecm.consumer.service.SingleCreationService;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.CaseLookupService;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.CcdCallExecutor.Budget;
 import uk.gov.hmcts.reform.ethos.ecm.consumer.service.SingleReadingService;
-import uk.gov.hmcts.reform.ethos.ecm.consumer.service.SingleTransferService;
-import uk.gov.hmcts.reform.ethos.ecm.consumer.service.SingleUpdateService;
-import uk.gov.hmcts.reform.ethos.ecm.consumer.service.UserService;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
-import static org.mockito.ArgumentMatchers.anyList;
+import static org.junit.Assert.assertEquals;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
@@ -36,15 +33,7 @@ public class SingleReadingServiceTest {
     @InjectMocks
     private transient SingleReadingService singleReadingService;
     @Mock
-    private transient CcdClient ccdClient;
-    @Mock
-    private transient UserService userService;
-    @Mock
-    private transient SingleUpdateService singleUpdateService;
-    @Mock
-    private transient SingleCreationService singleCreationService;
-    @Mock
-    private transient SingleTransferService singleTransferService;
+    private transient CaseLookupService caseLookupService;
 
     private transient List<SubmitEvent> submitEvents;
     private transient UpdateCaseMsg updateCaseMsg;
@@ -63,42 +52,23 @@ public class SingleReadingServiceTest {
     }
 
     @Test
-    public void sendUpdateToSingleLogic() throws IOException {
-        when(userService.getAccessToken()).thenReturn(userToken);
-        when(ccdClient.retrieveCasesElasticSearch(anyString(), anyString(), anyList())).thenReturn(submitEvents);
-
-        singleReadingService.sendUpdateToSingleLogic(updateCaseMsg);
-        verify(singleUpdateService).sendUpdate(eq(submitEvents.get(0)),
-                                               eq(userToken),
-                                               eq(updateCaseMsg));
-        verifyNoMoreInteractions(singleUpdateService);
-    }
-
-    @Test
-    public void sendCreationToSingleLogic() throws IOException {
-        updateCaseMsg = Helper.generateCreationSingleCaseMsg();
-        when(userService.getAccessToken()).thenReturn(userToken);
-        when(ccdClient.retrieveCasesElasticSearch(anyString(), anyString(), anyList())).thenReturn(submitEvents);
+    public void retrieveSingleCase() {
+        Budget budget = Helper.ccdCallExecutor().newBudget(false);
+        when(caseLookupService.retrieveCaseAsync(anyString(), anyString(), anyString(), anyString(), eq(budget)))
+            .thenReturn(CompletableFuture.completedFuture(submitEvents));
 
-        singleReadingService.sendUpdateToSingleLogic(updateCaseMsg);
-        verify(singleCreationService).sendCreation(eq(submitEvents.get(0)),
-                                               eq(userToken),
-                                               eq(updateCaseMsg));
-        verifyNoMoreInteractions(singleCreationService);
-        verify(singleTransferService).sendTransferred(eq(submitEvents.get(0)),
-                                                   eq(userToken),
-                                                   eq(updateCaseMsg));
-        verifyNoMoreInteractions(singleTransferService);
+        assertEquals(submitEvents,
+                     singleReadingService.retrieveSingleCaseAsync(userToken, updateCaseMsg, budget).join());
+        verify(caseLookupService).retrieveCaseAsync(eq(userToken), anyString(), eq(updateCaseMsg.getJurisdiction()),
+                                                    eq(updateCaseMsg.getEthosCaseReference()), eq(budget));
     }
 
     @Test
-    public void sendUpdateToSingleLogicEmptyCases() throws IOException {
-        when(userService.getAccessToken()).thenReturn(userToken);
-        when(ccdClient.retrieveCasesElasticSearch(anyString(), anyString(), anyList())).thenReturn(null);
+    public void invalidateSingleCase() {
+        singleReadingService.invalidateSingleCase(updateCaseMsg);
 
-        singleReadingService.sendUpdateToSingleLogic(updateCaseMsg);
-        verifyNoMoreInteractions(singleCreationService);
-        verifyNoMoreInteractions(singleUpdateService);
+        verify(caseLookupService).invalidate(anyString(), eq(updateCaseMsg.getEthosCaseReference()));
+        verifyNoMoreInteractions(caseLookupService);
     }
 
 }
@@ -55,8 +55,9 @@ public class SingleTransferServiceTest {
     }
 
     @Test
-    public void sendTransferred() throws IOException {
-        singleTransferService.sendTransferred(submitEvent, userToken, updateCaseMsg);
+    public void markAndSubmitTransferred() throws IOException {
+        singleTransferService.markTransferred(submitEvent, updateCaseMsg);
+        singleTransferService.submitTransferred(submitEvent, userToken, updateCaseMsg);
 
         assertEquals("Transferred to Manchester", submitEvent.getCaseData().getLinkedCaseCT());
 
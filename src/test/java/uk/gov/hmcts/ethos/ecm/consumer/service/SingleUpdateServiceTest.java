@@ -48,10 +48,11 @@ public class SingleUpdateServiceTest {
     }
 
     @Test
-    public void sendUpdate() throws IOException {
+    public void startAndSubmitUpdate() throws IOException {
         when(ccdClient.submitEventForCase(anyString(), any(), anyString(), anyString(), any(), anyString()))
             .thenReturn(submitEvent);
-        singleUpdateService.sendUpdate(submitEvent, userToken, updateCaseMsg);
+        singleUpdateService.submitUpdate(submitEvent, userToken, updateCaseMsg,
+                                         singleUpdateService.startUpdate(submitEvent, userToken, updateCaseMsg));
 
         verify(ccdClient).startEventForCaseAPIRole(eq(userToken),
                                                    eq(UtilHelper.getCaseTypeId(updateCaseMsg.getCaseTypeId())),
@@ -71,7 +72,8 @@ public class SingleUpdateServiceTest {
         updateCaseMsg = Helper.generatePreAcceptCaseMsg();
         when(ccdClient.submitEventForCase(anyString(), any(), anyString(), anyString(), any(), anyString()))
             .thenReturn(submitEvent);
-        singleUpdateService.sendUpdate(submitEvent, userToken, updateCaseMsg);
+        singleUpdateService.submitUpdate(submitEvent, userToken, updateCaseMsg,
+                                         singleUpdateService.startUpdate(submitEvent, userToken, updateCaseMsg));
 
         verify(ccdClient).startEventForCasePreAcceptBulkSingle(
             eq(userToken),
@@ -93,7 +95,8 @@ public class SingleUpdateServiceTest {
         updateCaseMsg = Helper.generateCloseCaseMsg();
         when(ccdClient.submitEventForCase(anyString(), any(), anyString(), anyString(), any(), anyString()))
             .thenReturn(submitEvent);
-        singleUpdateService.sendUpdate(submitEvent, userToken, updateCaseMsg);
+        singleUpdateService.submitUpdate(submitEvent, userToken, updateCaseMsg,
+                                         singleUpdateService.startUpdate(submitEvent, userToken, updateCaseMsg));
 
         verify(ccdClient).startDisposeEventForCase(eq(userToken),
                                                    eq(UtilHelper.getCaseTypeId(updateCaseMsg.getCaseTypeId())),
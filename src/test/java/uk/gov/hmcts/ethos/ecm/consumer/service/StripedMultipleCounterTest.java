@@ -0,0 +1,64 @@
+package uk.gov.hmcts.ethos.ecm.consumer.service;
+
+import org.junit.Before;
+import org.junit.Test;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.domain.repository.MultipleCounterRepository;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.StripedMultipleCounter;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class StripedMultipleCounterTest {
+
+    private static final String MULTIPLE_REF = "4150001";
+    private static final String ETHOS_CASE_REFERENCE = "4150001/2020";
+    private static final int STRIPES = 8;
+
+    private transient MultipleCounterRepository multipleCounterRepository;
+    private transient StripedMultipleCounter stripedMultipleCounter;
+
+    @Before
+    public void setUp() {
+        multipleCounterRepository = mock(MultipleCounterRepository.class);
+        stripedMultipleCounter = new StripedMultipleCounter(multipleCounterRepository, STRIPES);
+    }
+
+    @Test
+    public void enabledWithMoreThanOneStripe() {
+        assertTrue(stripedMultipleCounter.isEnabled());
+        assertFalse(new StripedMultipleCounter(multipleCounterRepository, 1).isEnabled());
+    }
+
+    @Test
+    public void incrementsStripeOfCaseBeforeClaimingFinish() {
+        when(multipleCounterRepository.persistentQClaimStripedMultipleFinish(MULTIPLE_REF, 10)).thenReturn(true);
+
+        assertTrue(stripedMultipleCounter.countAndClaimFinish(MULTIPLE_REF, ETHOS_CASE_REFERENCE, 10));
+
+        int stripe = Math.floorMod(ETHOS_CASE_REFERENCE.hashCode(), STRIPES);
+        var inOrder = inOrder(multipleCounterRepository);
+        inOrder.verify(multipleCounterRepository).persistentQAddMultipleCountStripe(MULTIPLE_REF, stripe, 1);
+        inOrder.verify(multipleCounterRepository).persistentQClaimStripedMultipleFinish(MULTIPLE_REF, 10);
+    }
+
+    @Test
+    public void doesNotFinishWhenClaimNotWon() {
+        assertFalse(stripedMultipleCounter.countAndClaimFinish(MULTIPLE_REF, ETHOS_CASE_REFERENCE, 10));
+
+        verify(multipleCounterRepository).persistentQAddMultipleCountStripe(eq(MULTIPLE_REF), anyInt(), eq(1));
+    }
+
+    @Test
+    public void deletesStripesAndClaim() {
+        stripedMultipleCounter.delete(MULTIPLE_REF);
+
+        verify(multipleCounterRepository).deleteStripesByMultipleRef(MULTIPLE_REF);
+        verify(multipleCounterRepository).deleteFinishClaimByMultipleRef(MULTIPLE_REF);
+    }
+}
@@ -9,22 +9,34 @@ import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import uk.gov.hmcts.ecm.common.model.servicebus.UpdateCaseMsg;
 import uk.gov.hmcts.ecm.common.model.servicebus.datamodel.ResetStateDataModel;
 import uk.gov.hmcts.ethos.ecm.consumer.helpers.Helper;
-import uk.gov.hmcts.reform.ethos.ecm.consumer.domain.MultipleErrors;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.domain.MultipleErrorsGroup;
 import uk.gov.hmcts.reform.ethos.ecm.consumer.domain.repository.MultipleCounterRepository;
 import uk.gov.hmcts.reform.ethos.ecm.consumer.domain.repository.MultipleErrorsRepository;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.model.servicebus.FanOutPosition;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.ClaimCheckService;
 import uk.gov.hmcts.reform.ethos.ecm.consumer.service.EmailService;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.MultipleCompletionTracker;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.MultipleCounterBatcher;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.MultipleErrorsService;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.MultipleErrorsSummary;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.MultipleErrorsWriter;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.MultipleFinishService;
 import uk.gov.hmcts.reform.ethos.ecm.consumer.service.MultipleUpdateService;
-import uk.gov.hmcts.reform.ethos.ecm.consumer.service.SingleReadingService;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.StripedMultipleCounter;
 import uk.gov.hmcts.reform.ethos.ecm.consumer.service.UpdateManagementService;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
-import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 import static uk.gov.hmcts.reform.ethos.ecm.consumer.helpers.Constants.UNPROCESSABLE_MESSAGE;
@@ -32,6 +44,8 @@ import static uk.gov.hmcts.reform.ethos.ecm.consumer.helpers.Constants.UNPROCESS
 @RunWith(SpringJUnit4ClassRunner.class)
 public class UpdateManagementServiceTest {
 
+    private static final String FAN_OUT_ID = "fanOut1";
+
     @InjectMocks
     private transient UpdateManagementService updateManagementService;
     @Mock
@@ -41,9 +55,21 @@ public class UpdateManagementServiceTest {
     @Mock
     private transient MultipleUpdateService multipleUpdateService;
     @Mock
-    private transient SingleReadingService singleReadingService;
-    @Mock
     private transient EmailService emailService;
+    @Mock
+    private transient ClaimCheckService claimCheckService;
+    @Mock
+    private transient MultipleFinishService multipleFinishService;
+    @Mock
+    private transient MultipleErrorsService multipleErrorsService;
+    @Mock
+    private transient MultipleErrorsWriter multipleErrorsWriter;
+    @Mock
+    private transient MultipleCounterBatcher multipleCounterBatcher;
+    @Mock
+    private transient StripedMultipleCounter stripedMultipleCounter;
+    @Mock
+    private transient MultipleCompletionTracker multipleCompletionTracker;
 
     private transient UpdateCaseMsg updateCaseMsg;
 
@@ -53,85 +79,188 @@ public class UpdateManagementServiceTest {
     }
 
     @Test
-    public void updateLogic() throws IOException, InterruptedException {
-        when(multipleCounterRepository.persistentQGetNextMultipleCountVal(
-            updateCaseMsg.getMultipleRef())).thenReturn(1);
-        when(multipleErrorsRepository.findByMultipleref(updateCaseMsg.getMultipleRef())).thenReturn(new ArrayList<>());
+    public void checkIfFinish() throws IOException, InterruptedException {
+        when(multipleCounterBatcher.nextCountAsync(updateCaseMsg.getMultipleRef()))
+            .thenReturn(CompletableFuture.completedFuture(1));
+
+        updateManagementService.checkIfFinish(updateCaseMsg, null);
+
+        verify(multipleCounterBatcher).nextCountAsync(updateCaseMsg.getMultipleRef());
+        verifyNoInteractions(multipleCounterRepository);
+        verify(multipleFinishService).schedule(updateCaseMsg, null);
+        verifyNoInteractions(multipleUpdateService, emailService, multipleErrorsRepository, claimCheckService);
+
+    }
+
+    @Test
+    public void checkIfFinishNotLastCase() throws IOException, InterruptedException {
+        when(multipleCounterBatcher.nextCountAsync(updateCaseMsg.getMultipleRef()))
+            .thenReturn(CompletableFuture.completedFuture(1));
+        updateCaseMsg.setTotalCases("2");
+
+        updateManagementService.checkIfFinish(updateCaseMsg, null);
+
+        verifyNoInteractions(multipleFinishService);
+
+    }
+
+    @Test
+    public void checkIfFinishStripedCounter() throws IOException, InterruptedException {
+        when(stripedMultipleCounter.isEnabled()).thenReturn(true);
+        when(stripedMultipleCounter.countAndClaimFinish(updateCaseMsg.getMultipleRef(),
+                                                        updateCaseMsg.getEthosCaseReference(), 1)).thenReturn(true);
+
+        updateManagementService.checkIfFinish(updateCaseMsg, null);
+
+        verify(multipleFinishService).schedule(updateCaseMsg, null);
+        verifyNoInteractions(multipleCounterBatcher, multipleCounterRepository);
+
+    }
+
+    @Test
+    public void checkIfFinishCompletionBitmap() throws IOException, InterruptedException {
+        FanOutPosition fanOutPosition = new FanOutPosition("fanOut1", 0);
+        when(multipleCompletionTracker.isEnabled()).thenReturn(true);
+        when(multipleCompletionTracker.canTrack(fanOutPosition)).thenReturn(true);
+        when(multipleCompletionTracker.markCompleted(updateCaseMsg.getMultipleRef(), fanOutPosition)).thenReturn(true);
+        when(multipleCompletionTracker.claimFinish(updateCaseMsg.getMultipleRef(), 1)).thenReturn(true);
+
+        updateManagementService.checkIfFinish(updateCaseMsg, fanOutPosition);
+
+        verify(multipleFinishService).schedule(updateCaseMsg, "fanOut1");
+        verifyNoInteractions(multipleCounterBatcher, stripedMultipleCounter, multipleCounterRepository);
+
+    }
+
+    @Test
+    public void checkIfFinishCaseAlreadyCounted() throws IOException, InterruptedException {
+        FanOutPosition fanOutPosition = new FanOutPosition("fanOut1", 0);
+        when(multipleCompletionTracker.isEnabled()).thenReturn(true);
+        when(multipleCompletionTracker.canTrack(fanOutPosition)).thenReturn(true);
+        when(multipleCompletionTracker.markCompleted(updateCaseMsg.getMultipleRef(), fanOutPosition)).thenReturn(false);
+
+        updateManagementService.checkIfFinish(updateCaseMsg, fanOutPosition);
+
+        verify(multipleCompletionTracker).claimFinish(updateCaseMsg.getMultipleRef(), 1);
+        verifyNoInteractions(multipleFinishService, multipleCounterBatcher);
+
+    }
+
+    @Test
+    public void checkIfFinishCompletionBitmapWithoutFanOutPosition() throws IOException, InterruptedException {
+        when(multipleCompletionTracker.isEnabled()).thenReturn(true);
+        when(multipleCounterBatcher.nextCountAsync(updateCaseMsg.getMultipleRef()))
+            .thenReturn(CompletableFuture.completedFuture(1));
+        when(multipleCompletionTracker.claimFinish(updateCaseMsg.getMultipleRef(), 1)).thenReturn(true);
+
+        updateManagementService.checkIfFinish(updateCaseMsg, null);
+
+        verify(multipleFinishService).schedule(updateCaseMsg, null);
+        verify(multipleCompletionTracker, never()).markCompleted(any(), any());
+
+    }
+
+    @Test
+    public void finishMultiple() throws IOException, InterruptedException {
+        when(multipleErrorsService.summarise(updateCaseMsg.getMultipleRef()))
+            .thenReturn(new MultipleErrorsSummary(new ArrayList<>()));
 
-        updateManagementService.updateLogic(updateCaseMsg);
+        updateManagementService.finishMultiple(updateCaseMsg, FAN_OUT_ID, MultipleFinishService.NOT_STARTED);
 
-        verify(singleReadingService).sendUpdateToSingleLogic(eq(updateCaseMsg));
-        verifyNoMoreInteractions(singleReadingService);
-        verify(emailService).sendConfirmationEmail(eq(updateCaseMsg.getUsername()), eq(updateCaseMsg.getMultipleRef()));
+        verify(emailService).sendConfirmationEmail(updateCaseMsg.getUsername(), updateCaseMsg.getMultipleRef(),
+                                                   FAN_OUT_ID);
         verifyNoMoreInteractions(emailService);
-        verify(multipleUpdateService).sendUpdateToMultipleLogic(eq(updateCaseMsg), any());
+        verify(multipleUpdateService).sendUpdateToMultipleLogic(updateCaseMsg, false);
         verifyNoMoreInteractions(multipleUpdateService);
-        verify(multipleCounterRepository).persistentQGetNextMultipleCountVal(eq(updateCaseMsg.getMultipleRef()));
-        verify(multipleCounterRepository, times(1))
-            .findByMultipleref(eq(updateCaseMsg.getMultipleRef()));
-        verify(multipleCounterRepository).deleteInBatch(new ArrayList<>());
-        verify(multipleErrorsRepository, times(2))
-            .findByMultipleref(eq(updateCaseMsg.getMultipleRef()));
-        verify(multipleErrorsRepository).deleteInBatch(new ArrayList<>());
+        verify(multipleFinishService).recordStep(updateCaseMsg.getMultipleRef(),
+                                                 MultipleFinishService.MULTIPLE_UPDATED);
+        verify(multipleFinishService).recordStep(updateCaseMsg.getMultipleRef(), MultipleFinishService.EMAIL_QUEUED);
+        verify(multipleCounterRepository).deleteByMultipleRef(updateCaseMsg.getMultipleRef());
+        verify(multipleErrorsRepository).deleteByMultipleRef(updateCaseMsg.getMultipleRef());
         verifyNoMoreInteractions(multipleErrorsRepository);
         verifyNoMoreInteractions(multipleCounterRepository);
+        verify(stripedMultipleCounter).delete(updateCaseMsg.getMultipleRef());
+        verify(multipleCompletionTracker).delete(updateCaseMsg.getMultipleRef());
+        verify(claimCheckService).expire(FAN_OUT_ID);
 
     }
 
     @Test
-    public void updateLogicWithErrorsDefaultConstructor() throws IOException, InterruptedException {
-        MultipleErrors multipleErrors = new MultipleErrors();
-        when(multipleCounterRepository.persistentQGetNextMultipleCountVal(
-            updateCaseMsg.getMultipleRef())).thenReturn(1);
-        when(multipleErrorsRepository.findByMultipleref(updateCaseMsg.getMultipleRef())).thenReturn(new ArrayList<>(
-            Collections.singletonList(multipleErrors)));
-
-        updateManagementService.updateLogic(updateCaseMsg);
-
-        verify(singleReadingService).sendUpdateToSingleLogic(eq(updateCaseMsg));
-        verifyNoMoreInteractions(singleReadingService);
-        verify(emailService).sendConfirmationErrorEmail(eq(updateCaseMsg.getUsername()),
-                                                        eq(new ArrayList<>(Collections.singletonList(multipleErrors))),
-                                                        eq(updateCaseMsg.getMultipleRef()));
+    public void finishMultipleWithErrors() throws IOException, InterruptedException {
+        MultipleErrorsGroup multipleErrorsGroup = mock(MultipleErrorsGroup.class);
+        when(multipleErrorsGroup.getTotal()).thenReturn(1L);
+        MultipleErrorsSummary multipleErrorsSummary =
+            new MultipleErrorsSummary(new ArrayList<>(Collections.singletonList(multipleErrorsGroup)));
+        byte[] errorsFile = "Ethos Case Reference,Description\n".getBytes(StandardCharsets.UTF_8);
+        when(multipleErrorsService.summarise(updateCaseMsg.getMultipleRef())).thenReturn(multipleErrorsSummary);
+        when(multipleErrorsService.toCsv(updateCaseMsg.getMultipleRef())).thenReturn(errorsFile);
+
+        updateManagementService.finishMultiple(updateCaseMsg, FAN_OUT_ID, MultipleFinishService.NOT_STARTED);
+
+        verify(emailService).sendConfirmationErrorEmail(updateCaseMsg.getUsername(), multipleErrorsSummary,
+                                                        errorsFile, updateCaseMsg.getMultipleRef(), FAN_OUT_ID);
         verifyNoMoreInteractions(emailService);
-        verify(multipleUpdateService).sendUpdateToMultipleLogic(eq(updateCaseMsg), any());
+        verify(multipleUpdateService).sendUpdateToMultipleLogic(updateCaseMsg, true);
         verifyNoMoreInteractions(multipleUpdateService);
-        verify(multipleCounterRepository).persistentQGetNextMultipleCountVal(eq(updateCaseMsg.getMultipleRef()));
-        verify(multipleCounterRepository, times(1))
-            .findByMultipleref(eq(updateCaseMsg.getMultipleRef()));
-        verify(multipleCounterRepository).deleteInBatch(new ArrayList<>());
-        verify(multipleErrorsRepository, times(2))
-            .findByMultipleref(eq(updateCaseMsg.getMultipleRef()));
-        verify(multipleErrorsRepository)
-            .deleteInBatch(new ArrayList<>(Collections.singletonList(new MultipleErrors())));
+        verify(multipleCounterRepository).deleteByMultipleRef(updateCaseMsg.getMultipleRef());
+        verify(multipleErrorsRepository).deleteByMultipleRef(updateCaseMsg.getMultipleRef());
         verifyNoMoreInteractions(multipleErrorsRepository);
         verifyNoMoreInteractions(multipleCounterRepository);
 
     }
 
+    @Test
+    public void resumesFinishAfterMultipleUpdated() throws IOException {
+        when(multipleErrorsService.summarise(updateCaseMsg.getMultipleRef()))
+            .thenReturn(new MultipleErrorsSummary(new ArrayList<>()));
+
+        updateManagementService.finishMultiple(updateCaseMsg, FAN_OUT_ID, MultipleFinishService.MULTIPLE_UPDATED);
+
+        verifyNoInteractions(multipleUpdateService);
+        verify(emailService).sendConfirmationEmail(updateCaseMsg.getUsername(), updateCaseMsg.getMultipleRef(),
+                                                   FAN_OUT_ID);
+        verify(multipleFinishService).recordStep(updateCaseMsg.getMultipleRef(), MultipleFinishService.EMAIL_QUEUED);
+        verify(multipleErrorsRepository).deleteByMultipleRef(updateCaseMsg.getMultipleRef());
+
+    }
+
+    @Test
+    public void resumesFinishAfterEmailQueued() throws IOException {
+        updateManagementService.finishMultiple(updateCaseMsg, FAN_OUT_ID, MultipleFinishService.EMAIL_QUEUED);
+
+        verifyNoInteractions(multipleUpdateService);
+        verifyNoInteractions(emailService);
+        verifyNoInteractions(multipleErrorsService);
+        verify(multipleCounterRepository).deleteByMultipleRef(updateCaseMsg.getMultipleRef());
+        verify(multipleErrorsRepository).deleteByMultipleRef(updateCaseMsg.getMultipleRef());
+        verify(claimCheckService).expire(FAN_OUT_ID);
+
+    }
+
     @Test
     public void addUnrecoverableErrorToDatabase() {
+        when(multipleErrorsWriter.addAsync(updateCaseMsg.getMultipleRef(), updateCaseMsg.getEthosCaseReference(),
+                                           UNPROCESSABLE_MESSAGE)).thenReturn(CompletableFuture.completedFuture(null));
+
         updateManagementService.addUnrecoverableErrorToDatabase(updateCaseMsg);
 
-        verify(multipleErrorsRepository).persistentQLogMultipleError(
+        verify(multipleErrorsWriter).addAsync(
             eq(updateCaseMsg.getMultipleRef()),
             eq(updateCaseMsg.getEthosCaseReference()),
             eq(UNPROCESSABLE_MESSAGE));
-        verifyNoMoreInteractions(multipleErrorsRepository);
+        verifyNoInteractions(multipleErrorsRepository);
 
     }
 
     @Test
-    public void updateLogicResetState() throws IOException, InterruptedException {
+    public void resetState() {
 
         ResetStateDataModel resetStateDataModel = ResetStateDataModel.builder().build();
         updateCaseMsg.setDataModelParent(resetStateDataModel);
-        updateManagementService.updateLogic(updateCaseMsg);
+        updateManagementService.resetState(updateCaseMsg);
 
-        verify(multipleCounterRepository).findByMultipleref(eq(updateCaseMsg.getMultipleRef()));
-        verify(multipleCounterRepository).deleteInBatch(new ArrayList<>());
-        verify(multipleErrorsRepository).findByMultipleref(eq(updateCaseMsg.getMultipleRef()));
-        verify(multipleErrorsRepository).deleteInBatch(new ArrayList<>());
+        verify(multipleCounterRepository).deleteByMultipleRef(updateCaseMsg.getMultipleRef());
+        verify(multipleErrorsRepository).deleteByMultipleRef(updateCaseMsg.getMultipleRef());
         verifyNoMoreInteractions(multipleErrorsRepository);
         verifyNoMoreInteractions(multipleCounterRepository);
 
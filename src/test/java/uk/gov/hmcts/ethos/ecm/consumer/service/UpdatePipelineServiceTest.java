@@ -0,0 +1,216 @@
+package uk.gov.hmcts.ethos.ecm.consumer.service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.hmcts.ecm.common.model.ccd.CCDRequest;
+import uk.gov.hmcts.ecm.common.model.ccd.CaseData;
+import uk.gov.hmcts.ecm.common.model.ccd.SubmitEvent;
+import uk.gov.hmcts.ecm.common.model.servicebus.UpdateCaseMsg;
+import uk.gov.hmcts.ecm.common.model.servicebus.datamodel.ResetStateDataModel;
+import uk.gov.hmcts.ethos.ecm.consumer.helpers.Helper;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.SingleCreationService;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.SingleCreationService.PreparedCreation;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.SingleReadingService;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.SingleTransferService;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.SingleUpdateService;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.UpdateManagementService;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.UpdatePipelineService;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.UserService;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class UpdatePipelineServiceTest {
+
+    private static final String USER_TOKEN = "accessToken";
+
+    @Mock
+    private transient UserService userService;
+    @Mock
+    private transient SingleReadingService singleReadingService;
+    @Mock
+    private transient SingleUpdateService singleUpdateService;
+    @Mock
+    private transient SingleTransferService singleTransferService;
+    @Mock
+    private transient SingleCreationService singleCreationService;
+    @Mock
+    private transient UpdateManagementService updateManagementService;
+
+    private transient ExecutorService ccdIo;
+    private transient UpdatePipelineService updatePipelineService;
+    private transient SubmitEvent submitEvent;
+
+    @Before
+    public void setUp() {
+        ccdIo = Executors.newFixedThreadPool(2);
+        updatePipelineService = new UpdatePipelineService(userService, singleReadingService, singleUpdateService,
+                                                          singleTransferService, singleCreationService,
+                                                          updateManagementService,
+                                                          Helper.ccdCallExecutor(),
+                                                          ccdIo, ccdIo);
+        submitEvent = new SubmitEvent();
+        CaseData caseData = new CaseData();
+        caseData.setEthosCaseReference("4150002/2020");
+        submitEvent.setCaseData(caseData);
+    }
+
+    @After
+    public void tearDown() {
+        ccdIo.shutdownNow();
+    }
+
+    @Test
+    public void runsStagesInOrder() throws Exception {
+        UpdateCaseMsg updateCaseMsg = Helper.generateUpdateCaseMsg();
+        CCDRequest ccdRequest = new CCDRequest();
+        when(userService.getAccessToken()).thenReturn(USER_TOKEN);
+        when(singleReadingService.retrieveSingleCaseAsync(eq(USER_TOKEN), eq(updateCaseMsg), any()))
+            .thenReturn(CompletableFuture.completedFuture(new ArrayList<>(Collections.singletonList(submitEvent))));
+        when(singleUpdateService.startUpdate(submitEvent, USER_TOKEN, updateCaseMsg)).thenReturn(ccdRequest);
+
+        updatePipelineService.updateLogicAsync(updateCaseMsg, null).get();
+
+        InOrder inOrder = inOrder(singleReadingService, singleUpdateService, updateManagementService);
+        inOrder.verify(singleReadingService).retrieveSingleCaseAsync(eq(USER_TOKEN), eq(updateCaseMsg), any());
+        inOrder.verify(singleUpdateService).startUpdate(submitEvent, USER_TOKEN, updateCaseMsg);
+        inOrder.verify(singleUpdateService).submitUpdate(submitEvent, USER_TOKEN, updateCaseMsg, ccdRequest);
+        inOrder.verify(updateManagementService).checkIfFinish(updateCaseMsg, null);
+    }
+
+    @Test
+    public void countsCaseWhenNotFound() throws Exception {
+        UpdateCaseMsg updateCaseMsg = Helper.generateUpdateCaseMsg();
+        when(userService.getAccessToken()).thenReturn(USER_TOKEN);
+        when(singleReadingService.retrieveSingleCaseAsync(eq(USER_TOKEN), eq(updateCaseMsg), any()))
+            .thenReturn(CompletableFuture.completedFuture(new ArrayList<>()));
+
+        updatePipelineService.updateLogicAsync(updateCaseMsg, null).get();
+
+        verify(singleUpdateService, never()).startUpdate(any(), any(), any());
+        verify(updateManagementService).checkIfFinish(updateCaseMsg, null);
+    }
+
+    @Test
+    public void holdsNoIoThreadWhileLookupWaitsForItsBatch() throws Exception {
+        UpdateCaseMsg updateCaseMsg = Helper.generateUpdateCaseMsg();
+        CompletableFuture<List<SubmitEvent>> lookup = new CompletableFuture<>();
+        when(userService.getAccessToken()).thenReturn(USER_TOKEN);
+        when(singleReadingService.retrieveSingleCaseAsync(eq(USER_TOKEN), eq(updateCaseMsg), any()))
+            .thenReturn(lookup);
+        when(singleUpdateService.startUpdate(submitEvent, USER_TOKEN, updateCaseMsg)).thenReturn(new CCDRequest());
+
+        CompletableFuture<Void> first = updatePipelineService.updateLogicAsync(updateCaseMsg, null);
+        CompletableFuture<Void> second = updatePipelineService.updateLogicAsync(updateCaseMsg, null);
+        verify(singleReadingService, timeout(5_000).times(2))
+            .retrieveSingleCaseAsync(eq(USER_TOKEN), eq(updateCaseMsg), any());
+
+        // Both I/O threads are free to run other stages while the two lookups wait
+        CompletableFuture.runAsync(() -> { }, ccdIo).get(5, TimeUnit.SECONDS);
+        lookup.complete(new ArrayList<>(Collections.singletonList(submitEvent)));
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+        verify(updateManagementService, times(2)).checkIfFinish(updateCaseMsg, null);
+    }
+
+    @Test
+    public void failsWithCauseOfFailedStage() throws Exception {
+        UpdateCaseMsg updateCaseMsg = Helper.generateUpdateCaseMsg();
+        when(userService.getAccessToken()).thenReturn(USER_TOKEN);
+        when(singleReadingService.retrieveSingleCaseAsync(eq(USER_TOKEN), eq(updateCaseMsg), any()))
+            .thenReturn(CompletableFuture.completedFuture(new ArrayList<>(Collections.singletonList(submitEvent))));
+        when(singleUpdateService.startUpdate(submitEvent, USER_TOKEN, updateCaseMsg)).thenReturn(new CCDRequest());
+        doThrow(new IOException("Submit failed"))
+            .when(singleUpdateService).submitUpdate(any(), any(), any(), any());
+
+        try {
+            updatePipelineService.updateLogicAsync(updateCaseMsg, null).get();
+            fail("Expected the update to fail");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+        verify(updateManagementService, never()).checkIfFinish(any(), any());
+    }
+
+    @Test
+    public void submitsCreationAfterTransfer() throws Exception {
+        UpdateCaseMsg updateCaseMsg = Helper.generateCreationSingleCaseMsg();
+        PreparedCreation preparedCreation = mock(PreparedCreation.class);
+        when(userService.getAccessToken()).thenReturn(USER_TOKEN);
+        when(singleReadingService.retrieveSingleCaseAsync(eq(USER_TOKEN), eq(updateCaseMsg), any()))
+            .thenReturn(CompletableFuture.completedFuture(new ArrayList<>(Collections.singletonList(submitEvent))));
+        when(singleCreationService.findDestinationCaseAsync(eq(submitEvent), eq(USER_TOKEN), eq(updateCaseMsg), any()))
+            .thenReturn(CompletableFuture.completedFuture(null));
+        when(singleCreationService.prepareCreation(submitEvent, null, USER_TOKEN, updateCaseMsg))
+            .thenReturn(preparedCreation);
+
+        updatePipelineService.updateLogicAsync(updateCaseMsg, null).get();
+
+        InOrder inOrder = inOrder(singleTransferService, singleCreationService, updateManagementService);
+        inOrder.verify(singleTransferService).markTransferred(submitEvent, updateCaseMsg);
+        inOrder.verify(singleTransferService).submitTransferred(submitEvent, USER_TOKEN, updateCaseMsg);
+        inOrder.verify(singleCreationService).submitCreation(USER_TOKEN, preparedCreation);
+        inOrder.verify(updateManagementService).checkIfFinish(updateCaseMsg, null);
+        verify(singleReadingService).invalidateSingleCase(updateCaseMsg);
+    }
+
+    @Test
+    public void doesNotSubmitCreationWhenTransferFails() throws Exception {
+        UpdateCaseMsg updateCaseMsg = Helper.generateCreationSingleCaseMsg();
+        when(userService.getAccessToken()).thenReturn(USER_TOKEN);
+        when(singleReadingService.retrieveSingleCaseAsync(eq(USER_TOKEN), eq(updateCaseMsg), any()))
+            .thenReturn(CompletableFuture.completedFuture(new ArrayList<>(Collections.singletonList(submitEvent))));
+        when(singleCreationService.findDestinationCaseAsync(eq(submitEvent), eq(USER_TOKEN), eq(updateCaseMsg), any()))
+            .thenReturn(CompletableFuture.completedFuture(null));
+        doThrow(new IOException("Transfer failed"))
+            .when(singleTransferService).submitTransferred(submitEvent, USER_TOKEN, updateCaseMsg);
+
+        try {
+            updatePipelineService.updateLogicAsync(updateCaseMsg, null).get();
+            fail("Expected the transfer to fail");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+        verify(singleCreationService, never()).submitCreation(any(), any());
+        verify(updateManagementService, never()).checkIfFinish(any(), any());
+    }
+
+    @Test
+    public void resetsStateWithoutCcdCalls() throws Exception {
+        UpdateCaseMsg updateCaseMsg = Helper.generateUpdateCaseMsg();
+        updateCaseMsg.setDataModelParent(ResetStateDataModel.builder().build());
+
+        updatePipelineService.updateLogicAsync(updateCaseMsg, null).get();
+
+        verify(updateManagementService).resetState(updateCaseMsg);
+        verify(updateManagementService, never()).checkIfFinish(any(), any());
+        verifyNoInteractions(userService, singleReadingService);
+    }
+}
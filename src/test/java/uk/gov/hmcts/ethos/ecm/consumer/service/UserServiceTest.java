@@ -9,7 +9,7 @@ import org.mockito.junit.MockitoJUnitRunner;
 import org.springframework.test.util.ReflectionTestUtils;
 import uk.gov.hmcts.ecm.common.idam.models.UserDetails;
 import uk.gov.hmcts.reform.ethos.ecm.consumer.idam.IdamApi;
-import uk.gov.hmcts.reform.ethos.ecm.consumer.service.AccessTokenService;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.AccessTokenCache;
 import uk.gov.hmcts.reform.ethos.ecm.consumer.service.UserService;
 import java.util.Collections;
 import static org.junit.Assert.assertEquals;
@@ -24,7 +24,7 @@ public class UserServiceTest {
     @Mock
     private transient IdamApi idamApi;
     @Mock
-    private transient AccessTokenService accessTokenService;
+    private transient AccessTokenCache accessTokenCache;
     private transient UserDetails userDetails;
 
     private static final String TOKEN = "accessToken";
@@ -33,7 +33,7 @@ public class UserServiceTest {
     public void setUp() {
         userDetails = getUserDetails();
         idamApi = authorisation -> getUserDetails();
-        userService = new UserService(idamApi, accessTokenService);
+        userService = new UserService(idamApi, accessTokenCache);
         ReflectionTestUtils.setField(userService, "caseWorkerUserName", "example@gmail.com");
         ReflectionTestUtils.setField(userService, "caseWorkerPassword", "123456");
     }
@@ -59,7 +59,7 @@ public class UserServiceTest {
 
     @Test
     public void getAccessToken() {
-        when(accessTokenService.getAccessToken(anyString(), anyString())).thenReturn(TOKEN);
+        when(accessTokenCache.getAccessToken(anyString(), anyString())).thenReturn(TOKEN);
         assertEquals(TOKEN, userService.getAccessToken());
     }
 
@@ -0,0 +1,117 @@
+package uk.gov.hmcts.ethos.ecm.consumer.servicebus;
+
+import com.microsoft.azure.servicebus.ExceptionPhase;
+import com.microsoft.azure.servicebus.IMessage;
+import com.microsoft.azure.servicebus.IMessageHandler;
+import com.microsoft.azure.servicebus.IMessageReceiver;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.servicebus.BatchMessageReceiver;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.servicebus.ConsumptionGate;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class BatchMessageReceiverTest {
+
+    private static final Duration MAX_WAIT = Duration.ofMillis(10);
+
+    @Mock
+    private transient IMessageReceiver messageReceiver;
+    @Mock
+    private transient IMessageHandler messageHandler;
+
+    private transient BatchMessageReceiver batchMessageReceiver;
+
+    @Before
+    public void setUp() {
+        batchMessageReceiver = new BatchMessageReceiver(
+            "test-receive", messageReceiver, messageHandler, ConsumptionGate.OPEN, 4, MAX_WAIT, 2,
+            Duration.ofMinutes(1), Duration.ofMinutes(5));
+    }
+
+    @After
+    public void tearDown() {
+        batchMessageReceiver.stop();
+    }
+
+    @Test
+    public void receivesNoMoreThanFreeCapacity() throws Exception {
+        List<IMessage> batch = List.of(mock(IMessage.class), mock(IMessage.class));
+        when(messageReceiver.receiveBatch(anyInt(), any(Duration.class)))
+            .thenReturn(batch)
+            .thenReturn(List.of(mock(IMessage.class)))
+            .thenAnswer(invocation -> {
+                TimeUnit.MILLISECONDS.sleep(10);
+                return Collections.emptyList();
+            });
+        CompletableFuture<Void> first = new CompletableFuture<>();
+        when(messageHandler.onMessageAsync(any()))
+            .thenReturn(first)
+            .thenReturn(new CompletableFuture<>())
+            .thenReturn(new CompletableFuture<>());
+
+        batchMessageReceiver.start();
+
+        verify(messageReceiver, timeout(1000)).receiveBatch(2, MAX_WAIT);
+        verify(messageReceiver, after(200).times(1)).receiveBatch(anyInt(), any(Duration.class));
+        first.complete(null);
+        verify(messageReceiver, timeout(1000)).receiveBatch(1, MAX_WAIT);
+        verify(messageHandler, timeout(1000).times(3)).onMessageAsync(any());
+    }
+
+    @Test
+    public void receivesNothingWhileGateIsClosed() throws Exception {
+        batchMessageReceiver.stop();
+        CountDownLatch gateOpened = new CountDownLatch(1);
+        batchMessageReceiver = new BatchMessageReceiver(
+            "test-receive", messageReceiver, messageHandler, gateOpened::await, 4, MAX_WAIT, 2,
+            Duration.ofMinutes(1), Duration.ofMinutes(5));
+        when(messageReceiver.receiveBatch(anyInt(), any(Duration.class)))
+            .thenAnswer(invocation -> {
+                TimeUnit.MILLISECONDS.sleep(10);
+                return Collections.emptyList();
+            });
+
+        batchMessageReceiver.start();
+
+        verify(messageReceiver, after(200).never()).receiveBatch(anyInt(), any(Duration.class));
+        gateOpened.countDown();
+        verify(messageReceiver, timeout(1000).atLeastOnce()).receiveBatch(2, MAX_WAIT);
+    }
+
+    @Test
+    public void notifiesFailedMessageHandling() throws Exception {
+        IMessage message = mock(IMessage.class);
+        when(messageReceiver.receiveBatch(anyInt(), any(Duration.class)))
+            .thenReturn(List.of(message))
+            .thenAnswer(invocation -> {
+                TimeUnit.MILLISECONDS.sleep(10);
+                return Collections.emptyList();
+            });
+        var failure = new IllegalStateException("Failed");
+        when(messageHandler.onMessageAsync(message)).thenReturn(CompletableFuture.failedFuture(failure));
+
+        batchMessageReceiver.start();
+
+        verify(messageHandler, timeout(1000).times(1))
+            .notifyException(failure, ExceptionPhase.USERCALLBACK);
+    }
+}
@@ -0,0 +1,74 @@
+package uk.gov.hmcts.ethos.ecm.consumer.servicebus;
+
+import org.junit.Test;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.servicebus.FairTaskQueue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FairTaskQueueTest {
+
+    @Test
+    public void alternatesBetweenMultiplesOfOffice() {
+        FairTaskQueue<String> queue = new FairTaskQueue<>(Map.of());
+        for (int i = 0; i < 4; i++) {
+            queue.add("Manchester", "large", "large-" + i);
+        }
+        queue.add("Manchester", "small", "small-0");
+        queue.add("Manchester", "small", "small-1");
+
+        assertEquals(List.of("large-0", "small-0", "large-1", "small-1", "large-2", "large-3"), drain(queue));
+    }
+
+    @Test
+    public void weightsOffices() {
+        FairTaskQueue<String> queue = new FairTaskQueue<>(Map.of("Manchester", 2));
+        for (int i = 0; i < 4; i++) {
+            queue.add("Manchester", "2400001/2020", "manchester-" + i);
+            queue.add("Scotland", "4100001/2020", "scotland-" + i);
+        }
+
+        assertEquals(List.of("manchester-0", "manchester-1", "scotland-0", "manchester-2", "manchester-3",
+                             "scotland-1", "scotland-2", "scotland-3"), drain(queue));
+    }
+
+    @Test
+    public void emptiesAndRefills() {
+        FairTaskQueue<String> queue = new FairTaskQueue<>(Map.of());
+        queue.add("Manchester", "2400001/2020", "first");
+
+        assertEquals("first", queue.poll());
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+
+        queue.add("Manchester", "2400001/2020", "second");
+        assertEquals(1, queue.size());
+        assertEquals("second", queue.poll());
+    }
+
+    @Test
+    public void countsMultiplesWithTasks() {
+        FairTaskQueue<String> queue = new FairTaskQueue<>(Map.of());
+        queue.add("Manchester", "2400001/2020", "manchester-0");
+        queue.add("Manchester", "2400001/2020", "manchester-1");
+        queue.add("Manchester", "2400002/2020", "manchester-2");
+        queue.add("Scotland", "4100001/2020", "scotland-0");
+
+        assertEquals(3, queue.multipleCount());
+        drain(queue);
+        assertEquals(0, queue.multipleCount());
+    }
+
+    private static List<String> drain(FairTaskQueue<String> queue) {
+        List<String> tasks = new ArrayList<>();
+        while (!queue.isEmpty()) {
+            tasks.add(queue.poll());
+        }
+        return tasks;
+    }
+}
@@ -0,0 +1,108 @@
+package uk.gov.hmcts.ethos.ecm.consumer.servicebus;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.servicebus.KeyedSerialExecutor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class KeyedSerialExecutorTest {
+
+    private transient ExecutorService pool;
+    private transient KeyedSerialExecutor keyedSerialExecutor;
+
+    @Before
+    public void setUp() {
+        pool = Executors.newFixedThreadPool(4);
+        keyedSerialExecutor = new KeyedSerialExecutor(pool);
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void keepsSubmissionOrderForSameKey() throws InterruptedException, ExecutionException {
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        List<CompletableFuture<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            int position = i;
+            futures.add(keyedSerialExecutor.submit("4150002/2020", () -> {
+                order.add(position);
+                return position;
+            }));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get();
+
+        for (int i = 0; i < 50; i++) {
+            assertEquals(Integer.valueOf(i), order.get(i));
+        }
+    }
+
+    @Test
+    public void runsDifferentKeysConcurrently() throws InterruptedException, ExecutionException {
+        CountDownLatch bothRunning = new CountDownLatch(2);
+        CompletableFuture<Boolean> first = keyedSerialExecutor.submit("4150001/2020", () -> await(bothRunning));
+        CompletableFuture<Boolean> second = keyedSerialExecutor.submit("4150002/2020", () -> await(bothRunning));
+
+        assertTrue(first.get());
+        assertTrue(second.get());
+    }
+
+    @Test
+    public void continuesAfterFailureForSameKey() throws InterruptedException, ExecutionException {
+        CompletableFuture<String> failed = keyedSerialExecutor.submit("4150002/2020", () -> {
+            throw new IllegalStateException("Failed");
+        });
+        CompletableFuture<String> next = keyedSerialExecutor.submit("4150002/2020", () -> "ok");
+
+        assertEquals("ok", next.get());
+        assertTrue(failed.isCompletedExceptionally());
+    }
+
+    @Test
+    public void waitsForAsyncTaskBeforeNextForSameKey() throws InterruptedException, ExecutionException {
+        CompletableFuture<String> pending = new CompletableFuture<>();
+        CompletableFuture<String> first = keyedSerialExecutor.submitAsync("4150002/2020", () -> pending);
+        CompletableFuture<String> second = keyedSerialExecutor.submit("4150002/2020", () -> "second");
+
+        TimeUnit.MILLISECONDS.sleep(50);
+        assertFalse(second.isDone());
+
+        pending.complete("first");
+        assertEquals("first", first.get());
+        assertEquals("second", second.get());
+    }
+
+    @Test
+    public void releasesKeysWhenIdle() throws InterruptedException, ExecutionException {
+        keyedSerialExecutor.submit("4150002/2020", () -> "ok").get();
+        TimeUnit.MILLISECONDS.sleep(50);
+
+        assertEquals(0, keyedSerialExecutor.activeKeys());
+    }
+
+    private static boolean await(CountDownLatch latch) {
+        latch.countDown();
+        try {
+            return latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
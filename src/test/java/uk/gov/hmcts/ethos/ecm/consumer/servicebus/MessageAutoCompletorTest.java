@@ -1,5 +1,6 @@
 package uk.gov.hmcts.ethos.ecm.consumer.servicebus;
 
+import com.microsoft.azure.servicebus.IMessageReceiver;
 import com.microsoft.azure.servicebus.IQueueClient;
 import org.junit.Before;
 import org.junit.Test;
@@ -11,6 +12,8 @@ import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import uk.gov.hmcts.reform.ethos.ecm.consumer.servicebus.MessageAutoCompletor;
 
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 
 @RunWith(SpringJUnit4ClassRunner.class)
 public class MessageAutoCompletorTest {
@@ -19,6 +22,8 @@ public class MessageAutoCompletorTest {
     private transient MessageAutoCompletor completor;
     @Mock
     private transient IQueueClient queueClient;
+    @Mock
+    private transient IMessageReceiver messageReceiver;
 
     private static final UUID LOCK_TOKEN = UUID.randomUUID();
 
@@ -34,4 +39,15 @@ public class MessageAutoCompletorTest {
         Mockito.verifyNoMoreInteractions(queueClient);
     }
 
+    @Test
+    public void completeAsyncThroughReceiver() throws Exception {
+        Mockito.when(messageReceiver.completeAsync(LOCK_TOKEN)).thenReturn(CompletableFuture.completedFuture(null));
+        var receiverCompletor = new MessageAutoCompletor(messageReceiver);
+
+        receiverCompletor.completeAsync(LOCK_TOKEN).get(1, TimeUnit.SECONDS);
+
+        Mockito.verify(messageReceiver).completeAsync(LOCK_TOKEN);
+        Mockito.verifyNoInteractions(queueClient);
+    }
+
 }
@@ -0,0 +1,149 @@
+package uk.gov.hmcts.ethos.ecm.consumer.servicebus;
+
+import com.microsoft.azure.servicebus.IMessage;
+import com.microsoft.azure.servicebus.IQueueClient;
+import com.microsoft.azure.servicebus.Message;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.servicebus.MessageRescheduler;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class MessageReschedulerTest {
+
+    @Mock
+    private transient IQueueClient sendClient;
+
+    private transient MessageRescheduler messageRescheduler;
+
+    @Before
+    public void setUp() {
+        messageRescheduler = new MessageRescheduler(sendClient, Duration.ofSeconds(2), Duration.ofMinutes(5),
+                                                    Duration.ofSeconds(10));
+    }
+
+    @Test
+    public void backoffGrowsExponentiallyWithJitter() {
+        assertBetween(1_000, 2_000, messageRescheduler.backoff(1));
+        assertBetween(2_000, 4_000, messageRescheduler.backoff(2));
+        assertBetween(8_000, 16_000, messageRescheduler.backoff(4));
+    }
+
+    @Test
+    public void backoffIsCappedAtMaxDelay() {
+        assertBetween(150_000, 300_000, messageRescheduler.backoff(10));
+        assertBetween(150_000, 300_000, messageRescheduler.backoff(100));
+    }
+
+    @Test
+    public void rescheduleAsyncSendsNextAttempt() throws Exception {
+        when(sendClient.scheduleMessageAsync(any(IMessage.class), any(Instant.class)))
+            .thenReturn(CompletableFuture.completedFuture(1L));
+        Message message = new Message("body");
+        message.setMessageId("4150002-1");
+        message.setProperties(Map.of("claimCheckId", "4150002"));
+
+        Instant before = Instant.now();
+        Instant scheduledTime = messageRescheduler.rescheduleAsync(message).get();
+
+        ArgumentCaptor<IMessage> retry = ArgumentCaptor.forClass(IMessage.class);
+        verify(sendClient).scheduleMessageAsync(retry.capture(), any(Instant.class));
+        assertEquals("4150002-1-retry-1", retry.getValue().getMessageId());
+        assertEquals(1, MessageRescheduler.retryAttempt(retry.getValue()));
+        assertEquals("4150002", retry.getValue().getProperties().get("claimCheckId"));
+        assertTrue(scheduledTime.isAfter(before.plusMillis(999)));
+    }
+
+    @Test
+    public void rescheduleAsyncKeepsOriginalMessageId() throws Exception {
+        when(sendClient.scheduleMessageAsync(any(IMessage.class), any(Instant.class)))
+            .thenReturn(CompletableFuture.completedFuture(1L));
+        Message message = new Message("body");
+        message.setMessageId("4150002-1-retry-2");
+        message.setProperties(Map.of(MessageRescheduler.RETRY_ATTEMPT, 2,
+                                     MessageRescheduler.ORIGINAL_MESSAGE_ID, "4150002-1"));
+
+        messageRescheduler.rescheduleAsync(message).get();
+
+        ArgumentCaptor<IMessage> retry = ArgumentCaptor.forClass(IMessage.class);
+        verify(sendClient).scheduleMessageAsync(retry.capture(), any(Instant.class));
+        assertEquals("4150002-1-retry-3", retry.getValue().getMessageId());
+        assertEquals(3, MessageRescheduler.retryAttempt(retry.getValue()));
+    }
+
+    @Test
+    public void deliveryAttemptsCountsDeliveriesOfEarlierCopies() {
+        IMessage message = mock(IMessage.class);
+        when(message.getProperties()).thenReturn(Map.of(MessageRescheduler.RETRY_ATTEMPT, 2,
+                                                        MessageRescheduler.PREVIOUS_DELIVERIES, 5));
+        when(message.getDeliveryCount()).thenReturn(3L);
+
+        assertEquals(8, MessageRescheduler.deliveryAttempts(message));
+    }
+
+    @Test
+    public void deliveryAttemptsCountsEarlierCopiesOnceWithoutPreviousDeliveries() {
+        IMessage message = mock(IMessage.class);
+        when(message.getProperties()).thenReturn(Map.of(MessageRescheduler.RETRY_ATTEMPT, 2));
+        when(message.getDeliveryCount()).thenReturn(1L);
+
+        assertEquals(3, MessageRescheduler.deliveryAttempts(message));
+    }
+
+    @Test
+    public void rescheduleAsyncCarriesDeliveries() throws Exception {
+        when(sendClient.scheduleMessageAsync(any(IMessage.class), any(Instant.class)))
+            .thenReturn(CompletableFuture.completedFuture(1L));
+        Message message = new Message("body");
+        message.setMessageId("4150002-1-retry-1");
+        message.setProperties(Map.of(MessageRescheduler.RETRY_ATTEMPT, 1,
+                                     MessageRescheduler.PREVIOUS_DELIVERIES, 4,
+                                     MessageRescheduler.ORIGINAL_MESSAGE_ID, "4150002-1"));
+
+        messageRescheduler.rescheduleAsync(message).get();
+
+        ArgumentCaptor<IMessage> retry = ArgumentCaptor.forClass(IMessage.class);
+        verify(sendClient).scheduleMessageAsync(retry.capture(), any(Instant.class));
+        assertEquals(5L, retry.getValue().getProperties().get(MessageRescheduler.PREVIOUS_DELIVERIES));
+    }
+
+    @Test
+    public void deferAsyncKeepsAttemptAndDeliveries() throws Exception {
+        when(sendClient.scheduleMessageAsync(any(IMessage.class), any(Instant.class)))
+            .thenReturn(CompletableFuture.completedFuture(1L));
+        Message message = new Message("body");
+        message.setMessageId("4150002-1-retry-1");
+        message.setProperties(Map.of(MessageRescheduler.RETRY_ATTEMPT, 1,
+                                     MessageRescheduler.PREVIOUS_DELIVERIES, 4,
+                                     MessageRescheduler.ORIGINAL_MESSAGE_ID, "4150002-1"));
+
+        messageRescheduler.deferAsync(message).get();
+        messageRescheduler.deferAsync(message).get();
+
+        ArgumentCaptor<IMessage> deferred = ArgumentCaptor.forClass(IMessage.class);
+        verify(sendClient, times(2)).scheduleMessageAsync(deferred.capture(), any(Instant.class));
+        assertEquals("4150002-1-retry-1-deferred-1", deferred.getValue().getMessageId());
+        assertEquals(1, MessageRescheduler.retryAttempt(deferred.getValue()));
+        assertEquals(4L, deferred.getValue().getProperties().get(MessageRescheduler.PREVIOUS_DELIVERIES));
+    }
+
+    private static void assertBetween(long minMillis, long maxMillis, Duration delay) {
+        assertTrue(delay.toMillis() >= minMillis && delay.toMillis() <= maxMillis);
+    }
+}
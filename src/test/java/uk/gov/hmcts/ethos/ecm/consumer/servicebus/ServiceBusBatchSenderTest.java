@@ -0,0 +1,142 @@
+package uk.gov.hmcts.ethos.ecm.consumer.servicebus;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microsoft.azure.servicebus.IMessage;
+import com.microsoft.azure.servicebus.IQueueClient;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.hmcts.ecm.common.model.servicebus.UpdateCaseMsg;
+import uk.gov.hmcts.ethos.ecm.consumer.helpers.Helper;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.config.JacksonConfiguration;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.model.servicebus.FanOutPosition;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.servicebus.ServiceBusBatchSender;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ServiceBusBatchSenderTest {
+
+    @Mock
+    private transient IQueueClient sendClient;
+
+    private final transient ObjectMapper objectMapper = new JacksonConfiguration().objectMapper();
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void sendsMessagesInBatchesOfMaxSize() throws InterruptedException, ExecutionException {
+        when(sendClient.sendBatchAsync(any())).thenReturn(CompletableFuture.completedFuture(null));
+        ServiceBusBatchSender sender = new ServiceBusBatchSender(sendClient, objectMapper, 10, 200_000, 4);
+
+        sender.sendAsync(generateUpdateCaseMsgs(25)).get();
+
+        ArgumentCaptor<Collection<? extends IMessage>> batches = ArgumentCaptor.forClass(Collection.class);
+        verify(sendClient, times(3)).sendBatchAsync(batches.capture());
+        assertEquals(10, batches.getAllValues().get(0).size());
+        assertEquals(10, batches.getAllValues().get(1).size());
+        assertEquals(5, batches.getAllValues().get(2).size());
+        IMessage first = batches.getAllValues().get(0).iterator().next();
+        assertEquals("msg-0", first.getMessageId());
+        assertEquals("application/json", first.getContentType());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void setsFanOutPositionOfEachMessage() throws InterruptedException, ExecutionException {
+        when(sendClient.sendBatchAsync(any())).thenReturn(CompletableFuture.completedFuture(null));
+        ServiceBusBatchSender sender = new ServiceBusBatchSender(sendClient, objectMapper, 2, 200_000, 4);
+
+        sender.sendAsync(generateUpdateCaseMsgs(3), Map.of(FanOutPosition.FAN_OUT_ID, "fanOut1"), 10).get();
+
+        ArgumentCaptor<Collection<? extends IMessage>> batches = ArgumentCaptor.forClass(Collection.class);
+        verify(sendClient, times(2)).sendBatchAsync(batches.capture());
+        List<IMessage> sent = new ArrayList<>();
+        batches.getAllValues().forEach(sent::addAll);
+        for (int i = 0; i < sent.size(); i++) {
+            FanOutPosition fanOutPosition = FanOutPosition.fromProperties(sent.get(i).getProperties());
+            assertEquals("fanOut1", fanOutPosition.fanOutId);
+            assertEquals(10 + i, fanOutPosition.caseIndex);
+        }
+    }
+
+    @Test
+    public void splitsBatchesOnMaxBytes() throws InterruptedException, ExecutionException {
+        when(sendClient.sendBatchAsync(any())).thenReturn(CompletableFuture.completedFuture(null));
+        ServiceBusBatchSender sender = new ServiceBusBatchSender(sendClient, objectMapper, 100, 1, 4);
+
+        sender.sendAsync(generateUpdateCaseMsgs(3)).get();
+
+        verify(sendClient, times(3)).sendBatchAsync(any());
+    }
+
+    @Test
+    public void boundsBatchesAwaitingAcknowledgement()
+        throws InterruptedException, ExecutionException, TimeoutException {
+        ConcurrentLinkedQueue<CompletableFuture<Void>> acknowledgements = new ConcurrentLinkedQueue<>();
+        when(sendClient.sendBatchAsync(any())).thenAnswer(invocation -> {
+            CompletableFuture<Void> acknowledgement = new CompletableFuture<>();
+            acknowledgements.add(acknowledgement);
+            return acknowledgement;
+        });
+        ServiceBusBatchSender sender = new ServiceBusBatchSender(sendClient, objectMapper, 1, 200_000, 2);
+
+        CompletableFuture<Void> sent = CompletableFuture
+            .supplyAsync(() -> sender.sendAsync(generateUpdateCaseMsgs(3)))
+            .thenCompose(future -> future);
+
+        verify(sendClient, after(200).times(2)).sendBatchAsync(any());
+        acknowledgements.poll().complete(null);
+        verify(sendClient, timeout(1000).times(3)).sendBatchAsync(any());
+        assertFalse(sent.isDone());
+
+        acknowledgements.forEach(acknowledgement -> acknowledgement.complete(null));
+        sent.get(1, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void stopsSendingAfterFailedBatch() throws InterruptedException {
+        when(sendClient.sendBatchAsync(any()))
+            .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("Send failed")));
+        ServiceBusBatchSender sender = new ServiceBusBatchSender(sendClient, objectMapper, 1, 200_000, 1);
+
+        CompletableFuture<Void> sent = sender.sendAsync(generateUpdateCaseMsgs(5));
+
+        try {
+            sent.get();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        assertTrue(sent.isCompletedExceptionally());
+        verify(sendClient, times(1)).sendBatchAsync(any());
+    }
+
+    private static List<UpdateCaseMsg> generateUpdateCaseMsgs(int count) {
+        List<UpdateCaseMsg> msgs = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            UpdateCaseMsg msg = Helper.generateUpdateCaseMsg();
+            msg.setMsgId("msg-" + i);
+            msgs.add(msg);
+        }
+        return msgs;
+    }
+}
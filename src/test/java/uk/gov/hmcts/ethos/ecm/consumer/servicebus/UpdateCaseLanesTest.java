@@ -0,0 +1,137 @@
+package uk.gov.hmcts.ethos.ecm.consumer.servicebus;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import uk.gov.hmcts.ecm.common.model.servicebus.UpdateCaseMsg;
+import uk.gov.hmcts.ethos.ecm.consumer.helpers.Helper;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.servicebus.KeyedSerialExecutor;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.servicebus.UpdateCaseLane;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.servicebus.UpdateCaseLanes;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static uk.gov.hmcts.ecm.common.model.helper.Constants.SINGLE_CASE_TYPE;
+
+public class UpdateCaseLanesTest {
+
+    private transient ExecutorService pool;
+    private transient SimpleMeterRegistry meterRegistry;
+    private transient UpdateCaseLane single;
+    private transient UpdateCaseLane bulk;
+    private transient UpdateCaseLane large;
+    private transient UpdateCaseLanes lanes;
+
+    @Before
+    public void setUp() {
+        pool = Executors.newFixedThreadPool(4);
+        meterRegistry = new SimpleMeterRegistry();
+        single = new UpdateCaseLane("single", pool, 2, Map.of(), meterRegistry);
+        bulk = new UpdateCaseLane("bulk", pool, 1, Map.of(), meterRegistry);
+        large = new UpdateCaseLane("large", pool, 1, Map.of(), meterRegistry);
+        lanes = new UpdateCaseLanes(new KeyedSerialExecutor(pool), single, bulk, large, 1000, 2);
+    }
+
+    @After
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    public void routesByMultipleSize() {
+        UpdateCaseMsg singleMsg = Helper.generateUpdateCaseMsg();
+        singleMsg.setMultipleRef(SINGLE_CASE_TYPE);
+        UpdateCaseMsg bulkMsg = Helper.generateUpdateCaseMsg();
+        bulkMsg.setTotalCases("1000");
+        UpdateCaseMsg largeMsg = Helper.generateUpdateCaseMsg();
+        largeMsg.setTotalCases("1001");
+
+        assertSame(single, lanes.laneFor(singleMsg));
+        assertSame(bulk, lanes.laneFor(bulkMsg));
+        assertSame(large, lanes.laneFor(largeMsg));
+        assertSame(single, lanes.laneFor(null));
+    }
+
+    @Test
+    public void limitsTasksInFlightPerLane() throws InterruptedException, ExecutionException {
+        CompletableFuture<String> firstBulk = new CompletableFuture<>();
+        CompletableFuture<String> first = bulk.submitAsync(null, System.nanoTime(), () -> firstBulk);
+        CompletableFuture<String> second = bulk.submitAsync(null, System.nanoTime(), () -> completed("second"));
+        CompletableFuture<String> otherLane = single.submitAsync(null, System.nanoTime(), () -> completed("single"));
+
+        assertEquals("single", otherLane.get());
+        assertFalse(second.isDone());
+        assertEquals(1, bulk.getWaiting());
+
+        firstBulk.complete("first");
+        assertEquals("first", first.get());
+        assertEquals("second", second.get());
+        assertEquals(0, bulk.getWaiting());
+    }
+
+    @Test
+    public void recordsQueueWaitPerLane() throws InterruptedException, ExecutionException {
+        UpdateCaseMsg updateCaseMsg = Helper.generateUpdateCaseMsg();
+        updateCaseMsg.setMultipleRef(SINGLE_CASE_TYPE);
+
+        assertEquals("ok", lanes.submitAsync(updateCaseMsg.getEthosCaseReference(), updateCaseMsg,
+                                             () -> completed("ok")).get());
+
+        assertEquals(1, meterRegistry.get("update-case.lane.queue-wait").tag("lane", "single").timer().count());
+        assertEquals(0, meterRegistry.get("update-case.lane.queue-wait").tag("lane", "bulk").timer().count());
+    }
+
+    @Test
+    public void countsProgressPerActiveMultiple() throws InterruptedException, ExecutionException {
+        UpdateCaseMsg updateCaseMsg = Helper.generateUpdateCaseMsg();
+        CompletableFuture<String> firstCase = new CompletableFuture<>();
+        CompletableFuture<String> first = bulk.submitAsync(updateCaseMsg, System.nanoTime(), () -> firstCase);
+        CompletableFuture<String> secondCase = new CompletableFuture<>();
+        CompletableFuture<String> second = bulk.submitAsync(updateCaseMsg, System.nanoTime(), () -> secondCase);
+
+        firstCase.complete("first");
+        first.get();
+        assertEquals(1, meterRegistry.get("update-case.lane.processed")
+            .tag("multipleRef", updateCaseMsg.getMultipleRef()).counter().count(), 0);
+
+        secondCase.complete("second");
+        second.get();
+        assertNull(meterRegistry.find("update-case.lane.processed")
+                       .tag("multipleRef", updateCaseMsg.getMultipleRef()).counter());
+    }
+
+    @Test
+    public void keepsReceiveSlotsForSingleCases() {
+        UpdateCaseMsg singleMsg = Helper.generateUpdateCaseMsg();
+        singleMsg.setMultipleRef(SINGLE_CASE_TYPE);
+        UpdateCaseMsg bulkMsg = Helper.generateUpdateCaseMsg();
+        bulkMsg.setTotalCases("10");
+        UpdateCaseMsg largeMsg = Helper.generateUpdateCaseMsg();
+        largeMsg.setTotalCases("5000");
+
+        assertTrue(lanes.tryHold(bulkMsg));
+        assertTrue(lanes.tryHold(largeMsg));
+        assertFalse(lanes.tryHold(bulkMsg));
+        assertTrue(lanes.tryHold(singleMsg));
+        assertEquals(2, lanes.getHeldByMultiples());
+
+        lanes.release(largeMsg);
+        lanes.release(singleMsg);
+        assertEquals(1, lanes.getHeldByMultiples());
+        assertTrue(lanes.tryHold(largeMsg));
+    }
+
+    private static CompletableFuture<String> completed(String value) {
+        return CompletableFuture.completedFuture(value);
+    }
+}
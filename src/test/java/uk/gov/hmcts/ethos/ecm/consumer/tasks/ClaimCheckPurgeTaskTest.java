@@ -0,0 +1,38 @@
+package uk.gov.hmcts.ethos.ecm.consumer.tasks;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.ClaimCheckService;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.tasks.ClaimCheckPurgeTask;
+
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class ClaimCheckPurgeTaskTest {
+
+    @Mock
+    private transient ClaimCheckService claimCheckService;
+
+    @Test
+    public void purgesExpiredClaimChecks() {
+        new ClaimCheckPurgeTask(claimCheckService).purgeExpiredClaimChecks();
+
+        verify(claimCheckService).purgeExpired();
+    }
+
+    @Test
+    public void keepsPurgingAfterFailure() {
+        when(claimCheckService.purgeExpired()).thenThrow(new IllegalStateException("Database unavailable"))
+            .thenReturn(2);
+        ClaimCheckPurgeTask claimCheckPurgeTask = new ClaimCheckPurgeTask(claimCheckService);
+
+        claimCheckPurgeTask.purgeExpiredClaimChecks();
+        claimCheckPurgeTask.purgeExpiredClaimChecks();
+
+        verify(claimCheckService, times(2)).purgeExpired();
+    }
+}
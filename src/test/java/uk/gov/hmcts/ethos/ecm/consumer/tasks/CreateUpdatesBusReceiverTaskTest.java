@@ -8,21 +8,38 @@ import com.microsoft.azure.servicebus.MessageBody;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import uk.gov.hmcts.ecm.common.exceptions.InvalidMessageException;
 import uk.gov.hmcts.ecm.common.model.servicebus.CreateUpdatesMsg;
 import uk.gov.hmcts.ecm.common.model.servicebus.Msg;
+import uk.gov.hmcts.ecm.common.model.servicebus.UpdateCaseMsg;
 import uk.gov.hmcts.ecm.common.servicebus.MessageBodyRetriever;
-import uk.gov.hmcts.ecm.common.servicebus.ServiceBusSender;
 import uk.gov.hmcts.ethos.ecm.consumer.helpers.Helper;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.domain.FanOutCheckpoint;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.domain.repository.FanOutCheckpointRepository;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.model.servicebus.FanOutPosition;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.ClaimCheckService;
 import uk.gov.hmcts.reform.ethos.ecm.consumer.servicebus.MessageAutoCompletor;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.servicebus.ServiceBusBatchSender;
 import uk.gov.hmcts.reform.ethos.ecm.consumer.tasks.CreateUpdatesBusReceiverTask;
 import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
 
 import static java.util.Collections.singletonList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -37,7 +54,11 @@ public class CreateUpdatesBusReceiverTaskTest {
     @Mock
     private transient MessageAutoCompletor messageCompletor;
     @Mock
-    private transient ServiceBusSender serviceBusSender;
+    private transient ServiceBusBatchSender serviceBusBatchSender;
+    @Mock
+    private transient FanOutCheckpointRepository fanOutCheckpointRepository;
+    @Mock
+    private transient ClaimCheckService claimCheckService;
 
     private transient Message message;
     private transient CreateUpdatesMsg msg;
@@ -45,18 +66,116 @@ public class CreateUpdatesBusReceiverTaskTest {
     @Before
     public void setUp() {
         createUpdatesBusReceiverTask = new CreateUpdatesBusReceiverTask(objectMapper,
-                                                                        messageCompletor, serviceBusSender);
+                                                                        messageCompletor, serviceBusBatchSender,
+                                                                        fanOutCheckpointRepository, 2,
+                                                                        claimCheckService, false);
         msg = Helper.generateCreateUpdatesMsg();
         message = createMessage(msg);
     }
 
     @Test
-    public void onMessageAsync() throws IOException {
+    public void onMessageAsync() throws IOException, InterruptedException, ExecutionException {
         when(objectMapper.readValue(
             MessageBodyRetriever.getBinaryData(message.getMessageBody()),
             CreateUpdatesMsg.class
         )).thenReturn(msg);
-        createUpdatesBusReceiverTask.onMessageAsync(message);
+        when(serviceBusBatchSender.sendAsync(any(), any(), anyInt())).thenReturn(Helper.getCompletableFuture());
+        when(messageCompletor.completeAsync(any())).thenReturn(Helper.getCompletableFuture());
+        createUpdatesBusReceiverTask.onMessageAsync(message).get();
+        verify(serviceBusBatchSender, times(1)).sendAsync(any(), any(), anyInt());
+        verify(messageCompletor, times(1)).completeAsync(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void onMessageAsyncSendsCheckpointedChunksWithStableIds()
+        throws IOException, InterruptedException, ExecutionException {
+        when(objectMapper.readValue(
+            MessageBodyRetriever.getBinaryData(message.getMessageBody()),
+            CreateUpdatesMsg.class
+        )).thenReturn(msg);
+        when(fanOutCheckpointRepository.findById(msg.getMsgId())).thenReturn(Optional.empty());
+        when(serviceBusBatchSender.sendAsync(any(), any(), anyInt()))
+            .thenReturn(CompletableFuture.completedFuture(null));
+        when(messageCompletor.completeAsync(any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        createUpdatesBusReceiverTask.onMessageAsync(message).get();
+        createUpdatesBusReceiverTask.onMessageAsync(message).get();
+
+        ArgumentCaptor<List<UpdateCaseMsg>> chunks = ArgumentCaptor.forClass(List.class);
+        verify(serviceBusBatchSender, times(4)).sendAsync(chunks.capture(), any(), anyInt());
+        assertEquals(2, chunks.getAllValues().get(0).size());
+        assertEquals(1, chunks.getAllValues().get(1).size());
+        assertEquals(chunks.getAllValues().get(0).get(0).getMsgId(), chunks.getAllValues().get(2).get(0).getMsgId());
+        assertNotEquals(chunks.getAllValues().get(0).get(0).getMsgId(), chunks.getAllValues().get(0).get(1).getMsgId());
+        verify(fanOutCheckpointRepository, times(2))
+            .save(new FanOutCheckpoint(msg.getMsgId(), msg.getMultipleRef(), 2));
+        verify(fanOutCheckpointRepository, times(2)).deleteByCreateUpdatesMsgId(msg.getMsgId());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void onMessageAsyncResumesFromCheckpoint() throws IOException, InterruptedException, ExecutionException {
+        when(objectMapper.readValue(
+            MessageBodyRetriever.getBinaryData(message.getMessageBody()),
+            CreateUpdatesMsg.class
+        )).thenReturn(msg);
+        when(fanOutCheckpointRepository.findById(msg.getMsgId()))
+            .thenReturn(Optional.of(new FanOutCheckpoint(msg.getMsgId(), msg.getMultipleRef(), 2)));
+        when(serviceBusBatchSender.sendAsync(any(), any(), anyInt()))
+            .thenReturn(CompletableFuture.completedFuture(null));
+        when(messageCompletor.completeAsync(any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        createUpdatesBusReceiverTask.onMessageAsync(message).get();
+
+        ArgumentCaptor<List<UpdateCaseMsg>> chunks = ArgumentCaptor.forClass(List.class);
+        verify(serviceBusBatchSender, times(1)).sendAsync(chunks.capture(), any(), anyInt());
+        assertEquals(1, chunks.getValue().size());
+        assertEquals("4150003/2020", chunks.getValue().get(0).getEthosCaseReference());
+        verify(messageCompletor, times(1)).completeAsync(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void onMessageAsyncSendsSlimMessagesWithClaimCheck()
+        throws IOException, InterruptedException, ExecutionException {
+        createUpdatesBusReceiverTask = new CreateUpdatesBusReceiverTask(objectMapper,
+                                                                        messageCompletor, serviceBusBatchSender,
+                                                                        fanOutCheckpointRepository, 2,
+                                                                        claimCheckService, true);
+        when(objectMapper.readValue(
+            MessageBodyRetriever.getBinaryData(message.getMessageBody()),
+            CreateUpdatesMsg.class
+        )).thenReturn(msg);
+        when(fanOutCheckpointRepository.findById(msg.getMsgId())).thenReturn(Optional.empty());
+        when(claimCheckService.store(msg)).thenReturn("claimCheck1");
+        when(serviceBusBatchSender.sendAsync(any(), any(), anyInt()))
+            .thenReturn(CompletableFuture.completedFuture(null));
+        when(messageCompletor.completeAsync(any())).thenReturn(CompletableFuture.completedFuture(null));
+
+        createUpdatesBusReceiverTask.onMessageAsync(message).get();
+
+        ArgumentCaptor<List<UpdateCaseMsg>> chunks = ArgumentCaptor.forClass(List.class);
+        Map<String, Object> properties = Map.of(ClaimCheckService.CLAIM_CHECK_ID, "claimCheck1",
+                                                FanOutPosition.FAN_OUT_ID, msg.getMsgId());
+        verify(serviceBusBatchSender).sendAsync(chunks.capture(), eq(properties), eq(0));
+        verify(serviceBusBatchSender).sendAsync(chunks.capture(), eq(properties), eq(2));
+        verify(claimCheckService, times(1)).store(msg);
+        UpdateCaseMsg updateCaseMsg = chunks.getAllValues().get(0).get(0);
+        assertNull(updateCaseMsg.getDataModelParent());
+        assertEquals(msg.getMultipleRef(), updateCaseMsg.getMultipleRef());
+    }
+
+    @Test
+    public void onMessageAsyncBatchSendFailed() throws IOException, InterruptedException, ExecutionException {
+        when(objectMapper.readValue(
+            MessageBodyRetriever.getBinaryData(message.getMessageBody()),
+            CreateUpdatesMsg.class
+        )).thenReturn(msg);
+        when(serviceBusBatchSender.sendAsync(any(), any(), anyInt()))
+            .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("Send failed")));
+        createUpdatesBusReceiverTask.onMessageAsync(message).get();
+        verify(messageCompletor, never()).completeAsync(any());
     }
 
     @Test
@@ -67,6 +186,7 @@ public class CreateUpdatesBusReceiverTaskTest {
             MessageBodyRetriever.getBinaryData(message.getMessageBody()),
             CreateUpdatesMsg.class
         )).thenReturn(msg);
+        when(serviceBusBatchSender.sendAsync(any(), any(), anyInt())).thenReturn(Helper.getCompletableFuture());
         when(messageCompletor.completeAsync(any())).thenReturn(Helper.getCompletableFuture());
         createUpdatesBusReceiverTask.onMessageAsync(message);
         verify(objectMapper, times(2)).writeValueAsBytes(msg);
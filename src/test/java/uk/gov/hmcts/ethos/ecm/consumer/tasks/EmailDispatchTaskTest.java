@@ -0,0 +1,92 @@
+package uk.gov.hmcts.ethos.ecm.consumer.tasks;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.domain.PendingEmail;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.EmailService;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.tasks.EmailDispatchTask;
+import uk.gov.service.notify.NotificationClientException;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static uk.gov.hmcts.reform.ethos.ecm.consumer.helpers.Constants.CONFIRMATION_OK_EMAIL;
+
+@RunWith(MockitoJUnitRunner.class)
+public class EmailDispatchTaskTest {
+
+    private static final String REFERENCE_ID = "1b4f1c8e-3c2a-4c39-9d2b-8f0e6a0d1f11";
+    private static final int THREADS = 2;
+    private static final int LEASE_SECONDS = 120;
+    private static final int MAX_ATTEMPTS = 3;
+
+    @Mock
+    private transient EmailService emailService;
+
+    private transient SimpleMeterRegistry meterRegistry;
+    private transient EmailDispatchTask emailDispatchTask;
+
+    @Before
+    public void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        emailDispatchTask = new EmailDispatchTask(emailService, Runnable::run, meterRegistry,
+                                                  THREADS, LEASE_SECONDS, MAX_ATTEMPTS, 30, 3600);
+    }
+
+    @Test
+    public void sendsClaimedEmail() throws NotificationClientException, IOException {
+        PendingEmail pendingEmail = claim(1);
+
+        emailDispatchTask.dispatchDueEmails();
+
+        verify(emailService).claimPendingEmails(THREADS, LEASE_SECONDS);
+        verify(emailService).send(pendingEmail);
+        verify(emailService).removePendingEmail(REFERENCE_ID);
+        assertEquals(1, meterRegistry.get("email.dispatch.latency").timer().count());
+    }
+
+    @Test
+    public void retriesFailedSendWithBackoff() throws NotificationClientException, IOException {
+        PendingEmail pendingEmail = claim(2);
+        doThrow(new NotificationClientException("Status code: 500")).when(emailService).send(pendingEmail);
+
+        emailDispatchTask.dispatchDueEmails();
+
+        verify(emailService).retryLater(REFERENCE_ID, 60);
+        verify(emailService, never()).removePendingEmail(REFERENCE_ID);
+        assertEquals(1.0, meterRegistry.get("email.dispatch.failures").tag("outcome", "retried").counter().count(),
+                     0.0);
+    }
+
+    @Test
+    public void dropsEmailAfterMaxAttempts() throws NotificationClientException, IOException {
+        PendingEmail pendingEmail = claim(MAX_ATTEMPTS);
+        doThrow(new NotificationClientException("Status code: 500")).when(emailService).send(pendingEmail);
+
+        emailDispatchTask.dispatchDueEmails();
+
+        verify(emailService).removePendingEmail(REFERENCE_ID);
+        verify(emailService, never()).retryLater(REFERENCE_ID, 120);
+        assertEquals(1.0, meterRegistry.get("email.dispatch.failures").tag("outcome", "dropped").counter().count(),
+                     0.0);
+    }
+
+    private PendingEmail claim(int attempts) {
+        PendingEmail pendingEmail = new PendingEmail(REFERENCE_ID, CONFIRMATION_OK_EMAIL, "example@hmcts.net",
+                                                     "{}", "send Confirmation email", attempts,
+                                                     LocalDateTime.now(), LocalDateTime.now());
+        when(emailService.claimPendingEmails(anyInt(), anyInt())).thenReturn(List.of(pendingEmail));
+        return pendingEmail;
+    }
+}
@@ -0,0 +1,116 @@
+package uk.gov.hmcts.ethos.ecm.consumer.tasks;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.mockito.Mock;
+import org.mockito.junit.MockitoJUnitRunner;
+import uk.gov.hmcts.ecm.common.model.servicebus.UpdateCaseMsg;
+import uk.gov.hmcts.ethos.ecm.consumer.helpers.Helper;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.domain.MultipleFinish;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.MultipleFinishService;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.UpdateManagementService;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.tasks.MultipleFinishTask;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@RunWith(MockitoJUnitRunner.class)
+public class MultipleFinishTaskTest {
+
+    private static final int THREADS = 2;
+    private static final int LEASE_SECONDS = 600;
+    private static final int MAX_ATTEMPTS = 3;
+    private static final String FAN_OUT_ID = "fanOut1";
+    private static final int STEP = MultipleFinishService.MULTIPLE_UPDATED;
+
+    @Mock
+    private transient MultipleFinishService multipleFinishService;
+    @Mock
+    private transient UpdateManagementService updateManagementService;
+
+    private transient MultipleFinishTask multipleFinishTask;
+    private transient UpdateCaseMsg updateCaseMsg;
+
+    @Before
+    public void setUp() {
+        multipleFinishTask = new MultipleFinishTask(multipleFinishService, updateManagementService, Runnable::run,
+                                                    THREADS, LEASE_SECONDS, MAX_ATTEMPTS);
+        updateCaseMsg = Helper.generateUpdateCaseMsg();
+    }
+
+    @Test
+    public void finishesClaimedMultiple() throws IOException {
+        MultipleFinish multipleFinish = claim(1);
+
+        multipleFinishTask.finishDueMultiples();
+
+        verify(multipleFinishService).claim(THREADS, LEASE_SECONDS);
+        verify(updateManagementService).finishMultiple(updateCaseMsg, FAN_OUT_ID, STEP);
+        verify(multipleFinishService).complete(multipleFinish.getMultipleref());
+    }
+
+    @Test
+    public void keepsFailedFinishForRetry() throws IOException {
+        MultipleFinish multipleFinish = claim(1);
+        doThrow(new IOException("Multiple update failed")).when(updateManagementService)
+            .finishMultiple(updateCaseMsg, FAN_OUT_ID, STEP);
+
+        multipleFinishTask.finishDueMultiples();
+
+        verify(multipleFinishService, never()).complete(multipleFinish.getMultipleref());
+    }
+
+    @Test
+    public void givesUpAfterMaxAttempts() throws IOException {
+        MultipleFinish multipleFinish = claim(MAX_ATTEMPTS);
+        doThrow(new IOException("Multiple update failed")).when(updateManagementService)
+            .finishMultiple(updateCaseMsg, FAN_OUT_ID, STEP);
+
+        multipleFinishTask.finishDueMultiples();
+
+        verify(multipleFinishService).complete(multipleFinish.getMultipleref());
+    }
+
+    @Test
+    public void renewsLeaseWhileFinishing() throws IOException {
+        MultipleFinish multipleFinish = claim(1);
+        doAnswer(invocation -> {
+            multipleFinishTask.renewLeases();
+            return null;
+        }).when(updateManagementService).finishMultiple(updateCaseMsg, FAN_OUT_ID, STEP);
+
+        multipleFinishTask.finishDueMultiples();
+        multipleFinishTask.renewLeases();
+
+        verify(multipleFinishService).renewLeases(Set.of(multipleFinish.getMultipleref()), LEASE_SECONDS);
+    }
+
+    @Test
+    public void releasesThreadsAfterFinish() throws IOException {
+        claim(1);
+
+        multipleFinishTask.finishDueMultiples();
+        multipleFinishTask.finishDueMultiples();
+
+        verify(multipleFinishService, times(2)).claim(THREADS, LEASE_SECONDS);
+    }
+
+    private MultipleFinish claim(int attempts) throws IOException {
+        MultipleFinish multipleFinish = new MultipleFinish(updateCaseMsg.getMultipleRef(), "{}", FAN_OUT_ID,
+                                                           STEP, attempts, LocalDateTime.now());
+        when(multipleFinishService.claim(anyInt(), anyInt())).thenReturn(List.of(multipleFinish));
+        when(multipleFinishService.readMessage(multipleFinish)).thenReturn(updateCaseMsg);
+        return multipleFinish;
+    }
+}
@@ -3,6 +3,7 @@ package uk.gov.hmcts.ethos.ecm.consumer.tasks;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.JsonMappingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.microsoft.azure.servicebus.IMessage;
 import com.microsoft.azure.servicebus.Message;
 import com.microsoft.azure.servicebus.MessageBody;
 import org.junit.Before;
@@ -16,14 +17,30 @@ import uk.gov.hmcts.ecm.common.model.servicebus.Msg;
 import uk.gov.hmcts.ecm.common.model.servicebus.UpdateCaseMsg;
 import uk.gov.hmcts.ecm.common.servicebus.MessageBodyRetriever;
 import uk.gov.hmcts.ethos.ecm.consumer.helpers.Helper;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.ClaimCheckService;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.SingleCreationService;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.SingleReadingService;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.SingleTransferService;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.SingleUpdateService;
 import uk.gov.hmcts.reform.ethos.ecm.consumer.service.UpdateManagementService;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.UpdatePipelineService;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.service.UserService;
 import uk.gov.hmcts.reform.ethos.ecm.consumer.servicebus.MessageAutoCompletor;
+import uk.gov.hmcts.reform.ethos.ecm.consumer.servicebus.MessageRescheduler;
 import uk.gov.hmcts.reform.ethos.ecm.consumer.tasks.UpdateCaseBusReceiverTask;
 import java.io.IOException;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static java.util.Collections.singletonList;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @RunWith(SpringJUnit4ClassRunner.class)
@@ -37,13 +54,34 @@ public class UpdateCaseBusReceiverTaskTest {
     private transient MessageAutoCompletor messageCompletor;
     @Mock
     private transient UpdateManagementService updateManagementService;
+    @Mock
+    private transient UserService userService;
+    @Mock
+    private transient SingleReadingService singleReadingService;
+    @Mock
+    private transient SingleUpdateService singleUpdateService;
+    @Mock
+    private transient SingleTransferService singleTransferService;
+    @Mock
+    private transient SingleCreationService singleCreationService;
+    @Mock
+    private transient ClaimCheckService claimCheckService;
+    @Mock
+    private transient MessageRescheduler messageRescheduler;
 
     private transient Message message;
 
     @Before
     public void setUp() {
+        UpdatePipelineService updatePipelineService = new UpdatePipelineService(
+            userService, singleReadingService, singleUpdateService, singleTransferService, singleCreationService,
+            updateManagementService, Helper.ccdCallExecutor(), Runnable::run, Runnable::run);
         updateCaseBusReceiverTask = new UpdateCaseBusReceiverTask(objectMapper,
-                                                                  messageCompletor, updateManagementService);
+                                                                  messageCompletor, updateManagementService,
+                                                                  updatePipelineService,
+                                                                  Helper.updateCaseLanes(
+                                                                      Executors.newSingleThreadExecutor()),
+                                                                  claimCheckService, messageRescheduler);
         message = createMessage();
     }
 
@@ -91,17 +129,111 @@ public class UpdateCaseBusReceiverTaskTest {
             MessageBodyRetriever.getBinaryData(message.getMessageBody()),
             UpdateCaseMsg.class
         )).thenReturn(Helper.generateUpdateCaseMsg());
-        doThrow(new IOException("Failed")).when(updateManagementService).updateLogic(any());
+        when(singleReadingService.retrieveSingleCaseAsync(any(), any(), any()))
+            .thenReturn(CompletableFuture.failedFuture(new IOException("Failed")));
         updateCaseBusReceiverTask.onMessageAsync(message);
     }
 
     @Test
     public void checkIfFinishWhenErrorException() throws IOException, InterruptedException {
-        doThrow(new IOException("Update logic failed")).when(updateManagementService).updateLogic(any());
-        doThrow(new IOException("Check If finish failed")).when(updateManagementService).checkIfFinish(any());
+        when(singleReadingService.retrieveSingleCaseAsync(any(), any(), any()))
+            .thenReturn(CompletableFuture.failedFuture(new IOException("Lookup failed")));
+        doThrow(new IOException("Check If finish failed")).when(updateManagementService).checkIfFinish(any(), any());
         updateCaseBusReceiverTask.onMessageAsync(message);
     }
 
+    @Test
+    public void onMessageAsyncRecoverableFailureReschedules() throws Exception {
+        when(objectMapper.readValue(
+            MessageBodyRetriever.getBinaryData(message.getMessageBody()),
+            UpdateCaseMsg.class
+        )).thenReturn(Helper.generateUpdateCaseMsg());
+        when(singleReadingService.retrieveSingleCaseAsync(any(), any(), any()))
+            .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("CCD unavailable")));
+        when(messageRescheduler.rescheduleAsync(message)).thenReturn(CompletableFuture.completedFuture(Instant.now()));
+        when(messageCompletor.completeAsync(any())).thenReturn(Helper.getCompletableFuture());
+
+        updateCaseBusReceiverTask.onMessageAsync(message).get(5, TimeUnit.SECONDS);
+
+        verify(messageRescheduler).rescheduleAsync(message);
+        verify(messageCompletor).completeAsync(any());
+    }
+
+    @Test
+    public void onMessageAsyncRecoverableFailureRetriesExhausted() throws Exception {
+        message.setProperties(Map.of(MessageRescheduler.RETRY_ATTEMPT, 9));
+        when(objectMapper.readValue(
+            MessageBodyRetriever.getBinaryData(message.getMessageBody()),
+            UpdateCaseMsg.class
+        )).thenReturn(Helper.generateUpdateCaseMsg());
+        when(singleReadingService.retrieveSingleCaseAsync(any(), any(), any()))
+            .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("CCD unavailable")));
+        when(messageCompletor.completeAsync(any())).thenReturn(Helper.getCompletableFuture());
+
+        updateCaseBusReceiverTask.onMessageAsync(message).get(5, TimeUnit.SECONDS);
+
+        verify(messageRescheduler, never()).rescheduleAsync(any());
+        verify(updateManagementService).addUnrecoverableErrorToDatabase(any());
+        verify(updateManagementService).checkIfFinish(any(), any());
+        verify(messageCompletor).completeAsync(any());
+    }
+
+    @Test
+    public void onMessageAsyncFinishesAfterFailedLastReschedule() throws Exception {
+        IMessage retried = mock(IMessage.class);
+        when(retried.getMessageId()).thenReturn("1-retry-8");
+        when(retried.getMessageBody()).thenReturn(message.getMessageBody());
+        when(retried.getProperties()).thenReturn(Map.of(MessageRescheduler.RETRY_ATTEMPT, 8,
+                                                        MessageRescheduler.PREVIOUS_DELIVERIES, 8));
+        when(retried.getDeliveryCount()).thenReturn(1L);
+        when(objectMapper.readValue(
+            MessageBodyRetriever.getBinaryData(message.getMessageBody()),
+            UpdateCaseMsg.class
+        )).thenReturn(Helper.generateUpdateCaseMsg());
+        when(singleReadingService.retrieveSingleCaseAsync(any(), any(), any()))
+            .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("CCD unavailable")));
+        when(messageRescheduler.rescheduleAsync(retried))
+            .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("Queue unavailable")));
+        when(messageCompletor.completeAsync(any())).thenReturn(Helper.getCompletableFuture());
+
+        updateCaseBusReceiverTask.onMessageAsync(retried).get(5, TimeUnit.SECONDS);
+
+        verify(updateManagementService, never()).checkIfFinish(any(), any());
+        verify(messageCompletor, never()).completeAsync(any());
+
+        // Returned to the queue, the copy is delivered again as the final attempt
+        when(retried.getDeliveryCount()).thenReturn(2L);
+        updateCaseBusReceiverTask.onMessageAsync(retried).get(5, TimeUnit.SECONDS);
+
+        verify(messageRescheduler).rescheduleAsync(retried);
+        verify(updateManagementService).addUnrecoverableErrorToDatabase(any());
+        verify(updateManagementService).checkIfFinish(any(), any());
+        verify(messageCompletor).completeAsync(any());
+    }
+
+    @Test
+    public void onMessageAsyncDefersMultipleWhenSlotsAreHeld() throws Exception {
+        UpdatePipelineService updatePipelineService = new UpdatePipelineService(
+            userService, singleReadingService, singleUpdateService, singleTransferService, singleCreationService,
+            updateManagementService, Helper.ccdCallExecutor(), Runnable::run, Runnable::run);
+        updateCaseBusReceiverTask = new UpdateCaseBusReceiverTask(objectMapper, messageCompletor,
+                                                                  updateManagementService, updatePipelineService,
+                                                                  Helper.updateCaseLanes(Runnable::run, 0),
+                                                                  claimCheckService, messageRescheduler);
+        when(objectMapper.readValue(
+            MessageBodyRetriever.getBinaryData(message.getMessageBody()),
+            UpdateCaseMsg.class
+        )).thenReturn(Helper.generateUpdateCaseMsg());
+        when(messageRescheduler.deferAsync(message)).thenReturn(CompletableFuture.completedFuture(Instant.now()));
+        when(messageCompletor.completeAsync(any())).thenReturn(Helper.getCompletableFuture());
+
+        updateCaseBusReceiverTask.onMessageAsync(message).get(5, TimeUnit.SECONDS);
+
+        verify(messageRescheduler).deferAsync(message);
+        verify(messageCompletor).completeAsync(any());
+        verify(singleReadingService, never()).retrieveSingleCaseAsync(any(), any(), any());
+    }
+
     private Message createMessage() {
         UpdateCaseMsg msg = Helper.generateUpdateCaseMsg();
         Message busMessage = new Message();